@@ -0,0 +1,81 @@
+import groovy.json.JsonSlurper
+
+plugins {
+    java
+    id("me.champeau.jmh") version "0.7.2"
+}
+
+java { toolchain { languageVersion.set(JavaLanguageVersion.of(17)) } }
+
+// Repositories are managed centrally via settings.gradle(.kts)
+// (dependencyResolutionManagement + RepositoriesMode.FAIL_ON_PROJECT_REPOS).
+
+dependencies {
+    // Benchmarks run against the canonical sources compiled by the root project (main/java).
+    jmhImplementation(project(":"))
+    jmhImplementation("dev.langchain4j:langchain4j:1.0.1")
+    jmhImplementation("com.fasterxml.jackson.core:jackson-databind:2.17.2")
+    jmhImplementation("com.github.ben-manes.caffeine:caffeine:3.1.8")
+    jmhImplementation("com.microsoft.onnxruntime:onnxruntime:1.19.0")
+    jmhImplementation("org.apache.lucene:lucene-core:9.10.0")
+}
+
+/*
+ * Usage:
+ *   ./gradlew :bench:jmh                                   # all suites
+ *   ./gradlew :bench:jmh -Pjmh.includes='Fusion|Dedup'     # regex over benchmark names
+ *   ./gradlew :bench:jmh -Pjmh.results=base.json           # name the JSON result file
+ *   ./gradlew :bench:jmhDiff -Pbase=build/results/jmh/base.json -Pcurrent=build/results/jmh/results.json
+ *
+ * The gc profiler is always on, so every benchmark also reports gc.alloc.rate.norm (bytes/op).
+ */
+jmh {
+    jmhVersion.set("1.37")
+    (findProperty("jmh.includes") as String?)?.let { includes.set(listOf(it)) }
+    warmupIterations.set(3)
+    warmup.set("1s")
+    iterations.set(5)
+    timeOnIteration.set("1s")
+    fork.set(1)
+    jvmArgs.set(listOf("-Xms1g", "-Xmx1g"))
+    profilers.set(listOf("gc"))
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/" + ((findProperty("jmh.results") as String?) ?: "results.json")))
+    // Optional real ONNX cross-encoder; without it OnnxRuntimeService benchmarks its lexical fallback.
+    (findProperty("onnx.model") as String?)?.let { model ->
+        jvmArgsAppend.set(listOf("-Dbench.onnx.model=$model", "-Dbench.onnx.vocab=${findProperty("onnx.vocab") ?: ""}"))
+    }
+}
+
+/** Prints score and allocation deltas per benchmark between two JMH JSON result files. */
+tasks.register("jmhDiff") {
+    group = "benchmark"
+    description = "Compare two JMH JSON result files (-Pbase=... -Pcurrent=...)"
+    doLast {
+        val base = file(findProperty("base") ?: throw GradleException("-Pbase=<results.json> is required"))
+        val current = file(findProperty("current") ?: layout.buildDirectory.file("results/jmh/results.json").get().asFile)
+
+        fun load(f: File): Map<String, Pair<Double, Double?>> {
+            @Suppress("UNCHECKED_CAST")
+            val rows = JsonSlurper().parse(f) as List<Map<String, Any?>>
+            return rows.associate { r ->
+                val params = (r["params"] as Map<*, *>?)?.entries?.joinToString(",") { "${it.key}=${it.value}" }
+                val name = r["benchmark"].toString() + (if (params.isNullOrEmpty()) "" else "[$params]")
+                val primary = (r["primaryMetric"] as Map<*, *>)["score"] as Number
+                val alloc = ((r["secondaryMetrics"] as Map<*, *>?)?.get("gc.alloc.rate.norm") as Map<*, *>?)
+                    ?.get("score") as Number?
+                name to Pair(primary.toDouble(), alloc?.toDouble())
+            }
+        }
+
+        val a = load(base)
+        val b = load(current)
+        println(String.format("%-90s %14s %14s %9s %14s", "benchmark", "base", "current", "delta", "B/op delta"))
+        for ((name, cur) in b.toSortedMap()) {
+            val old = a[name] ?: continue
+            val delta = if (old.first == 0.0) 0.0 else (cur.first - old.first) / old.first * 100.0
+            val allocDelta = if (old.second != null && cur.second != null) String.format("%+.0f", cur.second!! - old.second!!) else "-"
+            println(String.format("%-90s %14.3f %14.3f %+8.1f%% %14s", name, old.first, cur.first, delta, allocDelta))
+        }
+    }
+}
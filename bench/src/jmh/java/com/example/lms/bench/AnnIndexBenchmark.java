@@ -0,0 +1,196 @@
+package com.example.lms.bench;
+
+import com.abandonware.ai.agent.integrations.AnnIndex;
+import com.abandonware.ai.agent.integrations.AnnMeta;
+import com.abandonware.ai.agent.integrations.HnswIndex;
+import com.abandonware.ai.agent.integrations.IvfFlatIndex;
+import com.example.lms.vector.LocalAnnEmbeddingStore;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Dense retrieval: IVF-flat and HNSW file indexes, and the local ANN embedding store.
+ *
+ * <p>{@code efOrNprobe} sweeps the speed/recall trade-off (efSearch for HNSW, probed lists for
+ * IVF, clamped to nlist). Recall@10 against an exact scan is reported through the
+ * {@code recallHits}/{@code recallExpected} aux counters; recall = hits / expected.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class AnnIndexBenchmark {
+
+    @Param({"10000", "50000"})
+    int rows;
+
+    @Param({"384"})
+    int dim;
+
+    @Param({"8", "32", "64", "128", "256"})
+    int efOrNprobe;
+
+    private static final int K = 10;
+
+    private Path root;
+    private IvfFlatIndex ivf;
+    private HnswIndex hnsw;
+    private LocalAnnEmbeddingStore store;
+    private float[][] queries;
+    private int[] ivfHits;
+    private int[] hnswHits;
+    private int next;
+
+    /** Recall counters; precomputed per query at setup so the measured op only adds two ints. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Recall {
+        public long recallHits;
+        public long recallExpected;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            recallHits = 0;
+            recallExpected = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        float[][] mat = Corpus.vectors(8, rows, dim, Math.max(16, rows / 500));
+        root = Files.createTempDirectory("bench-ann");
+
+        Path ivfDir = Files.createDirectories(root.resolve("ivf"));
+        // save() rewrites the meta into IVF row order, so every index gets its own copy.
+        IvfFlatIndex.save(ivfDir, mat, meta(rows), IvfFlatIndex.defaultNlist(rows));
+        ivf = new IvfFlatIndex(ivfDir);
+
+        Path hnswDir = Files.createDirectories(root.resolve("hnsw"));
+        HnswIndex.Graph g = new HnswIndex.Graph(mat, 16, 100, Corpus.SEED);
+        for (int i = 0; i < rows; i++) {
+            g.insert(i);
+        }
+        g.freeze();
+        HnswIndex.save(hnswDir, meta(rows), g);
+        hnsw = new HnswIndex(hnswDir);
+
+        store = LocalAnnEmbeddingStore.open(root.resolve("store"), false);
+        SplittableRandom r = Corpus.rnd(9);
+        List<String> ids = new ArrayList<>(rows);
+        List<Embedding> embs = new ArrayList<>(rows);
+        List<TextSegment> segs = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            ids.add("doc-" + i);
+            embs.add(Embedding.from(mat[i]));
+            segs.add(TextSegment.from(Corpus.sentence(r, 20)));
+        }
+        store.addAll(ids, embs, segs);
+
+        // Queries are perturbed corpus rows so every search has real near neighbours.
+        queries = Corpus.vectors(10, 256, dim, Math.max(16, rows / 500));
+
+        // Also warms the lazily loaded file indexes outside the measured region.
+        ivfHits = new int[queries.length];
+        hnswHits = new int[queries.length];
+        for (int q = 0; q < queries.length; q++) {
+            Set<String> truth = exactTopK(mat, queries[q]);
+            ivfHits[q] = overlap(truth, ivf.search(queries[q], K, efOrNprobe));
+            hnswHits[q] = overlap(truth, hnsw.search(queries[q], K, efOrNprobe));
+        }
+    }
+
+    private static AnnMeta meta(int rows) {
+        AnnMeta meta = new AnnMeta();
+        for (int i = 0; i < rows; i++) {
+            String id = "doc-" + i;
+            meta.rowToId.add(id);
+            meta.idToRow.put(id, i);
+        }
+        return meta;
+    }
+
+    private static Set<String> exactTopK(float[][] mat, float[] q) {
+        PriorityQueue<double[]> best = new PriorityQueue<>(K + 1, Comparator.comparingDouble(e -> e[0]));
+        for (int i = 0; i < mat.length; i++) {
+            double dot = 0;
+            for (int d = 0; d < q.length; d++) {
+                dot += mat[i][d] * q[d];
+            }
+            best.add(new double[]{dot, i});
+            if (best.size() > K) {
+                best.poll();
+            }
+        }
+        Set<String> ids = new HashSet<>();
+        for (double[] e : best) {
+            ids.add("doc-" + (int) e[1]);
+        }
+        return ids;
+    }
+
+    private static int overlap(Set<String> truth, List<AnnIndex.AnnHit> hits) {
+        int n = 0;
+        for (AnnIndex.AnnHit h : hits) {
+            if (truth.contains(h.docId())) {
+                n++;
+            }
+        }
+        return n;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        try (Stream<Path> s = Files.walk(root)) {
+            s.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private int nextQuery() {
+        return (next++) & (queries.length - 1);
+    }
+
+    private float[] query() {
+        return queries[nextQuery()];
+    }
+
+    @Benchmark
+    public List<AnnIndex.AnnHit> ivfFlat(Recall recall) throws IOException {
+        int q = nextQuery();
+        recall.recallHits += ivfHits[q];
+        recall.recallExpected += K;
+        return ivf.search(queries[q], K, efOrNprobe);
+    }
+
+    @Benchmark
+    public List<AnnIndex.AnnHit> hnsw(Recall recall) throws IOException {
+        int q = nextQuery();
+        recall.recallHits += hnswHits[q];
+        recall.recallExpected += K;
+        return hnsw.search(queries[q], K, efOrNprobe);
+    }
+
+    /** Exact scan; independent of {@code efOrNprobe} (narrow the sweep with {@code -p efOrNprobe=64}). */
+    @Benchmark
+    public EmbeddingSearchResult<TextSegment> localAnnStore() {
+        return store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(Embedding.from(query()))
+                .maxResults(K)
+                .build());
+    }
+}
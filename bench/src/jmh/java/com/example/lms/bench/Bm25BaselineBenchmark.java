@@ -0,0 +1,56 @@
+package com.example.lms.bench;
+
+import com.abandonware.ai.agent.integrations.index.Bm25LocalIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Old vs new {@link Bm25LocalIndex} search on the same corpus as {@link Bm25Benchmark}. Stops at
+ * 100k documents: the baseline rescans the whole corpus per query and needs minutes per op at 1M.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(jvmArgsAppend = "-Xmx4g")
+public class Bm25BaselineBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    int docs;
+
+    private Bm25LocalIndex current;
+    private LegacyBm25LocalIndex legacy;
+    private String[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        SplittableRandom r = Corpus.rnd(6);
+        current = new Bm25LocalIndex();
+        legacy = new LegacyBm25LocalIndex();
+        for (int i = 0; i < docs; i++) {
+            Bm25LocalIndex.Doc d = new Bm25LocalIndex.Doc("d" + i, Corpus.sentence(r, 8), Corpus.sentence(r, 80),
+                    "https://" + Corpus.domain(r) + "/" + i, 1_700_000_000_000L + i);
+            current.add(d);
+            legacy.add(d);
+        }
+        queries = Corpus.sentences(7, 64, 4).toArray(String[]::new);
+    }
+
+    private String query() {
+        return queries[(next++) & (queries.length - 1)];
+    }
+
+    @Benchmark
+    public List<Map.Entry<Bm25LocalIndex.Doc, Double>> invertedIndex() {
+        return current.search(query(), 10);
+    }
+
+    @Benchmark
+    public List<Map.Entry<Bm25LocalIndex.Doc, Double>> legacyFullScan() {
+        return legacy.search(query(), 10);
+    }
+}
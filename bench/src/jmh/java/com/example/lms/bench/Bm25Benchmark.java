@@ -0,0 +1,82 @@
+package com.example.lms.bench;
+
+import com.abandonware.ai.agent.integrations.Bm25Index;
+import com.abandonware.ai.agent.integrations.index.Bm25LocalIndex;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Lexical retrieval: in-memory {@link Bm25LocalIndex} and the file-backed {@link Bm25Index}.
+ * The pre-inverted-index baseline is in {@link Bm25BaselineBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(jvmArgsAppend = "-Xmx8g") // 1M documents of ~90 tokens do not fit the module's default 1g heap
+public class Bm25Benchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    int docs;
+
+    private Bm25LocalIndex local;
+    private Bm25Index files;
+    private Path root;
+    private String[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        SplittableRandom r = Corpus.rnd(6);
+        local = new Bm25LocalIndex();
+        for (int i = 0; i < docs; i++) {
+            local.add(new Bm25LocalIndex.Doc("d" + i, Corpus.sentence(r, 8), Corpus.sentence(r, 80),
+                    "https://" + Corpus.domain(r) + "/" + i, 1_700_000_000_000L + i));
+        }
+
+        // Bm25Index scans docs/ under a repository root; keep the file count modest.
+        root = Files.createTempDirectory("bench-bm25");
+        Path dir = Files.createDirectories(root.resolve("docs"));
+        int fileCount = Math.min(docs / 10, 500);
+        for (int i = 0; i < fileCount; i++) {
+            StringBuilder md = new StringBuilder("# ").append(Corpus.sentence(r, 6)).append('\n');
+            for (int p = 0; p < 8; p++) {
+                md.append('\n').append(Corpus.sentence(r, 60)).append('\n');
+            }
+            Files.writeString(dir.resolve("doc-" + i + ".md"), md);
+        }
+        files = new Bm25Index(root);
+        files.ensureBuilt();
+
+        queries = Corpus.sentences(7, 64, 4).toArray(String[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> s = Files.walk(root)) {
+            s.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+
+    private String query() {
+        return queries[(next++) & (queries.length - 1)];
+    }
+
+    @Benchmark
+    public List<Map.Entry<Bm25LocalIndex.Doc, Double>> localSearch() {
+        return local.search(query(), 10);
+    }
+
+    @Benchmark
+    public List<Bm25Index.SearchResult> fileIndexSearch() {
+        return files.search(query(), null, 50);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.lms.bench;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic corpora for the benchmarks: mixed Korean/English snippets shaped like
+ * web-search results, unit vectors, and URLs drawn from a realistic domain mix.
+ *
+ * <p>Everything is seeded so two builds benchmark exactly the same inputs and their JSON results
+ * can be diffed.</p>
+ */
+public final class Corpus {
+
+    static final long SEED = 0x5EEDL;
+
+    private static final String[] KO = {
+            "스프링", "부트", "캐시", "설정", "방법", "검색", "결과", "모델", "임베딩", "벡터",
+            "서울", "날씨", "가격", "출시", "리뷰", "비교", "성능", "최적화", "오류", "해결",
+            "게임", "캐릭터", "공략", "업데이트", "패치", "노트", "추천", "아이폰", "갤럭시", "배터리",
+            "정책", "뉴스", "발표", "분석", "데이터", "서버", "메모리", "지연", "요청", "응답"
+    };
+    private static final String[] EN = {
+            "spring", "boot", "cache", "config", "search", "result", "model", "embedding", "vector", "index",
+            "latency", "throughput", "rerank", "fusion", "query", "token", "release", "review", "price", "update",
+            "java", "kotlin", "gradle", "docker", "kubernetes", "redis", "lucene", "onnx", "gpu", "batch"
+    };
+    private static final String[] DOMAINS = {
+            "namu.wiki", "ko.wikipedia.org", "en.wikipedia.org", "blog.naver.com", "m.blog.naver.com",
+            "news.naver.com", "tistory.com", "velog.io", "stackoverflow.com", "github.com",
+            "docs.spring.io", "medium.com", "reddit.com", "arxiv.org", "openai.com",
+            "www.korea.kr", "dcinside.com", "youtube.com", "hoyolab.com", "example-shop.co.kr"
+    };
+
+    private Corpus() {
+    }
+
+    public static SplittableRandom rnd(long salt) {
+        return new SplittableRandom(SEED ^ salt);
+    }
+
+    /** A snippet of {@code words} tokens, roughly 60% Korean and 40% English. */
+    public static String sentence(SplittableRandom r, int words) {
+        StringBuilder sb = new StringBuilder(words * 6);
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(r.nextInt(10) < 6 ? KO[r.nextInt(KO.length)] : EN[r.nextInt(EN.length)]);
+        }
+        return sb.toString();
+    }
+
+    public static List<String> sentences(long salt, int n, int words) {
+        SplittableRandom r = rnd(salt);
+        List<String> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            out.add(sentence(r, words));
+        }
+        return out;
+    }
+
+    public static String domain(SplittableRandom r) {
+        return DOMAINS[r.nextInt(DOMAINS.length)];
+    }
+
+    /**
+     * URLs with about {@code dupRatio} of entries repeating an earlier one modulo tracking
+     * parameters, fragments and a trailing slash, which is what the canonical-URL dedup sees.
+     */
+    public static List<String> urls(long salt, int n, double dupRatio) {
+        SplittableRandom r = rnd(salt);
+        List<String> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            if (i > 0 && r.nextDouble() < dupRatio) {
+                String prev = out.get(r.nextInt(i));
+                out.add(prev + (prev.contains("?") ? "&" : "?") + "utm_source=bench#top");
+            } else {
+                out.add("https://" + domain(r) + "/p/" + Integer.toHexString(r.nextInt()) + "/" + i);
+            }
+        }
+        return out;
+    }
+
+    public static float[] unit(SplittableRandom r, int dim) {
+        float[] v = new float[dim];
+        double norm = 0;
+        for (int i = 0; i < dim; i++) {
+            v[i] = (float) (r.nextDouble() * 2 - 1);
+            norm += v[i] * v[i];
+        }
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < dim; i++) {
+            v[i] *= inv;
+        }
+        return v;
+    }
+
+    /**
+     * {@code n} unit vectors around {@code clusters} centroids, so ANN indexes see the kind of
+     * locality real embeddings have instead of uniform noise.
+     */
+    public static float[][] vectors(long salt, int n, int dim, int clusters) {
+        SplittableRandom r = rnd(salt);
+        float[][] centroids = new float[Math.max(1, clusters)][];
+        for (int c = 0; c < centroids.length; c++) {
+            centroids[c] = unit(r, dim);
+        }
+        float[][] out = new float[n][];
+        for (int i = 0; i < n; i++) {
+            float[] c = centroids[r.nextInt(centroids.length)];
+            float[] noise = unit(r, dim);
+            float[] v = new float[dim];
+            double norm = 0;
+            for (int d = 0; d < dim; d++) {
+                v[d] = c[d] + 0.35f * noise[d];
+                norm += v[d] * v[d];
+            }
+            float inv = (float) (1.0 / Math.sqrt(norm));
+            for (int d = 0; d < dim; d++) {
+                v[d] *= inv;
+            }
+            out[i] = v;
+        }
+        return out;
+    }
+
+    /** Sets a (typically {@code @Value}-injected) field on a bean built outside Spring. */
+    public static void set(Object target, String field, Object value) {
+        Class<?> c = target.getClass();
+        while (c != null) {
+            try {
+                Field f = c.getDeclaredField(field);
+                f.setAccessible(true);
+                f.set(target, value);
+                return;
+            } catch (NoSuchFieldException e) {
+                c = c.getSuperclass();
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        throw new IllegalArgumentException("no field " + field + " on " + target.getClass());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.lms.bench;
+
+import com.example.lms.service.rag.fusion.DedupUtil;
+import com.example.lms.service.rag.fusion.Dedupable;
+import com.example.lms.service.rag.rerank.DppDiversityReranker;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/** Post-fusion candidate shaping: dedup by key / canonical URL and DPP diversity selection. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DedupRerankBenchmark {
+
+    /** Shape of a fused web/vector hit: public title/snippet fields plus a URL getter. */
+    public static final class Hit implements Dedupable {
+        public final String title;
+        public final String snippet;
+        private final String url;
+        final float[] vector;
+
+        Hit(String title, String snippet, String url, float[] vector) {
+            this.title = title;
+            this.snippet = snippet;
+            this.url = url;
+            this.vector = vector;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        @Override
+        public String getDeduplicationKey() {
+            return url;
+        }
+    }
+
+    @Param({"50", "200"})
+    int candidates;
+
+    private List<Hit> hits;
+    private String query;
+    private DppDiversityReranker dpp;
+
+    @Setup
+    public void setup() {
+        SplittableRandom r = Corpus.rnd(3);
+        List<String> urls = Corpus.urls(4, candidates, 0.25);
+        float[][] vecs = Corpus.vectors(5, candidates, 384, 12);
+        hits = new ArrayList<>(candidates);
+        for (int i = 0; i < candidates; i++) {
+            hits.add(new Hit(Corpus.sentence(r, 8), Corpus.sentence(r, 40), urls.get(i), vecs[i]));
+        }
+        query = Corpus.sentence(r, 5);
+        dpp = new DppDiversityReranker(new DppDiversityReranker.Config(0.7, 20));
+    }
+
+    @Benchmark
+    public List<Hit> dedupByKey() {
+        return DedupUtil.dedup(hits);
+    }
+
+    @Benchmark
+    public List<Hit> dedupByCanonicalUrl() {
+        return DedupUtil.dedupByCanonicalUrl(hits);
+    }
+
+    @Benchmark
+    public List<Hit> dppText() {
+        return dpp.rerank(hits, query, 20);
+    }
+
+    @Benchmark
+    public List<Hit> dppVectors() {
+        return dpp.rerank(hits, query, 20, h -> h.vector);
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.lms.bench;
+
+import com.example.lms.service.embedding.EmbeddingCache;
+import com.example.lms.service.embedding.EmbeddingJsonDecoder;
+import com.example.lms.util.RelevanceScorer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Embedding-side hot paths: cache key derivation, provider JSON decoding and batch scoring.
+ *
+ * <p>The {@code *Tree} benchmarks decode the same payloads through {@code ObjectMapper.readTree}
+ * the way the providers did before the streaming decoder, so their bytes/op is the baseline.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EmbeddingBenchmark {
+
+    /** Hash-seeded unit vectors: deterministic per text, no I/O. */
+    static final class HashEmbeddingModel implements EmbeddingModel {
+        private final int dim;
+
+        HashEmbeddingModel(int dim) {
+            this.dim = dim;
+        }
+
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+            List<Embedding> out = new ArrayList<>(segments.size());
+            for (TextSegment s : segments) {
+                out.add(Embedding.from(Corpus.unit(new SplittableRandom(s.text().hashCode()), dim)));
+            }
+            return Response.from(out);
+        }
+
+        @Override
+        public int dimension() {
+            return dim;
+        }
+    }
+
+    @Param({"32"})
+    int batch;
+
+    @Param({"1024"})
+    int dim;
+
+    private String[] texts;
+    private String ollamaJson;
+    private String hfJson;
+    private ObjectMapper mapper;
+    private String query;
+    private List<String> docs;
+    private RelevanceScorer scorer;
+    private int next;
+
+    @Setup
+    public void setup() {
+        texts = Corpus.sentences(11, 256, 60).toArray(String[]::new);
+        float[][] vecs = Corpus.vectors(12, batch, dim, 4);
+
+        StringBuilder ollama = new StringBuilder("{\"model\":\"bge-m3\",\"embeddings\":[");
+        for (int i = 0; i < batch; i++) {
+            if (i > 0) {
+                ollama.append(',');
+            }
+            ollama.append(array(vecs[i]));
+        }
+        ollamaJson = ollama.append("]}").toString();
+        // HF feature-extraction shape for a single input: [[f...]]
+        hfJson = "[" + array(vecs[0]) + "]";
+        mapper = new ObjectMapper();
+        try {
+            if (decodeFirstVector().length != dim || decodeFirstVectorTree().length != dim) {
+                throw new IllegalStateException("HF payload decoded to the wrong length");
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+
+        SplittableRandom r = Corpus.rnd(13);
+        query = Corpus.sentence(r, 6);
+        docs = Corpus.sentences(14, batch, 40);
+        scorer = new RelevanceScorer(new HashEmbeddingModel(dim));
+    }
+
+    private static String array(float[] v) {
+        StringBuilder sb = new StringBuilder(v.length * 12).append('[');
+        for (int i = 0; i < v.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(v[i]);
+        }
+        return sb.append(']').toString();
+    }
+
+    @Benchmark
+    public String cacheKeyV2() {
+        String t = texts[(next++) & (texts.length - 1)];
+        return EmbeddingCache.keyForV2("ollama", "bge-m3", dim, "GENERAL", null, t);
+    }
+
+    @Benchmark
+    public List<float[]> decodeOllamaBatch() throws IOException {
+        return EmbeddingJsonDecoder.readVectors(ollamaJson, "embeddings");
+    }
+
+    @Benchmark
+    public List<float[]> decodeOllamaBatchTree() throws IOException {
+        JsonNode embeddings = mapper.readTree(ollamaJson).path("embeddings");
+        List<float[]> out = new ArrayList<>(embeddings.size());
+        for (JsonNode arr : embeddings) {
+            out.add(toFloats(arr));
+        }
+        return out;
+    }
+
+    @Benchmark
+    public float[] decodeFirstVector() throws IOException {
+        return EmbeddingJsonDecoder.readFirstVector(hfJson);
+    }
+
+    @Benchmark
+    public float[] decodeFirstVectorTree() throws IOException {
+        JsonNode node = mapper.readTree(hfJson);
+        return toFloats(node.isArray() && node.get(0).isArray() ? node.get(0) : node);
+    }
+
+    private static float[] toFloats(JsonNode arr) {
+        float[] v = new float[arr.size()];
+        for (int i = 0; i < v.length; i++) {
+            v[i] = (float) arr.get(i).asDouble();
+        }
+        return v;
+    }
+
+    @Benchmark
+    public double[] relevanceScoreAll() {
+        return scorer.scoreAll(query, docs);
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.lms.bench;
+
+import com.example.lms.service.rag.fusion.ReciprocalRankFuser;
+import com.example.lms.service.rag.fusion.WeightedPowerMeanFuser;
+import com.example.lms.service.rag.fusion.WeightedRrfFuser;
+import dev.langchain4j.rag.content.Content;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/** Rank fusion across retrieval lanes (web, vector, BM25, KG...). */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FusionBenchmark {
+
+    @Param({"3", "6"})
+    int lanes;
+
+    @Param({"20", "50"})
+    int perLane;
+
+    private List<List<WeightedRrfFuser.Result>> rrfLanes;
+    private double[] laneWeights;
+    private List<List<Content>> contentLanes;
+    private List<Double> pmScores;
+    private List<Double> pmWeights;
+
+    @Setup
+    public void setup() {
+        SplittableRandom r = Corpus.rnd(1);
+        // Lanes overlap on roughly a third of their results, like web vs. vector retrieval does.
+        List<String> shared = Corpus.sentences(2, perLane, 8);
+        rrfLanes = new ArrayList<>(lanes);
+        contentLanes = new ArrayList<>(lanes);
+        laneWeights = new double[lanes];
+        Instant now = Instant.parse("2026-01-01T00:00:00Z");
+        for (int l = 0; l < lanes; l++) {
+            List<WeightedRrfFuser.Result> rl = new ArrayList<>(perLane);
+            List<Content> cl = new ArrayList<>(perLane);
+            for (int i = 0; i < perLane; i++) {
+                String title = r.nextInt(3) == 0 ? shared.get(r.nextInt(shared.size())) : Corpus.sentence(r, 8);
+                String snippet = Corpus.sentence(r, 30);
+                rl.add(new WeightedRrfFuser.Result(Corpus.domain(r), title, snippet,
+                        now.minusSeconds(r.nextInt(86_400 * 365))));
+                cl.add(Content.from(title + "\n" + snippet));
+            }
+            rrfLanes.add(rl);
+            contentLanes.add(cl);
+            laneWeights[l] = 0.5 + r.nextDouble();
+        }
+        pmScores = new ArrayList<>();
+        pmWeights = new ArrayList<>();
+        for (int i = 0; i < lanes; i++) {
+            pmScores.add(r.nextDouble());
+            pmWeights.add(laneWeights[i]);
+        }
+    }
+
+    @Benchmark
+    public List<WeightedRrfFuser.Result> weightedRrf() {
+        WeightedRrfFuser<WeightedRrfFuser.Result> fuser = new WeightedRrfFuser<>(60);
+        for (int l = 0; l < rrfLanes.size(); l++) {
+            double w = laneWeights[l];
+            for (WeightedRrfFuser.Result res : rrfLanes.get(l)) {
+                fuser.add(res, w);
+            }
+        }
+        return fuser.fuse();
+    }
+
+    @Benchmark
+    public List<Content> reciprocalRank() {
+        return new ReciprocalRankFuser(60).fuse(contentLanes, 10);
+    }
+
+    @Benchmark
+    public double weightedPowerMean() {
+        return new WeightedPowerMeanFuser().fuse(pmScores, 2.0, pmWeights);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.lms.bench;
+
+import com.abandonware.ai.agent.integrations.index.Bm25LocalIndex;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Baseline for {@link Bm25Benchmark}: the scoring loop {@link Bm25LocalIndex} used before it got an
+ * inverted index, kept verbatim apart from an {@code add} entry point. Every query re-tokenizes
+ * every document once for its length and once per query term.
+ */
+final class LegacyBm25LocalIndex {
+
+    private final Map<String, Bm25LocalIndex.Doc> docs = new HashMap<>();
+    private final Map<String, Integer> df = new HashMap<>();
+    private int N = 0;
+
+    void add(Bm25LocalIndex.Doc d) {
+        docs.put(d.id, d);
+        N++;
+        Set<String> unique = new HashSet<>(tokenize(d.title + " " + d.text));
+        for (String t : unique) df.put(t, df.getOrDefault(t, 0) + 1);
+    }
+
+    static List<String> tokenize(String s) {
+        if (s == null) return Collections.emptyList();
+        String norm = s.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{Nd}\\s]", " ");
+        String[] parts = norm.split("\\s+");
+        List<String> out = new ArrayList<>();
+        for (String p : parts) if (!p.isEmpty()) out.add(p);
+        return out;
+    }
+
+    List<Map.Entry<Bm25LocalIndex.Doc, Double>> search(String query, int topK) {
+        if (N == 0 || query == null || query.isBlank()) return Collections.emptyList();
+        List<String> q = tokenize(query);
+        Map<String, Double> scores = new HashMap<>();
+        double k1 = 1.2, b = 0.75; // BM25 defaults
+        Map<String, Integer> dl = new HashMap<>();
+        double avgdl = 1.0;
+        for (Bm25LocalIndex.Doc d : docs.values()) {
+            int len = tokenize(d.title + " " + d.text).size();
+            dl.put(d.id, len);
+            avgdl += len;
+        }
+        avgdl = avgdl / Math.max(1, N);
+        for (Bm25LocalIndex.Doc d : docs.values()) {
+            double score = 0.0;
+            int docLen = dl.getOrDefault(d.id, 1);
+            for (String t : q) {
+                int n_qi = df.getOrDefault(t, 0);
+                if (n_qi == 0) continue;
+                double idf = Math.log( (N - n_qi + 0.5) / (n_qi + 0.5) + 1e-9 );
+                int f_qi = Collections.frequency(tokenize(d.title + " " + d.text), t);
+                double denom = f_qi + k1 * (1 - b + b * (docLen / avgdl));
+                score += idf * ( (f_qi * (k1 + 1)) / Math.max(1e-9, denom) );
+            }
+            scores.put(d.id, score);
+        }
+        List<Map.Entry<Bm25LocalIndex.Doc, Double>> ranked = new ArrayList<>();
+        for (Map.Entry<String, Double> e : scores.entrySet()) {
+            ranked.add(new AbstractMap.SimpleEntry<>(docs.get(e.getKey()), e.getValue()));
+        }
+        ranked.sort((a, b2) -> Double.compare(b2.getValue(), a.getValue()));
+        if (topK > 0 && ranked.size() > topK) return ranked.subList(0, topK);
+        return ranked;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.lms.bench;
+
+import com.example.lms.infra.resilience.NightmareBreaker;
+import com.example.lms.infra.resilience.NightmareBreakerProperties;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Overhead of {@link NightmareBreaker#execute} on the success path, all threads sharing one hot
+ * key (as Naver/Brave/Ollama keys do under load). The wrapped call is trivial, so the score is
+ * the breaker's own cost; gc.alloc.rate.norm should stay at 0 B/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class NightmareBreakerBenchmark {
+
+    /** {@code true} also turns on the windowed failure-rate and slow-call-rate rules. */
+    @Param({"false", "true"})
+    boolean rateRules;
+
+    private NightmareBreaker breaker;
+    private final Supplier<String> call = () -> "ok";
+    private final Predicate<String> isBad = String::isBlank;
+    private final Supplier<String> fallback = () -> "";
+
+    @Setup
+    public void setup() {
+        NightmareBreakerProperties p = new NightmareBreakerProperties();
+        if (rateRules) {
+            p.setFailureRateThreshold(0.5);
+            p.setSlowCallRateThreshold(0.8);
+        }
+        breaker = new NightmareBreaker(p);
+        breaker.execute("websearch:naver", "warmup", call, isBad, fallback);
+    }
+
+    private String run() {
+        return breaker.execute("websearch:naver", "bench", call, isBad, fallback);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String execute1Thread() {
+        return run();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String execute8Threads() {
+        return run();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public String execute64Threads() {
+        return run();
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.lms.bench;
+
+import com.example.lms.service.onnx.OnnxRuntimeService;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cross-encoder reranking via {@link OnnxRuntimeService}. Pass {@code -Ponnx.model=... -Ponnx.vocab=...}
+ * to measure a real model on CPU; without them the lexical fallback path is measured, which is
+ * still useful for tracking tokenisation and batching overhead.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OnnxRerankBenchmark {
+
+    @Param({"1", "8", "32", "64"})
+    int batch;
+
+    private OnnxRuntimeService onnx;
+    private String query;
+    private List<String> docs;
+    private String[] pairQueries;
+    private String[] pairDocs;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        onnx = new OnnxRuntimeService();
+        Corpus.set(onnx, "modelPath", System.getProperty("bench.onnx.model", ""));
+        Corpus.set(onnx, "vocabPath", System.getProperty("bench.onnx.vocab", ""));
+        Corpus.set(onnx, "executionProvider", "cpu");
+        Corpus.set(onnx, "deviceId", -1);
+        Corpus.set(onnx, "maxSeqLen", 256);
+        Corpus.set(onnx, "maxChars", 800);
+        Corpus.set(onnx, "normalize", true);
+        Corpus.set(onnx, "fallbackEnabled", true);
+        Corpus.set(onnx, "batchSize", 32);
+        onnx.init();
+
+        query = Corpus.sentence(Corpus.rnd(16), 6);
+        docs = Corpus.sentences(17, batch, 120);
+        pairQueries = new String[batch];
+        pairDocs = docs.toArray(String[]::new);
+        java.util.Arrays.fill(pairQueries, query);
+    }
+
+    @Benchmark
+    public float[] scoreBatch() {
+        return onnx.scoreBatch(query, docs);
+    }
+
+    @Benchmark
+    public float[][] predict() {
+        return onnx.predict(pairQueries, pairDocs);
+    }
+}
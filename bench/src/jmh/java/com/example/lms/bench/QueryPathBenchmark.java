@@ -0,0 +1,79 @@
+package com.example.lms.bench;
+
+import com.example.lms.search.AhoCorasickRewriter;
+import com.example.lms.service.rag.auth.AuthorityScorer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-request query rewriting and per-candidate authority scoring.
+ *
+ * <p>{@code sequentialReplace} is the rewrite {@code TypoNormalizer} did before the automaton:
+ * one {@code String.replace} per entry, longest key first.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryPathBenchmark {
+
+    private AhoCorasickRewriter rewriter;
+    private List<Map.Entry<String, String>> entries;
+    private String[] queries;
+    private AuthorityScorer authority;
+    private List<String> candidateUrls;
+    private int next;
+
+    @Setup
+    public void setup() {
+        // 10k alias entries keyed by 1-3 word phrases of the corpus vocabulary, so the
+        // queries (drawn from the same vocabulary) actually hit the dictionary.
+        SplittableRandom r = Corpus.rnd(18);
+        Map<String, String> dict = new HashMap<>();
+        while (dict.size() < 10_000) {
+            String phrase = Corpus.sentence(r, 1 + r.nextInt(3));
+            dict.putIfAbsent(phrase, phrase.replace(" ", ""));
+        }
+        rewriter = AhoCorasickRewriter.compile(dict);
+        entries = new ArrayList<>(dict.entrySet());
+        entries.sort((a, b) -> Integer.compare(b.getKey().length(), a.getKey().length()));
+        queries = Corpus.sentences(19, 64, 12).toArray(String[]::new);
+        if (rewriter.rewrite(queries[0]).equals(queries[0])) {
+            throw new IllegalStateException("dictionary never matches the queries");
+        }
+
+        authority = new AuthorityScorer("", "", "", "", "",
+                "", "", "", "",
+                1.0, 0.85, 0.80, 0.70, 0.55, 0.25,
+                "", 0L, 1000L);
+        candidateUrls = Corpus.urls(20, 200, 0.1);
+    }
+
+    @Benchmark
+    public String ahoCorasickRewrite() {
+        return rewriter.rewrite(queries[(next++) & (queries.length - 1)]);
+    }
+
+    @Benchmark
+    public String sequentialReplace() {
+        String q = queries[(next++) & (queries.length - 1)];
+        for (Map.Entry<String, String> e : entries) {
+            q = q.replace(e.getKey(), e.getValue());
+        }
+        return q;
+    }
+
+    @Benchmark
+    public double authorityBatch200() {
+        double sum = 0;
+        for (String u : candidateUrls) {
+            sum += authority.weightFor(u);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.lms.service.embedding;
+
+import com.example.lms.bench.Corpus;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Concurrent callers coalesced by {@link EmbeddingMicroBatcher}. Lives in the batcher's package
+ * because the batcher is package-private. The flush function parks for a fixed per-call cost
+ * plus a per-text cost, so the numbers show how much of a remote call batching amortises.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Threads(16)
+public class EmbeddingMicroBatcherBenchmark {
+
+    @Param({"1", "16", "64"})
+    int maxBatch;
+
+    @Param({"500"})
+    long windowMicros;
+
+    private EmbeddingMicroBatcher batcher;
+    private String[] texts;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        texts = Corpus.sentences(15, 1024, 30).toArray(String[]::new);
+        batcher = new EmbeddingMicroBatcher(batch -> {
+            LockSupport.parkNanos(2_000_000L + 20_000L * batch.size());
+            List<float[]> out = new ArrayList<>(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                out.add(new float[]{i});
+            }
+            return new EmbeddingMicroBatcher.Result(out, null);
+        }, maxBatch, windowMicros, null);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        batcher.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public EmbeddingMicroBatcher.Item submitAndWait(Cursor c) {
+        return batcher.submit(texts[(c.next++) & (texts.length - 1)]).join();
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.lms.trace;
+
+import com.example.lms.bench.Corpus;
+import com.example.lms.service.trace.TraceHtmlBuilder;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request-thread cost of {@link TraceSnapshotStore#captureCustom}; sanitising and rendering stay
+ * off-thread. Lives in the store's package to drive its package-private lifecycle methods.
+ *
+ * <p>{@link #captureEager()} is the "before" baseline: a store that was never started has no
+ * worker, so capture plus {@code getWithHtml} sanitises and renders on the calling thread, which is
+ * what every capture used to do. The old synchronized deque is not reproduced, so the baseline
+ * slightly understates the old cost under contention.</p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TraceCaptureBenchmark {
+
+    @Param({"50", "400"})
+    int traceKeys;
+
+    private TraceSnapshotStore store;
+    private TraceSnapshotStore eager;
+    private Map<String, Object> trace;
+
+    private static TraceSnapshotStore newStore() {
+        // No TraceHtmlBuilder bean: the store falls back to its built-in renderer.
+        TraceSnapshotStore store = new TraceSnapshotStore(
+                new StaticListableBeanFactory().getBeanProvider(TraceHtmlBuilder.class));
+        Corpus.set(store, "enabled", true);
+        Corpus.set(store, "maxSize", 200);
+        Corpus.set(store, "maxValueLen", 2000);
+        Corpus.set(store, "maxEntries", 800);
+        Corpus.set(store, "allowReasonsCsv", "");
+        Corpus.set(store, "denyReasonsCsv", "");
+        Corpus.set(store, "allowKeysCsv", "");
+        Corpus.set(store, "denyKeysCsv", "");
+        Corpus.set(store, "captureSample", 1.0d);
+        Corpus.set(store, "htmlEnabled", true);
+        Corpus.set(store, "htmlMaxLen", 60000);
+        Corpus.set(store, "asyncQueueCapacity", 2048);
+        Corpus.set(store, "spillEnabled", false);
+        Corpus.set(store, "spillDir", "");
+        Corpus.set(store, "spillSegmentSnapshots", 500);
+        Corpus.set(store, "spillMaxSegments", 10);
+        return store;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() {
+        store = newStore();
+        store.init();
+        eager = newStore(); // never started: no background worker
+
+        // A trace shaped like an orchestrated RAG turn: scalars, web result lists, nested maps.
+        SplittableRandom r = Corpus.rnd(21);
+        trace = new LinkedHashMap<>();
+        for (int i = 0; i < traceKeys; i++) {
+            switch (i % 4) {
+                case 0 -> trace.put("orch.stage." + i, Corpus.sentence(r, 4));
+                case 1 -> trace.put("web.latency." + i, r.nextInt(5000));
+                case 2 -> {
+                    List<String> l = new ArrayList<>();
+                    for (int j = 0; j < 10; j++) {
+                        l.add(Corpus.sentence(r, 12));
+                    }
+                    trace.put("web.list." + i, l);
+                }
+                default -> trace.put("rerank." + i, Map.of("score", r.nextDouble(), "url", Corpus.domain(r)));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        store.shutdown();
+    }
+
+    @Benchmark
+    public String capture() {
+        return store.captureCustom("bench", "POST", "/api/chat", 200, null, trace, null);
+    }
+
+    @Benchmark
+    public Optional<TraceSnapshotStore.TraceSnapshot> captureEager() {
+        String id = eager.captureCustom("bench", "POST", "/api/chat", 200, null, trace, null);
+        return eager.getWithHtml(id);
+    }
+}
@@ -583,10 +583,20 @@ public class NovaOrchestrationProperties {
          * <li><code>auto</code> (default): infer from {@link #path}</li>
          * <li><code>jsonl</code>: legacy single JSONL file</li>
          * <li><code>dir</code>: directory spool (1 file per item; recommended)</li>
+         * <li><code>segment</code>: append-only segment files + ack index (large backlogs)</li>
          * </ul>
          */
         private String format = "auto";
 
+        /** segment format: roll to a new segment file after this many bytes. */
+        private long segmentBytes = 8L * 1024L * 1024L;
+
+        /**
+         * segment format: group-commit interval for fsync. 0 or negative forces on every
+         * write.
+         */
+        private long fsyncIntervalMs = 200L;
+
         /**
          * Hard cap for pending artifacts (dir: files, jsonl: lines).
          *
@@ -682,6 +692,22 @@ public class NovaOrchestrationProperties {
             this.format = format;
         }
 
+        public long getSegmentBytes() {
+            return segmentBytes;
+        }
+
+        public void setSegmentBytes(long segmentBytes) {
+            this.segmentBytes = segmentBytes;
+        }
+
+        public long getFsyncIntervalMs() {
+            return fsyncIntervalMs;
+        }
+
+        public void setFsyncIntervalMs(long fsyncIntervalMs) {
+            this.fsyncIntervalMs = fsyncIntervalMs;
+        }
+
         public int getMaxFiles() {
             return maxFiles;
         }
@@ -1,13 +1,10 @@
 package ai.abandonware.nova.orch.failpattern;
 
 import ai.abandonware.nova.config.NovaFailurePatternProperties;
+import com.example.lms.infra.io.AsyncJsonlSink;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
-import java.io.BufferedWriter;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.regex.Pattern;
 
 /**
@@ -18,9 +15,12 @@ import java.util.regex.Pattern;
  *     <li>best-effort (exceptions swallowed)</li>
  *     <li>redacts common API-key shapes in messages</li>
  *     <li>clips message length</li>
+ *     <li>non-blocking: lines go through an {@link AsyncJsonlSink}, which keeps the file open,
+ *     batches writes and rotates at {@code jsonl.max-file-bytes} so the cooldown reload keeps
+ *     working</li>
  * </ul>
  */
-public final class FailurePatternJsonlWriter {
+public final class FailurePatternJsonlWriter implements AutoCloseable {
 
     private static final Pattern OPENAI_KEY = Pattern.compile("\\bsk-[A-Za-z0-9]{10,}\\b");
     private static final Pattern GROQ_KEY = Pattern.compile("\\bgsk_[A-Za-z0-9]{10,}\\b");
@@ -28,11 +28,16 @@ public final class FailurePatternJsonlWriter {
     private final ObjectMapper om;
     private final Path path;
     private final boolean enabled;
+    private final AsyncJsonlSink sink;
 
     public FailurePatternJsonlWriter(ObjectMapper om, NovaFailurePatternProperties props) {
         this.om = om;
         this.path = Path.of(props.getJsonl().getPath());
         this.enabled = props.getJsonl().isWriteEnabled();
+        this.sink = enabled
+                ? new AsyncJsonlSink("failure-pattern", path, AsyncJsonlSink.Config.defaults()
+                        .withRotation(props.getJsonl().getMaxFileBytes(), 2))
+                : null;
     }
 
     public void write(FailurePatternEvent evt) {
@@ -40,11 +45,6 @@ public final class FailurePatternJsonlWriter {
             return;
         }
         try {
-            Path parent = path.getParent();
-            if (parent != null) {
-                Files.createDirectories(parent);
-            }
-
             FailurePatternEvent safeEvt = new FailurePatternEvent(
                     evt.tsEpochMillis(),
                     evt.kind(),
@@ -57,17 +57,7 @@ public final class FailurePatternJsonlWriter {
                     clip(redact(evt.message()), 512)
             );
 
-            String line = om.writeValueAsString(safeEvt);
-
-            try (BufferedWriter w = Files.newBufferedWriter(
-                    path,
-                    StandardCharsets.UTF_8,
-                    StandardOpenOption.CREATE,
-                    StandardOpenOption.WRITE,
-                    StandardOpenOption.APPEND)) {
-                w.write(line);
-                w.newLine();
-            }
+            sink.offer(om.writeValueAsString(safeEvt));
         } catch (Exception ignored) {
             // fail-soft: never break logging path
         }
@@ -77,6 +67,13 @@ public final class FailurePatternJsonlWriter {
         return path;
     }
 
+    @Override
+    public void close() {
+        if (sink != null) {
+            sink.close();
+        }
+    }
+
     private static String redact(String s) {
         if (s == null) {
             return null;
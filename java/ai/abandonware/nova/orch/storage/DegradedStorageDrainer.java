@@ -19,6 +19,11 @@ import java.util.regex.Pattern;
  */
 public class DegradedStorageDrainer {
 
+    /** Hit/energy deltas spilled by the TranslationMemory write-behind buffer (not snippets). */
+    private static boolean isWriteBehindDelta(PendingMemoryEvent e) {
+        return com.example.lms.service.reinforcement.TranslationMemoryWriteBehind.OUTBOX_REASON.equals(e.reason());
+    }
+
     private static final Logger log = LoggerFactory.getLogger(DegradedStorageDrainer.class);
 
     private static final Pattern HAS_URL = Pattern.compile("https?://\\S+", Pattern.CASE_INSENSITIVE);
@@ -106,6 +111,20 @@ public class DegradedStorageDrainer {
                     }
 
                     PendingMemoryEvent e = c.event();
+                    if (isWriteBehindDelta(e)) {
+                        try {
+                            memory.replayWriteBehind(e);
+                            ackable.ack(c.token());
+                            promoted++;
+                        } catch (Exception ex) {
+                            try {
+                                ackable.nack(c.token(), ex.toString());
+                            } catch (Exception ignore) {
+                            }
+                            failed++;
+                        }
+                        continue;
+                    }
                     String snippet = sanitizeSnippet(e.answerSnippet());
                     if (!shouldPromote(ds.getDrain(), snippet)) {
                         try {
@@ -174,6 +193,17 @@ public class DegradedStorageDrainer {
                     continue;
                 }
 
+                if (isWriteBehindDelta(e)) {
+                    try {
+                        memory.replayWriteBehind(e);
+                        promoted++;
+                    } catch (Exception ex) {
+                        storage.putPending(e);
+                        requeued++;
+                    }
+                    continue;
+                }
+
                 String snippet = sanitizeSnippet(e.answerSnippet());
                 if (!shouldPromote(ds.getDrain(), snippet)) {
                     storage.putPending(e);
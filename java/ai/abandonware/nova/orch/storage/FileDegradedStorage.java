@@ -41,12 +41,14 @@ import java.util.concurrent.locks.ReentrantLock;
  * claim/ack with partial batch success.</li>
  * <li><b>JSONL mode</b> (legacy): a single JSONL file. Claim/ack is implemented
  * via a side "inflight" JSONL file.</li>
+ * <li><b>Segment mode</b>: fixed-size append-only segment files with an ack index
+ * ({@link SegmentedOutboxLog}); claim/ack cost does not grow with the backlog.</li>
  * </ul>
  */
-public class FileDegradedStorage implements DegradedStorageWithAck {
+public class FileDegradedStorage implements DegradedStorageWithAck, AutoCloseable {
 
     private enum StorageMode {
-        DIRECTORY, JSONL
+        DIRECTORY, JSONL, SEGMENT
     }
 
     private static final String DIR_PENDING_GLOB = "*.json";
@@ -61,6 +63,7 @@ public class FileDegradedStorage implements DegradedStorageWithAck {
     private final Path jsonlPending;
     private final Path jsonlInflight;
     private final Path jsonlQuarantine;
+    private final SegmentedOutboxLog segmentLog;
 
     private final boolean quarantineEnabled;
     private final int maxAttempts;
@@ -114,9 +117,27 @@ public class FileDegradedStorage implements DegradedStorageWithAck {
                 : p.getQuarantineDirName().trim();
 
         Path configured = Paths.get(p.getPath()).toAbsolutePath().normalize();
-        this.mode = resolveMode(configured, p.getFormat());
+        StorageMode resolved = resolveMode(configured, p.getFormat());
 
-        if (mode == StorageMode.DIRECTORY) {
+        SegmentedOutboxLog log = null;
+        if (resolved == StorageMode.SEGMENT) {
+            try {
+                log = new SegmentedOutboxLog(configured, p.getSegmentBytes(), p.getFsyncIntervalMs());
+            } catch (IOException e) {
+                // fail-soft: fall back to the directory spool at the same path
+                resolved = StorageMode.DIRECTORY;
+            }
+        }
+        this.segmentLog = log;
+        this.mode = resolved;
+
+        if (mode == StorageMode.SEGMENT) {
+            this.basePath = configured;
+            this.jsonlPending = null;
+            this.jsonlInflight = null;
+            this.quarantineDir = basePath.resolve(quarantineDirName);
+            this.jsonlQuarantine = quarantineDir.resolve("quarantine.jsonl");
+        } else if (mode == StorageMode.DIRECTORY) {
             this.basePath = configured;
             this.jsonlPending = null;
             this.jsonlInflight = null;
@@ -152,6 +173,8 @@ public class FileDegradedStorage implements DegradedStorageWithAck {
             return StorageMode.DIRECTORY;
         if (f.equals("jsonl") || f.equals("file"))
             return StorageMode.JSONL;
+        if (f.equals("segment") || f.equals("segments") || f.equals("log"))
+            return StorageMode.SEGMENT;
 
         // auto
         String name = configured.getFileName() != null ? configured.getFileName().toString() : "";
@@ -186,7 +209,9 @@ public class FileDegradedStorage implements DegradedStorageWithAck {
                     null,
                     event);
 
-            if (mode == StorageMode.DIRECTORY) {
+            if (mode == StorageMode.SEGMENT) {
+                appendSegment(env);
+            } else if (mode == StorageMode.DIRECTORY) {
                 writeEnvelopeFile(env);
             } else {
                 appendJsonl(jsonlPending, env);
@@ -233,6 +258,9 @@ public class FileDegradedStorage implements DegradedStorageWithAck {
         lock.lock();
         try {
             sweepInternal();
+            if (mode == StorageMode.SEGMENT) {
+                return claimSegment(max);
+            }
             if (mode == StorageMode.DIRECTORY) {
                 return claimDirectory(max);
             }
@@ -248,7 +276,9 @@ public class FileDegradedStorage implements DegradedStorageWithAck {
             return;
         lock.lock();
         try {
-            if (mode == StorageMode.DIRECTORY) {
+            if (mode == StorageMode.SEGMENT) {
+                segmentLog.ack(token);
+            } else if (mode == StorageMode.DIRECTORY) {
                 Path inflight = basePath.resolve(token);
                 safeDelete(inflight);
             } else {
@@ -266,7 +296,9 @@ public class FileDegradedStorage implements DegradedStorageWithAck {
             return;
         lock.lock();
         try {
-            if (mode == StorageMode.DIRECTORY) {
+            if (mode == StorageMode.SEGMENT) {
+                segmentLog.release(token);
+            } else if (mode == StorageMode.DIRECTORY) {
                 Path inflight = basePath.resolve(token);
                 Path pending = toPendingPath(inflight);
                 safeMove(inflight, pending);
@@ -287,7 +319,9 @@ public class FileDegradedStorage implements DegradedStorageWithAck {
         lock.lock();
         try {
             long now = System.currentTimeMillis();
-            if (mode == StorageMode.DIRECTORY) {
+            if (mode == StorageMode.SEGMENT) {
+                nackSegment(token, error, now);
+            } else if (mode == StorageMode.DIRECTORY) {
                 Path inflight = basePath.resolve(token);
                 Optional<OutboxEnvelope> envOpt = readEnvelopeFile(inflight);
                 if (envOpt.isPresent()) {
@@ -341,6 +375,9 @@ public class FileDegradedStorage implements DegradedStorageWithAck {
     public OutboxStats stats() {
         lock.lock();
         try {
+            if (mode == StorageMode.SEGMENT) {
+                return statsSegment();
+            }
             if (mode == StorageMode.DIRECTORY) {
                 return statsDirectory();
             }
@@ -371,6 +408,19 @@ public class FileDegradedStorage implements DegradedStorageWithAck {
         }
     }
 
+    /** Flushes and closes the segment log (no-op for the other modes). */
+    @Override
+    public void close() {
+        if (segmentLog == null)
+            return;
+        lock.lock();
+        try {
+            segmentLog.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private List<OutboxPeekItem> peekInternal(String state, int limit, int maxSnippetChars) {
         int lim = Math.min(Math.max(limit, 0), 200);
         if (lim <= 0)
@@ -378,6 +428,9 @@ public class FileDegradedStorage implements DegradedStorageWithAck {
 
         String s = state == null ? "pending" : state.trim().toLowerCase(Locale.ROOT);
 
+        if (mode == StorageMode.SEGMENT) {
+            return peekSegment(s, lim, maxSnippetChars);
+        }
         if (mode == StorageMode.DIRECTORY) {
             return peekDirectory(s, lim, maxSnippetChars);
         }
@@ -532,6 +585,158 @@ public class FileDegradedStorage implements DegradedStorageWithAck {
                 ev.sizeBytes());
     }
 
+    // -------------------- Segment mode --------------------
+
+    private void appendSegment(OutboxEnvelope env) {
+        try {
+            segmentLog.append(objectMapper.writeValueAsBytes(env), env.createdAtEpochMs());
+        } catch (Exception e) {
+            // fail-soft
+        }
+    }
+
+    private OutboxEnvelope readSegmentEnvelope(SegmentedOutboxLog.Record r) {
+        if (r == null || r.payload() == null)
+            return null;
+        try {
+            return objectMapper.readValue(r.payload(), OutboxEnvelope.class);
+        } catch (Exception e) {
+            parseErrorTotal.incrementAndGet();
+            return null;
+        }
+    }
+
+    private List<ClaimedPending> claimSegment(int max) {
+        long now = System.currentTimeMillis();
+        List<ClaimedPending> claimed = new ArrayList<>();
+        while (claimed.size() < max) {
+            List<SegmentedOutboxLog.Record> batch = segmentLog.claim(max - claimed.size(), now);
+            if (batch.isEmpty())
+                break;
+            for (SegmentedOutboxLog.Record r : batch) {
+                OutboxEnvelope env = readSegmentEnvelope(r);
+                if (env == null || env.event() == null) {
+                    // keep the raw payload next to the segments, like *.bad in directory mode
+                    appendBadPayload(r.payload());
+                    segmentLog.ack(r.token());
+                    continue;
+                }
+                claimed.add(new ClaimedPending(
+                        r.token(),
+                        env.event(),
+                        env.attempts(),
+                        Instant.ofEpochMilli(env.createdAtEpochMs()),
+                        env.lastAttemptEpochMs() == null ? null : Instant.ofEpochMilli(env.lastAttemptEpochMs()),
+                        r.sizeBytes(),
+                        Map.of("storage", "segment")));
+            }
+        }
+        return claimed;
+    }
+
+    private void nackSegment(String token, String error, long now) {
+        OutboxEnvelope env = readSegmentEnvelope(segmentLog.inflight(token));
+        if (env == null) {
+            segmentLog.release(token);
+            return;
+        }
+        OutboxEnvelope updated = new OutboxEnvelope(
+                env.id(),
+                env.createdAtEpochMs(),
+                env.attempts() + 1,
+                now,
+                truncate(error, 400),
+                env.event());
+        // Re-append the updated envelope, then retire the old record.
+        if (shouldQuarantine(updated)) {
+            quarantineTotal.incrementAndGet();
+            appendJsonl(jsonlQuarantine, updated);
+        } else {
+            appendSegment(updated);
+        }
+        segmentLog.ack(token);
+    }
+
+    private void appendBadPayload(byte[] payload) {
+        if (payload == null)
+            return;
+        try {
+            Path bad = basePath.resolve("outbox.bad");
+            Files.write(bad, payload, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            Files.write(bad, new byte[] { '\n' }, StandardOpenOption.APPEND);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private OutboxStats statsSegment() {
+        Long oldest = segmentLog.oldestCreatedAtMs();
+        Long newest = segmentLog.newestCreatedAtMs();
+        return new OutboxStats(
+                true,
+                "segment",
+                basePath.toString(),
+                segmentLog.pendingCount(),
+                segmentLog.inflightCount(),
+                totalBytesInternal(),
+                oldest == null ? null : Instant.ofEpochMilli(oldest),
+                newest == null ? null : Instant.ofEpochMilli(newest),
+                maxFiles,
+                maxBytes,
+                ttlSeconds,
+                inflightStaleSeconds,
+                ackTotal.get(),
+                nackTotal.get(),
+                releaseTotal.get(),
+                droppedExpiredTotal.get(),
+                droppedByLimitTotal.get(),
+                parseErrorTotal.get() + segmentLog.corruptTotal(),
+                lastSweepEpochMs.get());
+    }
+
+    private List<OutboxPeekItem> peekSegment(String state, int limit, int maxSnippetChars) {
+        Set<String> states = normalizePeekStates(state);
+        List<OutboxPeekItem> items = new ArrayList<>();
+
+        if (states.contains("pending")) {
+            items.addAll(peekSegmentRecords(segmentLog.peekPending(limit), "pending", maxSnippetChars));
+        }
+        if (states.contains("inflight")) {
+            items.addAll(peekSegmentRecords(segmentLog.peekInflight(limit), "inflight", maxSnippetChars));
+        }
+        if (states.contains("quarantine")) {
+            items.addAll(peekJsonlFile(jsonlQuarantine, "quarantine", maxSnippetChars));
+        }
+
+        items.sort(Comparator.comparing(OutboxPeekItem::createdAt).reversed());
+        if (items.size() <= limit)
+            return items;
+        return items.subList(0, limit);
+    }
+
+    private List<OutboxPeekItem> peekSegmentRecords(List<SegmentedOutboxLog.Record> records, String state,
+            int maxSnippetChars) {
+        List<OutboxPeekItem> out = new ArrayList<>(records.size());
+        for (SegmentedOutboxLog.Record r : records) {
+            OutboxEnvelope env = readSegmentEnvelope(r);
+            Map<String, Object> meta = Map.of(
+                    "path", basePath.toString(),
+                    "storageMode", "segment",
+                    "state", state);
+            out.add(new OutboxPeekItem(
+                    r.token(),
+                    state,
+                    env == null ? 0 : env.attempts(),
+                    Instant.ofEpochMilli(r.createdAtMs()),
+                    (env == null || env.lastAttemptEpochMs() == null) ? null
+                            : Instant.ofEpochMilli(env.lastAttemptEpochMs()),
+                    r.sizeBytes(),
+                    env == null ? null : env.lastError(),
+                    env == null ? null : truncateEvent(env.event(), maxSnippetChars),
+                    meta));
+        }
+        return out;
+    }
+
     // -------------------- Directory mode --------------------
 
     private void writeEnvelopeFile(OutboxEnvelope env) {
@@ -1000,7 +1205,26 @@ public class FileDegradedStorage implements DegradedStorageWithAck {
         int removedByMaxBytes = 0;
         int recoveredInflight = 0;
 
-        if (mode == StorageMode.DIRECTORY) {
+        if (mode == StorageMode.SEGMENT) {
+            if (inflightStaleSeconds > 0) {
+                recoveredInflight += segmentLog.recoverStale(now - inflightStaleSeconds * 1000L);
+            }
+            if (ttlSeconds > 0) {
+                int n = segmentLog.dropExpired(now - ttlSeconds * 1000L);
+                removedExpired += n;
+                droppedExpiredTotal.addAndGet(n);
+            }
+            if (maxFiles > 0) {
+                int n = segmentLog.trimPending(maxFiles);
+                removedByMaxFiles += n;
+                droppedByLimitTotal.addAndGet(n);
+            }
+            if (maxBytes > 0) {
+                int n = segmentLog.trimBytes(maxBytes);
+                removedByMaxBytes += n;
+                droppedByLimitTotal.addAndGet(n);
+            }
+        } else if (mode == StorageMode.DIRECTORY) {
             // Recover stale inflight first
             recoveredInflight += recoverStaleInflightDirectory(now);
             removedExpired += removeExpiredDirectory(now);
@@ -1020,6 +1244,9 @@ public class FileDegradedStorage implements DegradedStorageWithAck {
     }
 
     private long totalBytesInternal() {
+        if (mode == StorageMode.SEGMENT) {
+            return segmentLog.totalBytes() + safeSize(jsonlQuarantine);
+        }
         if (mode == StorageMode.DIRECTORY) {
             long bytes = 0;
             try (DirectoryStream<Path> stream = Files.newDirectoryStream(basePath)) {
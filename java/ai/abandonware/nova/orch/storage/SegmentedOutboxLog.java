@@ -0,0 +1,572 @@
+package ai.abandonware.nova.orch.storage;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only segmented log backing the {@code segment} mode of {@link FileDegradedStorage}.
+ *
+ * <p>Layout under the outbox directory:</p>
+ * <ul>
+ * <li>{@code seg-<seq>.log}: records {@code [len:int][createdAtMs:long][crc32:int][payload]},
+ * rolled once a segment reaches {@code segmentBytes}.</li>
+ * <li>{@code seg-<seq>.ack}: offsets (8-byte longs) of records that are done (acked, requeued
+ * as a new record, expired or dropped).</li>
+ * </ul>
+ *
+ * <p>Pending/inflight state is kept in memory as record locations, so claim/ack/release are
+ * O(1) and never rewrite a file. A segment (and its ack file) is deleted once every record in
+ * it is acked and it is no longer the active segment. fsync is group-committed: writes go to
+ * the page cache immediately and dirty channels are forced every {@code fsyncIntervalMs}
+ * ({@code <= 0} forces on every write).</p>
+ *
+ * <p>Not thread-safe except for the background flusher; callers serialize access
+ * ({@link FileDegradedStorage} holds its lock).</p>
+ */
+final class SegmentedOutboxLog implements AutoCloseable {
+
+    private static final int HEADER_BYTES = 16;
+    private static final String SEG_PREFIX = "seg-";
+    private static final String LOG_SUFFIX = ".log";
+    private static final String ACK_SUFFIX = ".ack";
+
+    /** A record read back from the log; {@code token} identifies it while inflight. */
+    record Record(String token, long createdAtMs, long claimedAtMs, long sizeBytes, byte[] payload) {
+    }
+
+    private static final class Segment {
+        final long seq;
+        final Path logPath;
+        final Path ackPath;
+        FileChannel log;
+        FileChannel ack;
+        long size;
+        int records;
+        int acked;
+
+        Segment(Path dir, long seq) {
+            this.seq = seq;
+            String base = SEG_PREFIX + String.format("%020d", seq);
+            this.logPath = dir.resolve(base + LOG_SUFFIX);
+            this.ackPath = dir.resolve(base + ACK_SUFFIX);
+        }
+    }
+
+    private record Loc(Segment seg, long offset, int length, long createdAtMs) {
+        String token() {
+            return seg.seq + ":" + offset;
+        }
+    }
+
+    private record Inflight(Loc loc, long claimedAtMs) {
+    }
+
+    private final Path dir;
+    private final long segmentBytes;
+    private final boolean syncEveryWrite;
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final ArrayDeque<Loc> pending = new ArrayDeque<>();
+    private final Map<String, Inflight> inflight = new LinkedHashMap<>();
+    private final Set<Segment> dirty = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService flusher;
+
+    private Segment active;
+    private long totalBytes;
+    private long corruptTotal;
+
+    SegmentedOutboxLog(Path dir, long segmentBytes, long fsyncIntervalMs) throws IOException {
+        this.dir = dir;
+        this.segmentBytes = Math.max(64L * 1024L, segmentBytes);
+        this.syncEveryWrite = fsyncIntervalMs <= 0;
+        Files.createDirectories(dir);
+        recover();
+        if (syncEveryWrite) {
+            this.flusher = null;
+        } else {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "outbox-segment-fsync");
+                t.setDaemon(true);
+                return t;
+            });
+            flusher.scheduleWithFixedDelay(this::force, fsyncIntervalMs, fsyncIntervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    // -------------------- write path --------------------
+
+    /** Appends {@code payload} as a new pending record. */
+    void append(byte[] payload, long createdAtMs) throws IOException {
+        Segment seg = activeSegment(HEADER_BYTES + payload.length);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        buf.putInt(payload.length).putLong(createdAtMs).putInt((int) crc.getValue()).put(payload).flip();
+        long offset = seg.size;
+        while (buf.hasRemaining()) {
+            seg.log.write(buf, offset + buf.position());
+        }
+        seg.size += buf.limit();
+        seg.records++;
+        totalBytes += buf.limit();
+        pending.addLast(new Loc(seg, offset, buf.limit(), createdAtMs));
+        written(seg);
+    }
+
+    /** Moves up to {@code max} records from the head of the queue to inflight. */
+    List<Record> claim(int max, long nowMs) {
+        List<Record> out = new ArrayList<>(Math.min(max, pending.size()));
+        while (out.size() < max) {
+            Loc loc = pending.pollFirst();
+            if (loc == null) {
+                break;
+            }
+            byte[] payload = readPayload(loc);
+            if (payload == null) {
+                corruptTotal++;
+                markDone(loc);
+                continue;
+            }
+            inflight.put(loc.token(), new Inflight(loc, nowMs));
+            out.add(new Record(loc.token(), loc.createdAtMs(), nowMs, loc.length(), payload));
+        }
+        return out;
+    }
+
+    /** Payload of an inflight record, or {@code null} when the token is unknown. */
+    Record inflight(String token) {
+        Inflight in = inflight.get(token);
+        if (in == null) {
+            return null;
+        }
+        Loc loc = in.loc();
+        return new Record(token, loc.createdAtMs(), in.claimedAtMs(), loc.length(), readPayload(loc));
+    }
+
+    /** Marks an inflight record as done; returns false for unknown tokens. */
+    boolean ack(String token) {
+        Inflight in = inflight.remove(token);
+        if (in == null) {
+            return false;
+        }
+        markDone(in.loc());
+        return true;
+    }
+
+    /** Returns an inflight record to the head of the queue. */
+    boolean release(String token) {
+        Inflight in = inflight.remove(token);
+        if (in == null) {
+            return false;
+        }
+        pending.addFirst(in.loc());
+        return true;
+    }
+
+    // -------------------- retention --------------------
+
+    /** Inflight records claimed before {@code claimedBeforeMs} go back to the queue head. */
+    int recoverStale(long claimedBeforeMs) {
+        int n = 0;
+        Iterator<Inflight> it = inflight.values().iterator();
+        while (it.hasNext()) {
+            Inflight in = it.next();
+            if (in.claimedAtMs() < claimedBeforeMs) {
+                it.remove();
+                pending.addFirst(in.loc());
+                n++;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Drops expired records from the queue head. Records are appended in arrival order, so the
+     * head is checked only; requeued records with an older timestamp expire once they reach it.
+     */
+    int dropExpired(long createdBeforeMs) {
+        int n = 0;
+        Loc head;
+        while ((head = pending.peekFirst()) != null && head.createdAtMs() < createdBeforeMs) {
+            markDone(pending.pollFirst());
+            n++;
+        }
+        return n;
+    }
+
+    /** Drops the oldest pending records until at most {@code max} remain. */
+    int trimPending(int max) {
+        int n = 0;
+        while (pending.size() > max) {
+            markDone(pending.pollFirst());
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Drops pending records of the oldest segments until the log fits {@code maxBytes}. Space is
+     * reclaimed only when a whole segment is acked and deleted, so only segments that can actually
+     * go away are trimmed: never the active segment and never one that still holds an inflight
+     * record. When those cannot bring the log under the limit, nothing is dropped.
+     */
+    int trimBytes(long maxBytes) {
+        if (totalBytes <= maxBytes) {
+            return 0;
+        }
+        Set<Segment> pinned = new HashSet<>();
+        for (Inflight in : inflight.values()) {
+            pinned.add(in.loc().seg());
+        }
+        long reclaimable = 0;
+        List<Segment> victims = new ArrayList<>();
+        for (Segment seg : segments.values()) {
+            if (totalBytes - reclaimable <= maxBytes) {
+                break;
+            }
+            if (seg == active || pinned.contains(seg)) {
+                continue;
+            }
+            victims.add(seg);
+            reclaimable += seg.size + 8L * seg.acked;
+        }
+        if (totalBytes - reclaimable > maxBytes) {
+            return 0;
+        }
+        Set<Segment> drop = new HashSet<>(victims);
+        List<Loc> doomed = new ArrayList<>();
+        pending.removeIf(loc -> drop.contains(loc.seg()) && doomed.add(loc));
+        for (Loc loc : doomed) {
+            markDone(loc);
+        }
+        return doomed.size();
+    }
+
+    // -------------------- diagnostics --------------------
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    int inflightCount() {
+        return inflight.size();
+    }
+
+    long totalBytes() {
+        return totalBytes;
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    long corruptTotal() {
+        return corruptTotal;
+    }
+
+    Long oldestCreatedAtMs() {
+        Long oldest = pending.isEmpty() ? null : pending.peekFirst().createdAtMs();
+        for (Inflight in : inflight.values()) {
+            long ts = in.loc().createdAtMs();
+            oldest = oldest == null ? ts : Math.min(oldest, ts);
+        }
+        return oldest;
+    }
+
+    Long newestCreatedAtMs() {
+        return pending.isEmpty() ? null : pending.peekLast().createdAtMs();
+    }
+
+    /** Newest {@code limit} pending records (newest first), without claiming them. */
+    List<Record> peekPending(int limit) {
+        List<Record> out = new ArrayList<>(Math.min(limit, pending.size()));
+        Iterator<Loc> it = pending.descendingIterator();
+        while (it.hasNext() && out.size() < limit) {
+            Loc loc = it.next();
+            out.add(new Record(loc.token(), loc.createdAtMs(), 0L, loc.length(), readPayload(loc)));
+        }
+        return out;
+    }
+
+    List<Record> peekInflight(int limit) {
+        List<Record> out = new ArrayList<>(Math.min(limit, inflight.size()));
+        for (Map.Entry<String, Inflight> e : inflight.entrySet()) {
+            if (out.size() >= limit) {
+                break;
+            }
+            Loc loc = e.getValue().loc();
+            out.add(new Record(e.getKey(), loc.createdAtMs(), e.getValue().claimedAtMs(), loc.length(),
+                    readPayload(loc)));
+        }
+        return out;
+    }
+
+    // -------------------- durability --------------------
+
+    /** Forces dirty segments to disk (the group commit). */
+    void force() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+        for (Iterator<Segment> it = dirty.iterator(); it.hasNext(); ) {
+            Segment seg = it.next();
+            it.remove();
+            try {
+                if (seg.log != null && seg.log.isOpen()) seg.log.force(false);
+                if (seg.ack != null && seg.ack.isOpen()) seg.ack.force(false);
+            } catch (IOException e) {
+                // closed concurrently (segment deleted) or disk error; next write retries
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        force();
+        for (Segment seg : segments.values()) {
+            closeQuietly(seg);
+        }
+        segments.clear();
+        pending.clear();
+        inflight.clear();
+        active = null;
+    }
+
+    // -------------------- internals --------------------
+
+    private Segment activeSegment(int recordBytes) throws IOException {
+        if (active != null && (active.size == 0 || active.size + recordBytes <= segmentBytes)) {
+            return active;
+        }
+        Segment previous = active;
+        long seq = segments.isEmpty() ? 1L : segments.lastKey() + 1;
+        Segment seg = new Segment(dir, seq);
+        seg.log = FileChannel.open(seg.logPath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        segments.put(seq, seg);
+        active = seg;
+        if (previous != null) {
+            deleteIfDone(previous);
+        }
+        return seg;
+    }
+
+    private void markDone(Loc loc) {
+        Segment seg = loc.seg();
+        try {
+            if (seg.ack == null) {
+                seg.ack = FileChannel.open(seg.ackPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                        StandardOpenOption.APPEND);
+            }
+            ByteBuffer buf = ByteBuffer.allocate(8).putLong(loc.offset());
+            buf.flip();
+            while (buf.hasRemaining()) {
+                seg.ack.write(buf);
+            }
+            totalBytes += 8;
+            written(seg);
+        } catch (IOException e) {
+            // fail-soft: without the ack the record is replayed after a restart
+        }
+        seg.acked++;
+        deleteIfDone(seg);
+    }
+
+    private void deleteIfDone(Segment seg) {
+        if (seg == active || seg.acked < seg.records) {
+            return;
+        }
+        closeQuietly(seg);
+        dirty.remove(seg);
+        segments.remove(seg.seq);
+        totalBytes -= seg.size + 8L * seg.acked;
+        try {
+            Files.deleteIfExists(seg.ackPath);
+            Files.deleteIfExists(seg.logPath);
+        } catch (IOException ignored) {
+        }
+    }
+
+    private void written(Segment seg) {
+        dirty.add(seg);
+        if (syncEveryWrite) {
+            force();
+        }
+    }
+
+    private byte[] readPayload(Loc loc) {
+        Segment seg = loc.seg();
+        if (seg.log == null || !seg.log.isOpen()) {
+            return null;
+        }
+        try {
+            ByteBuffer buf = ByteBuffer.allocate(loc.length());
+            long pos = loc.offset();
+            while (buf.hasRemaining()) {
+                int r = seg.log.read(buf, pos + buf.position());
+                if (r < 0) {
+                    return null;
+                }
+            }
+            buf.flip();
+            int len = buf.getInt();
+            buf.getLong();
+            int crc = buf.getInt();
+            if (len != loc.length() - HEADER_BYTES) {
+                return null;
+            }
+            byte[] payload = new byte[len];
+            buf.get(payload);
+            CRC32 c = new CRC32();
+            c.update(payload);
+            return ((int) c.getValue()) == crc ? payload : null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void closeQuietly(Segment seg) {
+        try {
+            if (seg.log != null) seg.log.close();
+        } catch (IOException ignored) {
+        }
+        try {
+            if (seg.ack != null) seg.ack.close();
+        } catch (IOException ignored) {
+        }
+    }
+
+    /** Rebuilds the queue from segment + ack files; a torn record tail is truncated. */
+    private void recover() throws IOException {
+        List<Long> seqs = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, SEG_PREFIX + "*" + LOG_SUFFIX)) {
+            for (Path p : stream) {
+                String name = p.getFileName().toString();
+                try {
+                    seqs.add(Long.parseLong(name.substring(SEG_PREFIX.length(), name.length() - LOG_SUFFIX.length())));
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+        seqs.sort(null);
+
+        for (long seq : seqs) {
+            Segment seg = new Segment(dir, seq);
+            Set<Long> acked = readAcks(seg.ackPath);
+            truncateTornAck(seg.ackPath);
+            List<Loc> locs = new ArrayList<>();
+            long good = scan(seg, locs);
+
+            seg.log = FileChannel.open(seg.logPath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (seg.log.size() > good) {
+                seg.log.truncate(good);
+                corruptTotal++;
+            }
+            seg.size = good;
+            seg.records = locs.size();
+            for (Loc loc : locs) {
+                if (acked.contains(loc.offset())) {
+                    seg.acked++;
+                } else {
+                    pending.addLast(loc);
+                }
+            }
+            segments.put(seq, seg);
+            totalBytes += seg.size + 8L * seg.acked;
+        }
+
+        // The newest segment keeps receiving appends; older, fully acked ones go away now.
+        active = segments.isEmpty() ? null : segments.lastEntry().getValue();
+        for (Segment seg : new ArrayList<>(segments.values())) {
+            deleteIfDone(seg);
+        }
+    }
+
+    private long scan(Segment seg, List<Loc> out) {
+        long offset = 0;
+        try (InputStream raw = Files.newInputStream(seg.logPath);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(raw, 64 * 1024))) {
+            while (true) {
+                int len;
+                try {
+                    len = in.readInt();
+                } catch (EOFException eof) {
+                    break;
+                }
+                if (len < 0 || len > segmentBytes * 4) {
+                    break;
+                }
+                long createdAt = in.readLong();
+                int crc = in.readInt();
+                byte[] payload = new byte[len];
+                in.readFully(payload);
+                CRC32 c = new CRC32();
+                c.update(payload);
+                if ((int) c.getValue() != crc) {
+                    break;
+                }
+                Loc loc = new Loc(seg, offset, HEADER_BYTES + len, createdAt);
+                out.add(loc);
+                offset += loc.length();
+            }
+        } catch (IOException e) {
+            // EOF inside a record: torn write, keep what was read so far
+        }
+        return offset;
+    }
+
+    private static Set<Long> readAcks(Path ackPath) {
+        Set<Long> acked = new HashSet<>();
+        if (!Files.exists(ackPath)) {
+            return acked;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(ackPath)))) {
+            while (true) {
+                acked.add(in.readLong());
+            }
+        } catch (IOException eofOrTorn) {
+            // partial trailing long is ignored
+        }
+        return acked;
+    }
+
+    /** Cuts a partial trailing entry so later APPEND writes stay 8-byte aligned. */
+    private static void truncateTornAck(Path ackPath) throws IOException {
+        if (!Files.exists(ackPath)) {
+            return;
+        }
+        try (FileChannel ch = FileChannel.open(ackPath, StandardOpenOption.WRITE)) {
+            long size = ch.size();
+            long aligned = (size / 8) * 8;
+            if (aligned != size) {
+                ch.truncate(aligned);
+            }
+        }
+    }
+}
@@ -14,6 +14,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -23,6 +24,7 @@ import java.util.Map;
  * - POST /internal/dataset/rag
  * - uaw.dataset-api.enabled=true 일 때만 노출됩니다(오토컨피그에서 @Bean으로 등록).
  * - uaw.dataset-api.key 값이 설정되어 있으면, 헤더 X-Internal-Key가 일치해야 합니다.
+ * - datasetPath 는 uaw.dataset-api.root(기본: 설정된 dataset 경로의 상위 디렉터리) 아래여야 합니다.
  */
 @Slf4j
 @RestController
@@ -32,11 +34,19 @@ public class InternalDatasetApiController {
     private final UawDatasetWriter writer;
     private final UawAutolearnProperties autolearnProps;
     private final String requiredKey;
+    /** Caller-supplied datasetPath must resolve inside this directory. */
+    private final Path datasetRoot;
 
     public InternalDatasetApiController(UawDatasetWriter writer, UawAutolearnProperties autolearnProps, Environment env) {
         this.writer = writer;
         this.autolearnProps = autolearnProps;
         this.requiredKey = env.getProperty("uaw.dataset-api.key", "");
+        String defaultPath = (autolearnProps != null && autolearnProps.getDataset() != null
+                && !isBlank(autolearnProps.getDataset().getPath()))
+                ? autolearnProps.getDataset().getPath() : "data/train_rag.jsonl";
+        Path defaultParent = Path.of(defaultPath).toAbsolutePath().normalize().getParent();
+        this.datasetRoot = Path.of(env.getProperty("uaw.dataset-api.root",
+                defaultParent == null ? "data" : defaultParent.toString())).toAbsolutePath().normalize();
     }
 
     @PostMapping("/rag")
@@ -82,7 +92,15 @@ public class InternalDatasetApiController {
         String model = firstNonBlank(req.getModel(), "internal-api");
         String sessionId = firstNonBlank(req.getSessionId(), "internal");
 
-        File file = new File(datasetPath);
+        Path resolved = Path.of(datasetPath).toAbsolutePath().normalize();
+        if (!resolved.startsWith(datasetRoot)) {
+            return ResponseEntity.badRequest().body(Map.of(
+                    "error", "bad_request",
+                    "message", "datasetPath must be under " + datasetRoot
+            ));
+        }
+
+        File file = resolved.toFile();
         File parent = file.getParentFile();
         if (parent != null) {
             // Best-effort: ensure directory exists.
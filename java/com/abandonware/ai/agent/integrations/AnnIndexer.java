@@ -4,11 +4,14 @@ package com.abandonware.ai.agent.integrations;
 import java.io.*;
 import java.nio.file.*;
 import java.util.*;
+import java.util.stream.IntStream;
 
 
 
 /**
- * Command-line indexer building a trivial IVF-Flat file from local repo chunks.
+ * Command-line indexer building an ANN index from local repo chunks.
+ * ANN_NLIST overrides the coarse quantizer size (default ~sqrt(rows)).
+ * ANN_KIND=hnsw builds an HNSW graph instead (ANN_HNSW_M, ANN_HNSW_EF_CONSTRUCTION).
  */
 public class AnnIndexer {
 
@@ -34,11 +37,18 @@ public class AnnIndexer {
             meta.rowToId.add(c.id);
         }
         float[][] mat = vecs.toArray(new float[0][]);
-        if ("ivf".equals(kind)) {
-            IvfFlatIndex.save(outDir, mat, meta);
+        int nlist = Integer.parseInt(System.getenv().getOrDefault("ANN_NLIST",
+                String.valueOf(IvfFlatIndex.defaultNlist(mat.length))));
+        if ("hnsw".equalsIgnoreCase(kind)) {
+            int m = Integer.parseInt(System.getenv().getOrDefault("ANN_HNSW_M", String.valueOf(HnswIndex.DEFAULT_M)));
+            int efc = Integer.parseInt(System.getenv().getOrDefault("ANN_HNSW_EF_CONSTRUCTION",
+                    String.valueOf(HnswIndex.DEFAULT_EF_CONSTRUCTION)));
+            HnswIndex.Graph graph = new HnswIndex.Graph(mat, m, efc, 42L);
+            IntStream.range(0, mat.length).parallel().forEach(graph::insert);
+            graph.freeze();
+            HnswIndex.save(outDir, meta, graph);
         } else {
-            // reuse ivf format for simplicity
-            IvfFlatIndex.save(outDir, mat, meta);
+            IvfFlatIndex.save(outDir, mat, meta, nlist);
         }
         System.out.println("[AnnIndexer] done.");
     }
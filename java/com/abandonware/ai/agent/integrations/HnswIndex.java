@@ -1,22 +1,418 @@
-
 package com.abandonware.ai.agent.integrations;
 
-import java.io.IOException;
+import java.io.*;
+import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 
 
 /**
- * HNSW shim delegating to IVF flat fallback.
+ * Pure-Java HNSW graph index (cosine on L2-normalized rows).
+ *
+ * <p>On disk the graph lives in 'hnsw.bin' next to 'vectors.f32' and meta.tsv
+ * (same vector layout as {@link IvfFlatIndex}, rows normalized, original order).
+ * Directories without 'hnsw.bin' are served by the IVF flat reader as before.
+ *
+ * <p>{@link Graph} supports concurrent {@link Graph#insert(int)}: neighbour lists are
+ * guarded by striped locks and only a node that raises the top level takes the global lock.
  */
 public class HnswIndex implements AnnIndex {
+
+    static final String HNSW_FILE = "hnsw.bin";
+    private static final int HNSW_MAGIC = 0x31534e48; // "HNS1"
+
+    public static final int DEFAULT_M = 16;
+    public static final int DEFAULT_EF_CONSTRUCTION = 200;
+    public static final int DEFAULT_EF_SEARCH = 64;
+
+    private final Path dir;
     private final IvfFlatIndex fallback;
-    public HnswIndex(Path dir) { this.fallback = new IvfFlatIndex(dir); }
+    private volatile Loaded loaded;
+
+    private static final class Loaded {
+        final AnnMeta meta;
+        final Graph graph; // null -> fallback
+        Loaded(AnnMeta meta, Graph graph) { this.meta = meta; this.graph = graph; }
+    }
+
+    public HnswIndex(Path dir) {
+        this.dir = dir;
+        this.fallback = new IvfFlatIndex(dir);
+    }
+
+    private Loaded ensureLoaded() throws IOException {
+        Loaded l = loaded;
+        if (l != null) return l;
+        synchronized (this) {
+            if (loaded == null) {
+                Path file = dir.resolve(HNSW_FILE);
+                loaded = Files.exists(file)
+                        ? new Loaded(AnnMeta.load(dir), Graph.read(file, MappedVectors.open(dir.resolve(IvfFlatIndex.VECTORS_FILE))))
+                        : new Loaded(null, null);
+            }
+            return loaded;
+        }
+    }
 
+    /**
+     * Returns hits ordered by ascending cosine distance; {@code efOrNprobe} is efSearch
+     * (raised to at least {@code k}, {@code <= 0} means {@link #DEFAULT_EF_SEARCH}).
+     */
     @Override
     public List<AnnHit> search(float[] query, int k, int efOrNprobe) throws IOException {
-        // For simplicity, reuse IVF Flat reader; real HNSW disabled in OSS build.
-        return fallback.search(query, k, efOrNprobe);
+        Loaded l = ensureLoaded();
+        if (l.graph == null) return fallback.search(query, k, efOrNprobe);
+        if (k <= 0 || query == null || query.length != l.graph.dim) return List.of();
+        float[] q = MappedVectors.normalizedCopy(query);
+        if (q == null) return List.of();
+        int ef = Math.max(k, efOrNprobe > 0 ? efOrNprobe : DEFAULT_EF_SEARCH);
+        List<AnnHit> out = new ArrayList<>(k);
+        for (Node n : l.graph.search(q, k, ef)) {
+            String id = n.id < l.meta.rowToId.size() ? l.meta.rowToId.get(n.id) : null;
+            out.add(new AnnHit(id, 1.0 - n.sim));
+        }
+        return out;
+    }
+
+    /** Writes the graph's normalized vectors, meta and the serialized links. */
+    public static void save(Path dir, AnnMeta meta, Graph graph) throws IOException {
+        Files.createDirectories(dir);
+        AnnMeta.save(dir, meta);
+        MappedVectors.write(dir.resolve(IvfFlatIndex.VECTORS_FILE), graph.dim, graph.unit, null);
+        Files.deleteIfExists(dir.resolve(IvfFlatIndex.IVF_FILE));
+        graph.write(dir.resolve(HNSW_FILE));
+    }
+
+    /** Vector access used while searching: heap rows during build, mapped rows after load. */
+    private interface Vectors {
+        float dot(float[] q, int node);
+    }
+
+    /** Candidate with its similarity to the current query. */
+    static final class Node {
+        final int id;
+        final float sim;
+        Node(int id, float sim) { this.id = id; this.sim = sim; }
+    }
+
+    private static final Comparator<Node> BY_SIM = Comparator.comparingDouble(n -> n.sim);
+
+    /**
+     * HNSW graph over {@code n} nodes. Node levels are drawn up front (seeded per node, so
+     * builds are reproducible regardless of insertion order or thread count).
+     */
+    public static final class Graph {
+        private static final int LOCK_STRIPES = 1024;
+        private static final int[] NO_LINKS = {0};
+
+        final int dim;
+        final int m;
+        final int efConstruction;
+        private final float[][] unit;   // build-time rows (null after read)
+        private final Vectors vectors;
+        private final int[] levels;
+        private final int[][][] links;  // links[node][level] = [count, n1, n2, ...]
+        private final ReentrantLock[] stripes;
+        private final ReentrantLock globalLock = new ReentrantLock();
+        private final ThreadLocal<int[]> visitedMarks;
+        private final ThreadLocal<int[]> visitedEpoch = ThreadLocal.withInitial(() -> new int[1]);
+        private volatile boolean building;
+        private volatile int entryPoint = -1;
+        private volatile int maxLevel = -1;
+
+        /** Prepares an empty graph for {@code mat}; rows are normalized into a private copy. */
+        public Graph(float[][] mat, int m, int efConstruction, long seed) {
+            this(mat.length == 0 ? 0 : mat[0].length, m, efConstruction, normalizeAll(mat), null,
+                    drawLevels(mat.length, m, seed), true);
+        }
+
+        private Graph(int dim, int m, int efConstruction, float[][] unit, Vectors mapped, int[] levels, boolean building) {
+            this.dim = dim;
+            this.m = Math.max(2, m);
+            this.efConstruction = Math.max(this.m, efConstruction);
+            this.unit = unit;
+            this.vectors = unit != null ? (q, node) -> dotRows(q, unit[node]) : mapped;
+            this.levels = levels;
+            this.links = new int[levels.length][][];
+            for (int i = 0; i < levels.length; i++) {
+                links[i] = new int[levels[i] + 1][];
+                for (int l = 0; l <= levels[i]; l++) links[i][l] = new int[maxLinks(l) + 1];
+            }
+            this.stripes = new ReentrantLock[LOCK_STRIPES];
+            for (int i = 0; i < LOCK_STRIPES; i++) stripes[i] = new ReentrantLock();
+            this.visitedMarks = ThreadLocal.withInitial(() -> new int[levels.length]);
+            this.building = building;
+        }
+
+        public int size() { return levels.length; }
+
+        private int maxLinks(int level) { return level == 0 ? 2 * m : m; }
+
+        /** Inserts node {@code node}; safe to call concurrently for distinct nodes. */
+        public void insert(int node) {
+            int level = levels[node];
+            boolean global = false;
+            if (level > maxLevel || entryPoint < 0) {
+                globalLock.lock();
+                global = true;
+                if (level <= maxLevel && entryPoint >= 0) {
+                    globalLock.unlock();
+                    global = false;
+                }
+            }
+            try {
+                int ep = entryPoint;
+                int top = maxLevel;
+                if (ep < 0) {
+                    entryPoint = node;
+                    maxLevel = level;
+                    return;
+                }
+                float[] v = unit[node];
+                Node cur = new Node(ep, vectors.dot(v, ep));
+                for (int l = top; l > level; l--) cur = greedy(v, cur, l);
+                for (int l = Math.min(level, top); l >= 0; l--) {
+                    List<Node> cands = searchLayer(v, cur, efConstruction, l);
+                    int[] selected = selectNeighbors(cands, m);
+                    setLinks(node, l, selected);
+                    for (int nb : selected) link(nb, node, l);
+                    cur = cands.get(cands.size() - 1);
+                }
+                if (level > top) {
+                    maxLevel = level;
+                    entryPoint = node;
+                }
+            } finally {
+                if (global) globalLock.unlock();
+            }
+        }
+
+        /** Marks the build as finished so searches stop taking neighbour locks. */
+        public void freeze() { building = false; }
+
+        List<Node> search(float[] q, int k, int ef) {
+            int ep = entryPoint;
+            if (ep < 0) return List.of();
+            Node cur = new Node(ep, vectors.dot(q, ep));
+            for (int l = maxLevel; l > 0; l--) cur = greedy(q, cur, l);
+            List<Node> found = searchLayer(q, cur, ef, 0);
+            List<Node> out = new ArrayList<>(Math.min(k, found.size()));
+            for (int i = found.size() - 1; i >= 0 && out.size() < k; i--) out.add(found.get(i));
+            return out;
+        }
+
+        private Node greedy(float[] q, Node start, int level) {
+            Node cur = start;
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                int[] nbs = neighbors(cur.id, level);
+                for (int i = 1; i <= nbs[0]; i++) {
+                    int nb = nbs[i];
+                    float s = vectors.dot(q, nb);
+                    if (s > cur.sim) {
+                        cur = new Node(nb, s);
+                        changed = true;
+                    }
+                }
+            }
+            return cur;
+        }
+
+        /** Beam search on one layer; returns up to {@code ef} nodes sorted by ascending similarity. */
+        private List<Node> searchLayer(float[] q, Node ep, int ef, int level) {
+            int[] marks = visitedMarks.get();
+            int[] epoch = visitedEpoch.get();
+            if (++epoch[0] == 0) {
+                Arrays.fill(marks, 0);
+                epoch[0] = 1;
+            }
+            int mark = epoch[0];
+            PriorityQueue<Node> candidates = new PriorityQueue<>(BY_SIM.reversed());
+            PriorityQueue<Node> results = new PriorityQueue<>(BY_SIM);
+            marks[ep.id] = mark;
+            candidates.add(ep);
+            results.add(ep);
+            while (!candidates.isEmpty()) {
+                Node c = candidates.poll();
+                if (results.size() >= ef && c.sim < results.peek().sim) break;
+                int[] nbs = neighbors(c.id, level);
+                for (int i = 1; i <= nbs[0]; i++) {
+                    int nb = nbs[i];
+                    if (marks[nb] == mark) continue;
+                    marks[nb] = mark;
+                    float s = vectors.dot(q, nb);
+                    if (results.size() < ef || s > results.peek().sim) {
+                        Node n = new Node(nb, s);
+                        candidates.add(n);
+                        results.add(n);
+                        if (results.size() > ef) results.poll();
+                    }
+                }
+            }
+            List<Node> out = new ArrayList<>(results);
+            out.sort(BY_SIM);
+            return out;
+        }
+
+        /**
+         * Neighbour selection heuristic (Malkov &amp; Yashunin, alg. 4): keep a candidate only if
+         * it is closer to the base than to every neighbour already kept, which preserves
+         * long-range links in clustered data. Falls back to the nearest ones to fill {@code max}.
+         */
+        private int[] selectNeighbors(List<Node> ascending, int max) {
+            List<Node> kept = new ArrayList<>(max);
+            List<Node> skipped = new ArrayList<>();
+            for (int i = ascending.size() - 1; i >= 0 && kept.size() < max; i--) {
+                Node c = ascending.get(i);
+                boolean good = true;
+                for (Node k : kept) {
+                    if (dotRows(unit[c.id], unit[k.id]) > c.sim) { good = false; break; }
+                }
+                if (good) kept.add(c); else skipped.add(c);
+            }
+            for (int i = 0; i < skipped.size() && kept.size() < max; i++) kept.add(skipped.get(i));
+            int[] ids = new int[kept.size()];
+            for (int i = 0; i < ids.length; i++) ids[i] = kept.get(i).id;
+            return ids;
+        }
+
+        private void setLinks(int node, int level, int[] ids) {
+            ReentrantLock lock = stripe(node);
+            lock.lock();
+            try {
+                int[] arr = links[node][level];
+                arr[0] = ids.length;
+                System.arraycopy(ids, 0, arr, 1, ids.length);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Adds the back-link {@code from -> to}, re-pruning {@code from} when it is full. */
+        private void link(int from, int to, int level) {
+            ReentrantLock lock = stripe(from);
+            lock.lock();
+            try {
+                int[] arr = links[from][level];
+                int count = arr[0];
+                if (count < arr.length - 1) {
+                    arr[++arr[0]] = to;
+                    return;
+                }
+                float[] base = unit[from];
+                List<Node> cands = new ArrayList<>(count + 1);
+                for (int i = 1; i <= count; i++) cands.add(new Node(arr[i], dotRows(base, unit[arr[i]])));
+                cands.add(new Node(to, dotRows(base, unit[to])));
+                cands.sort(BY_SIM);
+                int[] kept = selectNeighbors(cands, arr.length - 1);
+                arr[0] = kept.length;
+                System.arraycopy(kept, 0, arr, 1, kept.length);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** Neighbour list as [count, ids...]; the live array once frozen, a locked copy while building. */
+        private int[] neighbors(int node, int level) {
+            int[][] perLevel = links[node];
+            if (level >= perLevel.length) return NO_LINKS;
+            if (!building) return perLevel[level];
+            ReentrantLock lock = stripe(node);
+            lock.lock();
+            try {
+                int[] arr = perLevel[level];
+                return Arrays.copyOf(arr, 1 + arr[0]);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private ReentrantLock stripe(int node) { return stripes[node & (LOCK_STRIPES - 1)]; }
+
+        void write(Path file) throws IOException {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+                out.writeInt(HNSW_MAGIC);
+                out.writeInt(dim);
+                out.writeInt(levels.length);
+                out.writeInt(m);
+                out.writeInt(efConstruction);
+                out.writeInt(entryPoint);
+                out.writeInt(maxLevel);
+                for (int node = 0; node < levels.length; node++) {
+                    out.writeByte(levels[node]);
+                    for (int l = 0; l <= levels[node]; l++) {
+                        int[] arr = links[node][l];
+                        out.writeShort(arr[0]);
+                        for (int i = 1; i <= arr[0]; i++) out.writeInt(arr[i]);
+                    }
+                }
+            }
+        }
+
+        static Graph read(Path file, MappedVectors vectors) throws IOException {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+                if (in.readInt() != HNSW_MAGIC) throw new IOException("not an hnsw file: " + file);
+                int dim = in.readInt();
+                int n = in.readInt();
+                int m = in.readInt();
+                int efConstruction = in.readInt();
+                int entryPoint = in.readInt();
+                int maxLevel = in.readInt();
+                if (vectors.dim != dim || vectors.rows != n) {
+                    throw new IOException("hnsw graph does not match vectors.f32: " + file);
+                }
+                int[] levels = new int[n];
+                int[][][] raw = new int[n][][];
+                for (int node = 0; node < n; node++) {
+                    levels[node] = in.readUnsignedByte();
+                    raw[node] = new int[levels[node] + 1][];
+                    for (int l = 0; l <= levels[node]; l++) {
+                        int count = in.readUnsignedShort();
+                        int[] arr = new int[count + 1];
+                        arr[0] = count;
+                        for (int i = 1; i <= count; i++) arr[i] = in.readInt();
+                        raw[node][l] = arr;
+                    }
+                }
+                Graph g = new Graph(dim, m, efConstruction, null, vectors::dot, levels, false);
+                for (int node = 0; node < n; node++) {
+                    for (int l = 0; l <= levels[node]; l++) {
+                        int[] src = raw[node][l];
+                        System.arraycopy(src, 0, g.links[node][l], 0, Math.min(src.length, g.links[node][l].length));
+                    }
+                }
+                g.entryPoint = entryPoint;
+                g.maxLevel = maxLevel;
+                return g;
+            }
+        }
+
+        private static int[] drawLevels(int n, int m, long seed) {
+            double ml = 1.0 / Math.log(Math.max(2, m));
+            int[] levels = new int[n];
+            for (int i = 0; i < n; i++) {
+                double u = new SplittableRandom(seed + i).nextDouble();
+                levels[i] = Math.min(64, (int) Math.floor(-Math.log(Math.max(u, 1e-12)) * ml));
+            }
+            return levels;
+        }
+
+        private static float[][] normalizeAll(float[][] mat) {
+            float[][] out = new float[mat.length][];
+            for (int i = 0; i < mat.length; i++) {
+                float[] u = MappedVectors.normalizedCopy(mat[i]);
+                out[i] = u != null ? u : new float[mat[i].length];
+            }
+            return out;
+        }
+
+        private static float dotRows(float[] a, float[] b) {
+            float s = 0;
+            for (int i = 0; i < a.length; i++) s += a[i] * b[i];
+            return s;
+        }
     }
-}
\ No newline at end of file
+}
@@ -1,73 +1,294 @@
-
 package com.abandonware.ai.agent.integrations;
 
 import java.io.*;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
 import java.nio.file.*;
 import java.util.*;
 
 
 
 /**
- * Simplified IVF Flat index reader/writer.
+ * IVF Flat index reader/writer.
  * Stored as floats row-major in 'vectors.f32' and meta in meta.tsv.
+ *
+ * <p>When built through {@link #save(Path, float[][], AnnMeta, int)} the rows are
+ * L2-normalized and grouped by their k-means coarse cell, and 'ivf.bin' holds the
+ * centroids plus per-list row ranges; {@code efOrNprobe} then limits the number of
+ * lists scanned. Without 'ivf.bin' (legacy files) search falls back to a flat scan.
+ *
+ * <p>The matrix is memory-mapped through {@link MappedVectors} rather than copied onto the heap.
  */
 public class IvfFlatIndex implements AnnIndex {
 
+    static final String VECTORS_FILE = "vectors.f32";
+    static final String IVF_FILE = "ivf.bin";
+    private static final int IVF_MAGIC = 0x31465649; // "IVF1"
+    private static final int KMEANS_ITERS = 10;
+    private static final int KMEANS_SAMPLE_PER_LIST = 256;
+
     private final Path dir;
-    private float[][] vectors; // loaded lazily
-    private AnnMeta meta;
+    private volatile Loaded loaded;
+
+    /** Immutable view over the mapped files. */
+    private static final class Loaded {
+        final AnnMeta meta;
+        final MappedVectors vectors;
+        final float[] centroids;   // nlist * dim, null when flat (rows then not normalized)
+        final int[] listOffsets;   // nlist + 1
+
+        Loaded(AnnMeta meta, MappedVectors vectors, float[] centroids, int[] listOffsets) {
+            this.meta = meta; this.vectors = vectors;
+            this.centroids = centroids; this.listOffsets = listOffsets;
+        }
+
+        int nlist() { return listOffsets == null ? 0 : listOffsets.length - 1; }
+    }
 
     public IvfFlatIndex(Path dir) { this.dir = dir; }
 
-    private void ensureLoaded() throws IOException {
-        if (vectors != null) return;
-        this.meta = AnnMeta.load(dir);
-        Path vec = dir.resolve("vectors.f32");
-        if (!Files.exists(vec)) {
-            this.vectors = new float[0][];
-            return;
-        }
-        byte[] bytes = Files.readAllBytes(vec);
-        ByteBuffer bb = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
-        int dim = bb.getInt(); // dim
-        int rows = bb.getInt(); // rows
-        this.vectors = new float[rows][dim];
-        for (int r = 0; r < rows; r++) {
-            for (int d=0; d<dim; d++) {
-                vectors[r][d] = bb.getFloat();
+    private Loaded ensureLoaded() throws IOException {
+        Loaded l = loaded;
+        if (l != null) return l;
+        synchronized (this) {
+            if (loaded == null) loaded = load();
+            return loaded;
+        }
+    }
+
+    private Loaded load() throws IOException {
+        AnnMeta meta = AnnMeta.load(dir);
+        MappedVectors vectors = MappedVectors.open(dir.resolve(VECTORS_FILE));
+        Path ivf = dir.resolve(IVF_FILE);
+        if (vectors.rows == 0 || !Files.exists(ivf)) {
+            return new Loaded(meta, vectors, null, null);
+        }
+        int dim = vectors.dim;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(ivf)))) {
+            if (in.readInt() != IVF_MAGIC || in.readInt() != dim) {
+                return new Loaded(meta, vectors, null, null);
             }
+            int nlist = in.readInt();
+            float[] centroids = new float[nlist * dim];
+            for (int i = 0; i < centroids.length; i++) centroids[i] = in.readFloat();
+            int[] offsets = new int[nlist + 1];
+            for (int i = 0; i <= nlist; i++) offsets[i] = in.readInt();
+            return new Loaded(meta, vectors, centroids, offsets);
         }
     }
 
+    /**
+     * Returns hits ordered by ascending cosine distance. {@code efOrNprobe} is the
+     * number of coarse lists probed (ignored for flat files; {@code <= 0} probes all).
+     */
     @Override
     public List<AnnHit> search(float[] query, int k, int efOrNprobe) throws IOException {
-        ensureLoaded();
-        TopK<Integer> top = new TopK<>(k);
-        for (int i=0;i<vectors.length;i++) {
-            double dist = Distance.cosine(query, vectors[i]); // lower is better
-            top.add(i, -dist); // store negative so higher is better
-        }
-        List<TopK.Item<Integer>> items = top.toListSortedDesc();
-        List<AnnHit> out = new ArrayList<>();
-        for (var it : items) {
-            int row = it.value;
-            String id = meta.rowToId.get(row);
-            out.add(new AnnHit(id, -it.score));
+        Loaded l = ensureLoaded();
+        MappedVectors v = l.vectors;
+        if (k <= 0 || v.rows == 0 || query == null || query.length != v.dim) return List.of();
+        float[] q = MappedVectors.normalizedCopy(query);
+        if (q == null) return List.of();
+
+        RowHeap top = new RowHeap(Math.min(k, v.rows));
+        if (l.centroids == null) {
+            // legacy files: rows are not normalized, fold the norm into the same pass
+            for (int row = 0; row < v.rows; row++) top.offer(row, v.cosine(q, row));
+        } else {
+            int nlist = l.nlist();
+            int nprobe = efOrNprobe <= 0 ? nlist : Math.min(nlist, efOrNprobe);
+            for (int list : nearestLists(l, q, nprobe)) {
+                for (int row = l.listOffsets[list]; row < l.listOffsets[list + 1]; row++) {
+                    top.offer(row, v.dot(q, row));
+                }
+            }
+        }
+
+        int[] rows = new int[top.size];
+        double[] sims = new double[top.size];
+        top.drainDesc(rows, sims);
+        List<AnnHit> out = new ArrayList<>(rows.length);
+        for (int i = 0; i < rows.length; i++) {
+            String id = rows[i] < l.meta.rowToId.size() ? l.meta.rowToId.get(rows[i]) : null;
+            out.add(new AnnHit(id, 1.0 - sims[i]));
         }
         return out;
     }
 
+    private static int[] nearestLists(Loaded l, float[] q, int nprobe) {
+        RowHeap best = new RowHeap(nprobe);
+        int dim = l.vectors.dim;
+        for (int c = 0; c < l.nlist(); c++) {
+            if (l.listOffsets[c] == l.listOffsets[c + 1]) continue;
+            float s = 0;
+            int base = c * dim;
+            for (int i = 0; i < dim; i++) s += q[i] * l.centroids[base + i];
+            best.offer(c, s);
+        }
+        int[] lists = new int[best.size];
+        best.drainDesc(lists, new double[best.size]);
+        return lists;
+    }
+
+    /** Bounded min-heap over (row, similarity); keeps the {@code cap} most similar rows. */
+    private static final class RowHeap {
+        final int cap;
+        final int[] rows;
+        final double[] sims;
+        int size;
+
+        RowHeap(int cap) {
+            this.cap = Math.max(1, cap);
+            this.rows = new int[this.cap];
+            this.sims = new double[this.cap];
+        }
+
+        void offer(int row, double sim) {
+            if (size < cap) {
+                int i = size++;
+                rows[i] = row; sims[i] = sim;
+                while (i > 0) {
+                    int p = (i - 1) >>> 1;
+                    if (sims[p] <= sims[i]) break;
+                    swap(i, p);
+                    i = p;
+                }
+                return;
+            }
+            if (sim <= sims[0]) return;
+            rows[0] = row; sims[0] = sim;
+            int i = 0;
+            while (true) {
+                int a = 2 * i + 1, b = a + 1, m = i;
+                if (a < size && sims[a] < sims[m]) m = a;
+                if (b < size && sims[b] < sims[m]) m = b;
+                if (m == i) return;
+                swap(i, m);
+                i = m;
+            }
+        }
+
+        /** Writes the heap contents ordered by descending similarity. */
+        void drainDesc(int[] outRows, double[] outSims) {
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) order[i] = i;
+            Arrays.sort(order, (x, y) -> Double.compare(sims[y], sims[x]));
+            for (int i = 0; i < size; i++) {
+                outRows[i] = rows[order[i]];
+                outSims[i] = sims[order[i]];
+            }
+        }
+
+        private void swap(int a, int b) {
+            int r = rows[a]; rows[a] = rows[b]; rows[b] = r;
+            double s = sims[a]; sims[a] = sims[b]; sims[b] = s;
+        }
+    }
+
     // Writer used by AnnIndexer
     public static void save(Path dir, float[][] mat, AnnMeta meta) throws IOException {
+        save(dir, mat, meta, defaultNlist(mat.length));
+    }
+
+    /** Heuristic list count (~sqrt(rows)), the usual starting point for IVF. */
+    public static int defaultNlist(int rows) {
+        return Math.max(1, (int) Math.round(Math.sqrt(rows)));
+    }
+
+    /**
+     * Trains a spherical k-means coarse quantizer with {@code nlist} cells, then writes
+     * normalized rows grouped by cell. {@code meta} is rewritten to the new row order.
+     */
+    public static void save(Path dir, float[][] mat, AnnMeta meta, int nlist) throws IOException {
         Files.createDirectories(dir);
+        int rows = mat.length;
+        int dim = rows == 0 ? 0 : mat[0].length;
+        float[][] unit = new float[rows][];
+        for (int r = 0; r < rows; r++) {
+            float[] u = MappedVectors.normalizedCopy(mat[r]);
+            unit[r] = u != null ? u : new float[dim];
+        }
+
+        nlist = Math.max(1, Math.min(nlist, Math.max(1, rows)));
+        float[] centroids = trainKMeans(unit, dim, nlist, new Random(17));
+        int[] assign = new int[rows];
+        int[] counts = new int[nlist];
+        for (int r = 0; r < rows; r++) {
+            assign[r] = nearestCentroid(unit[r], centroids, dim, nlist);
+            counts[assign[r]]++;
+        }
+        int[] offsets = new int[nlist + 1];
+        for (int c = 0; c < nlist; c++) offsets[c + 1] = offsets[c] + counts[c];
+        int[] cursor = Arrays.copyOf(offsets, nlist);
+        int[] order = new int[rows]; // new row -> old row
+        for (int r = 0; r < rows; r++) order[cursor[assign[r]]++] = r;
+
+        List<String> oldRowToId = new ArrayList<>(meta.rowToId);
+        meta.rowToId.clear();
+        meta.idToRow.clear();
+        for (int nr = 0; nr < rows; nr++) {
+            String id = order[nr] < oldRowToId.size() ? oldRowToId.get(order[nr]) : null;
+            meta.rowToId.add(id);
+            if (id != null) meta.idToRow.put(id, nr);
+        }
         AnnMeta.save(dir, meta);
-        Path vec = dir.resolve("vectors.f32");
-        ByteBuffer bb = ByteBuffer.allocate(8 + mat.length * mat[0].length * 4).order(ByteOrder.LITTLE_ENDIAN);
-        bb.putInt(mat[0].length);
-        bb.putInt(mat.length);
-        for (int r=0;r<mat.length;r++) for (int d=0;d<mat[0].length;d++) bb.putFloat(mat[r][d]);
-        Files.write(vec, bb.array());
+
+        MappedVectors.write(dir.resolve(VECTORS_FILE), dim, unit, order);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(dir.resolve(IVF_FILE))))) {
+            out.writeInt(IVF_MAGIC);
+            out.writeInt(dim);
+            out.writeInt(nlist);
+            for (float c : centroids) out.writeFloat(c);
+            for (int o : offsets) out.writeInt(o);
+        }
+    }
+
+    /** Lloyd iterations on a sample of unit vectors; centroids are re-normalized each round. */
+    private static float[] trainKMeans(float[][] unit, int dim, int nlist, Random rnd) {
+        int rows = unit.length;
+        float[] centroids = new float[nlist * dim];
+        if (rows == 0) return centroids;
+        int sampleSize = (int) Math.min(rows, (long) nlist * KMEANS_SAMPLE_PER_LIST);
+        int[] sample = new int[rows];
+        for (int i = 0; i < rows; i++) sample[i] = i;
+        for (int i = 0; i < sampleSize; i++) {
+            int j = i + rnd.nextInt(rows - i);
+            int t = sample[i]; sample[i] = sample[j]; sample[j] = t;
+        }
+        for (int c = 0; c < nlist; c++) System.arraycopy(unit[sample[c]], 0, centroids, c * dim, dim);
+
+        double[] sums = new double[nlist * dim];
+        int[] counts = new int[nlist];
+        for (int it = 0; it < KMEANS_ITERS; it++) {
+            Arrays.fill(sums, 0);
+            Arrays.fill(counts, 0);
+            for (int s = 0; s < sampleSize; s++) {
+                float[] v = unit[sample[s]];
+                int c = nearestCentroid(v, centroids, dim, nlist);
+                counts[c]++;
+                for (int i = 0; i < dim; i++) sums[c * dim + i] += v[i];
+            }
+            for (int c = 0; c < nlist; c++) {
+                if (counts[c] == 0) {
+                    // re-seed empty cells from a random sample row
+                    System.arraycopy(unit[sample[rnd.nextInt(sampleSize)]], 0, centroids, c * dim, dim);
+                    continue;
+                }
+                double n = 0;
+                for (int i = 0; i < dim; i++) n += sums[c * dim + i] * sums[c * dim + i];
+                double inv = n == 0 ? 0 : 1.0 / Math.sqrt(n);
+                for (int i = 0; i < dim; i++) centroids[c * dim + i] = (float) (sums[c * dim + i] * inv);
+            }
+        }
+        return centroids;
+    }
+
+    private static int nearestCentroid(float[] v, float[] centroids, int dim, int nlist) {
+        int best = 0;
+        float bestSim = Float.NEGATIVE_INFINITY;
+        for (int c = 0; c < nlist; c++) {
+            float s = 0;
+            int base = c * dim;
+            for (int i = 0; i < dim; i++) s += v[i] * centroids[base + i];
+            if (s > bestSim) { bestSim = s; best = c; }
+        }
+        return best;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,121 @@
+package com.abandonware.ai.agent.integrations;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+
+/**
+ * Read-only, memory-mapped view of a 'vectors.f32' file
+ * (little-endian header [dim:int, rows:int] followed by row-major floats).
+ * Mapped in 1 GiB windows so matrices larger than 2 GiB work; nothing is copied onto the heap.
+ */
+final class MappedVectors {
+
+    private static final long WINDOW_BYTES = 1L << 30;
+    private static final MappedVectors EMPTY = new MappedVectors(0, 0, 1, new FloatBuffer[0]);
+
+    final int dim;
+    final int rows;
+    private final int rowsPerWindow;
+    private final FloatBuffer[] windows;
+
+    private MappedVectors(int dim, int rows, int rowsPerWindow, FloatBuffer[] windows) {
+        this.dim = dim; this.rows = rows; this.rowsPerWindow = rowsPerWindow; this.windows = windows;
+    }
+
+    /** Maps {@code file}; returns an empty view when it does not exist. */
+    static MappedVectors open(Path file) throws IOException {
+        if (!Files.exists(file)) return EMPTY;
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            ch.read(header, 0);
+            header.flip();
+            int dim = header.getInt();
+            int rows = header.getInt();
+            long rowBytes = (long) dim * Float.BYTES;
+            int rowsPerWindow = (int) Math.max(1, WINDOW_BYTES / Math.max(1, rowBytes));
+            int nWindows = rows == 0 ? 0 : (rows + rowsPerWindow - 1) / rowsPerWindow;
+            FloatBuffer[] windows = new FloatBuffer[nWindows];
+            for (int w = 0; w < nWindows; w++) {
+                long first = (long) w * rowsPerWindow;
+                long count = Math.min(rowsPerWindow, rows - first);
+                // the mapping stays valid after the channel is closed
+                windows[w] = ch.map(FileChannel.MapMode.READ_ONLY, 8 + first * rowBytes, count * rowBytes)
+                        .order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            }
+            return new MappedVectors(dim, rows, rowsPerWindow, windows);
+        }
+    }
+
+    /** Four independent accumulators so the JIT can keep the loop pipelined/vectorized. */
+    float dot(float[] q, int row) {
+        FloatBuffer w = windows[row / rowsPerWindow];
+        int base = (row % rowsPerWindow) * dim;
+        int i = 0;
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        for (; i + 3 < dim; i += 4) {
+            s0 += q[i] * w.get(base + i);
+            s1 += q[i + 1] * w.get(base + i + 1);
+            s2 += q[i + 2] * w.get(base + i + 2);
+            s3 += q[i + 3] * w.get(base + i + 3);
+        }
+        for (; i < dim; i++) s0 += q[i] * w.get(base + i);
+        return s0 + s1 + s2 + s3;
+    }
+
+    /** Cosine against a unit query for rows that were not normalized on write. */
+    double cosine(float[] unitQ, int row) {
+        FloatBuffer w = windows[row / rowsPerWindow];
+        int base = (row % rowsPerWindow) * dim;
+        double d = 0, n = 0;
+        for (int i = 0; i < dim; i++) {
+            float x = w.get(base + i);
+            d += unitQ[i] * x;
+            n += x * x;
+        }
+        return n == 0 ? 0.0 : d / Math.sqrt(n);
+    }
+
+    /**
+     * Writes {@code mat} (rows taken in {@code order}, or as-is when null) through a
+     * 1 MiB direct buffer so the whole file never has to fit in one heap array.
+     */
+    static void write(Path file, int dim, float[][] mat, int[] order) throws IOException {
+        int rows = order != null ? order.length : mat.length;
+        try (FileChannel ch = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer bb = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+            bb.putInt(dim).putInt(rows);
+            for (int r = 0; r < rows; r++) {
+                for (float x : mat[order != null ? order[r] : r]) {
+                    if (!bb.hasRemaining()) {
+                        bb.flip();
+                        while (bb.hasRemaining()) ch.write(bb);
+                        bb.clear();
+                    }
+                    bb.putFloat(x);
+                }
+            }
+            bb.flip();
+            while (bb.hasRemaining()) ch.write(bb);
+        }
+    }
+
+    /** L2-normalized copy, or null for a zero vector. */
+    static float[] normalizedCopy(float[] v) {
+        double n = 0;
+        for (float x : v) n += x * x;
+        if (n == 0) return null;
+        float inv = (float) (1.0 / Math.sqrt(n));
+        float[] out = new float[v.length];
+        for (int i = 0; i < v.length; i++) out[i] = v[i] * inv;
+        return out;
+    }
+}
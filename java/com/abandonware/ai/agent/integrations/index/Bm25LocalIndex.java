@@ -1,14 +1,22 @@
 package com.abandonware.ai.agent.integrations.index;
 
 
-import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 /**
  * Minimal local BM25 index (lightweight, no Lucene).
  * Fields: id, title, text, url, ts
- * NOTE: For production use, replace with Lucene BM25. This is a simple DF/IDF toy to keep build green.
+ *
+ * Documents are tokenized once on insert into an inverted index
+ * (term -> postings of [ordinal, tf]) with per-document lengths, so a query
+ * only touches the postings of its own terms. Top-k retrieval uses MaxScore:
+ * low-impact terms whose upper bound cannot lift a document past the current
+ * k-th score are only probed for documents found through the other terms.
+ *
+ * The index is incrementally updatable via {@link #add(Doc)} / {@link #remove(String)};
+ * removed documents are tombstoned and compacted away once they dominate.
  *
  * Fail-soft: if index path missing, methods return empty results.
  */
@@ -20,26 +28,94 @@ public class Bm25LocalIndex {
             this.id = id; this.title = title; this.text = text; this.url = url; this.ts = ts;
         }
     }
-    private final Map<String, Doc> docs = new HashMap<>();
-    private final Map<String, Integer> df = new HashMap<>();
+
+    private static final double K1 = 1.2, B = 0.75; // BM25 defaults
+    private static final int COMPACT_MIN_DOCS = 1024;
+
+    /** Postings of one term: parallel ordinal/tf arrays, ordinals strictly increasing. */
+    private static final class Postings {
+        int[] docs = new int[4];
+        int[] tfs = new int[4];
+        int size;
+        int df;               // live documents only
+        int maxTf;            // over all entries (stale-high after removals, still a valid bound)
+        int minDl = Integer.MAX_VALUE;
+
+        void add(int ord, int tf, int dl) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size << 1);
+                tfs = Arrays.copyOf(tfs, size << 1);
+            }
+            docs[size] = ord;
+            tfs[size] = tf;
+            size++;
+            df++;
+            if (tf > maxTf) maxTf = tf;
+            if (dl < minDl) minDl = dl;
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<String, Integer> ordinalById = new HashMap<>();
+    private final BitSet deleted = new BitSet();
+    private Doc[] docsByOrd = new Doc[16];
+    private int[] docLen = new int[16];
+    private int nextOrd = 0;
     private int N = 0;
+    private long totalLen = 0L;
 
     public void loadFromTsv(Path path) {
         if (path == null || !Files.exists(path)) return;
+        lock.writeLock().lock();
         try {
             for (String line : Files.readAllLines(path)) {
                 String[] a = line.split("\t");
                 if (a.length < 5) continue;
-                Doc d = new Doc(a[0], a[1], a[2], a[3], parseLong(a[4]));
-                docs.put(d.id, d);
-                N++;
-                Set<String> unique = new HashSet<>(tokenize(d.title + " " + d.text));
-                for (String t : unique) df.put(t, df.getOrDefault(t, 0) + 1);
+                upsertLocked(new Doc(a[0], a[1], a[2], a[3], parseLong(a[4])));
             }
-        } catch (Exception ignored) {}
+            maybeCompactLocked();
+        } catch (Exception ignored) {
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
     private long parseLong(String s){ try { return Long.parseLong(s.trim()); } catch(Exception e){ return 0L; } }
 
+    /** Inserts or replaces a document. */
+    public void add(Doc d) {
+        if (d == null || d.id == null) return;
+        lock.writeLock().lock();
+        try {
+            upsertLocked(d);
+            maybeCompactLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Removes a document by id; returns false if it was not indexed. */
+    public boolean remove(String id) {
+        if (id == null) return false;
+        lock.writeLock().lock();
+        try {
+            boolean removed = removeLocked(id);
+            if (removed) maybeCompactLocked();
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return N;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
     static List<String> tokenize(String s) {
         if (s == null) return Collections.emptyList();
         String norm = s.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{Nd}\\s]", " ");
@@ -50,37 +126,230 @@ public class Bm25LocalIndex {
     }
 
     public List<Map.Entry<Doc, Double>> search(String query, int topK) {
-        if (N == 0 || query == null || query.isBlank()) return Collections.emptyList();
+        if (query == null || query.isBlank()) return Collections.emptyList();
         List<String> q = tokenize(query);
-        Map<String, Double> scores = new HashMap<>();
-        double k1 = 1.2, b = 0.75; // BM25 defaults
-        Map<String, Integer> dl = new HashMap<>();
-        double avgdl = 1.0;
-        for (Doc d : docs.values()) {
-            int len = tokenize(d.title + " " + d.text).size();
-            dl.put(d.id, len);
-            avgdl += len;
-        }
-        avgdl = avgdl / Math.max(1, N);
-        for (Doc d : docs.values()) {
+        if (q.isEmpty()) return Collections.emptyList();
+        lock.readLock().lock();
+        try {
+            if (N == 0) return Collections.emptyList();
+            return maxScoreLocked(q, topK > 0 ? topK : Integer.MAX_VALUE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------------------------------------------------------------- search
+
+    private static final class Cursor {
+        final Postings p;
+        final double weight;   // idf * query term frequency
+        final double bound;    // max contribution of this term to any document
+        int pos;
+
+        Cursor(Postings p, double weight, double bound) {
+            this.p = p; this.weight = weight; this.bound = bound;
+        }
+
+        int doc() { return pos < p.size ? p.docs[pos] : Integer.MAX_VALUE; }
+
+        /** Advances to the first ordinal >= target (galloping, then binary search). */
+        void advance(int target) {
+            int[] docs = p.docs;
+            if (pos >= p.size || docs[pos] >= target) return;
+            int lo = pos, step = 1, hi = pos + 1;
+            while (hi < p.size && docs[hi] < target) {
+                lo = hi;
+                step <<= 1;
+                hi = pos + step;
+            }
+            hi = Math.min(hi, p.size);
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (docs[mid] < target) lo = mid + 1; else hi = mid;
+            }
+            pos = lo;
+        }
+    }
+
+    private List<Map.Entry<Doc, Double>> maxScoreLocked(List<String> q, int k) {
+        Map<String, Integer> qtf = new LinkedHashMap<>();
+        for (String t : q) qtf.merge(t, 1, Integer::sum);
+
+        double avgdl = Math.max(1e-9, (double) totalLen / N);
+        double normBase = K1 * (1 - B);
+        double normSlope = K1 * B / avgdl;
+
+        List<Cursor> cursors = new ArrayList<>(qtf.size());
+        for (Map.Entry<String, Integer> e : qtf.entrySet()) {
+            Postings p = postings.get(e.getKey());
+            if (p == null || p.df == 0) continue;
+            double idf = Math.log(1.0 + (N - p.df + 0.5) / (p.df + 0.5));
+            double w = idf * e.getValue();
+            double bestNorm = normBase + normSlope * p.minDl;
+            double bound = w * (p.maxTf * (K1 + 1)) / (p.maxTf + bestNorm);
+            cursors.add(new Cursor(p, w, bound));
+        }
+        if (cursors.isEmpty()) return Collections.emptyList();
+
+        // ascending by bound; prefix[i] = sum of bounds of cursors[0..i]
+        cursors.sort(Comparator.comparingDouble(c -> c.bound));
+        int m = cursors.size();
+        double[] prefix = new double[m];
+        double acc = 0.0;
+        for (int i = 0; i < m; i++) prefix[i] = (acc += cursors.get(i).bound);
+
+        TopHeap heap = new TopHeap(Math.min(k, N));
+        int firstEssential = 0;
+        while (true) {
+            int cand = Integer.MAX_VALUE;
+            for (int i = firstEssential; i < m; i++) cand = Math.min(cand, cursors.get(i).doc());
+            if (cand == Integer.MAX_VALUE) break;
+
+            double norm = normBase + normSlope * docLen[cand];
             double score = 0.0;
-            int docLen = dl.getOrDefault(d.id, 1);
-            for (String t : q) {
-                int n_qi = df.getOrDefault(t, 0);
-                if (n_qi == 0) continue;
-                double idf = Math.log( (N - n_qi + 0.5) / (n_qi + 0.5) + 1e-9 );
-                int f_qi = Collections.frequency(tokenize(d.title + " " + d.text), t);
-                double denom = f_qi + k1 * (1 - b + b * (docLen / avgdl));
-                score += idf * ( (f_qi * (k1 + 1)) / Math.max(1e-9, denom) );
+            for (int i = firstEssential; i < m; i++) {
+                Cursor c = cursors.get(i);
+                if (c.doc() == cand) {
+                    score += termScore(c, norm);
+                    c.pos++;
+                }
+            }
+            if (deleted.get(cand)) continue;
+
+            double threshold = heap.threshold();
+            for (int i = firstEssential - 1; i >= 0; i--) {
+                if (score + prefix[i] <= threshold) break;
+                Cursor c = cursors.get(i);
+                c.advance(cand);
+                if (c.doc() == cand) score += termScore(c, norm);
+            }
+            if (heap.offer(cand, score)) {
+                threshold = heap.threshold();
+                while (firstEssential < m && prefix[firstEssential] <= threshold) firstEssential++;
             }
-            scores.put(d.id, score);
         }
-        List<Map.Entry<Doc, Double>> ranked = new ArrayList<>();
-        for (Map.Entry<String, Double> e : scores.entrySet()) {
-            ranked.add(new AbstractMap.SimpleEntry<>(docs.get(e.getKey()), e.getValue()));
+        return heap.drainDesc(docsByOrd);
+    }
+
+    private static double termScore(Cursor c, double norm) {
+        int tf = c.p.tfs[c.pos];
+        return c.weight * (tf * (K1 + 1)) / (tf + norm);
+    }
+
+    /** Bounded min-heap of (score, ordinal); {@link #threshold()} is the score to beat once full. */
+    private static final class TopHeap {
+        private final int cap;
+        private double[] scores = new double[16];
+        private int[] ords = new int[16];
+        private int size;
+
+        TopHeap(int cap) { this.cap = Math.max(1, cap); }
+
+        double threshold() { return size < cap ? Double.NEGATIVE_INFINITY : scores[0]; }
+
+        boolean offer(int ord, double score) {
+            if (size < cap) {
+                if (size == scores.length) {
+                    scores = Arrays.copyOf(scores, size << 1);
+                    ords = Arrays.copyOf(ords, size << 1);
+                }
+                scores[size] = score;
+                ords[size] = ord;
+                siftUp(size++);
+                return true;
+            }
+            if (score <= scores[0]) return false;
+            scores[0] = score;
+            ords[0] = ord;
+            siftDown(0);
+            return true;
+        }
+
+        List<Map.Entry<Doc, Double>> drainDesc(Doc[] docs) {
+            List<Map.Entry<Doc, Double>> out = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) out.add(new AbstractMap.SimpleEntry<>(docs[ords[i]], scores[i]));
+            out.sort((a, b) -> Double.compare(b.getValue(), a.getValue()));
+            return out;
         }
-        ranked.sort((a, b2) -> Double.compare(b2.getValue(), a.getValue()));
-        if (topK > 0 && ranked.size() > topK) return ranked.subList(0, topK);
-        return ranked;
+
+        private void siftUp(int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (scores[parent] <= scores[i]) break;
+                swap(i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int i) {
+            while (true) {
+                int l = 2 * i + 1, r = l + 1, min = i;
+                if (l < size && scores[l] < scores[min]) min = l;
+                if (r < size && scores[r] < scores[min]) min = r;
+                if (min == i) return;
+                swap(i, min);
+                i = min;
+            }
+        }
+
+        private void swap(int a, int b) {
+            double s = scores[a]; scores[a] = scores[b]; scores[b] = s;
+            int o = ords[a]; ords[a] = ords[b]; ords[b] = o;
+        }
+    }
+
+    // -------------------------------------------------------------- mutation
+
+    private void upsertLocked(Doc d) {
+        removeLocked(d.id);
+        List<String> toks = tokenize(d.title + " " + d.text);
+        Map<String, Integer> tf = new HashMap<>();
+        for (String t : toks) tf.merge(t, 1, Integer::sum);
+
+        int ord = nextOrd++;
+        if (ord == docsByOrd.length) {
+            docsByOrd = Arrays.copyOf(docsByOrd, ord << 1);
+            docLen = Arrays.copyOf(docLen, ord << 1);
+        }
+        docsByOrd[ord] = d;
+        docLen[ord] = toks.size();
+        ordinalById.put(d.id, ord);
+        N++;
+        totalLen += toks.size();
+        for (Map.Entry<String, Integer> e : tf.entrySet()) {
+            postings.computeIfAbsent(e.getKey(), k -> new Postings()).add(ord, e.getValue(), toks.size());
+        }
+    }
+
+    private boolean removeLocked(String id) {
+        Integer ord = ordinalById.remove(id);
+        if (ord == null) return false;
+        Doc d = docsByOrd[ord];
+        for (String t : new HashSet<>(tokenize(d.title + " " + d.text))) {
+            Postings p = postings.get(t);
+            if (p != null) p.df--;
+        }
+        deleted.set(ord);
+        docsByOrd[ord] = null;
+        N--;
+        totalLen -= docLen[ord];
+        return true;
+    }
+
+    /** Rebuilds postings from live documents once tombstones outnumber them. */
+    private void maybeCompactLocked() {
+        int dead = deleted.cardinality();
+        if (nextOrd < COMPACT_MIN_DOCS || dead <= N) return;
+        List<Doc> live = new ArrayList<>(N);
+        for (int i = 0; i < nextOrd; i++) if (!deleted.get(i)) live.add(docsByOrd[i]);
+        postings.clear();
+        ordinalById.clear();
+        deleted.clear();
+        docsByOrd = new Doc[Math.max(16, live.size())];
+        docLen = new int[docsByOrd.length];
+        nextOrd = 0;
+        N = 0;
+        totalLen = 0L;
+        for (Doc d : live) upsertLocked(d);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,468 @@
+package com.abandonware.ai.agent.job;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * {@link JobQueue} backed by a local write-ahead log.
+ *
+ * <p>Every state transition (enqueue, run, ack, redelivery) is appended to a JSONL log before
+ * it becomes visible; on startup the log is replayed and jobs that were PENDING or RUNNING are
+ * delivered again. Consumers block on a per-flow {@link Condition} and are signalled on
+ * enqueue or when a concurrency slot frees up, so there is no polling.</p>
+ *
+ * <ul>
+ *   <li>Visibility timeout: a RUNNING job that is not acked in time goes back to the head of its
+ *       flow's queue.</li>
+ *   <li>Per-flow concurrency: at most {@code flowConcurrency} RUNNING jobs per flow
+ *       ({@code <= 0} = unlimited).</li>
+ *   <li>Finished records (SUCCEEDED/FAILED/DLQ) are evicted after {@code completedTtlMs}; the
+ *       log is compacted once it grows well past the live record count.</li>
+ * </ul>
+ */
+@Component
+@ConditionalOnProperty(name = "jobs.wal.enabled", havingValue = "true", matchIfMissing = true)
+public class WalJobQueue implements JobQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(WalJobQueue.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() {};
+
+    private static final class Flow {
+        final ArrayDeque<JobRecord> ready = new ArrayDeque<>();
+        final Condition available;
+        int running;
+
+        Flow(Condition available) {
+            this.available = available;
+        }
+    }
+
+    private final Path walPath;
+    private final long visibilityTimeoutMs;
+    private final long completedTtlMs;
+    private final int flowConcurrency;
+    private final boolean fsync;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<String, Flow> flows = new HashMap<>();
+    private final Map<String, JobRecord> records = new LinkedHashMap<>();
+    private final Map<String, Long> leases = new HashMap<>();
+    private final ArrayDeque<JobRecord> completed = new ArrayDeque<>();
+    private final ScheduledExecutorService reaper;
+
+    private FileOutputStream walOut;
+    private BufferedWriter wal;
+    private long walLines;
+
+    @Autowired
+    public WalJobQueue(@Value("${jobs.wal.path:./data/jobs/jobs.wal}") String path,
+                       @Value("${jobs.wal.visibility-timeout-ms:300000}") long visibilityTimeoutMs,
+                       @Value("${jobs.wal.completed-ttl-ms:3600000}") long completedTtlMs,
+                       @Value("${jobs.wal.flow-concurrency:0}") int flowConcurrency,
+                       @Value("${jobs.wal.fsync:false}") boolean fsync) {
+        this(Paths.get(path), visibilityTimeoutMs, completedTtlMs, flowConcurrency, fsync, 1000L);
+    }
+
+    WalJobQueue(Path walPath, long visibilityTimeoutMs, long completedTtlMs, int flowConcurrency,
+                boolean fsync, long reapIntervalMs) {
+        this.walPath = walPath.toAbsolutePath().normalize();
+        this.visibilityTimeoutMs = Math.max(1L, visibilityTimeoutMs);
+        this.completedTtlMs = Math.max(0L, completedTtlMs);
+        this.flowConcurrency = flowConcurrency;
+        this.fsync = fsync;
+
+        lock.lock();
+        try {
+            replay();
+            compact();
+        } finally {
+            lock.unlock();
+        }
+
+        this.reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "job-wal-reaper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(10L, reapIntervalMs);
+        reaper.scheduleWithFixedDelay(this::reap, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public String enqueue(JobRequest request) {
+        JobRecord record = new JobRecord(new JobId(), request);
+        String id = record.id().value();
+        lock.lock();
+        try {
+            append(enqLine(record));
+            records.put(id, record);
+            Flow f = flow(request.flow());
+            f.ready.addLast(record);
+            if (hasSlot(f)) {
+                f.available.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+        return id;
+    }
+
+    @Override
+    public Optional<JobRecord> dequeue(String flow, long blockMillis) {
+        long nanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, blockMillis));
+        lock.lock();
+        try {
+            Flow f = flow(flow);
+            while (f.ready.isEmpty() || !hasSlot(f)) {
+                if (nanos <= 0L) {
+                    return Optional.empty();
+                }
+                nanos = f.available.awaitNanos(nanos);
+            }
+            JobRecord rec = f.ready.pollFirst();
+            String id = rec.id().value();
+            append(opLine("run", id));
+            rec.setState(JobState.RUNNING);
+            f.running++;
+            leases.put(id, System.currentTimeMillis() + visibilityTimeoutMs);
+            // another consumer may still be able to take the next job
+            if (!f.ready.isEmpty() && hasSlot(f)) {
+                f.available.signal();
+            }
+            return Optional.of(rec);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void ackSuccess(String jobId, JobResult result) {
+        lock.lock();
+        try {
+            JobRecord rec = records.get(jobId);
+            if (!acceptsAck(rec, "ok")) {
+                return;
+            }
+            ObjectNode line = opLine("ok", jobId);
+            if (result != null) {
+                line.set("result", MAPPER.valueToTree(result.data()));
+            }
+            append(line);
+            rec.setResult(result);
+            finish(rec, JobState.SUCCEEDED);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void ackFailure(String jobId, String reason, boolean toDlq) {
+        lock.lock();
+        try {
+            JobRecord rec = records.get(jobId);
+            if (!acceptsAck(rec, toDlq ? "dlq" : "fail")) {
+                return;
+            }
+            append(opLine(toDlq ? "dlq" : "fail", jobId).put("reason", reason));
+            finish(rec, toDlq ? JobState.DLQ : JobState.FAILED);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** Current record for {@code jobId}, until it is evicted after the completed TTL. */
+    public Optional<JobRecord> find(String jobId) {
+        lock.lock();
+        try {
+            return Optional.ofNullable(records.get(jobId));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        reaper.shutdownNow();
+        lock.lock();
+        try {
+            closeWal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // -------------------- internals (lock held) --------------------
+
+    private Flow flow(String name) {
+        return flows.computeIfAbsent(name == null ? "" : name, n -> new Flow(lock.newCondition()));
+    }
+
+    private boolean hasSlot(Flow f) {
+        return flowConcurrency <= 0 || f.running < flowConcurrency;
+    }
+
+    /**
+     * Only a RUNNING job can be acked. A late ack after the visibility timeout already requeued
+     * the job (PENDING, back in {@code ready}) or after it finished is dropped, otherwise the job
+     * would run again while marked done and be added to {@code completed} twice.
+     */
+    private boolean acceptsAck(JobRecord rec, String op) {
+        if (rec == null) {
+            return false;
+        }
+        if (rec.state() != JobState.RUNNING) {
+            log.info("[JobWal] ignoring late '{}' ack for {} in state {}", op, rec.id().value(), rec.state());
+            return false;
+        }
+        return true;
+    }
+
+    private void finish(JobRecord rec, JobState state) {
+        String id = rec.id().value();
+        if (leases.remove(id) != null) {
+            Flow f = flow(rec.request().flow());
+            f.running--;
+            if (!f.ready.isEmpty()) {
+                f.available.signal();
+            }
+        }
+        rec.setState(state);
+        completed.addLast(rec);
+    }
+
+    /** Redelivers expired leases, evicts finished records past their TTL, compacts the log. */
+    void reap() {
+        lock.lock();
+        try {
+            long now = System.currentTimeMillis();
+            for (Iterator<Map.Entry<String, Long>> it = leases.entrySet().iterator(); it.hasNext(); ) {
+                Map.Entry<String, Long> e = it.next();
+                if (e.getValue() > now) {
+                    continue;
+                }
+                JobRecord rec = records.get(e.getKey());
+                it.remove();
+                if (rec == null) {
+                    continue;
+                }
+                append(opLine("retry", e.getKey()));
+                rec.setState(JobState.PENDING);
+                Flow f = flow(rec.request().flow());
+                f.running--;
+                f.ready.addFirst(rec);
+                f.available.signal();
+            }
+
+            JobRecord head;
+            while ((head = completed.peekFirst()) != null
+                    && (head.completedAt() == null || head.completedAt().toEpochMilli() + completedTtlMs <= now)) {
+                completed.pollFirst();
+                records.remove(head.id().value());
+            }
+
+            if (walLines > 4L * records.size() + 1000L) {
+                compact();
+            }
+        } catch (Exception e) {
+            log.warn("[JobWal] reap failed: {}", e.toString());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ObjectNode enqLine(JobRecord rec) {
+        JobRequest req = rec.request();
+        ObjectNode n = opLine("enq", rec.id().value());
+        n.put("flow", req.flow());
+        n.set("payload", MAPPER.valueToTree(req.payload()));
+        n.put("requestId", req.requestId());
+        n.put("sessionId", req.sessionId());
+        return n;
+    }
+
+    private static ObjectNode opLine(String op, String id) {
+        ObjectNode n = MAPPER.createObjectNode();
+        n.put("op", op);
+        n.put("id", id);
+        return n;
+    }
+
+    private void append(JsonNode line) {
+        try {
+            if (wal == null) {
+                openWal();
+            }
+            wal.write(MAPPER.writeValueAsString(line));
+            wal.write('\n');
+            wal.flush();
+            if (fsync) {
+                walOut.getChannel().force(false);
+            }
+            walLines++;
+        } catch (IOException e) {
+            // fail-soft: the in-memory queue keeps working, durability is degraded
+            log.warn("[JobWal] append failed ({}): {}", walPath, e.toString());
+            closeWal();
+        }
+    }
+
+    private void openWal() throws IOException {
+        Files.createDirectories(walPath.getParent());
+        walOut = new FileOutputStream(walPath.toFile(), true);
+        wal = new BufferedWriter(new OutputStreamWriter(walOut, StandardCharsets.UTF_8));
+    }
+
+    private void closeWal() {
+        try {
+            if (wal != null) {
+                wal.flush();
+                walOut.getChannel().force(false);
+                wal.close();
+            }
+        } catch (IOException ignored) {
+        } finally {
+            wal = null;
+            walOut = null;
+        }
+    }
+
+    /** Rebuilds state from the log; PENDING and RUNNING jobs are queued again in log order. */
+    private void replay() {
+        if (!Files.exists(walPath)) {
+            return;
+        }
+        int bad = 0;
+        try (BufferedReader r = Files.newBufferedReader(walPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isBlank()) continue;
+                JsonNode n;
+                try {
+                    n = MAPPER.readTree(line);
+                } catch (IOException e) {
+                    bad++; // torn tail after a crash
+                    continue;
+                }
+                String id = n.path("id").asText(null);
+                if (id == null) continue;
+                String op = n.path("op").asText("");
+                if (op.equals("enq")) {
+                    Map<String, Object> payload = n.hasNonNull("payload")
+                            ? MAPPER.convertValue(n.get("payload"), MAP_TYPE) : null;
+                    JobRequest req = new JobRequest(n.path("flow").asText(null), payload,
+                            n.path("requestId").asText(null), n.path("sessionId").asText(null));
+                    records.put(id, new JobRecord(new JobId(id), req));
+                    continue;
+                }
+                JobRecord rec = records.get(id);
+                if (rec == null) continue;
+                switch (op) {
+                    case "run" -> rec.setState(JobState.RUNNING);
+                    case "retry" -> rec.setState(JobState.PENDING);
+                    case "ok" -> {
+                        if (n.hasNonNull("result")) {
+                            rec.setResult(new JobResult(MAPPER.convertValue(n.get("result"), MAP_TYPE)));
+                        }
+                        rec.setState(JobState.SUCCEEDED);
+                    }
+                    case "fail" -> rec.setState(JobState.FAILED);
+                    case "dlq" -> rec.setState(JobState.DLQ);
+                    default -> { }
+                }
+            }
+        } catch (IOException e) {
+            log.warn("[JobWal] replay failed ({}): {}", walPath, e.toString());
+        }
+
+        int redelivered = 0;
+        for (JobRecord rec : records.values()) {
+            JobState s = rec.state();
+            if (s == JobState.PENDING || s == JobState.RUNNING) {
+                if (s == JobState.RUNNING) {
+                    rec.setState(JobState.PENDING);
+                    redelivered++;
+                }
+                flow(rec.request().flow()).ready.addLast(rec);
+            } else {
+                completed.addLast(rec);
+            }
+        }
+        if (!records.isEmpty() || bad > 0) {
+            log.info("[JobWal] replayed {} job(s) from {} (redelivered={}, badLines={})",
+                    records.size(), walPath, redelivered, bad);
+        }
+    }
+
+    /** Rewrites the log with only the live records (enq + terminal state). */
+    private void compact() {
+        Path tmp = walPath.resolveSibling(walPath.getFileName() + ".tmp");
+        long lines = 0;
+        try {
+            Files.createDirectories(walPath.getParent());
+            try (BufferedWriter w = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                for (JobRecord rec : records.values()) {
+                    w.write(MAPPER.writeValueAsString(enqLine(rec)));
+                    w.write('\n');
+                    lines++;
+                    String id = rec.id().value();
+                    ObjectNode state = switch (rec.state()) {
+                        case RUNNING -> opLine("run", id);
+                        case SUCCEEDED -> {
+                            ObjectNode ok = opLine("ok", id);
+                            rec.result().ifPresent(res -> ok.set("result", MAPPER.valueToTree(res.data())));
+                            yield ok;
+                        }
+                        case FAILED -> opLine("fail", id);
+                        case DLQ -> opLine("dlq", id);
+                        default -> null;
+                    };
+                    if (state != null) {
+                        w.write(MAPPER.writeValueAsString(state));
+                        w.write('\n');
+                        lines++;
+                    }
+                }
+            }
+            closeWal();
+            Files.move(tmp, walPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            walLines = lines;
+        } catch (IOException e) {
+            log.warn("[JobWal] compaction failed ({}): {}", walPath, e.toString());
+        }
+    }
+}
@@ -6,17 +6,32 @@ import org.apache.lucene.index.DirectoryReader;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexWriterConfig;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Owns the BM25 index: a single {@link IndexWriter} plus a near-real-time {@link SearcherManager}.
+ *
+ * <p>Searches {@link #acquire()}/{@link #release(IndexSearcher)} a ref-counted searcher, so a
+ * reader is closed only after its last user releases it. A background thread calls
+ * {@code maybeRefresh()} periodically; searches never wait on a refresh.</p>
+ */
 @Component
 public class Bm25IndexHolder {
 
@@ -25,27 +40,39 @@ public class Bm25IndexHolder {
     private final Path indexPath;
     private final Directory dir;
     private final StandardAnalyzer analyzer;
+    private final IndexWriter writer;
+    private final SearcherManager manager;
+    private final ScheduledExecutorService refresher;
 
-    private volatile DirectoryReader reader;
+    @Autowired
+    public Bm25IndexHolder(@Value("${bm25.refresh-ms:1000}") long refreshMs) {
+        this(Paths.get(System.getProperty("user.dir"), "bm25_index"), refreshMs);
+    }
 
-    public Bm25IndexHolder() {
-        this.indexPath = Paths.get(System.getProperty("user.dir"), "bm25_index");
+    Bm25IndexHolder(Path indexPath, long refreshMs) {
+        this.indexPath = indexPath;
         this.analyzer = new StandardAnalyzer();
         try {
             Files.createDirectories(indexPath);
             this.dir = FSDirectory.open(indexPath);
-
-            // Ensure an index exists (even empty) so DirectoryReader.open won't explode.
+            this.writer = new IndexWriter(dir, new IndexWriterConfig(analyzer)
+                    .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND));
+            // Ensure a commit point exists so external DirectoryReader.open calls don't explode.
             if (!DirectoryReader.indexExists(dir)) {
-                try (IndexWriter w = new IndexWriter(dir, new IndexWriterConfig(analyzer))) {
-                    w.commit();
-                }
+                writer.commit();
             }
-
-            this.reader = DirectoryReader.open(dir);
+            this.manager = new SearcherManager(writer, null);
         } catch (IOException e) {
             throw new RuntimeException("Failed to init BM25 index at " + indexPath, e);
         }
+
+        this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "bm25-nrt-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(50L, refreshMs);
+        refresher.scheduleWithFixedDelay(this::refreshIfNeeded, period, period, TimeUnit.MILLISECONDS);
     }
 
     public Path indexPath() {
@@ -56,33 +83,77 @@ public class Bm25IndexHolder {
         return analyzer;
     }
 
-    public IndexSearcher searcher() {
-        refreshIfNeeded();
-        return new IndexSearcher(reader);
+    /** The shared writer; changes become searchable after the next refresh. */
+    public IndexWriter writer() {
+        return writer;
     }
 
-    public synchronized void refreshIfNeeded() {
+    /** Ref-counted searcher; always pair with {@link #release(IndexSearcher)}. */
+    public IndexSearcher acquire() throws IOException {
+        return manager.acquire();
+    }
+
+    public void release(IndexSearcher searcher) {
+        if (searcher == null) {
+            return;
+        }
         try {
-            DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
-            if (newReader != null) {
-                DirectoryReader old = reader;
-                reader = newReader;
-                try {
-                    old.close();
-                } catch (IOException ignore) {
-                    // ignore
-                }
-                log.info("BM25 index reader refreshed.");
-            }
+            manager.release(searcher);
+        } catch (IOException e) {
+            log.debug("BM25 searcher release failed: {}", e.toString());
+        }
+    }
+
+    /** Non-blocking: returns immediately if another thread is already refreshing. */
+    public void refreshIfNeeded() {
+        try {
+            manager.maybeRefresh();
         } catch (IOException e) {
             log.warn("BM25 index refresh failed: {}", e.toString());
+        } catch (Exception e) {
+            // AlreadyClosedException during shutdown
+            log.debug("BM25 index refresh skipped: {}", e.toString());
         }
     }
 
+    /** Blocks until changes made before this call are visible to {@link #acquire()}. */
+    public void refreshBlocking() {
+        try {
+            manager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            log.warn("BM25 index refresh failed: {}", e.toString());
+        }
+    }
+
+    /** Durable commit carrying {@code userData} (e.g. the incremental-index watermark). */
+    public void commit(Map<String, String> userData) throws IOException {
+        if (userData != null && !userData.isEmpty()) {
+            writer.setLiveCommitData(new HashMap<>(userData).entrySet());
+        }
+        writer.commit();
+    }
+
+    /** User data of the last commit (empty when none). */
+    public Map<String, String> lastCommitData() {
+        Map<String, String> out = new HashMap<>();
+        Iterable<Map.Entry<String, String>> live = writer.getLiveCommitData();
+        if (live != null) {
+            for (Map.Entry<String, String> e : live) {
+                out.put(e.getKey(), e.getValue());
+            }
+        }
+        return out;
+    }
+
     @PreDestroy
     public void close() {
+        refresher.shutdownNow();
+        try {
+            manager.close();
+        } catch (IOException ignore) {
+        }
         try {
-            reader.close();
+            writer.close();
         } catch (IOException ignore) {
         }
         try {
@@ -4,29 +4,41 @@ import com.abandonware.ai.agent.config.Bm25Props;
 import com.example.lms.entity.TranslationMemory;
 import com.example.lms.repository.TranslationMemoryRepository;
 import jakarta.annotation.PostConstruct;
-import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.StringField;
 import org.apache.lucene.document.TextField;
 import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.IndexWriterConfig;
-import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.TermQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class Bm25IndexService {
 
     private static final Logger log = LoggerFactory.getLogger(Bm25IndexService.class);
 
+    /** Commit user-data key holding the max updated_at/last_used_at already indexed. */
+    static final String WATERMARK_KEY = "tm.watermark";
+    static final String GEN_KEY = "tm.gen";
+    private static final String GEN_FIELD = "_gen";
+    private static final int INCREMENTAL_PAGE = 500;
+
     private final Bm25Props props;
     private final Bm25IndexHolder holder;
     private final ObjectProvider<TranslationMemoryRepository> tmRepoProvider;
@@ -48,18 +60,32 @@ public class Bm25IndexService {
             return;
         }
         try {
-            rebuildFromTranslationMemory();
+            indexIncrementally();
         } catch (Exception e) {
             // 오프라인 환경/DB 미구성 환경에서도 서비스 기동이 죽지 않도록 fail-soft.
             log.warn("BM25 autoIndex skipped: {}", e.toString());
         }
     }
 
+    /** autoIndex가 켜져 있으면 주기적으로 변경분만 upsert. */
+    @Scheduled(fixedDelayString = "${bm25.incremental.tick-ms:60000}",
+               initialDelayString = "${bm25.incremental.tick-ms:60000}")
+    public void scheduledIncremental() {
+        if (!autoIndex) {
+            return;
+        }
+        try {
+            indexIncrementally();
+        } catch (Exception e) {
+            log.warn("BM25 incremental index skipped: {}", e.toString());
+        }
+    }
+
     /**
      * TranslationMemory 테이블을 기반으로 BM25 인덱스를 재생성합니다.
      * (오프라인/로컬 테스트용 최소 구현)
      */
-    public void rebuildFromTranslationMemory() {
+    public synchronized void rebuildFromTranslationMemory() {
         TranslationMemoryRepository repo = tmRepoProvider.getIfAvailable();
         if (repo == null) {
             log.info("TranslationMemoryRepository bean not found; BM25 index rebuild skipped.");
@@ -74,12 +100,14 @@ public class Bm25IndexService {
         Path path = holder.indexPath();
         log.info("Rebuilding BM25 index at {} (maxDocs={})", path, maxDocs);
 
-        try (var dir = FSDirectory.open(path);
-             var writer = new IndexWriter(dir, new IndexWriterConfig(new StandardAnalyzer())
-                     .setOpenMode(IndexWriterConfig.OpenMode.CREATE))) {
-
+        // Upsert everything under a new generation, then drop older generations: NRT searchers
+        // see a complete index (old ∪ new) throughout instead of an emptied one.
+        String gen = Long.toString(System.currentTimeMillis());
+        IndexWriter writer = holder.writer();
+        try {
             int total = 0;
             int page = 0;
+            LocalDateTime watermark = null;
 
             while (total < maxDocs) {
                 int remaining = maxDocs - total;
@@ -93,17 +121,9 @@ public class Bm25IndexService {
                 }
 
                 for (TranslationMemory tm : batch) {
-                    Document doc = new Document();
-
-                    String id = safe(tm.getSourceHash(), "tm:" + tm.getId());
-                    String title = firstNonBlank(tm.getQuery(), tm.getSource(), "translation_memory");
-                    String body = firstNonBlank(tm.getCorrected(), tm.getContent(), tm.getSource(), tm.getQuery(), "");
-
-                    doc.add(new StringField("id", id, Field.Store.YES));
-                    doc.add(new StringField("title", title, Field.Store.YES));
-                    doc.add(new TextField("content", body, Field.Store.YES));
-
-                    writer.addDocument(doc);
+                    Document doc = toDocument(tm, gen);
+                    writer.updateDocument(new Term("id", doc.get("id")), doc);
+                    watermark = later(watermark, tm);
                     total++;
 
                     if (total >= maxDocs) {
@@ -118,16 +138,108 @@ public class Bm25IndexService {
                 page++;
             }
 
-            writer.commit();
+            BooleanQuery.Builder stale = new BooleanQuery.Builder();
+            stale.add(new MatchAllDocsQuery(), BooleanClause.Occur.MUST);
+            stale.add(new TermQuery(new Term(GEN_FIELD, gen)), BooleanClause.Occur.MUST_NOT);
+            writer.deleteDocuments(stale.build());
+
+            holder.commit(commitData(watermark, gen));
             log.info("BM25 index rebuild done. indexedDocs={}", total);
         } catch (Exception e) {
+            // Partial upserts are valid documents; the next rebuild drops what remains stale.
             throw new RuntimeException("Failed to rebuild BM25 index", e);
         }
 
-        // Refresh the in-memory reader/searcher so retrieval uses the new index.
+        // Make the new index visible to searchers (searches keep using the old reader meanwhile).
         holder.refreshIfNeeded();
     }
 
+    /**
+     * 마지막 커밋의 워터마크 이후 바뀐 TranslationMemory 행만 {@code id} 기준으로 upsert합니다.
+     * 워터마크가 없으면(최초 실행) 전체 재색인으로 대체합니다.
+     *
+     * @return upsert된 문서 수
+     */
+    public synchronized int indexIncrementally() {
+        TranslationMemoryRepository repo = tmRepoProvider.getIfAvailable();
+        if (repo == null) {
+            log.info("TranslationMemoryRepository bean not found; BM25 incremental index skipped.");
+            return 0;
+        }
+        Map<String, String> committed = holder.lastCommitData();
+        String wm = committed.get(WATERMARK_KEY);
+        if (wm == null || wm.isBlank()) {
+            rebuildFromTranslationMemory();
+            return -1;
+        }
+
+        String gen = committed.getOrDefault(GEN_KEY, "0");
+        LocalDateTime since = LocalDateTime.parse(wm);
+        LocalDateTime watermark = since;
+        IndexWriter writer = holder.writer();
+        int total = 0;
+        try {
+            long afterId = 0L;
+            while (true) {
+                List<TranslationMemory> batch = repo.findChangedSince(since, afterId, PageRequest.of(0, INCREMENTAL_PAGE));
+                if (batch == null || batch.isEmpty()) {
+                    break;
+                }
+                for (TranslationMemory tm : batch) {
+                    Document doc = toDocument(tm, gen);
+                    writer.updateDocument(new Term("id", doc.get("id")), doc);
+                    watermark = later(watermark, tm);
+                    if (tm.getId() != null) {
+                        afterId = Math.max(afterId, tm.getId());
+                    }
+                    total++;
+                }
+                if (batch.size() < INCREMENTAL_PAGE) {
+                    break;
+                }
+            }
+            if (total > 0) {
+                // ">= since" on the next pass re-reads rows sharing the last timestamp; upsert is idempotent.
+                holder.commit(commitData(watermark, gen));
+                holder.refreshIfNeeded();
+                log.info("BM25 incremental index: upserted={} watermark={}", total, watermark);
+            }
+            return total;
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to incrementally index BM25", e);
+        }
+    }
+
+    private static Document toDocument(TranslationMemory tm, String gen) {
+        Document doc = new Document();
+
+        String id = safe(tm.getSourceHash(), "tm:" + tm.getId());
+        String title = firstNonBlank(tm.getQuery(), tm.getSource(), "translation_memory");
+        String body = firstNonBlank(tm.getCorrected(), tm.getContent(), tm.getSource(), tm.getQuery(), "");
+
+        doc.add(new StringField("id", id, Field.Store.YES));
+        doc.add(new StringField("title", title, Field.Store.YES));
+        doc.add(new TextField("content", body, Field.Store.YES));
+        doc.add(new StringField(GEN_FIELD, gen, Field.Store.NO));
+        return doc;
+    }
+
+    private static LocalDateTime later(LocalDateTime wm, TranslationMemory tm) {
+        LocalDateTime out = wm;
+        for (LocalDateTime t : new LocalDateTime[]{tm.getUpdatedAt(), tm.getLastUsedAt()}) {
+            if (t != null && (out == null || t.isAfter(out))) {
+                out = t;
+            }
+        }
+        return out;
+    }
+
+    private static Map<String, String> commitData(LocalDateTime watermark, String gen) {
+        return watermark == null
+                ? Map.of(GEN_KEY, gen)
+                : Map.of(WATERMARK_KEY, watermark.toString(), GEN_KEY, gen);
+    }
+
     private static String safe(String v, String fallback) {
         return (v == null || v.isBlank()) ? fallback : v;
     }
@@ -3,6 +3,7 @@ package com.abandonware.ai.agent.service.rag.bm25;
 
 import com.abandonware.ai.agent.integrations.index.Bm25LocalIndex;
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.StoredFields;
 import org.apache.lucene.queryparser.classic.QueryParser;
 import org.apache.lucene.search.*;
 import org.apache.lucene.analysis.Analyzer;
@@ -27,16 +28,19 @@ public class Bm25LocalRetriever {
 
     
     public List<ContextSlice> retrieve(String query, int k) {
+        if (!props.isEnabled()) return java.util.List.of();
+        IndexSearcher searcher = null;
         try {
-            if (!props.isEnabled() || holder.searcher() == null) return java.util.List.of();
+            searcher = holder.acquire();
             k = (k<=0)?props.getTopK():k;
             Analyzer analyzer = holder.analyzer();
             QueryParser parser = new QueryParser("content", analyzer);
             Query q = parser.parse(QueryParser.escape(query));
-            TopDocs td = holder.searcher().search(q, k);
+            TopDocs td = searcher.search(q, k);
+            StoredFields stored = searcher.storedFields();
             List<ContextSlice> out = new java.util.ArrayList<>();
             for (ScoreDoc sd : td.scoreDocs) {
-                Document d = holder.searcher().doc(sd.doc);
+                Document d = stored.document(sd.doc);
                 ContextSlice cs = new ContextSlice();
                 cs.setId(d.get("id"));
                 cs.setTitle(d.get("title"));
@@ -49,6 +53,8 @@ public class Bm25LocalRetriever {
             return out;
         } catch (Exception e) {
             return java.util.List.of();
+        } finally {
+            holder.release(searcher);
         }
     }
 
@@ -43,6 +43,9 @@ public class TraceSnapshotsDiagnosticsController {
         out.put("ts", Instant.now().toString());
         out.put("available", store != null);
         out.put("snapshots", store == null ? java.util.List.of() : store.listSummaries(limit));
+        if (store != null) {
+            out.put("stats", store.captureStats());
+        }
         return ResponseEntity.ok(out);
     }
 
@@ -73,7 +76,7 @@ public class TraceSnapshotsDiagnosticsController {
                     .contentType(MediaType.TEXT_HTML)
                     .body(simpleHtml("TraceSnapshotStore not available", Map.of("id", String.valueOf(id))));
         }
-        return store.get(id)
+        return store.getWithHtml(id)
                 .map(s -> {
                     String html = s.html();
                     if (html == null || html.isBlank()) {
@@ -129,6 +129,10 @@ public class LangChainConfig {
     @org.springframework.beans.factory.annotation.Autowired(required = false)
     private VectorIngestProtectionService ingestProtectionService;
 
+    /** On-disk store replacing the in-memory fallback; null when disabled or unavailable. */
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    private com.example.lms.vector.LocalVectorStoreProvider localVectorStores;
+
     /* ───── Self-Ask 검색 튜닝 ───── */
     @Value("${search.selfask.max-depth:2}")
     private int selfAskMaxDepth;
@@ -247,14 +251,15 @@ public class LangChainConfig {
                     .index(p.getIndex())
                     .nameSpace(p.getNamespace())
                     .build();
+            tagLocalWriter("pinecone");
         } catch (Throwable t) {
             if (vectorStoreFailfast) {
                 // fail-fast: propagate the exception to prevent silent fallback in production
                 throw t;
             }
-            // fail-soft: log the error and fall back to an in-memory embedding store
-            log.error("Pinecone init failed; falling back to InMemoryEmbeddingStore", t);
-            base = new InMemoryEmbeddingStore<>();
+            // fail-soft: log the error and fall back to the local (persistent) store
+            log.error("Pinecone init failed; falling back to local embedding store", t);
+            base = localOrInMemory();
         }
 
         // Prevent cross-embedding-model contamination by stamping and filtering using
@@ -265,7 +270,32 @@ public class LangChainConfig {
     @Bean
     @ConditionalOnMissingBean(EmbeddingStore.class)
     public EmbeddingStore<TextSegment> inMemoryEmbeddingStore() {
-        return new InMemoryEmbeddingStore<>();
+        return localOrInMemory();
+    }
+
+    /** Records which backend the local store mirrors, so skip-known checks stay per writer. */
+    private void tagLocalWriter(String writerId) {
+        com.example.lms.vector.LocalAnnEmbeddingStore local =
+                localVectorStores == null ? null : localVectorStores.get();
+        if (local != null) {
+            local.writerId(writerId);
+        }
+    }
+
+    /** Strips fingerprint wrappers so identity/type checks see the actual backend. */
+    private static EmbeddingStore<TextSegment> unwrap(EmbeddingStore<TextSegment> store) {
+        EmbeddingStore<TextSegment> s = store;
+        while (s instanceof com.example.lms.vector.FingerprintAwareEmbeddingStore fp) {
+            s = fp.delegate();
+        }
+        return s;
+    }
+
+    /** Persistent local store when available, otherwise the non-persistent in-memory store. */
+    private EmbeddingStore<TextSegment> localOrInMemory() {
+        com.example.lms.vector.LocalAnnEmbeddingStore local =
+                localVectorStores == null ? null : localVectorStores.get();
+        return local != null ? local : new InMemoryEmbeddingStore<>();
     }
 
     /*
@@ -303,12 +333,12 @@ public class LangChainConfig {
             @Value("${vector.store:pinecone}") String vectorStoreChoice) {
         return new EmbeddingStore<>() {
             private final EmbeddingStore<TextSegment> pineconeOrMemory = pineconeProvider
-                    .getIfAvailable(() -> new InMemoryEmbeddingStore<>());
+                    .getIfAvailable(LangChainConfig.this::localOrInMemory);
 
             private final EmbeddingStore<TextSegment> writer = chooseWriter(pineconeOrMemory);
 
             private final EmbeddingStore<TextSegment> reader = new com.example.lms.vector.FingerprintAwareEmbeddingStore(
-                    (upstash != null && upstash.isConfigured()) ? upstash : writer,
+                    (upstash != null && upstash.isConfigured()) ? shadowed(upstash) : writer,
                     embeddingFingerprint,
                     writer,
                     metricRegistry);
@@ -320,13 +350,30 @@ public class LangChainConfig {
                 if (upstash != null && upstash.isConfigured() && upstash.isWriteEnabled()) {
                     // Pinecone 미구성(=InMemory fallback)이거나 명시적으로 upstash를 선택한 경우,
                     // writer를 upstash로 두어 재시작 후에도 벡터가 유지되도록 합니다.
-                    if (preferUpstash || candidate instanceof InMemoryEmbeddingStore) {
+                    EmbeddingStore<TextSegment> backend = unwrap(candidate);
+                    if (preferUpstash || backend instanceof InMemoryEmbeddingStore
+                            || backend instanceof com.example.lms.vector.LocalAnnEmbeddingStore) {
+                        tagLocalWriter("upstash");
                         return upstash;
                     }
                 }
                 return candidate;
             }
 
+            /**
+             * Upstash reads get a deadline and the local store as shadow, so a slow or failing
+             * remote still answers from disk. Writes through upstash are mirrored locally.
+             */
+            private EmbeddingStore<TextSegment> shadowed(EmbeddingStore<TextSegment> remote) {
+                com.example.lms.vector.LocalAnnEmbeddingStore local =
+                        localVectorStores == null ? null : localVectorStores.get();
+                if (local == null || local == remote) {
+                    return remote;
+                }
+                return new com.example.lms.vector.ShadowedEmbeddingStore(
+                        remote, local, localVectorStores.shadowReadTimeoutMs());
+            }
+
             private TextSegment stampForWriter(TextSegment embedded) {
                 if (embedded == null)
                     return null;
@@ -350,6 +397,21 @@ public class LangChainConfig {
                 }
             }
 
+            /** Keeps the local read shadow warm when writes go to a remote store. */
+            private void mirrorToLocalFailSoft(java.util.List<String> ids, java.util.List<Embedding> embeddings,
+                    java.util.List<TextSegment> segments) {
+                if (upstash == null || !upstash.isConfigured() || localVectorStores == null)
+                    return;
+                com.example.lms.vector.LocalAnnEmbeddingStore local = localVectorStores.get();
+                if (local == null || unwrap(writer) == local || ids == null || ids.isEmpty())
+                    return;
+                try {
+                    local.addAll(ids, embeddings, segments);
+                } catch (Exception e) {
+                    log.debug("[VectorShadow] local mirror failed: {}", e.toString());
+                }
+            }
+
             private void mirrorToUpstashFailSoft(String id, Embedding embedding, TextSegment embedded) {
                 // writer 자체가 upstash면 중복 upsert 방지
                 if (writer == upstash)
@@ -458,6 +520,9 @@ public class LangChainConfig {
                 String id = writer.add(embedding, stamped);
                 // Upstash에도 fail-soft로 미러링 (옵트인)
                 mirrorToUpstashFailSoft(id, embedding, stamped);
+                if (id != null && stamped != null) {
+                    mirrorToLocalFailSoft(java.util.List.of(id), java.util.List.of(embedding), java.util.List.of(stamped));
+                }
                 return id;
             }
 
@@ -550,6 +615,7 @@ public class LangChainConfig {
                     }
 
                     java.util.List<String> ids = writer.addAll(embOk, stamped);
+                    mirrorToLocalFailSoft(ids, embOk, stamped);
 
                     // Upstash mirror (fail-soft, opt-in)
                     if (ids != null && !ids.isEmpty() && upstash != null && upstash.isWriteEnabled()) {
@@ -651,6 +717,7 @@ public class LangChainConfig {
                     try {
                         // Primary write path with stable ids.
                         writer.addAll(idOk, embOk, stamped);
+                        mirrorToLocalFailSoft(idOk, embOk, stamped);
 
                         // Upstash mirror (fail-soft, opt-in).
                         if (upstash != null && upstash.isWriteEnabled()) {
@@ -17,6 +17,24 @@ public class RagProperties {
 
     private Rrf rrf = new Rrf();
 
+    private Lanes lanes = new Lanes();
+
+    /**
+     * Retrieval lane scheduling in the unified orchestrator (rag.lanes.*).
+     */
+    @Data
+    public static class Lanes {
+        /** false = legacy sequential Web -> Vector -> KG/BM25. */
+        private boolean concurrent = true;
+        /** Local lanes start after this delay unless web finished first; 0 = start with web. */
+        private long hedgeDelayMs = 0;
+        /** Per-lane wall-time cap; 0 = request budget only. */
+        private long webTimeoutMs = 0;
+        private long localTimeoutMs = 0;
+        /** Stop waiting (cancel remaining lanes) once the pool holds this many docs; 0 = off. */
+        private int goodEnoughDocs = 0;
+    }
+
     @Data
     public static class Rrf {
         /**
@@ -29,6 +29,12 @@ public class SearchExecutorConfig {
     @Value("${search.executor.io.keep-alive-seconds:60}")
     private long searchIoKeepAliveSeconds;
 
+    @Value("${rag.lanes.executor.threads:16}")
+    private int ragLaneThreads;
+
+    @Value("${rag.lanes.executor.queue-capacity:32}")
+    private int ragLaneQueueCapacity;
+
     /**
      * Executor for "fast" LLM utilities (query transform, analysis, etc.).
      *
@@ -87,6 +93,44 @@ public class SearchExecutorConfig {
         return new ContextAwareExecutorService(delegate);
     }
 
+    /**
+     * Executor for UnifiedRagOrchestrator retrieval lanes (web/vector/kg/bm25).
+     *
+     * <p>
+     * Kept apart from searchIoExecutor on purpose: the web lane itself fans out on
+     * searchIoExecutor, so sharing it would let lanes starve their own sub-tasks, and
+     * its CallerRunsPolicy / cancel shield would defeat lane deadlines. Bounded queue +
+     * AbortPolicy; the orchestrator runs a rejected lane inline (sequential fallback).
+     */
+    @Bean(name = "ragLaneExecutor", destroyMethod = "shutdown")
+    public ExecutorService ragLaneExecutor() {
+        java.util.concurrent.atomic.AtomicInteger counter = new java.util.concurrent.atomic.AtomicInteger(0);
+        int n = Math.max(1, ragLaneThreads);
+
+        ThreadPoolExecutor ex = new ThreadPoolExecutor(
+                n,
+                n,
+                60L,
+                TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, ragLaneQueueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "rag-lane-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy()) {
+            @Override
+            protected void beforeExecute(Thread t, Runnable r) {
+                if (t.isInterrupted()) {
+                    Thread.interrupted(); // clear interrupt left by a cancelled lane
+                }
+                super.beforeExecute(t, r);
+            }
+        };
+        ex.allowCoreThreadTimeOut(true);
+        return new ContextAwareExecutorService(ex);
+    }
+
     /**
      * Executor for search I/O operations (HybridWebSearchProvider 등에서 사용).
      * CachedThreadPool을 사용하여 유동적으로 스레드를 생성하고,
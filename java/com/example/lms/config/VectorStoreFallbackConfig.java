@@ -1,11 +1,14 @@
 package com.example.lms.config;
 
+import com.example.lms.vector.LocalAnnEmbeddingStore;
+import com.example.lms.vector.LocalVectorStoreProvider;
 import dev.langchain4j.data.document.splitter.DocumentSplitters;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.store.embedding.EmbeddingStore;
 import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -14,8 +17,9 @@ import org.springframework.context.annotation.Primary;
 
 
 /**
- * Fail-soft in-memory vector store. This bean becomes active only if no other
- * EmbeddingStore bean exists (e.g., Pinecone, PGVector, etc.).
+ * Fail-soft fallback vector store. This bean becomes active only if no other
+ * EmbeddingStore bean exists (e.g., Pinecone, PGVector, etc.). Prefers the on-disk
+ * {@link LocalAnnEmbeddingStore}; in-memory only when that is disabled or unavailable.
  */
 @Configuration
 public class VectorStoreFallbackConfig {
@@ -25,7 +29,13 @@ public class VectorStoreFallbackConfig {
     @Bean
     @Primary
     @ConditionalOnMissingBean(EmbeddingStore.class)
-    public EmbeddingStore<TextSegment> inMemoryEmbeddingStore() {
+    public EmbeddingStore<TextSegment> inMemoryEmbeddingStore(ObjectProvider<LocalVectorStoreProvider> localStores) {
+        LocalVectorStoreProvider provider = localStores.getIfAvailable();
+        LocalAnnEmbeddingStore local = provider == null ? null : provider.get();
+        if (local != null) {
+            log.warn("No EmbeddingStore bean configured; using local persistent fallback.");
+            return local;
+        }
         log.warn("No EmbeddingStore bean configured; using in-memory fallback (non-persistent).");
         return new InMemoryEmbeddingStore<>();
     }
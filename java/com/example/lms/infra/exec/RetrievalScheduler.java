@@ -0,0 +1,233 @@
+package com.example.lms.infra.exec;
+
+import com.abandonware.ai.addons.budget.TimeBudget;
+import com.abandonware.ai.addons.budget.TimeBudgetContext;
+import com.example.lms.search.TraceStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Shared, bounded scheduler for per-request retrieval fan-out (sub-query → handler chain).
+ *
+ * <p>Replaces the "new fixed pool per call" pattern: one process-wide pool with a bounded
+ * queue caps total fan-out across requests, while each {@link #fanOut} call keeps at most
+ * {@code maxConcurrency} of its own tasks in flight.</p>
+ *
+ * <ul>
+ *   <li>Deadline: the earlier of {@code timeoutMs} and the caller's {@link TimeBudgetContext}.</li>
+ *   <li>Quorum: once {@code quorum} tasks produced a satisfying result, stragglers are cancelled.</li>
+ *   <li>Rejection (queue full): the task runs on the caller thread (fail-soft) and is counted.</li>
+ *   <li>Context: MDC/GuardContext/TraceStore via {@link ContextPropagation}; the time budget is
+ *       re-installed on the worker thread.</li>
+ * </ul>
+ */
+@Component
+public class RetrievalScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(RetrievalScheduler.class);
+
+    private final ThreadPoolExecutor pool;
+    private final Counter rejected;
+    private final Counter cancelled;
+    private final Timer subQueryLatency;
+
+    public RetrievalScheduler(
+            @Value("${retrieval.scheduler.threads:0}") int threads,
+            @Value("${retrieval.scheduler.queue-capacity:128}") int queueCapacity,
+            ObjectProvider<MeterRegistry> registryProvider) {
+        int n = threads > 0 ? threads : Math.max(4, Runtime.getRuntime().availableProcessors());
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(
+                n, n, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "retrieval-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy()) {
+            @Override
+            protected void beforeExecute(Thread t, Runnable r) {
+                if (t.isInterrupted()) {
+                    Thread.interrupted(); // clear interrupt left by a cancelled straggler
+                }
+                super.beforeExecute(t, r);
+            }
+        };
+        this.pool.allowCoreThreadTimeOut(true);
+
+        MeterRegistry registry = registryProvider == null ? null : registryProvider.getIfAvailable();
+        if (registry != null) {
+            Gauge.builder("retrieval.scheduler.queue.depth", pool, p -> p.getQueue().size())
+                    .description("sub-query tasks waiting for a retrieval thread")
+                    .register(registry);
+            Gauge.builder("retrieval.scheduler.active", pool, ThreadPoolExecutor::getActiveCount)
+                    .register(registry);
+            this.rejected = Counter.builder("retrieval.scheduler.rejected")
+                    .description("tasks rejected by the shared pool and run on the caller thread")
+                    .register(registry);
+            this.cancelled = Counter.builder("retrieval.scheduler.cancelled")
+                    .description("stragglers cancelled after deadline or quorum")
+                    .register(registry);
+            this.subQueryLatency = Timer.builder("retrieval.subquery.latency")
+                    .publishPercentileHistogram()
+                    .register(registry);
+        } else {
+            this.rejected = null;
+            this.cancelled = null;
+            this.subQueryLatency = null;
+        }
+    }
+
+    /**
+     * Runs {@code tasks} on the shared pool and returns their results in input order.
+     * Tasks that did not finish (deadline, quorum, failure) yield {@code fallback}.
+     *
+     * @param maxConcurrency per-request in-flight cap
+     * @param timeoutMs      overall wait; {@code <= 0} means "request budget only"
+     * @param quorum         stop after this many satisfying results; {@code <= 0} waits for all
+     * @param satisfying     which results count towards the quorum
+     */
+    public <T> List<T> fanOut(List<? extends Supplier<T>> tasks, int maxConcurrency, long timeoutMs,
+                              int quorum, Predicate<? super T> satisfying, T fallback) {
+        int n = tasks == null ? 0 : tasks.size();
+        if (n == 0) {
+            return List.of();
+        }
+        Object[] results = new Object[n];
+        Arrays.fill(results, fallback);
+        Future<?>[] futures = new Future<?>[n];
+        LinkedBlockingQueue<Integer> done = new LinkedBlockingQueue<>();
+
+        TimeBudget budget = TimeBudgetContext.get();
+        long deadline = deadlineNanos(timeoutMs, budget);
+        int limit = Math.max(1, maxConcurrency);
+        int next = 0;
+        int inFlight = 0;
+        int finished = 0;
+        int satisfied = 0;
+        boolean timedOut = false;
+
+        try {
+            while (finished < n) {
+                while (inFlight < limit && next < n) {
+                    int idx = next++;
+                    Runnable task = ContextPropagation.wrap(() -> runOne(tasks.get(idx), idx, results, budget));
+                    Runnable signalling = () -> {
+                        try {
+                            task.run();
+                        } finally {
+                            done.add(idx);
+                        }
+                    };
+                    try {
+                        futures[idx] = pool.submit(signalling);
+                    } catch (RejectedExecutionException rex) {
+                        if (rejected != null) rejected.increment();
+                        signalling.run();
+                    }
+                    inFlight++;
+                }
+                Integer idx;
+                if (deadline == Long.MAX_VALUE) {
+                    idx = done.take();
+                } else {
+                    long wait = deadline - System.nanoTime();
+                    idx = wait <= 0 ? done.poll() : done.poll(wait, TimeUnit.NANOSECONDS);
+                }
+                if (idx == null) {
+                    timedOut = true;
+                    break;
+                }
+                inFlight--;
+                finished++;
+                futures[idx] = null;
+                @SuppressWarnings("unchecked")
+                T r = (T) results[idx];
+                if (satisfying != null && satisfying.test(r)) {
+                    satisfied++;
+                }
+                if (quorum > 0 && satisfied >= quorum) {
+                    break;
+                }
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+
+        int dropped = 0;
+        for (int i = 0; i < n; i++) {
+            if (futures[i] != null && futures[i].cancel(true)) {
+                dropped++;
+            }
+        }
+        dropped += n - next;
+        if (dropped > 0) {
+            if (cancelled != null) cancelled.increment(dropped);
+            TraceStore.put("retrieval.fanout.cancelled", dropped);
+            TraceStore.put("retrieval.fanout.reason", timedOut ? "deadline" : "quorum");
+        }
+
+        // Stragglers that finished between the last poll and cancel() may have written;
+        // only completed indices are reported, the rest fall back.
+        List<T> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            @SuppressWarnings("unchecked")
+            T r = (futures[i] != null || i >= next) ? fallback : (T) results[i];
+            out.add(r);
+        }
+        return out;
+    }
+
+    private <T> void runOne(Supplier<T> task, int idx, Object[] results, TimeBudget budget) {
+        TimeBudget prev = TimeBudgetContext.get();
+        long start = System.nanoTime();
+        try {
+            if (budget != null) TimeBudgetContext.set(budget);
+            results[idx] = task.get();
+        } catch (Exception e) {
+            log.debug("[RetrievalScheduler] task {} failed: {}", idx, e.toString());
+        } finally {
+            if (subQueryLatency != null) subQueryLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (prev != null) TimeBudgetContext.set(prev);
+            else TimeBudgetContext.clear();
+        }
+    }
+
+    private static long deadlineNanos(long timeoutMs, TimeBudget budget) {
+        long ms = timeoutMs > 0 ? timeoutMs : Long.MAX_VALUE;
+        if (budget != null) {
+            ms = Math.min(ms, budget.remainingMillis());
+        }
+        if (ms == Long.MAX_VALUE) {
+            return Long.MAX_VALUE;
+        }
+        return System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, ms));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+}
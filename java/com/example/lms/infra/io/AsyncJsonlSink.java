@@ -0,0 +1,366 @@
+package com.example.lms.infra.io;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous, group-committing JSONL appender for one file.
+ *
+ * <p>Producers {@link #offer(String)} pre-serialized lines into a bounded lock-free queue and
+ * return immediately. A single writer thread keeps the file open, drains the queue in batches
+ * into a buffered stream, flushes every {@code flushIntervalMs}, fsyncs every
+ * {@code fsyncIntervalMs} and rotates the file by size ({@code path.1 .. path.N}).</p>
+ *
+ * <p>When the queue is full the line is dropped and counted ({@link Overflow#DROP}) or the
+ * producer waits up to {@code blockTimeoutMs} for space ({@link Overflow#BLOCK}). All I/O errors
+ * are fail-soft: they are logged and counted, never thrown to producers.</p>
+ */
+public final class AsyncJsonlSink implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncJsonlSink.class);
+    private static final byte[] NEWLINE = {'\n'};
+
+    public enum Overflow {
+        DROP, BLOCK
+    }
+
+    /**
+     * @param capacity        max queued lines
+     * @param flushIntervalMs max time a written line stays in the user-space buffer
+     * @param fsyncIntervalMs {@code <= 0} disables fsync (page cache only)
+     * @param maxFileBytes    rotate once the file would exceed this; {@code <= 0} disables
+     * @param maxBackups      rotated files kept ({@code path.1} newest)
+     */
+    public record Config(int capacity, long flushIntervalMs, long fsyncIntervalMs, long maxFileBytes,
+                         int maxBackups, Overflow overflow, long blockTimeoutMs) {
+
+        public static Config defaults() {
+            return new Config(10_000, 200L, 0L, 64L * 1024L * 1024L, 3, Overflow.DROP, 0L);
+        }
+
+        public Config withCapacity(int v) {
+            return new Config(v, flushIntervalMs, fsyncIntervalMs, maxFileBytes, maxBackups, overflow, blockTimeoutMs);
+        }
+
+        public Config withFlushIntervalMs(long v) {
+            return new Config(capacity, v, fsyncIntervalMs, maxFileBytes, maxBackups, overflow, blockTimeoutMs);
+        }
+
+        public Config withFsyncIntervalMs(long v) {
+            return new Config(capacity, flushIntervalMs, v, maxFileBytes, maxBackups, overflow, blockTimeoutMs);
+        }
+
+        public Config withRotation(long maxBytes, int backups) {
+            return new Config(capacity, flushIntervalMs, fsyncIntervalMs, maxBytes, backups, overflow, blockTimeoutMs);
+        }
+
+        public Config withOverflow(Overflow v, long timeoutMs) {
+            return new Config(capacity, flushIntervalMs, fsyncIntervalMs, maxFileBytes, maxBackups, v, timeoutMs);
+        }
+    }
+
+    /** Point-in-time counters. */
+    public record Stats(long enqueued, long written, long dropped, long errors, long rotations, int queued) {
+    }
+
+    private final Path path;
+    private final Config cfg;
+    private final ConcurrentLinkedQueue<String> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    /** Offers between their closed-check and enqueue; the writer only exits once this is zero. */
+    private final AtomicInteger offering = new AtomicInteger();
+    private final Thread writer;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private volatile long written;
+    private volatile long rotations;
+    private volatile long flushedThrough;
+    private volatile boolean flushRequested;
+    private volatile boolean closed;
+
+    // writer-thread state
+    private FileOutputStream fos;
+    private BufferedOutputStream out;
+    private long fileBytes;
+
+    public AsyncJsonlSink(String name, Path path, Config cfg) {
+        this.path = path;
+        this.cfg = cfg == null ? Config.defaults() : cfg;
+        this.writer = new Thread(this::loop, "jsonl-" + (name == null ? path.getFileName() : name));
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    /**
+     * Queues one JSON line (without trailing newline).
+     *
+     * @return {@code false} when the line was dropped (queue full or sink closed)
+     */
+    public boolean offer(String line) {
+        if (line == null) {
+            return false;
+        }
+        // Registered before reading closed: a close() the writer has acted on is always seen here.
+        offering.incrementAndGet();
+        try {
+            return offerOpen(line);
+        } finally {
+            offering.decrementAndGet();
+        }
+    }
+
+    private boolean offerOpen(String line) {
+        if (closed) {
+            return false;
+        }
+        int prev = reserve();
+        if (prev < 0 && cfg.overflow() == Overflow.BLOCK && cfg.blockTimeoutMs() > 0) {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(cfg.blockTimeoutMs());
+            while (prev < 0 && !closed && System.nanoTime() < deadline) {
+                LockSupport.parkNanos(100_000L);
+                prev = reserve();
+            }
+        }
+        if (prev < 0) {
+            long d = dropped.incrementAndGet();
+            if (d == 1 || d % 1000 == 0) {
+                log.warn("[JsonlSink] {} queue full ({}), dropped={}", path, cfg.capacity(), d);
+            }
+            return false;
+        }
+        queue.add(line);
+        enqueued.incrementAndGet();
+        if (prev == 0) {
+            LockSupport.unpark(writer);
+        }
+        return true;
+    }
+
+    /** Waits until every line offered before this call is flushed to the OS. */
+    public boolean flush(long timeoutMs) {
+        long target = enqueued.get();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, timeoutMs));
+        while (flushedThrough < target && writer.isAlive()) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            flushRequested = true;
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(200_000L);
+        }
+        return flushedThrough >= target;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public Stats stats() {
+        return new Stats(enqueued.get(), written, dropped.get(), errors.get(), rotations, size.get());
+    }
+
+    /** Drains the queue, flushes/fsyncs and closes the file; later offers are dropped. */
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for the writer thread to finish after {@link #close()}; {@code true} once the file
+     * is closed and nothing of this sink can reach the disk any more.
+     */
+    public boolean awaitTermination(long timeoutMs) {
+        try {
+            writer.join(Math.max(1L, timeoutMs));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        return !writer.isAlive();
+    }
+
+    /** Returns the previous queue size, or -1 when full. */
+    private int reserve() {
+        int cap = Math.max(1, cfg.capacity());
+        while (true) {
+            int s = size.get();
+            if (s >= cap) {
+                return -1;
+            }
+            if (size.compareAndSet(s, s + 1)) {
+                return s;
+            }
+        }
+    }
+
+    private void loop() {
+        long flushNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, cfg.flushIntervalMs()));
+        long fsyncNanos = cfg.fsyncIntervalMs() > 0 ? TimeUnit.MILLISECONDS.toNanos(cfg.fsyncIntervalMs()) : 0L;
+        long lastFlush = System.nanoTime();
+        long lastFsync = lastFlush;
+        boolean unflushed = false;
+        boolean unsynced = false;
+        long count = 0;
+
+        while (true) {
+            boolean closing = closed;
+            String line;
+            while ((line = queue.poll()) != null) {
+                size.decrementAndGet();
+                if (append(line)) {
+                    count++;
+                    unflushed = true;
+                }
+            }
+            written = count;
+
+            long now = System.nanoTime();
+            if (unflushed && (closing || flushRequested || now - lastFlush >= flushNanos)) {
+                flushRequested = false;
+                flushQuietly();
+                unflushed = false;
+                unsynced = true;
+                lastFlush = now;
+            }
+            if (!unflushed) {
+                // everything polled so far has reached the OS
+                flushedThrough = enqueued.get() - size.get();
+            }
+            if (unsynced && fsyncNanos > 0 && (closing || now - lastFsync >= fsyncNanos)) {
+                fsyncQuietly();
+                unsynced = false;
+                lastFsync = now;
+            }
+            if (closing && queue.isEmpty()) {
+                if (offering.get() == 0) {
+                    break;
+                }
+                Thread.onSpinWait(); // an offer that passed the closed-check is still enqueueing
+                continue;
+            }
+            long waitNanos = unflushed ? Math.max(0L, flushNanos - (System.nanoTime() - lastFlush)) : flushNanos;
+            if (waitNanos > 0 && queue.isEmpty()) {
+                LockSupport.parkNanos(this, waitNanos);
+            }
+        }
+        closeFile();
+    }
+
+    private boolean append(String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        try {
+            if (out == null) {
+                openFile();
+            } else if (cfg.maxFileBytes() > 0 && fileBytes > 0 && fileBytes + bytes.length + 1 > cfg.maxFileBytes()) {
+                rotate();
+            }
+            out.write(bytes);
+            out.write(NEWLINE);
+            fileBytes += bytes.length + 1;
+            return true;
+        } catch (IOException e) {
+            long n = errors.incrementAndGet();
+            if (n == 1 || n % 1000 == 0) {
+                log.warn("[JsonlSink] {} write failed (errors={}): {}", path, n, e.toString());
+            }
+            closeFile();
+            return false;
+        }
+    }
+
+    private void openFile() throws IOException {
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        fos = new FileOutputStream(path.toFile(), true);
+        out = new BufferedOutputStream(fos, 64 * 1024);
+        fileBytes = Files.size(path);
+    }
+
+    private void rotate() throws IOException {
+        closeFile();
+        int keep = Math.max(0, cfg.maxBackups());
+        if (keep == 0) {
+            Files.deleteIfExists(path);
+        } else {
+            Files.deleteIfExists(backup(keep));
+            for (int i = keep - 1; i >= 1; i--) {
+                Path from = backup(i);
+                if (Files.exists(from)) {
+                    Files.move(from, backup(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(path, backup(1), StandardCopyOption.REPLACE_EXISTING);
+        }
+        rotations++;
+        openFile();
+    }
+
+    private Path backup(int i) {
+        return path.resolveSibling(path.getFileName().toString() + "." + i);
+    }
+
+    private void flushQuietly() {
+        if (out == null) {
+            return;
+        }
+        try {
+            out.flush();
+        } catch (IOException e) {
+            errors.incrementAndGet();
+            closeFile();
+        }
+    }
+
+    private void fsyncQuietly() {
+        if (fos == null) {
+            return;
+        }
+        try {
+            fos.getChannel().force(false);
+        } catch (IOException e) {
+            errors.incrementAndGet();
+        }
+    }
+
+    private void closeFile() {
+        try {
+            if (out != null) {
+                out.flush();
+                if (cfg.fsyncIntervalMs() > 0) {
+                    fos.getChannel().force(false);
+                }
+                out.close();
+            }
+        } catch (IOException ignored) {
+        } finally {
+            out = null;
+            fos = null;
+        }
+    }
+}
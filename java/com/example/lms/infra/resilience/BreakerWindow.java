@@ -0,0 +1,162 @@
+package com.example.lms.infra.resilience;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time-bucketed sliding window of call outcomes for one breaker key.
+ *
+ * <p>The window is a ring of {@code buckets} slots, each covering {@code windowMs / buckets}
+ * milliseconds. A slot holds striped counters ({@link LongAdder}) for calls, failures and slow
+ * calls plus a coarse latency histogram, so concurrent writers on a hot key do not contend on a
+ * single cache line. A slot is lazily recycled by the first writer that lands on it in a new
+ * epoch; a write racing with that reset may be lost, which is acceptable for trip statistics.</p>
+ *
+ * <p>{@link #record} allocates nothing; {@link #snapshot} allocates only its result.</p>
+ */
+final class BreakerWindow {
+
+    /** Latency histogram upper bounds (ms); the last bucket is open-ended. */
+    static final long[] LATENCY_BOUNDS_MS = {
+            5, 10, 25, 50, 100, 250, 500, 1_000, 2_500, 5_000, 10_000, 30_000, Long.MAX_VALUE
+    };
+
+    private final Slot[] slots;
+    private final long slotMs;
+
+    BreakerWindow(long windowMs, int buckets) {
+        int n = Math.max(1, buckets);
+        this.slots = new Slot[n];
+        for (int i = 0; i < n; i++) {
+            slots[i] = new Slot();
+        }
+        this.slotMs = Math.max(1L, Math.max(1L, windowMs) / n);
+    }
+
+    /**
+     * Records one call outcome.
+     *
+     * @param latencyMs latency of the call, or a negative value when unknown (not histogrammed)
+     */
+    void record(long nowMs, boolean failure, boolean slow, long latencyMs) {
+        long epoch = nowMs / slotMs;
+        Slot s = slots[(int) (epoch % slots.length)];
+        if (s.epoch != epoch) {
+            s.rotate(epoch);
+        }
+        s.calls.increment();
+        if (failure) {
+            s.failures.increment();
+        }
+        if (slow) {
+            s.slowCalls.increment();
+        }
+        if (latencyMs >= 0) {
+            s.latency[latencyBucket(latencyMs)].increment();
+        }
+    }
+
+    /** Aggregates the slots that are still inside the window at {@code nowMs}. */
+    Stats snapshot(long nowMs) {
+        long epoch = nowMs / slotMs;
+        long oldest = epoch - slots.length + 1;
+        long calls = 0;
+        long failures = 0;
+        long slow = 0;
+        long[] hist = new long[LATENCY_BOUNDS_MS.length];
+        for (Slot s : slots) {
+            long e = s.epoch;
+            if (e < oldest || e > epoch) {
+                continue;
+            }
+            calls += s.calls.sum();
+            failures += s.failures.sum();
+            slow += s.slowCalls.sum();
+            for (int i = 0; i < hist.length; i++) {
+                hist[i] += s.latency[i].sum();
+            }
+        }
+        return new Stats(calls, failures, slow, percentile(hist, 0.95));
+    }
+
+    /** Forgets all recorded outcomes (used on CLOSED/OPEN transitions). */
+    void reset() {
+        for (Slot s : slots) {
+            synchronized (s) {
+                s.epoch = Long.MIN_VALUE;
+                s.clear();
+            }
+        }
+    }
+
+    static int latencyBucket(long latencyMs) {
+        for (int i = 0; i < LATENCY_BOUNDS_MS.length; i++) {
+            if (latencyMs <= LATENCY_BOUNDS_MS[i]) {
+                return i;
+            }
+        }
+        return LATENCY_BOUNDS_MS.length - 1;
+    }
+
+    /** Upper bound (ms) of the histogram bucket holding quantile {@code q}; -1 when empty. */
+    private static long percentile(long[] hist, double q) {
+        long total = 0;
+        for (long h : hist) {
+            total += h;
+        }
+        if (total <= 0) {
+            return -1L;
+        }
+        long rank = (long) Math.ceil(q * total);
+        long seen = 0;
+        for (int i = 0; i < hist.length; i++) {
+            seen += hist[i];
+            if (seen >= rank) {
+                return LATENCY_BOUNDS_MS[i];
+            }
+        }
+        return LATENCY_BOUNDS_MS[LATENCY_BOUNDS_MS.length - 1];
+    }
+
+    /** Windowed counts; rates are 0 when there were no calls. */
+    record Stats(long calls, long failures, long slowCalls, long p95LatencyMs) {
+
+        double failureRate() {
+            return calls == 0 ? 0.0d : (double) failures / calls;
+        }
+
+        double slowCallRate() {
+            return calls == 0 ? 0.0d : (double) slowCalls / calls;
+        }
+    }
+
+    private static final class Slot {
+        volatile long epoch = Long.MIN_VALUE;
+        final LongAdder calls = new LongAdder();
+        final LongAdder failures = new LongAdder();
+        final LongAdder slowCalls = new LongAdder();
+        final LongAdder[] latency = new LongAdder[LATENCY_BOUNDS_MS.length];
+
+        Slot() {
+            for (int i = 0; i < latency.length; i++) {
+                latency[i] = new LongAdder();
+            }
+        }
+
+        synchronized void rotate(long newEpoch) {
+            if (epoch >= newEpoch) {
+                return;
+            }
+            clear();
+            epoch = newEpoch;
+        }
+
+        void clear() {
+            calls.reset();
+            failures.reset();
+            slowCalls.reset();
+            for (LongAdder a : latency) {
+                a.reset();
+            }
+        }
+    }
+}
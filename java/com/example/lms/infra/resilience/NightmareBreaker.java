@@ -30,6 +30,9 @@ import java.util.function.Supplier;
  * - slow-call / silent-failure 기반 trip 옵션
  * - 공통 실행 래퍼 execute(...) 제공
  * - 예외 분류 classify(Throwable) 중앙집중화
+ * - key별 sliding window(시간 버킷 ring, LongAdder) 로 실패율/slow-call 비율/p95 집계
+ *   → 연속 카운터 규칙과 rate 규칙을 함께 trip 정책으로 사용
+ * - 성공 경로는 상태 전이가 없으면 할당/공유 쓰기 없이 동작(0 이 아닌 카운터만 리셋)
  */
 public class NightmareBreaker {
 
@@ -124,7 +127,26 @@ public class NightmareBreaker {
     }
 
     private NightmareBreakerProperties.EffectivePolicy policy(String key) {
-        return policyCache.computeIfAbsent(key, props::policyFor);
+        // get() first: a bound method reference allocates on every computeIfAbsent call.
+        NightmareBreakerProperties.EffectivePolicy p = policyCache.get(key);
+        return (p != null) ? p : policyCache.computeIfAbsent(key, props::policyFor);
+    }
+
+    private State state(String key) {
+        State s = states.get(key);
+        return (s != null) ? s : states.computeIfAbsent(key, k -> newState());
+    }
+
+    private State newState() {
+        long windowMs = safeToMs(props.getSlidingWindow(), 30_000L);
+        return new State(new BreakerWindow(windowMs, props.getSlidingWindowBuckets()));
+    }
+
+    /** Reset only when non-zero, so the steady-state success path does not write shared lines. */
+    private static void clear(AtomicInteger counter) {
+        if (counter.get() != 0) {
+            counter.set(0);
+        }
     }
 
     public boolean isOpen(String key) {
@@ -335,6 +357,7 @@ public class NightmareBreaker {
             }
         }
         String lastMsg = (s.lastError == null) ? null : String.valueOf(s.lastError.getMessage());
+        BreakerWindow.Stats w = s.window.snapshot(now);
         return new StateView(
                 key,
                 s.mode,
@@ -353,7 +376,11 @@ public class NightmareBreaker {
                 s.consecutiveSlowCalls.get(),
                 s.consecutiveSuccesses.get(),
                 s.trialCalls.get(),
-                lastMsg);
+                lastMsg,
+                w.calls(),
+                w.failureRate(),
+                w.slowCallRate(),
+                w.p95LatencyMs());
     }
 
     /**
@@ -400,6 +427,12 @@ public class NightmareBreaker {
         public final int consecutiveSuccesses;
         public final int trialCalls;
         public final String lastErrorMessage;
+        /** Calls recorded in the sliding window. */
+        public final long windowCalls;
+        public final double windowFailureRate;
+        public final double windowSlowCallRate;
+        /** Histogram-bucket upper bound of the windowed p95 latency; -1 when no latency was recorded. */
+        public final long windowP95LatencyMs;
 
         public StateView(String key,
                 BreakerMode mode,
@@ -419,6 +452,34 @@ public class NightmareBreaker {
                 int consecutiveSuccesses,
                 int trialCalls,
                 String lastErrorMessage) {
+            this(key, mode, open, openSinceMs, openUntilMs, remainingMs, lastKind,
+                    consecutiveFailures, consecutiveTimeouts, consecutiveRateLimits, consecutiveRejected,
+                    consecutiveInterrupts, consecutiveBlanks, consecutiveSilentFailures, consecutiveSlowCalls,
+                    consecutiveSuccesses, trialCalls, lastErrorMessage, 0L, 0.0d, 0.0d, -1L);
+        }
+
+        public StateView(String key,
+                BreakerMode mode,
+                boolean open,
+                long openSinceMs,
+                long openUntilMs,
+                long remainingMs,
+                FailureKind lastKind,
+                int consecutiveFailures,
+                int consecutiveTimeouts,
+                int consecutiveRateLimits,
+                int consecutiveRejected,
+                int consecutiveInterrupts,
+                int consecutiveBlanks,
+                int consecutiveSilentFailures,
+                int consecutiveSlowCalls,
+                int consecutiveSuccesses,
+                int trialCalls,
+                String lastErrorMessage,
+                long windowCalls,
+                double windowFailureRate,
+                double windowSlowCallRate,
+                long windowP95LatencyMs) {
             this.key = key;
             this.mode = mode;
             this.open = open;
@@ -437,6 +498,10 @@ public class NightmareBreaker {
             this.consecutiveSuccesses = consecutiveSuccesses;
             this.trialCalls = trialCalls;
             this.lastErrorMessage = lastErrorMessage;
+            this.windowCalls = windowCalls;
+            this.windowFailureRate = windowFailureRate;
+            this.windowSlowCallRate = windowSlowCallRate;
+            this.windowP95LatencyMs = windowP95LatencyMs;
         }
     }
 
@@ -525,13 +590,16 @@ public class NightmareBreaker {
      * 성공 기록:
      * - OPEN 상태였다면 닫고
      * - 연속 카운터는 항상 리셋
-     * - slow-call 옵션이 켜져 있으면 느린 응답을 누적해서 OPEN
+     * - slow-call 옵션이 켜져 있으면 느린 응답을 누적해서 OPEN (연속 규칙 + window 비율 규칙)
+     * - 상태 전이가 없으면 할당 없음(debug payload 는 전이 시에만 생성)
      */
     public void recordSuccess(String key, long latencyMs) {
         if (!props.isEnabled())
             return;
-        State s = states.computeIfAbsent(key, k -> new State());
+        State s = state(key);
         NightmareBreakerProperties.EffectivePolicy cfg = policy(key);
+        boolean slow = cfg.tripOnSlowCall() && latencyMs >= cfg.slowCallThresholdMs();
+        s.window.record(System.currentTimeMillis(), false, slow, latencyMs);
 
         if (s.mode == BreakerMode.HALF_OPEN && props.isHalfOpenEnabled()) {
             int succ = s.consecutiveSuccesses.incrementAndGet();
@@ -542,6 +610,7 @@ public class NightmareBreaker {
                 s.openUntilMs = 0;
                 s.openSinceMs = 0;
                 s.trialCalls.set(0);
+                s.window.reset();
 
                 try {
                     java.util.Map<String, Object> dd = new java.util.LinkedHashMap<>();
@@ -565,6 +634,7 @@ public class NightmareBreaker {
             s.openSinceMs = 0;
             s.trialCalls.set(0);
             s.consecutiveSuccesses.set(0);
+            s.window.reset();
 
             try {
                 java.util.Map<String, Object> dd = new java.util.LinkedHashMap<>();
@@ -583,22 +653,31 @@ public class NightmareBreaker {
         }
 
         // ✅ 핵심: 성공이면 항상 연속 카운터를 초기화(비연속 blank 누적 방지)
-        s.consecutiveFailures.set(0);
-        s.consecutiveTimeouts.set(0);
-        s.consecutiveRateLimits.set(0);
-        s.consecutiveRejected.set(0);
-        s.consecutiveInterrupts.set(0);
-        s.consecutiveBlanks.set(0);
-        s.consecutiveSilentFailures.set(0);
-
-        if (cfg.tripOnSlowCall() && latencyMs >= cfg.slowCallThresholdMs()) {
+        clear(s.consecutiveFailures);
+        clear(s.consecutiveTimeouts);
+        clear(s.consecutiveRateLimits);
+        clear(s.consecutiveRejected);
+        clear(s.consecutiveInterrupts);
+        clear(s.consecutiveBlanks);
+        clear(s.consecutiveSilentFailures);
+
+        if (slow) {
             int n = s.consecutiveSlowCalls.incrementAndGet();
             if (n >= cfg.slowCallThreshold()) {
                 tripOpen(key, s, FailureKind.REJECTED, null,
                         "slow_call " + latencyMs + "ms", "slow-call");
+            } else if (s.mode == BreakerMode.CLOSED && cfg.slowCallRateThreshold() > 0.0d) {
+                // The slow-call rate can only cross its threshold on a slow call.
+                BreakerWindow.Stats w = s.window.snapshot(System.currentTimeMillis());
+                if (w.calls() >= cfg.minimumCalls() && w.slowCallRate() >= cfg.slowCallRateThreshold()) {
+                    tripOpen(key, s, FailureKind.REJECTED, null,
+                            "slow_call_rate " + String.format("%.2f", w.slowCallRate())
+                                    + " calls=" + w.calls() + " p95<=" + w.p95LatencyMs() + "ms",
+                            "slow-call-rate");
+                }
             }
         } else {
-            s.consecutiveSlowCalls.set(0);
+            clear(s.consecutiveSlowCalls);
         }
     }
 
@@ -608,7 +687,8 @@ public class NightmareBreaker {
         NightmareBreakerProperties.EffectivePolicy cfg = policy(key);
         if (!cfg.tripOnBlank())
             return;
-        State s = states.computeIfAbsent(key, k -> new State());
+        State s = state(key);
+        s.window.record(System.currentTimeMillis(), true, false, -1L);
 
         int blanks = s.consecutiveBlanks.incrementAndGet();
         s.lastKind = FailureKind.EMPTY_RESPONSE;
@@ -662,7 +742,8 @@ public class NightmareBreaker {
         NightmareBreakerProperties.EffectivePolicy cfg = policy(key);
         if (!cfg.tripOnSilentFailure())
             return;
-        State s = states.computeIfAbsent(key, k -> new State());
+        State s = state(key);
+        s.window.record(System.currentTimeMillis(), true, false, -1L);
 
         int n = s.consecutiveSilentFailures.incrementAndGet();
         s.lastKind = FailureKind.EMPTY_RESPONSE;
@@ -753,7 +834,7 @@ public class NightmareBreaker {
         }
         kind = normalized;
 
-        State s = states.computeIfAbsent(key, k -> new State());
+        State s = state(key);
         NightmareBreakerProperties.EffectivePolicy cfg = policy(key);
 
         s.lastKind = kind;
@@ -768,6 +849,12 @@ public class NightmareBreaker {
         // Do not let it pollute TIMEOUT aggregation or the generic failure threshold.
         boolean countsAsFailure = countsAsFailureForThreshold(kind);
 
+        // Window: same failure classification as the generic threshold; interrupts are local
+        // cancellations and stay out of the rates, timeouts also count as slow calls.
+        if (kind != FailureKind.INTERRUPTED) {
+            s.window.record(System.currentTimeMillis(), countsAsFailure, kind == FailureKind.TIMEOUT, -1L);
+        }
+
         int total;
         if (countsAsFailure) {
             total = s.consecutiveFailures.incrementAndGet();
@@ -813,7 +900,19 @@ public class NightmareBreaker {
                 && s.consecutiveInterrupts.get() >= cfg.interruptThreshold());
         boolean tripFailure = (countsAsFailure && total >= cfg.failureThreshold());
 
-        boolean shouldTrip = tripTimeout || tripRateLimit || tripRejected || tripInterrupt || tripFailure;
+        boolean tripFailureRate = false;
+        BreakerWindow.Stats window = null;
+        if (!(tripTimeout || tripRateLimit || tripRejected || tripInterrupt || tripFailure)
+                && countsAsFailure
+                && s.mode == BreakerMode.CLOSED
+                && cfg.failureRateThreshold() > 0.0d) {
+            window = s.window.snapshot(System.currentTimeMillis());
+            tripFailureRate = window.calls() >= cfg.minimumCalls()
+                    && window.failureRate() >= cfg.failureRateThreshold();
+        }
+
+        boolean shouldTrip = tripTimeout || tripRateLimit || tripRejected || tripInterrupt || tripFailure
+                || tripFailureRate;
 
         if (shouldTrip) {
             String reason;
@@ -825,6 +924,9 @@ public class NightmareBreaker {
                 reason = (kind == FailureKind.CONFIG) ? "config-threshold" : "rejected-threshold";
             } else if (tripInterrupt) {
                 reason = "interrupt-threshold";
+            } else if (tripFailureRate) {
+                reason = "failure-rate-threshold " + String.format("%.2f", window.failureRate())
+                        + " calls=" + window.calls();
             } else {
                 reason = "failure-threshold";
             }
@@ -1056,6 +1158,10 @@ public class NightmareBreaker {
         if (!alreadyOpen || s.openSinceMs <= 0L) {
             s.openSinceMs = now;
         }
+        if (!alreadyOpen) {
+            // HALF_OPEN/CLOSED evaluation after this OPEN starts from a clean window.
+            s.window.reset();
+        }
 
         s.openUntilMs = openUntil;
         s.mode = BreakerMode.OPEN;
@@ -1371,6 +1477,11 @@ public class NightmareBreaker {
         volatile long openUntilMs = 0;
         volatile FailureKind lastKind = FailureKind.UNKNOWN;
         volatile Throwable lastError = null;
+        final BreakerWindow window;
+
+        State(BreakerWindow window) {
+            this.window = window;
+        }
     }
 
     public static class NightmareBreakException extends RuntimeException {
@@ -89,6 +89,20 @@ public class NightmareBreakerProperties {
     /** HALF_OPEN → CLOSED 전환에 필요한 연속 성공 수 */
     private int halfOpenSuccessThreshold = 1;
 
+    /**
+     * Rate 기반 trip 을 위한 sliding window (key별, 시간 버킷 ring).
+     * - 연속 카운터(consecutive*)만으로는 "최근 30초 실패율" 같은 조건을 표현할 수 없어서 추가.
+     */
+    private Duration slidingWindow = Duration.ofSeconds(30);
+    /** sliding window 를 나누는 버킷 수 (버킷 폭 = slidingWindow / slidingWindowBuckets) */
+    private int slidingWindowBuckets = 10;
+    /** rate 기반 trip 을 평가하기 위한 window 내 최소 호출 수 */
+    private int minimumCalls = 20;
+    /** window 실패율이 이 값 이상이면 OPEN (0 이하이면 비활성, 예: 0.5) */
+    private double failureRateThreshold = 0.0d;
+    /** window slow-call 비율이 이 값 이상이면 OPEN (0 이하이면 비활성, 예: 0.8) */
+    private double slowCallRateThreshold = 0.0d;
+
     /**
      * Key별 오버라이드(옵션 모듈은 더 관대하게 등).
      * <p>
@@ -113,6 +127,9 @@ public class NightmareBreakerProperties {
         private Integer slowCallThreshold;
         private Boolean tripOnSilentFailure;
         private Integer silentFailureThreshold;
+        private Integer minimumCalls;
+        private Double failureRateThreshold;
+        private Double slowCallRateThreshold;
 
         public String getPattern() { return pattern; }
         public void setPattern(String pattern) { this.pattern = pattern; }
@@ -144,6 +161,12 @@ public class NightmareBreakerProperties {
         public void setTripOnSilentFailure(Boolean tripOnSilentFailure) { this.tripOnSilentFailure = tripOnSilentFailure; }
         public Integer getSilentFailureThreshold() { return silentFailureThreshold; }
         public void setSilentFailureThreshold(Integer silentFailureThreshold) { this.silentFailureThreshold = silentFailureThreshold; }
+        public Integer getMinimumCalls() { return minimumCalls; }
+        public void setMinimumCalls(Integer minimumCalls) { this.minimumCalls = minimumCalls; }
+        public Double getFailureRateThreshold() { return failureRateThreshold; }
+        public void setFailureRateThreshold(Double failureRateThreshold) { this.failureRateThreshold = failureRateThreshold; }
+        public Double getSlowCallRateThreshold() { return slowCallRateThreshold; }
+        public void setSlowCallRateThreshold(Double slowCallRateThreshold) { this.slowCallRateThreshold = slowCallRateThreshold; }
     }
 
     public record EffectivePolicy(
@@ -164,8 +187,17 @@ public class NightmareBreakerProperties {
             boolean logStackTrace,
             boolean halfOpenEnabled,
             int halfOpenMaxCalls,
-            int halfOpenSuccessThreshold
-    ) {}
+            int halfOpenSuccessThreshold,
+            int minimumCalls,
+            double failureRateThreshold,
+            double slowCallRateThreshold
+    ) {
+
+        /** window 기반 rate trip 규칙이 하나라도 켜져 있는지. */
+        public boolean rateRulesEnabled() {
+            return failureRateThreshold > 0.0d || (tripOnSlowCall && slowCallRateThreshold > 0.0d);
+        }
+    }
 
     /** Key별 EffectivePolicy를 계산한다. */
     public EffectivePolicy policyFor(String key) {
@@ -190,6 +222,11 @@ public class NightmareBreakerProperties {
         boolean tosf = (ov != null && ov.getTripOnSilentFailure() != null) ? ov.getTripOnSilentFailure() : this.tripOnSilentFailure;
         int sft = scale((ov != null && ov.getSilentFailureThreshold() != null) ? ov.getSilentFailureThreshold() : this.silentFailureThreshold, w);
 
+        // Rates are not weight-scaled (a rate is already relative); minimumCalls is.
+        int mc = scale((ov != null && ov.getMinimumCalls() != null) ? ov.getMinimumCalls() : this.minimumCalls, w);
+        double frt = (ov != null && ov.getFailureRateThreshold() != null) ? ov.getFailureRateThreshold() : this.failureRateThreshold;
+        double srt = (ov != null && ov.getSlowCallRateThreshold() != null) ? ov.getSlowCallRateThreshold() : this.slowCallRateThreshold;
+
         return new EffectivePolicy(
                 od,
                 ft,
@@ -208,7 +245,10 @@ public class NightmareBreakerProperties {
                 this.logStackTrace,
                 this.halfOpenEnabled,
                 this.halfOpenMaxCalls,
-                this.halfOpenSuccessThreshold
+                this.halfOpenSuccessThreshold,
+                mc,
+                frt,
+                srt
         );
     }
 
@@ -468,4 +508,44 @@ public class NightmareBreakerProperties {
     public void setHalfOpenSuccessThreshold(int halfOpenSuccessThreshold) {
         this.halfOpenSuccessThreshold = halfOpenSuccessThreshold;
     }
+
+    public Duration getSlidingWindow() {
+        return slidingWindow;
+    }
+
+    public void setSlidingWindow(Duration slidingWindow) {
+        this.slidingWindow = slidingWindow;
+    }
+
+    public int getSlidingWindowBuckets() {
+        return slidingWindowBuckets;
+    }
+
+    public void setSlidingWindowBuckets(int slidingWindowBuckets) {
+        this.slidingWindowBuckets = slidingWindowBuckets;
+    }
+
+    public int getMinimumCalls() {
+        return minimumCalls;
+    }
+
+    public void setMinimumCalls(int minimumCalls) {
+        this.minimumCalls = minimumCalls;
+    }
+
+    public double getFailureRateThreshold() {
+        return failureRateThreshold;
+    }
+
+    public void setFailureRateThreshold(double failureRateThreshold) {
+        this.failureRateThreshold = failureRateThreshold;
+    }
+
+    public double getSlowCallRateThreshold() {
+        return slowCallRateThreshold;
+    }
+
+    public void setSlowCallRateThreshold(double slowCallRateThreshold) {
+        this.slowCallRateThreshold = slowCallRateThreshold;
+    }
 }
@@ -1,47 +1,464 @@
 // src/main/java/com/example/lms/netty/ChatWebSocketHandler.java
 package com.example.lms.netty;
 
+import com.example.lms.dto.ChatRequestDto;
+import com.example.lms.dto.ChatStreamEvent;
 import com.example.lms.service.ChatResult;
 import com.example.lms.service.ChatService;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
 import io.netty.handler.codec.http.websocketx.TextWebSocketFrame;
+import io.netty.util.AttributeKey;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 
+/**
+ * WebSocket chat endpoint ("/ws").
+ *
+ * <p>The event loop only parses frames and writes output; {@code ChatService} runs on a bounded
+ * worker pool so a slow LLM call never stalls the other connections on the same loop. Output uses
+ * the same {@link ChatStreamEvent} model as the SSE {@code /api/chat/stream} endpoint
+ * (status → token chunks → final | error), one JSON object per text frame.</p>
+ *
+ * <p>Inbound frames:</p>
+ * <ul>
+ *   <li>{@code {"type":"ask","message":"...","sessionId":123,"model":"...","id":"r1"}}
+ *       ({@code type} defaults to ask; a non-JSON frame is treated as the message itself)</li>
+ *   <li>{@code {"type":"cancel","id":"r1"}} or {@code {"type":"cancel","sessionId":123}} — stops
+ *       delivery, frees the in-flight slot and cancels the backend work: a session run through
+ *       {@code ChatService.cancelSession}, a session-less {@code ask} by interrupting its worker
+ *       (best-effort). The "cancelled" status carries a {@code backend} field saying which
+ *       ({@code not-started}, {@code session-cancelled}, {@code interrupted}, {@code completed},
+ *       {@code failed}).</li>
+ * </ul>
+ * Outbound events carry the request {@code id} so clients can demultiplex concurrent requests.
+ *
+ * <p>Back-pressure: frames are queued per connection and written only while the channel is
+ * writable; {@link #channelWritabilityChanged} resumes the drain.</p>
+ */
 @Component
 @RequiredArgsConstructor
 @ChannelHandler.Sharable
 public class ChatWebSocketHandler extends SimpleChannelInboundHandler<TextWebSocketFrame> {
 
+    private static final Logger log = LoggerFactory.getLogger(ChatWebSocketHandler.class);
+
+    private static final AttributeKey<Connection> CONN = AttributeKey.valueOf("lms.chat.ws.connection");
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
     private final ChatService chatService;
 
+    /** Worker threads running ChatService calls (shared by all connections). */
+    @Value("${netty.ws.executor-threads:16}")
+    private int executorThreads = 16;
+
+    /** Requests allowed to wait for a worker; beyond this new requests get a "busy" error. */
+    @Value("${netty.ws.queue-capacity:256}")
+    private int queueCapacity = 256;
+
+    /** Concurrent requests per connection. */
+    @Value("${netty.ws.max-in-flight-per-connection:1}")
+    private int maxInFlightPerConnection = 1;
+
+    /** Characters per token frame (the SSE endpoint uses 60). */
+    @Value("${netty.ws.token-chunk-chars:60}")
+    private int tokenChunkChars = 60;
+
+    private volatile ThreadPoolExecutor executor;
+    private final AtomicLong rejected = new AtomicLong();
+
+    /* ───────────────────────── inbound (event loop) ───────────────────────── */
+
     @Override
     protected void channelRead0(ChannelHandlerContext ctx, TextWebSocketFrame frame) {
-        String userMsg = frame.text();
+        Channel ch = ctx.channel();
+        Connection conn = connection(ch);
+        Inbound in = Inbound.parse(frame.text());
+        if ("cancel".equals(in.type)) {
+            cancel(ch, conn, in);
+            return;
+        }
+        if (in.message == null || in.message.isBlank()) {
+            send(ch, conn, in.id, ChatStreamEvent.error("empty message"));
+            return;
+        }
+        String id = (in.id != null) ? in.id : ("r" + conn.seq.incrementAndGet());
+        if (conn.inFlight.incrementAndGet() > Math.max(1, maxInFlightPerConnection)) {
+            conn.inFlight.decrementAndGet();
+            send(ch, conn, id, ChatStreamEvent.error("too many in-flight requests on this connection"));
+            return;
+        }
+        Run run = new Run(id, in.sessionId);
+        conn.runs.put(id, run);
+        if (in.sessionId != null) {
+            send(ch, conn, id, ChatStreamEvent.sessionReady(in.sessionId));
+        }
+        send(ch, conn, id, ChatStreamEvent.status("답변 생성 중..."));
+        try {
+            executor().execute(() -> process(ch, conn, run, in));
+        } catch (RejectedExecutionException busy) {
+            rejected.incrementAndGet();
+            finish(conn, run);
+            send(ch, conn, id, ChatStreamEvent.error("server busy, please retry"));
+        }
+    }
+
+    private void cancel(Channel ch, Connection conn, Inbound in) {
+        List<Run> targets = new ArrayList<>();
+        for (Run r : conn.runs.values()) {
+            boolean match = (in.id != null) ? in.id.equals(r.id)
+                    : (in.sessionId == null || in.sessionId.equals(r.sessionId));
+            if (match) {
+                targets.add(r);
+            }
+        }
+        Map<Long, Boolean> sessions = new LinkedHashMap<>();
+        if (in.sessionId != null) {
+            sessions.put(in.sessionId, Boolean.FALSE);
+        }
+        for (Run r : targets) {
+            if (r.sessionId != null) {
+                sessions.put(r.sessionId, Boolean.FALSE);
+            }
+        }
+        for (Long sid : sessions.keySet()) {
+            try {
+                chatService.cancelSession(sid);
+                sessions.put(sid, Boolean.TRUE);
+            } catch (Exception e) {
+                // fail-soft
+                log.debug("[WS] cancelSession({}) failed: {}", sid, e.toString());
+            }
+        }
+        for (Run r : targets) {
+            r.cancelled = true;
+            String backend;
+            if (r.started.compareAndSet(false, true)) {
+                backend = "not-started"; // still queued: the worker will skip it
+            } else if (r.sessionId != null) {
+                backend = Boolean.TRUE.equals(sessions.get(r.sessionId)) ? "session-cancelled" : "failed";
+            } else {
+                backend = r.interrupt();
+            }
+            // The slot is free as soon as the cancel is acknowledged; the worker's late finish() is a no-op.
+            finish(conn, r);
+            String msg = switch (backend) {
+                case "interrupted" -> "cancelled (backend call interrupted, best-effort; any late result is discarded)";
+                case "completed" -> "cancelled (backend call had already completed; its result is discarded)";
+                case "failed" -> "cancelled (backend cancel failed; the call may still run, its result is discarded)";
+                default -> "cancelled";
+            };
+            enqueue(ch, conn, null, List.of(encode(r.id, ChatStreamEvent.status(msg), "backend", backend)));
+        }
+    }
+
+    /* ───────────────────────── worker ───────────────────────── */
+
+    private void process(Channel ch, Connection conn, Run run, Inbound in) {
+        if (!run.started.compareAndSet(false, true)) {
+            return; // cancelled while queued
+        }
+        run.attach(Thread.currentThread());
+        try {
+            if (run.cancelled) {
+                return; // cancelled between claiming the run and attaching to it
+            }
+            ChatResult result = (in.sessionId == null && in.model == null)
+                    ? chatService.ask(in.message)
+                    : chatService.continueChat(ChatRequestDto.builder()
+                            .message(in.message)
+                            .sessionId(in.sessionId)
+                            .model(in.model == null ? "" : in.model)
+                            .build());
+            if (run.cancelled || !ch.isActive()) {
+                return;
+            }
+            String text = (result == null) ? null : result.content();
+            if (text == null || text.isBlank()) {
+                text = "답변 생성 중 빈 응답이 발생했습니다. 다른 질문으로 다시 시도해 주세요.";
+            }
+            // Serialize here, off the event loop; the loop only writes.
+            int n = Math.max(1, tokenChunkChars);
+            List<String> frames = new ArrayList<>(text.length() / n + 2);
+            for (int i = 0; i < text.length(); i += n) {
+                frames.add(encode(run.id, ChatStreamEvent.token(text.substring(i, Math.min(text.length(), i + n)))));
+            }
+            frames.add(encode(run.id, ChatStreamEvent.done(
+                    result == null ? null : result.modelUsed(),
+                    result != null && result.ragUsed(),
+                    in.sessionId)));
+            enqueue(ch, conn, run, frames);
+        } catch (Throwable t) {
+            if (!run.cancelled) {
+                String msg = (t.getMessage() == null) ? t.getClass().getSimpleName() : t.getMessage();
+                enqueue(ch, conn, run, List.of(encode(run.id, ChatStreamEvent.error(msg))));
+            }
+        } finally {
+            run.detach();
+            Thread.interrupted(); // a cancel interrupt must not leak into the next pooled task
+            finish(conn, run);
+        }
+    }
 
-        /* ChatService → ChatResult 구조로 변경됨 (inner class → top-level record) */
-        ChatResult result = chatService.ask(userMsg);
+    private void finish(Connection conn, Run run) {
+        if (conn.runs.remove(run.id, run)) {
+            conn.inFlight.decrementAndGet();
+        }
+    }
 
-        String answer    = result.content();  // GPT 응답
-        String usedModel = result.modelUsed();
+    /* ───────────────────────── outbound ───────────────────────── */
 
-        /* 기본 : 답변 내용만 클라이언트로 */
-        ctx.channel().writeAndFlush(new TextWebSocketFrame(answer));
+    private void send(Channel ch, Connection conn, String id, ChatStreamEvent ev) {
+        enqueue(ch, conn, null, List.of(encode(id, ev)));
+    }
 
-        /* ▼ 필요하면 모델명을 포함한 JSON 형식으로 전송 가능
-        String payload = "{\"model\":\"" + usedModel + "\","
-                       + "\"content\":\"" + answer.replace("\"","\\\"") + "\"}";
-        ctx.channel().writeAndFlush(new TextWebSocketFrame(payload));
-        */
+    /** Hands frames to the channel's event loop; dropped if {@code run} was cancelled meanwhile. */
+    private void enqueue(Channel ch, Connection conn, Run run, List<String> frames) {
+        if (ch.eventLoop().inEventLoop()) {
+            if (run == null || !run.cancelled) {
+                conn.pending.addAll(frames);
+                drain(ch, conn);
+            }
+            return;
+        }
+        ch.eventLoop().execute(() -> enqueue(ch, conn, run, frames));
+    }
+
+    /** Event loop only: writes queued frames while the channel stays writable. */
+    private static void drain(Channel ch, Connection conn) {
+        if (!ch.isActive()) {
+            conn.pending.clear();
+            return;
+        }
+        boolean wrote = false;
+        String next;
+        while (ch.isWritable() && (next = conn.pending.poll()) != null) {
+            ch.write(new TextWebSocketFrame(next));
+            wrote = true;
+        }
+        if (wrote) {
+            ch.flush();
+        }
+    }
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+        Channel ch = ctx.channel();
+        if (ch.isWritable()) {
+            Connection conn = ch.attr(CONN).get();
+            if (conn != null) {
+                drain(ch, conn);
+            }
+        }
+        super.channelWritabilityChanged(ctx);
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        Connection conn = ctx.channel().attr(CONN).get();
+        if (conn != null) {
+            // Stop delivery only; like the SSE endpoint, a disconnect does not cancel the session run.
+            for (Run r : conn.runs.values()) {
+                r.cancelled = true;
+                if (r.started.compareAndSet(false, true)) {
+                    finish(conn, r);
+                }
+            }
+            conn.pending.clear();
+        }
+        super.channelInactive(ctx);
     }
 
     @Override
     public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
-        cause.printStackTrace();
+        log.warn("[WS] closing channel {}: {}", ctx.channel().remoteAddress(), cause.toString());
         ctx.close();
     }
-}
\ No newline at end of file
+
+    private static String encode(String id, ChatStreamEvent ev) {
+        return encode(id, ev, null, null);
+    }
+
+    private static String encode(String id, ChatStreamEvent ev, String extraField, String extraValue) {
+        ObjectNode node = MAPPER.valueToTree(ev);
+        if (id != null) {
+            node.put("id", id);
+        }
+        if (extraField != null) {
+            node.put(extraField, extraValue);
+        }
+        return node.toString();
+    }
+
+    private static Connection connection(Channel ch) {
+        Connection c = ch.attr(CONN).get();
+        if (c == null) {
+            c = new Connection();
+            Connection prev = ch.attr(CONN).setIfAbsent(c);
+            if (prev != null) {
+                c = prev;
+            }
+        }
+        return c;
+    }
+
+    /* ───────────────────────── executor ───────────────────────── */
+
+    private ThreadPoolExecutor executor() {
+        ThreadPoolExecutor ex = executor;
+        if (ex == null) {
+            synchronized (this) {
+                ex = executor;
+                if (ex == null) {
+                    int threads = Math.max(1, executorThreads);
+                    AtomicInteger n = new AtomicInteger();
+                    ex = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                            r -> {
+                                Thread t = new Thread(r, "ws-chat-" + n.incrementAndGet());
+                                t.setDaemon(true);
+                                return t;
+                            },
+                            new ThreadPoolExecutor.AbortPolicy());
+                    ex.allowCoreThreadTimeOut(true);
+                    ex.prestartAllCoreThreads();
+                    executor = ex;
+                }
+            }
+        }
+        return ex;
+    }
+
+    /** Creates the pool at startup so the first requests do not spawn threads on an event loop. */
+    @PostConstruct
+    public void init() {
+        executor();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ThreadPoolExecutor ex = executor;
+        if (ex != null) {
+            ex.shutdown();
+        }
+    }
+
+    /** Pool/queue counters for diagnostics. */
+    public Map<String, Object> stats() {
+        ThreadPoolExecutor ex = executor;
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("active", ex == null ? 0 : ex.getActiveCount());
+        m.put("queued", ex == null ? 0 : ex.getQueue().size());
+        m.put("completed", ex == null ? 0L : ex.getCompletedTaskCount());
+        m.put("rejected", rejected.get());
+        m.put("maxInFlightPerConnection", maxInFlightPerConnection);
+        return m;
+    }
+
+    /* ───────────────────────── state ───────────────────────── */
+
+    /** Per-channel state; {@code pending} is touched on the event loop only. */
+    private static final class Connection {
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicLong seq = new AtomicLong();
+        final Map<String, Run> runs = new ConcurrentHashMap<>();
+        final ArrayDeque<String> pending = new ArrayDeque<>();
+    }
+
+    private static final class Run {
+        final String id;
+        final Long sessionId;
+        final AtomicBoolean started = new AtomicBoolean();
+        volatile boolean cancelled;
+        /** Worker running this request; guarded by {@code this} so an interrupt never hits a later task. */
+        private Thread worker;
+        private boolean done;
+
+        Run(String id, Long sessionId) {
+            this.id = id;
+            this.sessionId = sessionId;
+        }
+
+        synchronized void attach(Thread t) {
+            worker = t;
+        }
+
+        synchronized void detach() {
+            worker = null;
+            done = true;
+        }
+
+        /** Interrupts the worker if the request is still running on it; returns the backend outcome. */
+        synchronized String interrupt() {
+            if (worker != null) {
+                worker.interrupt();
+                return "interrupted";
+            }
+            // Not attached yet: process() sees the cancel flag and never calls the backend.
+            return done ? "completed" : "not-started";
+        }
+    }
+
+    private static final class Inbound {
+        String type = "ask";
+        String id;
+        String message;
+        String model;
+        Long sessionId;
+
+        static Inbound parse(String text) {
+            Inbound in = new Inbound();
+            String t = (text == null) ? "" : text.trim();
+            if (!t.startsWith("{")) {
+                in.message = text;
+                return in;
+            }
+            try {
+                JsonNode n = MAPPER.readTree(t);
+                in.type = n.path("type").asText("ask").toLowerCase(Locale.ROOT);
+                in.id = n.hasNonNull("id") ? n.get("id").asText() : null;
+                in.message = n.hasNonNull("message") ? n.get("message").asText() : null;
+                in.model = n.hasNonNull("model") ? n.get("model").asText() : null;
+                JsonNode sid = n.get("sessionId");
+                if (sid != null && sid.canConvertToLong()) {
+                    in.sessionId = sid.asLong();
+                } else if (sid != null && sid.isTextual()) {
+                    String s = sid.asText().replaceFirst("^chat-", "");
+                    in.sessionId = s.matches("\\d+") ? Long.parseLong(s) : null;
+                }
+            } catch (Exception e) {
+                // fail-soft: not JSON after all, treat the frame as the message
+                in.message = text;
+            }
+            return in;
+        }
+    }
+}
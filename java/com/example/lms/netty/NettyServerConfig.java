@@ -27,6 +27,10 @@ public class NettyServerConfig implements DisposableBean {
     @Value("${netty.port:0}")           private String portStr;
     @Value("${netty.boss-threads:1}")   private String bossCntStr;
     @Value("${netty.worker-threads:4}") private String workerCntStr;
+    // Outbound buffer bounds per connection; above "high" the channel reports unwritable and the
+    // WebSocket handler pauses its frame queue until the buffer drains below "low".
+    @Value("${netty.write-buffer.low-bytes:32768}")  private String wbLowStr;
+    @Value("${netty.write-buffer.high-bytes:65536}") private String wbHighStr;
 
     private final ChatChannelInitializer initializer;
 
@@ -47,6 +51,8 @@ public class NettyServerConfig implements DisposableBean {
         port = safeParseInt(portStr, 0);
         int bossCnt = safeParseInt(bossCntStr, 1);
         int workerCnt = safeParseInt(workerCntStr, 4);
+        int wbLow = safeParseInt(wbLowStr, 32 * 1024);
+        int wbHigh = Math.max(wbLow, safeParseInt(wbHighStr, 64 * 1024));
 
         if (port <= 0) {
             log.info("[NETTY_BIND_SKIP] Netty disabled (port<=0){}", LogCorrelation.suffix());
@@ -61,7 +67,8 @@ public class NettyServerConfig implements DisposableBean {
                 .channel(NioServerSocketChannel.class)
                 .childHandler(initializer)
                 .option(ChannelOption.SO_BACKLOG, 128)
-                .childOption(ChannelOption.SO_KEEPALIVE, true);
+                .childOption(ChannelOption.SO_KEEPALIVE, true)
+                .childOption(ChannelOption.WRITE_BUFFER_WATER_MARK, new WriteBufferWaterMark(wbLow, wbHigh));
 
         try {
             ChannelFuture f = b.bind(port).sync();
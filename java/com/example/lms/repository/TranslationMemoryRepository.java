@@ -28,6 +28,20 @@ public interface TranslationMemoryRepository extends JpaRepository<TranslationMe
     /** Bulk lookup to eliminate N+1 in training/reinforcement. */
     List<TranslationMemory> findBySourceHashIn(Collection<String> sourceHashes);
 
+    /**
+     * 증분 BM25 인덱싱용: {@code since} 이후 내용(updated_at) 또는 사용(last_used_at)이 바뀐 행을
+     * id 오름차순 keyset 페이지로 조회한다.
+     */
+    @Query("""
+        SELECT t FROM TranslationMemory t
+         WHERE (t.updatedAt >= :since OR t.lastUsedAt >= :since)
+           AND t.id > :afterId
+         ORDER BY t.id ASC
+    """)
+    List<TranslationMemory> findChangedSince(@Param("since") LocalDateTime since,
+                                             @Param("afterId") long afterId,
+                                             Pageable pageable);
+
     Page<TranslationMemory> findByStatusOrderByCreatedAtAsc(TranslationMemory.MemoryStatus status, Pageable pageable);
 
     /**
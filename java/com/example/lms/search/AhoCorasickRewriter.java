@@ -0,0 +1,219 @@
+package com.example.lms.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable dictionary rewriter compiled into an Aho–Corasick automaton.
+ *
+ * <p>{@link #rewrite(String)} replaces every dictionary key found in the input in a single
+ * left-to-right pass using leftmost-longest, non-overlapping semantics: among the matches that
+ * start earliest the longest key wins, and scanning resumes right after the replaced span.
+ * Replacement values are emitted verbatim and are never re-scanned.</p>
+ *
+ * <p>Instances are built once (at load/reload time) and are safe to share across threads.</p>
+ */
+public final class AhoCorasickRewriter {
+
+    private static final char[] NO_CHARS = new char[0];
+    private static final int[] NO_INTS = new int[0];
+
+    public static final AhoCorasickRewriter EMPTY = compile(Map.of());
+
+    /** Per-state outgoing edges, sorted by label for binary search. */
+    private final char[][] labels;
+    private final int[][] targets;
+    private final int[] fail;
+    /** Nearest proper suffix state that is terminal, or -1. */
+    private final int[] dictLink;
+    private final int[] depth;
+    /** Replacement for terminal states, {@code null} otherwise. */
+    private final String[] output;
+    private final int size;
+
+    private AhoCorasickRewriter(char[][] labels, int[][] targets, int[] fail, int[] dictLink,
+                                int[] depth, String[] output, int size) {
+        this.labels = labels;
+        this.targets = targets;
+        this.fail = fail;
+        this.dictLink = dictLink;
+        this.depth = depth;
+        this.output = output;
+        this.size = size;
+    }
+
+    /** Compiles {@code key -> replacement}; null/empty keys and null values are skipped. */
+    public static AhoCorasickRewriter compile(Map<String, String> dict) {
+        List<TreeMap<Character, Integer>> edges = new ArrayList<>();
+        List<String> out = new ArrayList<>();
+        List<Integer> dep = new ArrayList<>();
+        edges.add(new TreeMap<>());
+        out.add(null);
+        dep.add(0);
+        int size = 0;
+
+        if (dict != null) {
+            for (Map.Entry<String, String> e : dict.entrySet()) {
+                String key = e.getKey();
+                if (key == null || key.isEmpty() || e.getValue() == null) {
+                    continue;
+                }
+                int s = 0;
+                for (int i = 0; i < key.length(); i++) {
+                    Integer next = edges.get(s).get(key.charAt(i));
+                    if (next == null) {
+                        next = edges.size();
+                        edges.add(new TreeMap<>());
+                        out.add(null);
+                        dep.add(i + 1);
+                        edges.get(s).put(key.charAt(i), next);
+                    }
+                    s = next;
+                }
+                if (out.get(s) == null) {
+                    size++;
+                }
+                out.set(s, e.getValue());
+            }
+        }
+
+        int n = edges.size();
+        char[][] labels = new char[n][];
+        int[][] targets = new int[n][];
+        for (int s = 0; s < n; s++) {
+            TreeMap<Character, Integer> m = edges.get(s);
+            if (m.isEmpty()) {
+                labels[s] = NO_CHARS;
+                targets[s] = NO_INTS;
+                continue;
+            }
+            char[] l = new char[m.size()];
+            int[] t = new int[m.size()];
+            int i = 0;
+            for (Map.Entry<Character, Integer> e : m.entrySet()) {
+                l[i] = e.getKey();
+                t[i] = e.getValue();
+                i++;
+            }
+            labels[s] = l;
+            targets[s] = t;
+        }
+
+        // BFS failure links; dictLink points at the nearest terminal proper suffix.
+        int[] fail = new int[n];
+        int[] dictLink = new int[n];
+        Arrays.fill(dictLink, -1);
+        String[] output = out.toArray(new String[0]);
+        Deque<Integer> queue = new ArrayDeque<>();
+        for (int t : targets[0]) {
+            fail[t] = 0;
+            queue.add(t);
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            for (int i = 0; i < labels[s].length; i++) {
+                char c = labels[s][i];
+                int t = targets[s][i];
+                int f = fail[s];
+                int g;
+                while ((g = step(labels, targets, f, c)) < 0 && f != 0) {
+                    f = fail[f];
+                }
+                fail[t] = Math.max(g, 0);
+                int ft = fail[t];
+                dictLink[t] = output[ft] != null ? ft : dictLink[ft];
+                queue.add(t);
+            }
+        }
+
+        int[] depth = new int[n];
+        for (int s = 0; s < n; s++) {
+            depth[s] = dep.get(s);
+        }
+        return new AhoCorasickRewriter(labels, targets, fail, dictLink, depth, output, size);
+    }
+
+    /** Number of dictionary entries. */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** Applies all replacements in one pass; returns {@code text} itself when nothing matched. */
+    public String rewrite(String text) {
+        if (text == null || size == 0 || text.isEmpty()) {
+            return text;
+        }
+        StringBuilder sb = null;
+        int copied = 0;
+        int state = 0;
+        int matchStart = -1;
+        int matchEnd = -1;
+        String matchValue = null;
+        int i = 0;
+        int len = text.length();
+
+        while (true) {
+            boolean atEnd = i >= len;
+            if (!atEnd) {
+                state = next(state, text.charAt(i));
+                i++;
+            }
+            if (matchValue != null && (atEnd || i - depth[state] > matchStart)) {
+                // No key can extend from matchStart any more: commit and resume after the match.
+                if (sb == null) {
+                    sb = new StringBuilder(len + 16);
+                }
+                sb.append(text, copied, matchStart).append(matchValue);
+                copied = matchEnd;
+                i = matchEnd;
+                state = 0;
+                matchValue = null;
+                continue;
+            }
+            if (atEnd) {
+                break;
+            }
+            int term = output[state] != null ? state : dictLink[state];
+            if (term >= 0) {
+                int start = i - depth[term];
+                if (matchValue == null || start <= matchStart) {
+                    matchStart = start;
+                    matchEnd = i;
+                    matchValue = output[term];
+                }
+            }
+        }
+        if (sb == null) {
+            return text;
+        }
+        return sb.append(text, copied, len).toString();
+    }
+
+    private int next(int state, char c) {
+        int s = state;
+        while (true) {
+            int t = step(labels, targets, s, c);
+            if (t >= 0) {
+                return t;
+            }
+            if (s == 0) {
+                return 0;
+            }
+            s = fail[s];
+        }
+    }
+
+    private static int step(char[][] labels, int[][] targets, int s, char c) {
+        int idx = Arrays.binarySearch(labels[s], c);
+        return idx >= 0 ? targets[s][idx] : -1;
+    }
+}
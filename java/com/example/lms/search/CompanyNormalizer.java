@@ -21,11 +21,11 @@ public class CompanyNormalizer {
     private static final Pattern LEGAL_SUFFIX =
             Pattern.compile("(주식회사|\\(주\\)|㈜|유한회사|LLC|Inc\\.?|Ltd\\.?|Corp\\.?)\\b",
                     Pattern.CASE_INSENSITIVE);
-    /** Map of common typos to their corrections. */
-    private static final Map<String, String> COMMON_TYPO = Map.of(
+    /** Common typos compiled once into a single-pass rewriter. */
+    private static final AhoCorasickRewriter COMMON_TYPO = AhoCorasickRewriter.compile(Map.of(
             "에대해", "에 대해",
             "알와봐", "알아봐"
-    );
+    ));
 
     /**
      * Normalize the given string by correcting typos and removing legal suffixes.
@@ -37,9 +37,7 @@ public class CompanyNormalizer {
         if (q == null) return null;
         String s = q.trim();
         // correct known typos
-        for (var e : COMMON_TYPO.entrySet()) {
-            s = s.replace(e.getKey(), e.getValue());
-        }
+        s = COMMON_TYPO.rewrite(s);
         // remove corporate suffixes
         s = LEGAL_SUFFIX.matcher(s).replaceAll("");
         // collapse multiple spaces
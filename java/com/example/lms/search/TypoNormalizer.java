@@ -4,6 +4,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.boot.context.properties.bind.Bindable;
 import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.core.env.Environment;
 import org.springframework.stereotype.Component;
 import java.util.*;
@@ -17,15 +19,42 @@ import org.springframework.context.annotation.Primary; // + @Primary import 추
 public class TypoNormalizer {
 
     private static final Logger log = LoggerFactory.getLogger(TypoNormalizer.class);
-    private final Map<String, String> map;
+    private static final String PROP = "query-hygiene.typo-map";
+
+    private final Environment env;
+    /** 로드/리로드 시점에 한 번만 컴파일된 오토마톤 (요청마다 정렬/순회하지 않음) */
+    private volatile AhoCorasickRewriter rewriter;
 
     public TypoNormalizer(Environment env) {
+        this.env = env;
+        this.rewriter = AhoCorasickRewriter.compile(load(env));
+        log.info("TypoNormalizer loaded {} entries", this.rewriter.size());
+    }
+
+    /** 설정 변경(/actuator/refresh 등) 시 typo-map 키가 바뀌었으면 오토마톤을 다시 컴파일 */
+    @EventListener
+    public void onEnvironmentChange(EnvironmentChangeEvent event) {
+        for (String key : event.getKeys()) {
+            if (key != null && key.startsWith(PROP)) {
+                reload();
+                return;
+            }
+        }
+    }
+
+    public void reload() {
+        AhoCorasickRewriter next = AhoCorasickRewriter.compile(load(env));
+        this.rewriter = next;
+        log.info("TypoNormalizer reloaded {} entries", next.size());
+    }
+
+    private static Map<String, String> load(Environment env) {
         Map<String, String> m = new HashMap<>();
 
         // 1) YAML/Properties 트리 바인딩 (가장 표준)
         try {
             Map<String, String> bound = Binder.get(env)
-                    .bind("query-hygiene.typo-map", Bindable.mapOf(String.class, String.class))
+                    .bind(PROP, Bindable.mapOf(String.class, String.class))
                     .orElseGet(Collections::emptyMap);
             m.putAll(bound);
         } catch (Exception ex) {
@@ -34,7 +63,7 @@ public class TypoNormalizer {
 
         // 2) 평탄키(단일 문자열)로 들어온 경우 대비: JSON 또는 'a:b,b:c' 포맷도 허용
         if (m.isEmpty()) {
-            String raw = env.getProperty("query-hygiene.typo-map");
+            String raw = env.getProperty(PROP);
             if (raw != null && !raw.isBlank()) {
                 String s = raw.trim();
                 try {
@@ -62,22 +91,12 @@ public class TypoNormalizer {
             }
         }
 
-        // 불변 + NPE 방지
-        this.map = Collections.unmodifiableMap(m);
-        log.info("TypoNormalizer loaded {} entries", this.map.size());
+        return m;
     }
 
     public String normalize(String q) {
-        if (q == null || q.isBlank() || map.isEmpty()) return q;
-
-        String r = q;
-        // 긴 키 우선 치환(부분키 충돌 방지)
-        List<Map.Entry<String, String>> entries = new ArrayList<>(map.entrySet());
-        entries.sort((a, b) -> Integer.compare(b.getKey().length(), a.getKey().length()));
-
-        for (var e : entries) {
-            r = r.replace(e.getKey(), e.getValue());
-        }
-        return r;
+        if (q == null || q.isBlank()) return q;
+        // 단일 패스, leftmost-longest 치환(부분키 충돌 방지)
+        return rewriter.rewrite(q);
     }
 }
\ No newline at end of file
@@ -0,0 +1,617 @@
+package com.example.lms.search.provider;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Provider-agnostic, restart-surviving second-tier cache for web search snippets.
+ *
+ * <p>Sits below the per-process provider caches (Naver {@code AsyncLoadingCache}, Brave
+ * {@code webSearchCache}) used by {@link HybridWebSearchProvider}. Entries are keyed by
+ * {@code (provider, policy, normalized query)} and stored in an append-only JSONL file with an
+ * in-memory offset index:</p>
+ * <ul>
+ *   <li><b>TTL + stale-while-revalidate</b>: younger than {@code fresh-ttl} (default: the Naver
+ *   L1 TTL) is served as fresh. Within a short {@code swr-window} after that a caller may serve
+ *   it while refreshing in the background (single-flight via {@link #beginRevalidate}); up to
+ *   {@code fresh-ttl + stale-ttl} it is only a fallback for cache-only / fail-soft paths.
+ *   Older entries are dropped.</li>
+ *   <li><b>Size bound</b>: {@code max-entries}/{@code max-bytes}, least recently used first;
+ *   eviction and compaction of dead records run on a background thread, not inside
+ *   {@link #put}.</li>
+ *   <li><b>Warm load</b>: the hottest keys are recorded on shutdown/compaction and their values
+ *   are preloaded into memory on startup.</li>
+ * </ul>
+ *
+ * <p>All I/O is fail-soft: an unusable directory disables the cache instead of failing search.</p>
+ */
+@Component
+public class WebSearchL2Cache implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(WebSearchL2Cache.class);
+    private static final String DATA_FILE = "l2.jsonl";
+    private static final String HOT_FILE = "hot-keys.txt";
+    private static final long MIN_COMPACT_BYTES = 4L * 1024L * 1024L;
+
+    /**
+     * Cached snippets; {@code fresh} within the fresh TTL, {@code revalidatable} within the
+     * stale-while-revalidate window (fresh implies revalidatable).
+     */
+    public record Hit(List<String> snippets, boolean fresh, boolean revalidatable, long ageMs) {
+    }
+
+    public record Stats(int entries, long liveBytes, long deadBytes, long freshHits, long staleHits,
+                        long misses, long writes, long evictions) {
+    }
+
+    private static final class Entry {
+        long offset;
+        int length;
+        long writtenAt;
+        int hits;
+        long lastAccess;
+    }
+
+    private final ObjectMapper om = new ObjectMapper();
+    private final Path dir;
+    private final long freshMs;
+    private final long staleMs;
+    private final long swrMs;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final int warmKeys;
+    private final int memoryEntries;
+
+    /** Guarded by {@code this}. */
+    private final Map<String, Entry> index = new HashMap<>();
+    private final LinkedHashMap<String, List<String>> memory;
+    private FileChannel channel;
+    private long endOffset;
+    private long liveBytes;
+    private long deadBytes;
+    private volatile boolean enabled;
+
+    private final Set<String> revalidating = ConcurrentHashMap.newKeySet();
+    private final AtomicLong freshHits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicBoolean maintenanceQueued = new AtomicBoolean();
+    private final ExecutorService maintenance = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "web-l2-maintenance");
+        t.setDaemon(true);
+        return t;
+    });
+
+    @Autowired
+    public WebSearchL2Cache(
+            @Value("${gpt-search.l2-cache.enabled:true}") boolean enabled,
+            @Value("${gpt-search.l2-cache.dir:./data/web-search-l2}") String dir,
+            @Value("${gpt-search.l2-cache.fresh-ttl-sec:${naver.web.cache.ttl-sec:300}}") long freshTtlSec,
+            @Value("${gpt-search.l2-cache.swr-window-sec:60}") long swrWindowSec,
+            @Value("${gpt-search.l2-cache.stale-ttl-sec:259200}") long staleTtlSec,
+            @Value("${gpt-search.l2-cache.max-entries:50000}") int maxEntries,
+            @Value("${gpt-search.l2-cache.max-bytes:268435456}") long maxBytes,
+            @Value("${gpt-search.l2-cache.warm-keys:500}") int warmKeys,
+            @Value("${gpt-search.l2-cache.memory-entries:2000}") int memoryEntries) {
+        this(enabled, Paths.get(dir), freshTtlSec * 1000L, swrWindowSec * 1000L, staleTtlSec * 1000L,
+                maxEntries, maxBytes, warmKeys, memoryEntries);
+    }
+
+    WebSearchL2Cache(boolean enabled, Path dir, long freshMs, long staleMs, int maxEntries, long maxBytes,
+                     int warmKeys, int memoryEntries) {
+        this(enabled, dir, freshMs, staleMs, staleMs, maxEntries, maxBytes, warmKeys, memoryEntries);
+    }
+
+    WebSearchL2Cache(boolean enabled, Path dir, long freshMs, long swrMs, long staleMs, int maxEntries,
+                     long maxBytes, int warmKeys, int memoryEntries) {
+        this.dir = dir;
+        this.freshMs = Math.max(0L, freshMs);
+        this.staleMs = Math.max(0L, staleMs);
+        this.swrMs = Math.max(0L, Math.min(swrMs, this.staleMs));
+        this.maxEntries = Math.max(1, maxEntries);
+        this.maxBytes = Math.max(1L, maxBytes);
+        this.warmKeys = Math.max(0, warmKeys);
+        this.memoryEntries = Math.max(0, memoryEntries);
+        this.memory = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<String>> eldest) {
+                return size() > WebSearchL2Cache.this.memoryEntries;
+            }
+        };
+        if (enabled) {
+            try {
+                open();
+                this.enabled = true;
+                if (overBounds()) {
+                    scheduleMaintenance();
+                }
+            } catch (Exception e) {
+                // fail-soft: search keeps working with L1 only
+                log.warn("[WebL2] disabled: cannot open {} ({})", dir, e.toString());
+                closeChannel();
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** Builds the storage key; the query is trimmed, lower-cased and whitespace-collapsed. */
+    public static String key(String provider, String query, String policy) {
+        String p = provider == null ? "" : provider.trim().toLowerCase(Locale.ROOT);
+        String pol = policy == null ? "" : policy.trim();
+        String q = query == null ? "" : query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return p + '\u0001' + pol + '\u0001' + q;
+    }
+
+    /** Fresh or stale hit, or {@code null} on miss/expiry. Never touches the network. */
+    public Hit get(String provider, String query, String policy) {
+        if (!enabled || query == null || query.isBlank()) {
+            return null;
+        }
+        String k = key(provider, query, policy);
+        long now = System.currentTimeMillis();
+        synchronized (this) {
+            Entry e = index.get(k);
+            if (e == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            long age = Math.max(0L, now - e.writtenAt);
+            if (age > freshMs + staleMs) {
+                drop(k, e);
+                misses.incrementAndGet();
+                return null;
+            }
+            List<String> v = memory.get(k);
+            if (v == null) {
+                v = readValue(e);
+                if (v == null) {
+                    drop(k, e);
+                    misses.incrementAndGet();
+                    return null;
+                }
+                memory.put(k, v);
+            }
+            e.hits++;
+            e.lastAccess = now;
+            boolean fresh = age <= freshMs;
+            (fresh ? freshHits : staleHits).incrementAndGet();
+            return new Hit(v, fresh, age <= freshMs + swrMs, age);
+        }
+    }
+
+    /** Stores a non-empty result (empty results are not cached) and ends any revalidation. */
+    public void put(String provider, String query, String policy, List<String> snippets) {
+        if (!enabled || query == null || query.isBlank()) {
+            return;
+        }
+        String k = key(provider, query, policy);
+        revalidating.remove(k);
+        if (snippets == null || snippets.isEmpty()) {
+            return;
+        }
+        List<String> v = new ArrayList<>(snippets.size());
+        for (String s : snippets) {
+            if (s != null && !s.isBlank()) {
+                v.add(s);
+            }
+        }
+        if (v.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        try {
+            Map<String, Object> rec = new LinkedHashMap<>();
+            rec.put("k", k);
+            rec.put("t", now);
+            rec.put("v", v);
+            byte[] line = lineOf(rec);
+            synchronized (this) {
+                if (!enabled) {
+                    return;
+                }
+                long off = endOffset;
+                writeFully(line, off);
+                endOffset += line.length;
+                Entry prev = index.get(k);
+                Entry e = new Entry();
+                e.offset = off;
+                e.length = line.length;
+                e.writtenAt = now;
+                e.lastAccess = now;
+                if (prev != null) {
+                    e.hits = prev.hits;
+                    liveBytes -= prev.length;
+                    deadBytes += prev.length;
+                }
+                index.put(k, e);
+                liveBytes += line.length;
+                memory.put(k, Collections.unmodifiableList(v));
+                writes.incrementAndGet();
+                if (overBounds() || compactionDue()) {
+                    scheduleMaintenance();
+                }
+            }
+        } catch (Exception ex) {
+            // fail-soft
+            log.debug("[WebL2] put failed: {}", ex.toString());
+        }
+    }
+
+    /**
+     * Claims the background refresh of a stale entry.
+     *
+     * @return {@code true} for exactly one caller until {@link #put} or {@link #endRevalidate}
+     */
+    public boolean beginRevalidate(String provider, String query, String policy) {
+        return enabled && revalidating.add(key(provider, query, policy));
+    }
+
+    public void endRevalidate(String provider, String query, String policy) {
+        revalidating.remove(key(provider, query, policy));
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(index.size(), liveBytes, deadBytes, freshHits.get(), staleHits.get(), misses.get(),
+                writes.get(), evictions.get());
+    }
+
+    @PreDestroy
+    @Override
+    public synchronized void close() {
+        maintenance.shutdown();
+        if (!enabled) {
+            return;
+        }
+        enabled = false;
+        try {
+            writeHotKeys();
+            channel.force(false);
+        } catch (Exception e) {
+            // fail-soft
+        }
+        closeChannel();
+    }
+
+    // ─────────────────────────────────────────────────────────────────────────
+    // Storage
+    // ─────────────────────────────────────────────────────────────────────────
+
+    private synchronized void open() throws IOException {
+        Files.createDirectories(dir);
+        Path data = dir.resolve(DATA_FILE);
+        channel = FileChannel.open(data, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long good = replay(data);
+        if (good < channel.size()) {
+            log.warn("[WebL2] truncating torn tail of {} at {} (size={})", data, good, channel.size());
+            channel.truncate(good);
+        }
+        endOffset = good;
+        warmLoad();
+        log.info("[WebL2] opened {} entries={} liveBytes={} deadBytes={} warm={}",
+                data, index.size(), liveBytes, deadBytes, memory.size());
+    }
+
+    /** Rebuilds the index from the log; returns the offset just past the last complete record. */
+    private long replay(Path data) throws IOException {
+        long now = System.currentTimeMillis();
+        long offset = 0L;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(data), 64 * 1024)) {
+            ByteArrayOutputStream line = new ByteArrayOutputStream(1024);
+            int b;
+            while ((b = in.read()) >= 0) {
+                if (b != '\n') {
+                    line.write(b);
+                    continue;
+                }
+                byte[] bytes = line.toByteArray();
+                line.reset();
+                int length = bytes.length + 1;
+                JsonNode n;
+                try {
+                    n = om.readTree(bytes);
+                } catch (Exception bad) {
+                    n = null;
+                }
+                if (n != null && n.hasNonNull("k") && n.has("t")) {
+                    String k = n.get("k").asText();
+                    long t = n.get("t").asLong();
+                    Entry prev = index.remove(k);
+                    if (prev != null) {
+                        liveBytes -= prev.length;
+                        deadBytes += prev.length;
+                    }
+                    if (now - t <= freshMs + staleMs) {
+                        Entry e = new Entry();
+                        e.offset = offset;
+                        e.length = length;
+                        e.writtenAt = t;
+                        e.lastAccess = t;
+                        index.put(k, e);
+                        liveBytes += length;
+                    } else {
+                        deadBytes += length;
+                    }
+                } else {
+                    deadBytes += length;
+                }
+                offset += length;
+            }
+        }
+        return offset;
+    }
+
+    private List<String> readValue(Entry e) {
+        try {
+            ByteBuffer buf = ByteBuffer.allocate(e.length);
+            long pos = e.offset;
+            while (buf.hasRemaining()) {
+                int n = channel.read(buf, pos + buf.position());
+                if (n < 0) {
+                    return null;
+                }
+            }
+            JsonNode v = om.readTree(buf.array()).get("v");
+            if (v == null || !v.isArray()) {
+                return null;
+            }
+            List<String> out = new ArrayList<>(v.size());
+            v.forEach(x -> out.add(x.asText()));
+            return Collections.unmodifiableList(out);
+        } catch (Exception ex) {
+            // fail-soft
+            return null;
+        }
+    }
+
+    private void writeFully(byte[] bytes, long pos) throws IOException {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        while (buf.hasRemaining()) {
+            channel.write(buf, pos + buf.position());
+        }
+    }
+
+    private byte[] lineOf(Map<String, Object> rec) throws IOException {
+        byte[] json = om.writeValueAsBytes(rec);
+        byte[] line = new byte[json.length + 1];
+        System.arraycopy(json, 0, line, 0, json.length);
+        line[json.length] = '\n';
+        return line;
+    }
+
+    private void drop(String k, Entry e) {
+        index.remove(k);
+        memory.remove(k);
+        liveBytes -= e.length;
+        deadBytes += e.length;
+    }
+
+    private boolean overBounds() {
+        return index.size() > maxEntries || liveBytes > maxBytes;
+    }
+
+    private boolean compactionDue() {
+        return deadBytes >= MIN_COMPACT_BYTES && deadBytes >= liveBytes;
+    }
+
+    /** Queues one eviction/compaction pass; puts never sort or rewrite the file themselves. */
+    private void scheduleMaintenance() {
+        if (!maintenanceQueued.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            maintenance.execute(this::maintain);
+        } catch (RejectedExecutionException closed) {
+            maintenanceQueued.set(false);
+        }
+    }
+
+    void maintain() {
+        maintenanceQueued.set(false);
+        try {
+            enforceBounds();
+            synchronized (this) {
+                if (enabled) {
+                    maybeCompact();
+                }
+            }
+        } catch (Exception e) {
+            // fail-soft
+            log.debug("[WebL2] maintenance failed: {}", e.toString());
+        }
+    }
+
+    /**
+     * Evicts least recently used entries (in 10% batches) while over the entry or byte bound.
+     * The LRU order is computed on a snapshot outside the monitor; entries touched or replaced
+     * since the snapshot are skipped.
+     */
+    private void enforceBounds() {
+        List<String> keys;
+        Entry[] entries;
+        long[] accessAt;
+        synchronized (this) {
+            if (!overBounds()) {
+                return;
+            }
+            keys = new ArrayList<>(index.size());
+            entries = new Entry[index.size()];
+            accessAt = new long[index.size()];
+            for (Map.Entry<String, Entry> x : index.entrySet()) {
+                int i = keys.size();
+                keys.add(x.getKey());
+                entries[i] = x.getValue();
+                accessAt[i] = x.getValue().lastAccess;
+            }
+        }
+        Integer[] order = new Integer[keys.size()];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        java.util.Arrays.sort(order, Comparator.comparingLong(i -> accessAt[i]));
+        int targetEntries = Math.max(0, maxEntries - Math.max(1, maxEntries / 10));
+        long targetBytes = maxBytes - maxBytes / 10;
+        synchronized (this) {
+            for (Integer i : order) {
+                if (index.size() <= targetEntries && liveBytes <= targetBytes) {
+                    break;
+                }
+                Entry e = entries[i];
+                if (index.get(keys.get(i)) != e || e.lastAccess != accessAt[i]) {
+                    continue;
+                }
+                drop(keys.get(i), e);
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /** Rewrites live records into a fresh file once dead records dominate. */
+    private void maybeCompact() {
+        if (!compactionDue()) {
+            return;
+        }
+        Path data = dir.resolve(DATA_FILE);
+        Path tmp = dir.resolve(DATA_FILE + ".compact");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long pos = 0L;
+            Map<String, Long> moved = new HashMap<>();
+            for (Map.Entry<String, Entry> x : index.entrySet()) {
+                Entry e = x.getValue();
+                ByteBuffer buf = ByteBuffer.allocate(e.length);
+                while (buf.hasRemaining()) {
+                    if (channel.read(buf, e.offset + buf.position()) < 0) {
+                        throw new IOException("short read at " + e.offset);
+                    }
+                }
+                buf.flip();
+                while (buf.hasRemaining()) {
+                    pos += out.write(buf, pos);
+                }
+                moved.put(x.getKey(), pos - e.length);
+            }
+            out.force(false);
+            closeChannel();
+            Files.move(tmp, data, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(data, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            moved.forEach((k, off) -> index.get(k).offset = off);
+            endOffset = pos;
+            deadBytes = 0L;
+            writeHotKeys();
+            log.info("[WebL2] compacted to {} entries / {} bytes", index.size(), pos);
+        } catch (Exception e) {
+            // fail-soft: a failed compaction leaves either the old file or no channel
+            log.warn("[WebL2] compaction failed: {}", e.toString());
+            if (channel == null || !channel.isOpen()) {
+                try {
+                    channel = FileChannel.open(data, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                } catch (IOException reopen) {
+                    enabled = false;
+                }
+            }
+        }
+    }
+
+    private void writeHotKeys() {
+        if (warmKeys <= 0) {
+            return;
+        }
+        try {
+            List<Map.Entry<String, Entry>> hot = new ArrayList<>(index.entrySet());
+            hot.sort(Comparator.<Map.Entry<String, Entry>>comparingInt(x -> x.getValue().hits)
+                    .thenComparingLong(x -> x.getValue().lastAccess)
+                    .reversed());
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < Math.min(warmKeys, hot.size()); i++) {
+                sb.append(om.writeValueAsString(hot.get(i).getKey())).append('\n');
+            }
+            Path tmp = dir.resolve(HOT_FILE + ".tmp");
+            Files.writeString(tmp, sb.toString(), StandardCharsets.UTF_8);
+            Files.move(tmp, dir.resolve(HOT_FILE), StandardCopyOption.REPLACE_EXISTING);
+        } catch (Exception e) {
+            // fail-soft
+            log.debug("[WebL2] hot-key snapshot failed: {}", e.toString());
+        }
+    }
+
+    private void warmLoad() {
+        Path hot = dir.resolve(HOT_FILE);
+        if (warmKeys <= 0 || memoryEntries <= 0 || !Files.isRegularFile(hot)) {
+            return;
+        }
+        try {
+            int loaded = 0;
+            for (String line : Files.readAllLines(hot, StandardCharsets.UTF_8)) {
+                if (loaded >= Math.min(warmKeys, memoryEntries)) {
+                    break;
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+                String k = om.readValue(line, String.class);
+                Entry e = index.get(k);
+                if (e == null) {
+                    continue;
+                }
+                List<String> v = readValue(e);
+                if (v != null) {
+                    memory.put(k, v);
+                    e.hits = 1;
+                    loaded++;
+                }
+            }
+        } catch (Exception e) {
+            // fail-soft
+            log.debug("[WebL2] warm load skipped: {}", e.toString());
+        }
+    }
+
+    private void closeChannel() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ignore) {
+        }
+    }
+}
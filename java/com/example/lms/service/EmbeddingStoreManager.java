@@ -69,6 +69,16 @@ public class EmbeddingStoreManager {
     @Autowired(required = false)
     private DefaultKnowledgeBaseService knowledgeBaseService;
 
+    @Autowired(required = false)
+    private com.example.lms.vector.LocalVectorStoreProvider localVectorStores;
+
+    @Autowired(required = false)
+    private com.example.lms.vector.EmbeddingFingerprint embeddingFingerprint;
+
+    /** Skip segments the local store already holds with identical text (warm restart). */
+    @Value("${vector.local.skip-known-on-bootstrap:true}")
+    private boolean skipKnownOnBootstrap;
+
     @Value("${vector.bootstrap.startup.enabled:false}")
     private boolean startupBootstrapEnabled;
 
@@ -109,6 +119,11 @@ public class EmbeddingStoreManager {
             log.info("Embedding Store에 추가할 유효한 문장이 없습니다.");
             return;
         }
+        items = withoutLocallyKnown(items);
+        if (items.isEmpty()) {
+            log.info("🗂️  (startup bootstrap) all segments already present in local store");
+            return;
+        }
 
         // Batch embed & upsert with stable ids.
         int batchSize = 256;
@@ -179,6 +194,11 @@ public class EmbeddingStoreManager {
                 bootstrapOnce.remove(key);
                 return false;
             }
+            items = withoutLocallyKnown(items);
+            if (items.isEmpty()) {
+                log.info("(lazy bootstrap) sid={} already present in local store", key);
+                return true;
+            }
             batchEmbed(items);
             log.info("✅ (lazy bootstrap) sid={} indexed={}", key, items.size());
             return true;
@@ -322,6 +342,25 @@ public class EmbeddingStoreManager {
         return new IndexedSegment(id, TextSegment.from(text, Metadata.from(meta)));
     }
 
+    /**
+     * Drops items whose stable id is already stored locally with the same text, the current
+     * embedding fingerprint and for the current writer, so a restart on the persistent local
+     * store does not re-embed the whole KB while a model or backend switch still does.
+     * Fail-soft: returns the input unchanged when the local store or fingerprint is unavailable.
+     */
+    private List<IndexedSegment> withoutLocallyKnown(List<IndexedSegment> items) {
+        if (!skipKnownOnBootstrap || localVectorStores == null || embeddingFingerprint == null) return items;
+        try {
+            com.example.lms.vector.LocalAnnEmbeddingStore local = localVectorStores.get();
+            if (local == null || local.size() == 0) return items;
+            String fp = embeddingFingerprint.fingerprint();
+            return items.stream().filter(it -> !local.isCurrent(it.id(), it.segment(), fp)).toList();
+        } catch (Exception e) {
+            log.debug("withoutLocallyKnown fail-soft: {}", e.toString());
+            return items;
+        }
+    }
+
     private void batchEmbed(List<IndexedSegment> items) {
         if (items == null || items.isEmpty()) return;
 
@@ -232,6 +232,10 @@ public class MemoryReinforcementService {
 
     private LoadingCache<String, Boolean> recentSnippetCache;
 
+    /** 기존 행의 hit/energy 갱신을 모아 배치로 쓰는 write-behind 버퍼 (없으면 즉시 쓰기) */
+    @Autowired(required = false)
+    private com.example.lms.service.reinforcement.TranslationMemoryWriteBehind writeBehind;
+
     // ▼▼ 신규 DI
     private final com.example.lms.strategy.StrategyPerformanceRepository perfRepo;
     private final com.example.lms.strategy.StrategyDecisionTracker strategyTracker;
@@ -360,13 +364,14 @@ public class MemoryReinforcementService {
         tm.setTemperature(temp);
 
         // DB 반영 (세션 격리 정책 우선)
-        int updated = (tm.getSessionId() != null)
-                ? memoryRepository.updateEnergyByHashAndSession(hash, tm.getSessionId(), energy, temp)
-                : memoryRepository.updateEnergyByHash(hash, energy, temp);
+        int updated = updateEnergy(tm, hash, energy, temp);
 
         if (updated == 0) {
             // 신규 등으로 업데이트 0이면 save
             memoryRepository.save(tm);
+            if (writeBehind != null) {
+                writeBehind.markKnown(hash);
+            }
         }
     }
 
@@ -433,7 +438,38 @@ public class MemoryReinforcementService {
      */
     @Transactional(propagation = Propagation.REQUIRES_NEW, noRollbackFor = DataIntegrityViolationException.class)
     public int bumpOnly(String hash) {
-        return memoryRepository.incrementHitCountBySourceHash(hash);
+        return incrementHit(hash);
+    }
+
+    /**
+     * hit_count+1. 이미 존재가 확인된 행은 write-behind 버퍼에 합산하고(1 반환),
+     * 그 외에는 즉시 UPDATE 후 결과 행 수를 반환한다.
+     */
+    private int incrementHit(String hash) {
+        if (writeBehind != null && writeBehind.recordHitIfKnown(hash)) {
+            return 1;
+        }
+        int rows = memoryRepository.incrementHitCountBySourceHash(hash);
+        if (rows > 0 && writeBehind != null) {
+            writeBehind.markKnown(hash);
+        }
+        return rows;
+    }
+
+    /** 에너지/온도 갱신. 로드된(id 있는) 행은 write-behind, 그 외엔 즉시 UPDATE (세션 격리 정책 우선). */
+    private int updateEnergy(TranslationMemory tm, String hash, double energy, double temp) {
+        String sid = tm.getSessionId();
+        if (tm.getId() != null && writeBehind != null && writeBehind.recordEnergy(hash, sid, energy, temp)) {
+            return 1;
+        }
+        return (sid != null)
+                ? memoryRepository.updateEnergyByHashAndSession(hash, sid, energy, temp)
+                : memoryRepository.updateEnergyByHash(hash, energy, temp);
+    }
+
+    /** Degraded outbox로 넘어간 write-behind 델타를 재적용한다. 해당 이벤트가 아니면 false. */
+    public boolean replayWriteBehind(ai.abandonware.nova.orch.storage.PendingMemoryEvent e) {
+        return writeBehind != null && writeBehind.replay(e);
     }
 
     public void applyFeedback(String sessionId,
@@ -546,7 +582,9 @@ public class MemoryReinforcementService {
             double energy = this.computeBoltzmannEnergy(tm); // ★ CHG
             double temp = this.annealTemperature(tm.getHitCount()); // ★ CHG
 
-            int updatedRows = memoryRepository.updateEnergyByHash(tm.getSourceHash(), energy, temp);
+            int updatedRows = (writeBehind != null && writeBehind.recordEnergy(tm.getSourceHash(), null, energy, temp))
+                    ? 1
+                    : memoryRepository.updateEnergyByHash(tm.getSourceHash(), energy, temp);
             if (updatedRows > 0) {
                 // SLF4J 자리표시자 포맷으로 보수
                 log.info("[Reinforce] Energy/Temp updated for hash: {}, E={}, T={}",
@@ -605,7 +643,7 @@ public class MemoryReinforcementService {
             // 2) 존재하면 hit++ (리포지토리에 있는 메서드 이름 맞춰 사용)
             int rows = 0;
             try {
-                rows = memoryRepository.incrementHitCountBySourceHash(sourceHash);
+                rows = incrementHit(sourceHash);
             } catch (Exception ignore) {
             }
 
@@ -631,7 +669,7 @@ public class MemoryReinforcementService {
             try {
                 String content = tryGetString(t, "getContent", "getText", "getBody");
                 if (StringUtils.hasText(content)) {
-                    memoryRepository.incrementHitCountBySourceHash(storageHashFromSnippet(content));
+                    incrementHit(storageHashFromSnippet(content));
                 }
             } catch (Exception e) {
                 log.debug("[Memory] Failed to read numeric hyperparameter via reflection", e);
@@ -1108,13 +1146,14 @@ public class MemoryReinforcementService {
         tm.setTemperature(temp);
 
         // 세션 정책에 따라 원자적 갱신
-        int updated = (tm.getSessionId() != null)
-                ? memoryRepository.updateEnergyByHashAndSession(hash, tm.getSessionId(), energy, temp)
-                : memoryRepository.updateEnergyByHash(hash, energy, temp);
+        int updated = updateEnergy(tm, hash, energy, temp);
 
         if (updated == 0) {
             // 최초 생성 등으로 업데이트가 0이면 저장
             memoryRepository.save(tm);
+            if (writeBehind != null) {
+                writeBehind.markKnown(hash);
+            }
         }
         // 저장 후에는 “봤다”로 마킹 → 이후 동일 스니펫은 shouldStore에서 중복으로 필터
         try {
@@ -134,6 +134,10 @@ public class NaverSearchService implements WebSearchProvider {
     @Autowired(required = false)
     private DebugEventStore debugEventStore;
 
+    /** Restart-surviving L2 under the in-process snippet cache (optional). */
+    @Autowired(required = false)
+    private com.example.lms.search.provider.WebSearchL2Cache webL2Cache;
+
     private static final Logger log = LoggerFactory.getLogger(NaverSearchService.class);
 
     // ---------------------------------------------------------------------
@@ -992,7 +996,7 @@ public class NaverSearchService implements WebSearchProvider {
                     // 혹시 남아 있을 수 있는 잔여 파이프 제거
                     q = q.replaceAll("^\\|+", "").trim();
                     SearchPolicy policy = policyFromCacheKey(key);
-                    return callNaverApiMono(q, policy).toFuture();
+                    return loadThroughL2(key, q, policy);
                 });
 
         this.recentSnippetCache = Caffeine.newBuilder()
@@ -1302,6 +1306,33 @@ public class NaverSearchService implements WebSearchProvider {
                 }
             }
 
+            // L2 (persistent) probe: stale entries are acceptable here so the fail-soft path
+            // can still answer during provider outages.
+            if (webL2Cache != null && webL2Cache.isEnabled()) {
+                for (SearchPolicy pol : policies) {
+                    if (pol == null) continue;
+                    for (String qv : qCandidates) {
+                        if (!StringUtils.hasText(qv)) continue;
+                        String key = cacheKeyFor(qv, pol);
+                        int sep = key.lastIndexOf("||");
+                        com.example.lms.search.provider.WebSearchL2Cache.Hit l2 =
+                                webL2Cache.get(L2_PROVIDER,
+                                        key.substring(sep + 2).replaceAll("^\\|+", "").trim(), key.substring(0, sep));
+                        if (l2 == null) continue;
+                        List<String> out = l2.snippets().stream().limit(topK).toList();
+                        try {
+                            TraceStore.put("web.naver.cacheOnly.hit", true);
+                            TraceStore.put("web.naver.cacheOnly.l2.hit", true);
+                            TraceStore.put("web.naver.cacheOnly.l2.fresh", l2.fresh());
+                            TraceStore.put("web.naver.cacheOnly.l2.ageMs", l2.ageMs());
+                            TraceStore.put("web.naver.cacheOnly.hit.count", out.size());
+                        } catch (Throwable ignore) {
+                        }
+                        return out;
+                    }
+                }
+            }
+
             try {
                 TraceStore.putIfAbsent("web.naver.cacheOnly.miss", true);
             } catch (Throwable ignore) {
@@ -3533,6 +3564,58 @@ public class NaverSearchService implements WebSearchProvider {
     /** 캐시 솔트(정책/필터/리스트 변화가 키에 반영되도록) */
 
     /** Default policy derived from configuration fields (read-only). */
+    private static final String L2_PROVIDER = "naver";
+
+    /**
+     * L1 loader: consult the persistent L2 first. Fresh hits skip the API call; hits inside the
+     * short SWR window are returned immediately while a single background call refreshes both
+     * tiers (stale-while-revalidate). Older stale hits and misses go to the API; non-empty
+     * results are written to L2, and an older stale hit only answers when the API fails or
+     * comes back empty (fail-soft).
+     */
+    private java.util.concurrent.CompletableFuture<List<String>> loadThroughL2(String key, String q, SearchPolicy policy) {
+        com.example.lms.search.provider.WebSearchL2Cache l2 = this.webL2Cache;
+        if (l2 == null || !l2.isEnabled()) {
+            return callNaverApiMono(q, policy).toFuture();
+        }
+        int sep = key.lastIndexOf("||");
+        String salt = sep >= 0 ? key.substring(0, sep) : "";
+        com.example.lms.search.provider.WebSearchL2Cache.Hit hit = l2.get(L2_PROVIDER, q, salt);
+        if (hit != null && hit.fresh()) {
+            TraceStore.inc("web.naver.l2.fresh");
+            return java.util.concurrent.CompletableFuture.completedFuture(hit.snippets());
+        }
+        if (hit != null && hit.revalidatable()) {
+            TraceStore.inc("web.naver.l2.stale");
+            if (l2.beginRevalidate(L2_PROVIDER, q, salt)) {
+                callNaverApiMono(q, policy).toFuture().whenComplete((fresh, err) -> {
+                    if (err == null && fresh != null && !fresh.isEmpty()) {
+                        l2.put(L2_PROVIDER, q, salt, fresh);
+                        cache.put(key, java.util.concurrent.CompletableFuture.completedFuture(fresh));
+                    } else {
+                        l2.endRevalidate(L2_PROVIDER, q, salt);
+                    }
+                });
+            }
+            return java.util.concurrent.CompletableFuture.completedFuture(hit.snippets());
+        }
+        return callNaverApiMono(q, policy).toFuture().handle((res, err) -> {
+            if (err == null && res != null && !res.isEmpty()) {
+                l2.put(L2_PROVIDER, q, salt, res);
+                return res;
+            }
+            if (hit != null) {
+                TraceStore.inc("web.naver.l2.stale.failsoft");
+                return hit.snippets();
+            }
+            if (err != null) {
+                throw (err instanceof java.util.concurrent.CompletionException ce) ? ce
+                        : new java.util.concurrent.CompletionException(err);
+            }
+            return res;
+        });
+    }
+
     private SearchPolicy defaultPolicy() {
         return SearchPolicy.fromConfig(
                 this.enableDomainFilter,
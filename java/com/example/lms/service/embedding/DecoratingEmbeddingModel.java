@@ -13,7 +13,9 @@ import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -72,13 +74,101 @@ public final class DecoratingEmbeddingModel implements EmbeddingModel {
         if (textSegments == null || textSegments.isEmpty()) {
             return Response.from(List.of());
         }
-        List<Embedding> out = new ArrayList<>(textSegments.size());
-        for (TextSegment ts : textSegments) {
-            out.add(embed(ts).content());
+        int n = textSegments.size();
+        float[][] vecs = new float[n][];
+        String[] keys = new String[n];
+
+        // cache pass; misses are grouped by key so repeated texts are embedded once
+        Map<String, List<Integer>> missByKey = new LinkedHashMap<>();
+        List<TextSegment> missSegments = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            TextSegment ts = textSegments.get(i);
+            if (ts == null) {
+                vecs[i] = new float[0];
+                continue;
+            }
+            keys[i] = cacheKeyFor(ts);
+            float[] hit = cache.getIfPresent(keys[i]);
+            if (hit != null && hit.length > 0) {
+                vecs[i] = hit;
+                continue;
+            }
+            List<Integer> slots = missByKey.get(keys[i]);
+            if (slots == null) {
+                slots = new ArrayList<>(1);
+                missByKey.put(keys[i], slots);
+                missSegments.add(ts);
+            }
+            slots.add(i);
+        }
+        if (isDbgSearch()) {
+            try {
+                TraceStore.put("embed.batch.size.last", n);
+                TraceStore.put("embed.batch.miss.last", missSegments.size());
+            } catch (Exception ignore) {
+            }
         }
+
+        if (!missSegments.isEmpty()) {
+            List<Embedding> computed = embedMissesInOneCall(missSegments);
+            int j = 0;
+            for (Map.Entry<String, List<Integer>> e : missByKey.entrySet()) {
+                float[] v = (computed != null) ? vectorOf(computed.get(j)) : null;
+                if (v == null) {
+                    // batch unavailable: per-item path keeps single-flight and stale fallback semantics
+                    v = embed(missSegments.get(j)).content().vector();
+                }
+                for (int slot : e.getValue()) vecs[slot] = v;
+                j++;
+            }
+        }
+
+        List<Embedding> out = new ArrayList<>(n);
+        for (float[] v : vecs) out.add(Embedding.from(v == null ? new float[0] : v));
         return Response.from(out);
     }
 
+    /**
+     * One delegate round-trip for all cache misses. Returns {@code null} when the batch call
+     * fails, returns the wrong count, or went through a fallback embedder (those vectors are
+     * not cached, same as the single-item path).
+     */
+    private List<Embedding> embedMissesInOneCall(List<TextSegment> misses) {
+        try {
+            TraceStore.put("embed.failover.used.cur", null);
+            TraceStore.put("embed.failover.stage.cur", null);
+        } catch (Exception ignore) {
+        }
+        Response<List<Embedding>> r;
+        try {
+            r = delegate.embedAll(misses);
+        } catch (Throwable t) {
+            log.debug("[EMBED_TRACE] batch embedAll failed; per-item fallback: {}", t.toString());
+            return null;
+        }
+        List<Embedding> got = (r == null) ? null : r.content();
+        if (got == null || got.size() != misses.size()) {
+            return null;
+        }
+        boolean failover;
+        try {
+            failover = truthy(TraceStore.get("embed.failover.used.cur"));
+        } catch (Exception ignore) {
+            failover = false;
+        }
+        if (!failover) {
+            for (int i = 0; i < misses.size(); i++) {
+                cache.put(cacheKeyFor(misses.get(i)), vectorOf(got.get(i)), ttl);
+            }
+        }
+        return got;
+    }
+
+    private static float[] vectorOf(Embedding e) {
+        float[] v = (e == null) ? null : e.vector();
+        return (v == null || v.length == 0) ? null : v;
+    }
+
     private float[] getCachedVector(String key, Supplier<Response<Embedding>> compute, String kind) {
         boolean dbg = isDbgSearch();
         AtomicBoolean computed = new AtomicBoolean(false);
@@ -51,6 +51,19 @@ public interface EmbeddingCache {
         // optional
     }
 
+    /**
+     * Non-computing lookup used by batch callers that embed all misses in one request.
+     * Returns {@code null} on miss; caches without point lookups may keep the default.
+     */
+    default float[] getIfPresent(String key) {
+        return null;
+    }
+
+    /** Stores a vector computed outside {@link #getOrCompute}; empty vectors must be ignored. */
+    default void put(String key, float[] value, Duration ttl) {
+        // optional
+    }
+
     /**
      * Generate a stable cache key for raw text. This normalizes whitespace and
      * hashes the string (SHA-256).
@@ -213,6 +226,25 @@ public interface EmbeddingCache {
             return ret;
         }
 
+        @Override
+        public float[] getIfPresent(String key) {
+            if (key == null || key.isBlank())
+                return null;
+            Entry e = map.get(key);
+            if (e == null || (e.expireAtMillis >= 0 && e.expireAtMillis < System.currentTimeMillis()))
+                return null;
+            return e.value;
+        }
+
+        @Override
+        public void put(String key, float[] value, Duration ttl) {
+            if (key == null || key.isBlank() || value == null || value.length == 0)
+                return;
+            long until = (ttl == null || ttl.isZero() || ttl.isNegative()) ? -1
+                    : System.currentTimeMillis() + ttl.toMillis();
+            map.put(key, new Entry(value, until));
+        }
+
         @Override
         public void invalidate(String key) {
             if (key == null || key.isBlank())
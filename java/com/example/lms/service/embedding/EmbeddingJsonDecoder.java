@@ -0,0 +1,141 @@
+package com.example.lms.service.embedding;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streaming decoder for embedding responses.
+ *
+ * <p>Reads number arrays token by token straight into {@code float[]} instead of building a
+ * {@code JsonNode} tree (one {@code DoubleNode} per component). Each vector is accumulated in
+ * a per-thread scratch buffer and copied once into an exactly-sized array.</p>
+ */
+public final class EmbeddingJsonDecoder {
+
+    // Numbers go through getDoubleValue(): getFloatValue() takes Jackson's slow float path,
+    // which allocated more per component than the JsonNode tree this decoder replaced.
+    private static final JsonFactory FACTORY = JsonFactory.builder()
+            .enable(StreamReadFeature.USE_FAST_DOUBLE_PARSER)
+            .build();
+    private static final ThreadLocal<float[]> SCRATCH = ThreadLocal.withInitial(() -> new float[4096]);
+
+    private EmbeddingJsonDecoder() {
+    }
+
+    /**
+     * Vectors under the top-level array field {@code field}
+     * (e.g. Ollama {@code {"embeddings":[[...],[...]]}}).
+     *
+     * @return the vectors in order, or {@code null} when the field is absent or not an array
+     */
+    public static List<float[]> readVectors(String json, String field) throws IOException {
+        if (json == null || json.isEmpty()) {
+            return null;
+        }
+        try (JsonParser p = FACTORY.createParser(json)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String name = p.currentName();
+                JsonToken t = p.nextToken();
+                if (!field.equals(name)) {
+                    p.skipChildren();
+                    continue;
+                }
+                if (t != JsonToken.START_ARRAY) {
+                    return null;
+                }
+                List<float[]> out = new ArrayList<>();
+                while ((t = p.nextToken()) != JsonToken.END_ARRAY && t != null) {
+                    if (t == JsonToken.START_ARRAY) {
+                        out.add(readArray(p));
+                    } else {
+                        p.skipChildren();
+                        out.add(new float[0]);
+                    }
+                }
+                return out;
+            }
+            return null;
+        }
+    }
+
+    /**
+     * First innermost number array of a (possibly nested) top-level array, e.g. the
+     * HF feature-extraction shapes {@code [f...]}, {@code [[f...]]}.
+     *
+     * @return the vector, or an empty array when none is found
+     */
+    public static float[] readFirstVector(String json) throws IOException {
+        if (json == null || json.isEmpty()) {
+            return new float[0];
+        }
+        try (JsonParser p = FACTORY.createParser(json)) {
+            JsonToken t = p.nextToken();
+            if (t != JsonToken.START_ARRAY) {
+                return new float[0];
+            }
+            while (true) {
+                // peek: descend while the next element is itself an array
+                t = p.nextToken();
+                if (t == JsonToken.START_ARRAY) {
+                    continue;
+                }
+                if (t == null || t == JsonToken.END_ARRAY || !t.isNumeric()) {
+                    return new float[0];
+                }
+                return readArray(p, (float) p.getDoubleValue());
+            }
+        }
+    }
+
+    /** Reads numbers until the matching END_ARRAY; the parser is positioned on START_ARRAY. */
+    static float[] readArray(JsonParser p) throws IOException {
+        JsonToken t = p.nextToken();
+        if (t == JsonToken.END_ARRAY || t == null) {
+            return new float[0];
+        }
+        if (!t.isNumeric()) {
+            p.skipChildren();
+            skipToArrayEnd(p);
+            return new float[0];
+        }
+        return readArray(p, (float) p.getDoubleValue());
+    }
+
+    /** Continues an array whose first numeric element has already been consumed. */
+    private static float[] readArray(JsonParser p, float first) throws IOException {
+        float[] buf = SCRATCH.get();
+        buf[0] = first;
+        int n = 1;
+        JsonToken t;
+        while ((t = p.nextToken()) != JsonToken.END_ARRAY && t != null) {
+            if (n == buf.length) {
+                buf = Arrays.copyOf(buf, buf.length * 2);
+                SCRATCH.set(buf);
+            }
+            buf[n++] = t.isNumeric() ? (float) p.getDoubleValue() : 0f;
+            if (t == JsonToken.START_ARRAY || t == JsonToken.START_OBJECT) {
+                p.skipChildren();
+            }
+        }
+        return Arrays.copyOf(buf, n);
+    }
+
+    private static void skipToArrayEnd(JsonParser p) throws IOException {
+        JsonToken t;
+        while ((t = p.nextToken()) != JsonToken.END_ARRAY && t != null) {
+            if (t == JsonToken.START_ARRAY || t == JsonToken.START_OBJECT) {
+                p.skipChildren();
+            }
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.lms.service.embedding;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Cross-request micro-batcher for single-text embedding calls.
+ *
+ * <p>Callers block on {@link #submit(String)}; a single dispatcher thread collects requests
+ * until {@code maxBatch} items are queued or the oldest one has waited {@code window},
+ * deduplicates identical texts and hands the batch to a small flush pool, so a slow HTTP
+ * call does not stop the next batch from forming. Results fan back out to every waiter of
+ * the same text.</p>
+ *
+ * <ul>
+ *   <li>The request queue is bounded: when full, {@link #submit} fails immediately and the
+ *   caller takes its direct path.</li>
+ *   <li>When every flush thread is busy and the flush queue is full, the dispatcher runs the
+ *   batch itself, which backs the request queue up (and so rejects) instead of piling work.</li>
+ *   <li>A caller that gives up cancels its future; cancelled items are dropped before a
+ *   batch is sent.</li>
+ * </ul>
+ *
+ * <p>The flush function runs on a pool thread, so per-thread trace state does not reach the
+ * callers; it reports the failover stage in {@link Result} instead and callers re-apply it on
+ * their own thread.</p>
+ */
+final class EmbeddingMicroBatcher implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(EmbeddingMicroBatcher.class);
+
+    /** Vectors in input order plus the failover stage used (null when local answered). */
+    record Result(List<float[]> vectors, String failoverStage) {}
+
+    /** What a caller receives for its text. */
+    record Item(float[] vector, String failoverStage) {}
+
+    private record Pending(String text, long enqueuedNanos, CompletableFuture<Item> future) {}
+
+    private final Function<List<String>, Result> flusher;
+    private final int maxBatch;
+    private final long windowNanos;
+    private final ArrayBlockingQueue<Pending> queue;
+    private final ThreadPoolExecutor flushPool;
+    private final Thread dispatcher;
+    private volatile boolean running = true;
+
+    private final DistributionSummary batchSize;
+    private final Timer queueDelay;
+    private final Counter rejected;
+
+    EmbeddingMicroBatcher(Function<List<String>, Result> flusher, int maxBatch, long windowMicros,
+                          MeterRegistry registry) {
+        this(flusher, maxBatch, windowMicros, 2, 1024, registry);
+    }
+
+    EmbeddingMicroBatcher(Function<List<String>, Result> flusher, int maxBatch, long windowMicros,
+                          int flushThreads, int queueCapacity, MeterRegistry registry) {
+        this.flusher = flusher;
+        this.maxBatch = Math.max(1, maxBatch);
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(Math.max(0L, windowMicros));
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        int threads = Math.max(1, flushThreads);
+        AtomicInteger counter = new AtomicInteger();
+        this.flushPool = new ThreadPoolExecutor(threads, threads, 30L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads),
+                r -> {
+                    Thread t = new Thread(r, "embed-microbatch-flush-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                (r, pool) -> r.run()); // caller-runs, also after close so no waiter is stranded
+        this.flushPool.allowCoreThreadTimeOut(true);
+        if (registry != null) {
+            this.batchSize = DistributionSummary.builder("embedding.microbatch.size")
+                    .description("texts per coalesced embedding call (after dedupe)")
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.queueDelay = Timer.builder("embedding.microbatch.queue.delay")
+                    .description("time a single embed request waited for its batch to flush")
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.rejected = Counter.builder("embedding.microbatch.rejected")
+                    .description("single embed requests that found the queue full and went direct")
+                    .register(registry);
+        } else {
+            this.batchSize = null;
+            this.queueDelay = null;
+            this.rejected = null;
+        }
+        this.dispatcher = new Thread(this::loop, "embed-microbatch");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Enqueues {@code text}; the future completes when its batch has been embedded, or fails
+     * right away with {@link RejectedExecutionException} when the queue is full. Cancelling
+     * the future withdraws the text if its batch has not been sent yet.
+     */
+    CompletableFuture<Item> submit(String text) {
+        CompletableFuture<Item> f = new CompletableFuture<>();
+        if (!running) {
+            f.completeExceptionally(new IllegalStateException("micro-batcher closed"));
+            return f;
+        }
+        if (!queue.offer(new Pending(text, System.nanoTime(), f))) {
+            if (rejected != null) rejected.increment();
+            f.completeExceptionally(new RejectedExecutionException("micro-batch queue full"));
+        }
+        return f;
+    }
+
+    private void loop() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Pending first = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                long deadline = first.enqueuedNanos() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    long waitNanos = deadline - System.nanoTime();
+                    Pending next = waitNanos <= 0 ? queue.poll() : queue.poll(waitNanos, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                List<Pending> toSend = batch;
+                flushPool.execute(() -> flush(toSend));
+            } catch (InterruptedException ie) {
+                if (!running) break;
+            } catch (Throwable t) {
+                log.warn("[EmbedMicroBatch] dispatcher error: {}", t.toString());
+                for (Pending p : batch) p.future().completeExceptionally(t);
+            } finally {
+                batch = new ArrayList<>(maxBatch);
+            }
+        }
+        Pending p;
+        while ((p = queue.poll()) != null) {
+            p.future().completeExceptionally(new IllegalStateException("micro-batcher closed"));
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        long now = System.nanoTime();
+        Map<String, List<Pending>> byText = new LinkedHashMap<>();
+        for (Pending p : batch) {
+            if (p.future().isDone()) continue; // caller timed out and went direct
+            byText.computeIfAbsent(p.text(), k -> new ArrayList<>(1)).add(p);
+            if (queueDelay != null) queueDelay.record(now - p.enqueuedNanos(), TimeUnit.NANOSECONDS);
+        }
+        if (byText.isEmpty()) return;
+        List<String> texts = new ArrayList<>(byText.keySet());
+        if (batchSize != null) batchSize.record(texts.size());
+
+        Result r;
+        try {
+            r = flusher.apply(texts);
+        } catch (Throwable t) {
+            for (Pending p : batch) p.future().completeExceptionally(t);
+            return;
+        }
+        List<float[]> vectors = (r == null) ? null : r.vectors();
+        if (vectors == null || vectors.size() != texts.size()) {
+            IllegalStateException e = new IllegalStateException("batch size mismatch");
+            for (Pending p : batch) p.future().completeExceptionally(e);
+            return;
+        }
+        for (int i = 0; i < texts.size(); i++) {
+            Item item = new Item(vectors.get(i), r.failoverStage());
+            for (Pending p : byText.get(texts.get(i))) p.future().complete(item);
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        dispatcher.interrupt();
+        flushPool.shutdown();
+    }
+}
@@ -71,12 +71,7 @@ public class HfInferenceEmbeddingModel implements EmbeddingModel {
                     .bodyToMono(String.class)
                     .timeout(Duration.ofSeconds(20))
                     .block();
-            var mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-            var node = mapper.readTree(resp);
-            var arr  = node.isArray() && node.get(0).isArray() ? node.get(0) : node;
-            float[] vec = new float[arr.size()];
-            for (int i = 0; i < arr.size(); i++) vec[i] = (float) arr.get(i).asDouble();
-            return vec;
+            return EmbeddingJsonDecoder.readFirstVector(resp);
         } catch (Exception e) {
             return new float[0];
         }
@@ -9,6 +9,8 @@ import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.output.Response;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -60,6 +62,9 @@ public class OllamaEmbeddingModel implements EmbeddingModel, MatryoshkaAware {
     @Autowired(required = false)
     private DebugEventStore debugEventStore;
 
+    @Autowired(required = false)
+    private MeterRegistry meterRegistry;
+
     private final WebClient webClient;
     private final ObjectMapper mapper = new ObjectMapper();
 
@@ -108,6 +113,30 @@ public class OllamaEmbeddingModel implements EmbeddingModel, MatryoshkaAware {
     @Value("${embedding.ollama.keep-alive:}")
     private String ollamaKeepAlive;
 
+    // ─────────────────────────────────────────────────────────────────────
+    // Micro-batching of single embed() calls across requests
+    // ─────────────────────────────────────────────────────────────────────
+
+    /** Opt-in: adds up to one window of latency to every single embed() call. */
+    @Value("${embedding.micro-batch.enabled:false}")
+    private boolean microBatchEnabled;
+
+    /** Max texts coalesced into one /api/embed call. */
+    @Value("${embedding.micro-batch.max-size:32}")
+    private int microBatchMaxSize;
+
+    /** How long the first queued text waits for company before the batch is flushed. */
+    @Value("${embedding.micro-batch.window-micros:3000}")
+    private long microBatchWindowMicros;
+
+    /** Concurrent /api/embed calls issued by the batcher. */
+    @Value("${embedding.micro-batch.flush-threads:2}")
+    private int microBatchFlushThreads;
+
+    /** Queued single-text requests; beyond this callers go direct. */
+    @Value("${embedding.micro-batch.queue-capacity:1024}")
+    private int microBatchQueueCapacity;
+
     // ─────────────────────────────────────────────────────────────────────
     // Fast-fail configuration
     // ─────────────────────────────────────────────────────────────────────
@@ -214,6 +243,8 @@ public class OllamaEmbeddingModel implements EmbeddingModel, MatryoshkaAware {
 
     private final AtomicReference<String> lastLocalError = new AtomicReference<>(null);
 
+    private volatile EmbeddingMicroBatcher microBatcher;
+
     // ─────────────────────────────────────────────────────────────────────
     // Public helpers
     // ─────────────────────────────────────────────────────────────────────
@@ -330,10 +361,104 @@ public class OllamaEmbeddingModel implements EmbeddingModel, MatryoshkaAware {
             return Response.from(Embedding.from(callBackupVector(input, "health")), null);
         }
 
+        if (microBatchEnabled) {
+            float[] batched = embedViaMicroBatch(input);
+            if (batched != null) {
+                return Response.from(Embedding.from(batched), null);
+            }
+        }
+
         float[] vec = callOllamaVector(input);
         return Response.from(Embedding.from(vec), null);
     }
 
+    /**
+     * Routes a single text through the shared micro-batcher. Returns {@code null} when the
+     * batcher could not answer in time so the caller uses the direct path.
+     */
+    private float[] embedViaMicroBatch(String input) {
+        java.util.concurrent.CompletableFuture<EmbeddingMicroBatcher.Item> pending = null;
+        try {
+            pending = microBatcher().submit(input);
+            EmbeddingMicroBatcher.Item item = pending
+                    .get(Math.max(1, timeoutSec) + 5L, java.util.concurrent.TimeUnit.SECONDS);
+            if (item.failoverStage() != null) {
+                // the batch ran on a flush-pool thread (the dispatcher only when the pool is
+                // saturated), so its trace never reached this caller; mirror the failover markers
+                // here so DecoratingEmbeddingModel does not cache a backup vector under the local key
+                try {
+                    com.example.lms.search.TraceStore.putIfAbsent("embed.failover.used", true);
+                    com.example.lms.search.TraceStore.putIfAbsent("embed.failover.stage", item.failoverStage());
+                    com.example.lms.search.TraceStore.put("embed.failover.used.cur", true);
+                    com.example.lms.search.TraceStore.put("embed.failover.stage.cur", item.failoverStage());
+                } catch (Exception ignore) {
+                }
+            }
+            return item.vector();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            pending.cancel(false);
+            return null;
+        } catch (Exception e) {
+            // withdraw the queued text so the batch does not embed it a second time
+            if (pending != null) pending.cancel(false);
+            log.debug("[OllamaEmbeddingModel] micro-batch unavailable, direct call: {}", e.toString());
+            return null;
+        }
+    }
+
+    private EmbeddingMicroBatcher microBatcher() {
+        EmbeddingMicroBatcher b = microBatcher;
+        if (b != null) {
+            return b;
+        }
+        synchronized (this) {
+            if (microBatcher == null) {
+                microBatcher = new EmbeddingMicroBatcher(this::flushMicroBatch,
+                        microBatchMaxSize, microBatchWindowMicros,
+                        microBatchFlushThreads, microBatchQueueCapacity, meterRegistry);
+            }
+            return microBatcher;
+        }
+    }
+
+    /** Flush-pool flush: the regular batch path, including fast-fail and backup routing. */
+    private EmbeddingMicroBatcher.Result flushMicroBatch(List<String> texts) {
+        try {
+            com.example.lms.search.TraceStore.put("embed.failover.used.cur", null);
+            com.example.lms.search.TraceStore.put("embed.failover.stage.cur", null);
+        } catch (Exception ignore) {
+        }
+        List<TextSegment> segments = new ArrayList<>(texts.size());
+        for (String t : texts) {
+            segments.add(TextSegment.from(t));
+        }
+        List<Embedding> embs = embedAll(segments).content();
+        List<float[]> vectors = new ArrayList<>(embs == null ? 0 : embs.size());
+        if (embs != null) {
+            for (Embedding e : embs) {
+                vectors.add(e == null || e.vector() == null ? new float[0] : e.vector());
+            }
+        }
+        String stage = null;
+        try {
+            Object st = com.example.lms.search.TraceStore.get("embed.failover.stage.cur");
+            if (st != null) {
+                stage = String.valueOf(st);
+            }
+        } catch (Exception ignore) {
+        }
+        return new EmbeddingMicroBatcher.Result(vectors, stage);
+    }
+
+    @PreDestroy
+    void closeMicroBatcher() {
+        EmbeddingMicroBatcher b = microBatcher;
+        if (b != null) {
+            b.close();
+        }
+    }
+
     @Override
     public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
         if (!isOllamaProvider()) {
@@ -392,18 +517,11 @@ public class OllamaEmbeddingModel implements EmbeddingModel, MatryoshkaAware {
 
         try {
             Integer targetDim = (dimensions > 0 ? dimensions : null);
-            JsonNode root = postEmbedWithFallback(texts, targetDim, null, timeoutSec);
-            JsonNode embeddings = root.path("embeddings");
-            if (!embeddings.isArray()) {
-                recordLocalFailure("batch.parse", new IllegalStateException("missing embeddings[]"));
-                return null;
-            }
+            List<float[]> raw = postEmbedVectorsWithFallback(texts, targetDim, timeoutSec);
 
-            List<float[]> out = new ArrayList<>(texts.size());
-            for (JsonNode arr : embeddings) {
-                float[] raw = parseFloatArray(arr);
-                float[] norm = normalizeEmbedding(raw, "batch");
-                out.add(norm);
+            List<float[]> out = new ArrayList<>(raw.size());
+            for (float[] v : raw) {
+                out.add(normalizeEmbedding(v, "batch"));
             }
 
             // Treat empty as failure (forces retry/failover).
@@ -427,9 +545,8 @@ public class OllamaEmbeddingModel implements EmbeddingModel, MatryoshkaAware {
 
         try {
             Integer targetDim = (dimensions > 0 ? dimensions : null);
-            JsonNode root = postEmbedWithFallback(input, targetDim, null, timeoutSec);
-            JsonNode embeddingArray = root.path("embeddings").path(0);
-            float[] raw = parseFloatArray(embeddingArray);
+            List<float[]> vectors = postEmbedVectorsWithFallback(input, targetDim, timeoutSec);
+            float[] raw = vectors.isEmpty() ? new float[0] : vectors.get(0);
 
             // Treat empty as failure.
             if (raw.length == 0) {
@@ -991,12 +1108,6 @@ try {
         return postJsonWithFallback(body, timeoutSecondsOrMs);
     }
 
-    private JsonNode postEmbedWithFallback(List<String> inputs, Integer targetDim, String keepAliveOverride,
-            long timeoutSecondsOrMs) {
-        Map<String, Object> body = buildEmbedBody(inputs, targetDim, keepAliveOverride);
-        return postJsonWithFallback(body, timeoutSecondsOrMs);
-    }
-
     private Map<String, Object> buildEmbedBody(Object input, Integer targetDim, String keepAliveOverride) {
         Map<String, Object> body = new LinkedHashMap<>();
         body.put("model", model);
@@ -1021,6 +1132,45 @@ try {
     }
 
     private JsonNode postJsonWithFallback(Map<String, Object> body, long timeoutSecondsOrMs) {
+        return postWithFallback(body, timeoutSecondsOrMs, mapper::readTree);
+    }
+
+    /** Embed POST decoded by {@link EmbeddingJsonDecoder} on the hot paths; never returns null. */
+    private List<float[]> postEmbedVectorsWithFallback(Object input, Integer targetDim, long timeoutSecondsOrMs) {
+        return postWithFallback(buildEmbedBody(input, targetDim, null), timeoutSecondsOrMs, json -> {
+            List<float[]> vectors = EmbeddingJsonDecoder.readVectors(json, "embeddings");
+            if (vectors == null) {
+                throw new java.io.IOException("missing embeddings[]");
+            }
+            return vectors;
+        });
+    }
+
+    /** Decodes a response body; a failure moves on to the next candidate URL. */
+    @FunctionalInterface
+    private interface BodyDecoder<T> {
+        T decode(String json) throws Exception;
+    }
+
+    /** Marks a body that arrived but could not be decoded (e.g. an HTML error page from a proxy). */
+    private static final class BodyParseException extends RuntimeException {
+        BodyParseException(Throwable cause) {
+            super("unparseable body from embed endpoint: " + cause.getMessage(), cause);
+        }
+    }
+
+    private static <T> T decodeBody(BodyDecoder<T> decoder, String json) {
+        if (json == null) {
+            throw new IllegalStateException("empty body from embed endpoint");
+        }
+        try {
+            return decoder.decode(json);
+        } catch (Exception e) {
+            throw new BodyParseException(e);
+        }
+    }
+
+    private <T> T postWithFallback(Map<String, Object> body, long timeoutSecondsOrMs, BodyDecoder<T> decoder) {
         List<String> candidates = buildCandidateUrls(apiUrl, fallbackApiUrl);
         Exception last = null;
 
@@ -1048,10 +1198,15 @@ try {
                 } catch (Exception ignore) {
                 }
 
-                return mapper.readTree(json);
+                return decodeBody(decoder, json);
             } catch (Exception e) {
                 last = e;
 
+                if (e instanceof BodyParseException && i < candidates.size() - 1) {
+                    traceParseFail(url);
+                    continue;
+                }
+
                 // [AUTO-HEAL] Some local embedding servers reject "options.dimensions"
                 // with messages like: "invalid option provided option=dimensions".
                 // If detected, suppress the option and retry once without it.
@@ -1116,10 +1271,14 @@ try {
                         } catch (Exception ignore) {
                         }
 
-                        return mapper.readTree(retryJson);
+                        return decodeBody(decoder, retryJson);
                     } catch (Exception retryEx) {
                         // Retry also failed; fall through to normal failure handling.
                         last = retryEx;
+                        if (retryEx instanceof BodyParseException && i < candidates.size() - 1) {
+                            traceParseFail(url);
+                            continue;
+                        }
                     }
                 }
 
@@ -1156,6 +1315,14 @@ try {
         throw new RuntimeException(last);
     }
 
+    private void traceParseFail(String url) {
+        try {
+            com.example.lms.search.TraceStore.inc("embed.ollama.post.parse_fail");
+        } catch (Exception ignore) {
+        }
+        log.warn("[OllamaEmbeddingModel] unparseable embed response -> retry on alternate url: {}", safeUrl(url));
+    }
+
     // ─────────────────────────────────────────────────────────────────────
     // options.dimensions auto-heal helpers
     // ─────────────────────────────────────────────────────────────────────
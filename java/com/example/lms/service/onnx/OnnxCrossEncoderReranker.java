@@ -26,7 +26,8 @@ import java.util.concurrent.atomic.AtomicInteger;
  * ONNX Cross-Encoder reranker (fail-soft).
  *
  * <p>
- * - Uses {@link OnnxRuntimeService#scorePair(String, String)} for scoring.
+ * - Uses {@link OnnxRuntimeService#scoreBatch(String, List)} for scoring, one
+ * batch of {@link OnnxRuntimeService#getBatchSize()} candidates per inference call.
  * - Respects request time budget (if installed via {@link TimeBudgetContext}).
  * - Optional concurrency gate via {@link OnnxSemaphoreGate} (if provided by
  * Addons auto-config).
@@ -104,7 +105,7 @@ public class OnnxCrossEncoderReranker implements CrossEncoderReranker {
             long elapsedMs = (System.nanoTime() - startedNs) / 1_000_000L;
             TraceStore.put("rerank.onnx.ms", elapsedMs);
 
-            // Mark success only when we actually ran scorePair at least once.
+            // Mark success only when we actually scored at least one pair.
             if (scoredPairs.get() > 0 && nightmareBreaker != null) {
                 try {
                     nightmareBreaker.recordSuccess(NightmareKeys.RERANK_ONNX, elapsedMs);
@@ -126,25 +127,31 @@ public class OnnxCrossEncoderReranker implements CrossEncoderReranker {
         }
 
         List<Scored> scored = new ArrayList<>(candidates.size());
-        for (int i = 0; i < candidates.size(); i++) {
+        int batch = onnx.getBatchSize();
+        for (int from = 0; from < candidates.size(); from += batch) {
             if (tb != null && tb.remainingMillis() < 30) {
                 TraceStore.append("rerank.skip", "onnx:budget_exhausted");
                 return limitStable(candidates, topN);
             }
 
-            Content c = candidates.get(i);
-            String doc = safeContentText(c);
+            int to = Math.min(candidates.size(), from + batch);
+            List<String> docs = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                docs.add(safeContentText(candidates.get(i)));
+            }
 
-            float s = 0f;
+            float[] s;
             try {
-                s = (float) onnx.scorePair(query, doc);
-                scoredPairs.incrementAndGet();
+                s = onnx.scoreBatch(query, docs);
+                scoredPairs.addAndGet(docs.size());
             } catch (Throwable t) {
-                // scorePair can throw if tokenizer/runtime not ready; degrade gracefully.
-                recordFailure(t, "scorePair");
-                s = 0f;
+                // scoring can throw if tokenizer/runtime not ready; degrade gracefully.
+                recordFailure(t, "scoreBatch");
+                s = new float[docs.size()];
+            }
+            for (int i = from; i < to; i++) {
+                scored.add(new Scored(i, candidates.get(i), s[i - from]));
             }
-            scored.add(new Scored(i, c, s));
         }
 
         scored.sort(Comparator
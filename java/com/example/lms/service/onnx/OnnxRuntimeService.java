@@ -106,10 +106,40 @@ public class OnnxRuntimeService {
     @Value("${abandonware.reranker.onnx.fallback-enabled:true}")
     private boolean fallbackEnabled;
 
+    /**
+     * Pairs per {@code session.run}. Pairs are length-sorted before chunking so each batch
+     * pads only to its own longest sequence.
+     */
+    @Value("${abandonware.reranker.onnx.batch-size:32}")
+    private int batchSize;
+
+    /**
+     * Largest per-thread input buffer (in int64 elements) kept for reuse; bigger batches use a
+     * one-off heap buffer so request threads do not pin oversized direct memory.
+     */
+    @Value("${abandonware.reranker.onnx.max-retained-buffer-longs:65536}")
+    private int maxRetainedBufferLongs = 65536;
+
     // Names of model inputs and outputs captured during session initialisation
     private java.util.List<String> inputNames;
     private java.util.List<String> outputNames;
 
+    // Resolved once in init() instead of querying session metadata per call
+    private String idInputName;
+    private boolean hasAttentionMask;
+    private boolean hasTokenTypeIds;
+    private String scoreOutputName;
+
+    /** Per-thread direct buffers for [batch, seq] int64 inputs; grown on demand up to {@link #maxRetainedBufferLongs}. */
+    private static final ThreadLocal<java.nio.LongBuffer[]> INPUT_BUFFERS =
+            ThreadLocal.withInitial(() -> new java.nio.LongBuffer[3]);
+
+    /** Encoded-record accessors, looked up once per tokenizer output class. */
+    private volatile EncAccessors encAccessors;
+
+    private record EncAccessors(Class<?> type, java.lang.invoke.MethodHandle ids,
+                                java.lang.invoke.MethodHandle attn, java.lang.invoke.MethodHandle types) {}
+
     /** Tokeniser used to convert query/document pairs into model inputs. */
     private com.example.lms.service.onnx.tokenizer.CrossEncoderTokenizer tokenizer;
 
@@ -198,8 +228,7 @@ public class OnnxRuntimeService {
             this.available = (this.session != null);
             // capture input and output names when a session has been created
             if (this.session != null) {
-                this.inputNames  = new java.util.ArrayList<>(this.session.getInputInfo().keySet());
-                this.outputNames = new java.util.ArrayList<>(this.session.getOutputInfo().keySet());
+                bindSession(this.env, this.session);
             }
             log.info("[ONNX] model initialised: {}", modelPath);
         } catch (Throwable t) {
@@ -213,6 +242,26 @@ public class OnnxRuntimeService {
         }
     }
 
+    /** Resolves input/output names from the session metadata once. */
+    void bindSession(OrtEnvironment env, OrtSession session) throws ai.onnxruntime.OrtException {
+        this.env = env;
+        this.session = session;
+        this.available = (session != null);
+        if (session == null) {
+            return;
+        }
+        this.inputNames  = new java.util.ArrayList<>(session.getInputInfo().keySet());
+        this.outputNames = new java.util.ArrayList<>(session.getOutputInfo().keySet());
+        java.util.Set<String> names = new java.util.LinkedHashSet<>(this.inputNames);
+        this.idInputName = names.isEmpty() ? null : pick(names, "input_ids");
+        this.hasAttentionMask = names.contains("attention_mask");
+        this.hasTokenTypeIds = names.contains("token_type_ids");
+        this.scoreOutputName = this.outputNames.isEmpty() ? null : this.outputNames.get(0);
+        if (!this.hasAttentionMask) {
+            log.info("[ONNX] model has no attention_mask input; scoring pairs one at a time (no padding)");
+        }
+    }
+
     /**
      * Resolve a model path that may be prefixed with {@code classpath:}.
      *
@@ -321,13 +370,15 @@ public class OnnxRuntimeService {
         // combination.  scorePair() already handles model invocation and
         // fallback internally, returning a double in the range [0,1].
         boolean useModel = available && session != null;
+        java.util.List<String> docs = java.util.Arrays.asList(documents);
         for (int i = 0; i < m; i++) {
             String q = queries[i] == null ? "" : queries[i];
-            for (int j = 0; j < n; j++) {
-                String d = documents[j] == null ? "" : documents[j];
-                if (useModel) {
-                    result[i][j] = (float) scorePair(q, d);
-                } else {
+            if (useModel) {
+                // one batched pass per query row
+                result[i] = scoreBatch(q, docs);
+            } else {
+                for (int j = 0; j < n; j++) {
+                    String d = documents[j] == null ? "" : documents[j];
                     result[i][j] = computeJaccardSimilarity(q, d);
                 }
             }
@@ -373,7 +424,7 @@ public class OnnxRuntimeService {
      * {@link com.example.lms.service.onnx.tokenizer.CrossEncoderTokenizer.Encoded} record but
      * exists here to avoid leaking the external type.
      */
-    private record Enc(int[] inputIds, int[] attn, int[] tokenTypes) {}
+    record Enc(int[] inputIds, int[] attn, int[] tokenTypes) {}
 
     /**
      * Encode a query/document pair into integer arrays suitable for feeding to
@@ -385,25 +436,28 @@ public class OnnxRuntimeService {
             return new Enc(new int[0], new int[0], new int[0]);
         }
         try {
-            var enc = this.tokenizer.encodePair(q == null ? "" : q, d == null ? "" : d, maxSeq);
-            // Accessors follow record component names in Encoded record
-            java.lang.reflect.Method mInput = enc.getClass().getMethod("inputIds");
-            java.lang.reflect.Method mAttn  = enc.getClass().getMethod("attentionMask");
-            java.lang.reflect.Method mType  = enc.getClass().getMethod("tokenTypeIds");
-            int[] ids  = (int[]) mInput.invoke(enc);
-            int[] attn = (int[]) mAttn.invoke(enc);
-            int[] tt   = (int[]) mType.invoke(enc);
+            Object enc = this.tokenizer.encodePair(q == null ? "" : q, d == null ? "" : d, maxSeq);
+            EncAccessors acc = accessorsFor(enc.getClass());
+            int[] ids  = (int[]) acc.ids().invoke(enc);
+            int[] attn = (int[]) acc.attn().invoke(enc);
+            int[] tt   = (int[]) acc.types().invoke(enc);
             return new Enc(ids, attn, tt);
-        } catch (Exception e) {
+        } catch (Throwable e) {
             return new Enc(new int[0], new int[0], new int[0]);
         }
     }
 
-    /** Convert an int[] to a long[] for ONNX tensor creation. */
-    private long[] toLong(int[] ints) {
-        long[] arr = new long[ints.length];
-        for (int i = 0; i < ints.length; i++) arr[i] = ints[i];
-        return arr;
+    /** Accessors follow record component names in the Encoded record; resolved once. */
+    private EncAccessors accessorsFor(Class<?> type) throws ReflectiveOperationException {
+        EncAccessors acc = encAccessors;
+        if (acc != null && acc.type() == type) return acc;
+        java.lang.invoke.MethodHandles.Lookup lookup = java.lang.invoke.MethodHandles.publicLookup();
+        acc = new EncAccessors(type,
+                lookup.unreflect(type.getMethod("inputIds")),
+                lookup.unreflect(type.getMethod("attentionMask")),
+                lookup.unreflect(type.getMethod("tokenTypeIds")));
+        encAccessors = acc;
+        return acc;
     }
 
     /** Pick the first matching name from a set of input names. */
@@ -413,18 +467,6 @@ public class OnnxRuntimeService {
         return names.iterator().next();
     }
 
-    /** Flatten a tensor of shape [1, n] or [n] to a float array. */
-    private float[] flatten(OnnxTensor t) throws Exception {
-        Object v = t.getValue();
-        if (v instanceof float[]) {
-            return (float[]) v;
-        }
-        if (v instanceof float[][] arr) {
-            return arr.length > 0 ? arr[0] : new float[0];
-        }
-        return new float[0];
-    }
-
     /**
      * Compute a similarity score for a single query/document pair.  When the
      * ONNX model is available and the session has been initialised the score
@@ -436,70 +478,168 @@ public class OnnxRuntimeService {
      * encourages diversity relative to the embedding reranker.
      */
     public double scorePair(String query, String document) {
-        // 하드 컷으로 전처리(토큰화/런타임 비용 절감)
-        if (query != null && query.length() > maxChars) {
-            query = query.substring(0, maxChars);
+        return scoreBatch(query, java.util.Collections.singletonList(document))[0];
+    }
+
+    /**
+     * Scores {@code documents} against one query with batched inference: all pairs are
+     * tokenised up front, sorted by length, and run {@link #getBatchSize()} at a time with
+     * padding only to the longest sequence of each batch. Models without an
+     * {@code attention_mask} input would see the padding, so they are run one pair at a time.
+     * Per pair the result matches {@link #scorePair}: the (optionally sigmoid-normalised) first
+     * logit, lexical Jaccard when no model is loaded, and the inverted lexical score when
+     * inference fails.
+     */
+    public float[] scoreBatch(String query, java.util.List<String> documents) {
+        int n = (documents == null) ? 0 : documents.size();
+        float[] out = new float[n];
+        if (n == 0) {
+            return out;
         }
-        if (document != null && document.length() > maxChars) {
-            document = document.substring(0, maxChars);
+        // 하드 컷으로 전처리(토큰화/런타임 비용 절감)
+        String q = clipChars(query);
+        String[] docs = new String[n];
+        float[] lex = new float[n];
+        for (int i = 0; i < n; i++) {
+            docs[i] = clipChars(documents.get(i));
+            lex[i] = computeJaccardSimilarity(q, docs[i]);
         }
-        double lex = computeJaccardSimilarity(query == null ? "" : query, document == null ? "" : document);
         // If no model is available return lexical similarity directly
         if (!available) {
             return lex;
         }
-        // When a valid ONNX session exists attempt to run inference.  If any
-        // exception is thrown the code falls back to the inverted lexical score.
-        if (session != null) {
+        // When a model is present but inference fails the pair keeps an inverted lexical score.
+        for (int i = 0; i < n; i++) {
+            out[i] = 1.0f - lex[i];
+        }
+        if (session == null || idInputName == null) {
+            return out;
+        }
+
+        Enc[] encs = new Enc[n];
+        for (int i = 0; i < n; i++) {
+            encs[i] = encodePair(q, docs[i], maxSeqLen);
+        }
+        scoreEncoded(encs, out);
+        return out;
+    }
+
+    /**
+     * Runs the model over already-encoded pairs, writing each score to {@code out} at the
+     * pair's index; pairs with no tokens or in a failed batch keep their current value.
+     */
+    void scoreEncoded(Enc[] encs, float[] out) {
+        int n = encs.length;
+        Integer[] order = new Integer[n];
+        int usable = 0;
+        for (int i = 0; i < n; i++) {
+            if (encs[i].inputIds.length > 0) {
+                order[usable++] = i;
+            }
+        }
+        if (usable == 0) {
+            return;
+        }
+        Integer[] byLen = java.util.Arrays.copyOf(order, usable);
+        java.util.Arrays.sort(byLen, java.util.Comparator.comparingInt(i -> encs[i].inputIds.length));
+
+        int bs = hasAttentionMask ? Math.max(1, batchSize) : 1;
+        for (int from = 0; from < usable; from += bs) {
+            int to = Math.min(usable, from + bs);
             try {
-                Enc enc = encodePair(query, document, maxSeqLen);
-                if (enc.inputIds.length > 0) {
-                    long[][] inputIds = new long[][] { toLong(enc.inputIds) };
-                    long[][] attn     = new long[][] { toLong(enc.attn) };
-                    long[][] tt       = new long[][] { toLong(enc.tokenTypes) };
-                    java.util.Map<String, OnnxTensor> in = new java.util.HashMap<>();
-                    java.util.Set<String> names = session.getInputInfo().keySet();
-                    String idName = pick(names, "input_ids");
-                    in.put(idName, OnnxTensor.createTensor(env, inputIds));
-                    if (names.contains("attention_mask")) in.put("attention_mask", OnnxTensor.createTensor(env, attn));
-                    if (names.contains("token_type_ids")) in.put("token_type_ids", OnnxTensor.createTensor(env, tt));
-                    // 입력 텐서 수동 close를 위해 try/finally 사용
-                    OnnxTensor t0 = in.get(idName);
-                    OnnxTensor t1 = in.get("attention_mask");
-                    OnnxTensor t2 = in.get("token_type_ids");
-                    try (OrtSession.Result out = session.run(in)) {
-                        for (String k : session.getOutputInfo().keySet()) {
-                            var vOpt = out.get(k); // Optional<OnnxValue>
-                            var v = vOpt.orElse(null);
-                            if (v instanceof OnnxTensor t) {
-                                float[] flat = flatten(t);
-                                    if (flat.length > 0) {
-                                    float raw = flat[0];
-                                    if (normalize) {
-                                        // Apply sigmoid normalisation to map raw logits into [0,1].  In
-                                        // many cross-encoder architectures the output is an unbounded
-                                        // activation which benefits from a logistic transform.  Guard
-                                        // against overflow by clamping extremely large magnitudes.
-                                        double x = Math.max(-50.0, Math.min(50.0, raw));
-                                        double sigmoid = 1.0 / (1.0 + Math.exp(-x));
-                                        return (float) sigmoid;
-                                    }
-                                    return raw;
-                                }
-                            }
-                        }
-                    } finally {
-                        if (t2 != null) try { t2.close(); } catch (Exception ignore) {}
-                        if (t1 != null) try { t1.close(); } catch (Exception ignore) {}
-                        if (t0 != null) try { t0.close(); } catch (Exception ignore) {}
+                runBatch(encs, byLen, from, to, out);
+            } catch (Throwable ignore) {
+                // this batch keeps the inverted lexical scores
+            }
+        }
+    }
+
+    private String clipChars(String s) {
+        if (s == null) {
+            return "";
+        }
+        return s.length() > maxChars ? s.substring(0, maxChars) : s;
+    }
+
+    /** One {@code session.run} over {@code rows[from, to)}, padded to the batch's longest row. */
+    private void runBatch(Enc[] encs, Integer[] rows, int from, int to, float[] out) throws Exception {
+        int b = to - from;
+        int seq = encs[rows[to - 1]].inputIds.length; // rows are sorted by length
+        long[] shape = {b, seq};
+        int cap = maxRetainedBufferLongs;
+        java.nio.LongBuffer ids = fill(0, cap, encs, rows, from, to, seq, Enc::inputIds);
+        java.nio.LongBuffer attn = hasAttentionMask ? fill(1, cap, encs, rows, from, to, seq, Enc::attn) : null;
+        java.nio.LongBuffer tt = hasTokenTypeIds ? fill(2, cap, encs, rows, from, to, seq, Enc::tokenTypes) : null;
+
+        java.util.Map<String, OnnxTensor> in = new java.util.HashMap<>(4);
+        try {
+            in.put(idInputName, OnnxTensor.createTensor(env, ids, shape));
+            if (attn != null) in.put("attention_mask", OnnxTensor.createTensor(env, attn, shape));
+            if (tt != null) in.put("token_type_ids", OnnxTensor.createTensor(env, tt, shape));
+            try (OrtSession.Result res = session.run(in)) {
+                OnnxValue v = (scoreOutputName == null) ? res.get(0) : res.get(scoreOutputName).orElse(res.get(0));
+                if (!(v instanceof OnnxTensor t)) {
+                    return;
+                }
+                Object val = t.getValue();
+                for (int r = 0; r < b; r++) {
+                    float raw;
+                    if (val instanceof float[][] mat) {
+                        if (r >= mat.length || mat[r].length == 0) continue;
+                        raw = mat[r][0];
+                    } else if (val instanceof float[] flat) {
+                        if (r >= flat.length) continue;
+                        raw = flat[r];
+                    } else {
+                        return;
                     }
+                    out[rows[from + r]] = normalize ? sigmoid(raw) : raw;
                 }
-            } catch (Throwable ignore) {
-                // ignore and fall back
+            }
+        } finally {
+            for (OnnxTensor t : in.values()) {
+                try { t.close(); } catch (Exception ignore) {}
             }
         }
-        // When a model is present but inference failed return an inverted lexical score.
-        return 1.0 - lex;
+    }
+
+    /**
+     * Apply sigmoid normalisation to map raw logits into [0,1]. Cross-encoder outputs are
+     * unbounded activations; extremely large magnitudes are clamped to avoid overflow.
+     */
+    private static float sigmoid(float raw) {
+        double x = Math.max(-50.0, Math.min(50.0, raw));
+        return (float) (1.0 / (1.0 + Math.exp(-x)));
+    }
+
+    /**
+     * Writes one input (zero-padded) into the reusable direct buffer {@code slot}; inputs larger
+     * than {@code retainLongs} go to a one-off heap buffer that ONNX Runtime copies.
+     */
+    private static java.nio.LongBuffer fill(int slot, int retainLongs, Enc[] encs, Integer[] rows, int from, int to,
+                                            int seq, java.util.function.Function<Enc, int[]> field) {
+        int need = (to - from) * seq;
+        java.nio.LongBuffer buf;
+        if (need > retainLongs) {
+            buf = java.nio.LongBuffer.allocate(need);
+        } else {
+            java.nio.LongBuffer[] bufs = INPUT_BUFFERS.get();
+            buf = bufs[slot];
+            if (buf == null || buf.capacity() < need) {
+                buf = java.nio.ByteBuffer.allocateDirect(Math.min(Math.max(need, 4096), retainLongs) * Long.BYTES)
+                        .order(java.nio.ByteOrder.nativeOrder()).asLongBuffer();
+                bufs[slot] = buf;
+            }
+        }
+        buf.clear();
+        for (int r = from; r < to; r++) {
+            int[] src = field.apply(encs[rows[r]]);
+            int len = Math.min(src.length, seq);
+            for (int i = 0; i < len; i++) buf.put(src[i]);
+            for (int i = len; i < seq; i++) buf.put(0L);
+        }
+        buf.flip();
+        return buf;
     }
 
     // --- Accessors for health checks and configuration ---
@@ -550,6 +690,15 @@ public class OnnxRuntimeService {
         return maxSeqLen;
     }
 
+    /**
+     * Returns the number of pairs per batched inference call.
+     *
+     * @return batch size
+     */
+    public int getBatchSize() {
+        return Math.max(1, batchSize);
+    }
+
     /**
      * Returns the list of input tensor names if the model session is available.
      *
@@ -116,6 +116,9 @@ public class HybridRetriever implements ContentRetriever {
     @Autowired(required = false)
     private NightmareBreaker nightmareBreaker;
 
+    @Autowired(required = false)
+    private com.example.lms.infra.exec.RetrievalScheduler retrievalScheduler;
+
     @Value("${abandonware.reranker.backend:noop}")
     private String rerankerBackend; // + 개선: 프로퍼티로 onnx/embedding/noop 선택
 
@@ -179,6 +182,12 @@ public class HybridRetriever implements ContentRetriever {
     private double qualityMinScore;
     @Value("${hybrid.max-parallel:3}")
     private int maxParallel;
+    /** retrieveAll 서브쿼리 대기 상한(ms). 0 이하면 요청 TimeBudget만 적용 */
+    @Value("${hybrid.fanout.timeout-ms:0}")
+    private long fanoutTimeoutMs;
+    /** 비어있지 않은 서브쿼리 결과가 이 수에 도달하면 나머지를 취소. 0 이하면 전부 대기 */
+    @Value("${hybrid.fanout.quorum:0}")
+    private int fanoutQuorum;
 
     @Value("${hybrid.min-relatedness:0.01}") // 관련도 필터 컷오프
     private double minRelatedness;
@@ -1276,68 +1285,51 @@ public class HybridRetriever implements ContentRetriever {
                     results.add(acc);
                 }
             } else {
-                // 기본: 제한 병렬 실행 (공용 풀 사용 금지)
+                // 기본: 공유 retrieval 스케줄러에서 요청당 maxParallel 만큼 병렬 실행 (호출마다 풀 생성 금지)
                 //
                 // UAW: 병렬 합성부에서 MDC/GuardContext/TraceStore 전파가 끊기면
                 // handlerChain이 "pass만" 반복하다가 결과가 0으로 수렴하는 케이스가 있다.
-                // ContextPropagation으로 task를 감싸 요청 단위 컨텍스트를 유지한다.
-                java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(
-                        Math.max(1, this.maxParallel));
-                try {
-                    java.util.List<java.util.concurrent.CompletableFuture<java.util.List<Content>>> futures =
-                            new java.util.ArrayList<>(queries.size());
-
-                    for (String q : queries) {
-                        futures.add(java.util.concurrent.CompletableFuture.supplyAsync(
-                                com.example.lms.infra.exec.ContextPropagation.wrapSupplier(() -> {
-                                    java.util.List<Content> acc = new java.util.ArrayList<>();
-                                    try {
-                                        java.util.Map<String, Object> md = new java.util.HashMap<>();
-                                        if (metaHints != null && !metaHints.isEmpty())
-                                            md.putAll(metaHints);
-
-                                        // pre-fuse 단계에서 lane topK도 cap (retriever 비용 절감)
-                                        if (applyPrefuseCap) {
-                                            int w = metaInt(md, "webTopK", -1);
-                                            if (w > fuseLimit)
-                                                md.put("webTopK", String.valueOf(fuseLimit));
-                                            int v = metaInt(md, "vecTopK", -1);
-                                            if (v > fuseLimit)
-                                                md.put("vecTopK", String.valueOf(fuseLimit));
-                                            int vt = metaInt(md, "vectorTopK", -1);
-                                            if (vt > fuseLimit)
-                                                md.put("vectorTopK", String.valueOf(fuseLimit));
-                                            int kg = metaInt(md, "kgTopK", -1);
-                                            if (kg > fuseLimit)
-                                                md.put("kgTopK", String.valueOf(fuseLimit));
-                                        }
-
-                                        md.put("subQuery", "true");
-                                        dev.langchain4j.rag.query.Query subQ = QueryUtils.buildQuery(q, sid, null, md);
-                                        handlerChain.handle(subQ, acc);
-                                    } catch (Exception e) {
-                                        log.warn("[Hybrid] handler 실패: {}", q, e);
-                                    }
-
-                                    if (applyPrefuseCap && acc.size() > fuseLimit) {
-                                        return new java.util.ArrayList<>(acc.subList(0, fuseLimit));
-                                    }
-                                    return acc;
-                                }), pool));
-                    }
+                // RetrievalScheduler가 ContextPropagation으로 task를 감싸 요청 단위 컨텍스트를 유지한다.
+                java.util.List<java.util.function.Supplier<java.util.List<Content>>> tasks =
+                        new java.util.ArrayList<>(queries.size());
+                for (String q : queries) {
+                    tasks.add(() -> {
+                        java.util.List<Content> acc = new java.util.ArrayList<>();
+                        try {
+                            java.util.Map<String, Object> md = new java.util.HashMap<>();
+                            if (metaHints != null && !metaHints.isEmpty())
+                                md.putAll(metaHints);
+
+                            // pre-fuse 단계에서 lane topK도 cap (retriever 비용 절감)
+                            if (applyPrefuseCap) {
+                                int w = metaInt(md, "webTopK", -1);
+                                if (w > fuseLimit)
+                                    md.put("webTopK", String.valueOf(fuseLimit));
+                                int v = metaInt(md, "vecTopK", -1);
+                                if (v > fuseLimit)
+                                    md.put("vecTopK", String.valueOf(fuseLimit));
+                                int vt = metaInt(md, "vectorTopK", -1);
+                                if (vt > fuseLimit)
+                                    md.put("vectorTopK", String.valueOf(fuseLimit));
+                                int kg = metaInt(md, "kgTopK", -1);
+                                if (kg > fuseLimit)
+                                    md.put("kgTopK", String.valueOf(fuseLimit));
+                            }
 
-                    results = futures.stream()
-                            .map(f -> {
-                                try {
-                                    return f.join();
-                                } catch (Exception e) {
-                                    return java.util.List.<Content>of();
-                                }
-                            })
-                            .toList();
-                } finally {
-                    pool.shutdown();
+                            md.put("subQuery", "true");
+                            dev.langchain4j.rag.query.Query subQ = QueryUtils.buildQuery(q, sid, null, md);
+                            handlerChain.handle(subQ, acc);
+                        } catch (Exception e) {
+                            log.warn("[Hybrid] handler 실패: {}", q, e);
+                        }
+
+                        if (applyPrefuseCap && acc.size() > fuseLimit) {
+                            return new java.util.ArrayList<>(acc.subList(0, fuseLimit));
+                        }
+                        return acc;
+                    });
                 }
+                results = fanOutSubQueries(tasks);
             }
 
             // RRF or Softmax 융합 후 상위 limit 반환
@@ -1363,6 +1355,24 @@ public class HybridRetriever implements ContentRetriever {
         }
     } // retrieveAll 끝
 
+    /**
+     * 서브쿼리 fan-out. 공유 {@link RetrievalScheduler}가 있으면 요청당 동시성(maxParallel),
+     * 데드라인(fanout.timeout-ms + 요청 TimeBudget), quorum 조기 종료를 적용하고,
+     * 없으면(테스트/슬라이스 컨텍스트) 호출 스레드에서 순차 실행한다.
+     */
+    private java.util.List<java.util.List<Content>> fanOutSubQueries(
+            java.util.List<java.util.function.Supplier<java.util.List<Content>>> tasks) {
+        if (retrievalScheduler == null) {
+            java.util.List<java.util.List<Content>> out = new java.util.ArrayList<>(tasks.size());
+            for (java.util.function.Supplier<java.util.List<Content>> t : tasks) {
+                out.add(t.get());
+            }
+            return out;
+        }
+        return retrievalScheduler.fanOut(tasks, Math.max(1, this.maxParallel), fanoutTimeoutMs,
+                fanoutQuorum, acc -> acc != null && !acc.isEmpty(), java.util.List.<Content>of());
+    }
+
     // ─────────────────────────────────────────────
     // 상태 기반 검색: CognitiveState/PromptContext를 반영해 쿼리 확장 → 병렬 검색
     // ─────────────────────────────────────────────
@@ -1539,21 +1549,18 @@ public class HybridRetriever implements ContentRetriever {
         // 1) 중복 제거 + 저관련 필터
         Map<String, Content> uniq = new LinkedHashMap<>();
         List<Content> dropped = new ArrayList<>(); // 탈락한 문서 보관용
-        for (Content c : raw) {
+        List<String> texts = contentTexts(raw);
+        double[] rels = relatednessAll(queryText, texts);
+        // 재랭킹 후 동일 인스턴스가 다시 나오면 임베딩 재호출 없이 재사용
+        Map<Content, Double> relByContent = new IdentityHashMap<>();
+        for (int i = 0; i < raw.size(); i++) {
+            Content c = raw.get(i);
             if (c == null)
                 continue;
 
-            String text = Optional.ofNullable(c.textSegment())
-                    .map(TextSegment::text)
-                    .orElse(c.toString());
-
-            double rel = 0.0;
-            try {
-                rel = relevanceScoringService.relatedness(
-                        Optional.ofNullable(queryText).orElse(""),
-                        text);
-            } catch (Exception ignore) {
-            }
+            String text = texts.get(i);
+            double rel = rels[i];
+            relByContent.put(c, rel);
             if (rel < minRelatedness) {
                 dropped.add(c);
                 continue;
@@ -1810,25 +1817,19 @@ public class HybridRetriever implements ContentRetriever {
         final double mu = hp.getDouble("ml.correction.mu", 0.0);
         final double lambda = hp.getDouble("ml.correction.lambda", 1.0);
 
+        List<String> firstPassTexts = contentTexts(firstPass);
+        double[] firstPassRels = cachedRelatedness(queryText, firstPass, firstPassTexts, relByContent);
         for (Content c : firstPass) {
             rank++;
             double base = 1.0 / rank;
 
-            String text = Optional.ofNullable(c.textSegment())
-                    .map(TextSegment::text)
-                    .orElse(c.toString());
+            String text = firstPassTexts.get(rank - 1);
 
             String url = extractUrl(text);
 
             double authority = authorityScorer != null ? authorityScorer.weightFor(url) : 0.5;
 
-            double rel = 0.0;
-            try {
-                rel = relevanceScoringService.relatedness(
-                        Optional.ofNullable(queryText).orElse(""),
-                        text);
-            } catch (Exception ignore) {
-            }
+            double rel = firstPassRels[rank - 1];
 
             // ★ NEW: 최종 점수 = wRel*관련도 + wBase*기본랭크 + wAuth*Authority (+공식도메인 보너스)
             double score0 = (wRel * rel) + (wBase * base) + (wAuth * authority);
@@ -1849,6 +1850,51 @@ public class HybridRetriever implements ContentRetriever {
                 .collect(Collectors.toList());
     }
 
+    private static List<String> contentTexts(List<Content> contents) {
+        List<String> texts = new ArrayList<>(contents.size());
+        for (Content c : contents) {
+            texts.add(c == null ? "" : Optional.ofNullable(c.textSegment())
+                    .map(TextSegment::text)
+                    .orElse(c.toString()));
+        }
+        return texts;
+    }
+
+    /** 배치 관련도; 실패 시 0.0 (기존 per-item 호출의 fail-soft 동작과 동일). */
+    private double[] relatednessAll(String queryText, List<String> texts) {
+        try {
+            double[] r = relevanceScoringService.relatednessAll(Optional.ofNullable(queryText).orElse(""), texts);
+            if (r != null && r.length == texts.size())
+                return r;
+        } catch (Exception ignore) {
+        }
+        return new double[texts.size()];
+    }
+
+    /** {@code known}에 없는 항목만 한 번의 배치로 계산하고 나머지는 1차 패스 값을 재사용. */
+    private double[] cachedRelatedness(String queryText, List<Content> contents, List<String> texts,
+            Map<Content, Double> known) {
+        double[] out = new double[contents.size()];
+        List<Integer> missIdx = new ArrayList<>();
+        List<String> missTexts = new ArrayList<>();
+        for (int i = 0; i < contents.size(); i++) {
+            Double r = known.get(contents.get(i));
+            if (r != null) {
+                out[i] = r;
+            } else {
+                missIdx.add(i);
+                missTexts.add(texts.get(i));
+            }
+        }
+        if (!missTexts.isEmpty()) {
+            double[] fresh = relatednessAll(queryText, missTexts);
+            for (int j = 0; j < missIdx.size(); j++) {
+                out[missIdx.get(j)] = fresh[j];
+            }
+        }
+        return out;
+    }
+
     // ───────────────────────────── NEW: Softmax 융합(단일 정의만 유지)
     // ─────────────────────────────
     /** 여러 버킷의 결과를 하나로 모아 점수(logit)를 만들고 softmax로 정규화한 뒤 상위 N을 고른다. */
@@ -1871,22 +1917,28 @@ public class HybridRetriever implements ContentRetriever {
         Map<String, Content> keeper = new LinkedHashMap<>();
         Map<String, Double> logit = new LinkedHashMap<>();
 
+        // 모든 버킷의 후보를 한 번에 스코어링 (query 임베딩 1회 + embedAll 1회)
+        List<Content> flat = new ArrayList<>();
+        for (List<Content> bucket : buckets) {
+            if (bucket != null)
+                flat.addAll(bucket);
+        }
+        List<String> texts = contentTexts(flat);
+        double[] rels = relatednessAll(queryText, texts);
+
         int bIdx = 0;
+        int pos = 0;
         for (List<Content> bucket : buckets) {
             if (bucket == null)
                 continue;
             int rank = 0;
             for (Content c : bucket) {
                 rank++;
-                String text = Optional.ofNullable(c.textSegment()).map(TextSegment::text).orElse(c.toString());
+                String text = texts.get(pos);
+                double related = rels[pos++];
                 String key = Integer.toHexString(text.hashCode()); // 간단 dedupe
                 String url = extractUrl(text);
                 double authority = (authorityScorer != null) ? authorityScorer.weightFor(url) : 0.5;
-                double related = 0.0;
-                try {
-                    related = relevanceScoringService.relatedness(Optional.ofNullable(queryText).orElse(""), text);
-                } catch (Exception ignore) {
-                }
                 double base = 1.0 / (rank + 0.0); // 상위 랭크 가중
                 double bucketW = 1.0 / (bIdx + 1.0); // 앞선 버킷 약간 우대
                 double l = (wRelated * related) + (wAuthority * authority) + (wRank * base * bucketW);
@@ -6,6 +6,8 @@ import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 
+import java.util.List;
+
 
 
 /**
@@ -30,4 +32,15 @@ public class RelevanceScoringService {
         }
         return scorer.score(query, text);
     }
+
+    /**
+     * {@link #relatedness} for many candidates: one query embedding and one {@code embedAll}
+     * call instead of 2N single calls. Scores are in {@code texts} order.
+     */
+    public double[] relatednessAll(String query, List<String> texts) {
+        if (scorer == null) {
+            scorer = new RelevanceScorer(embeddingModel);
+        }
+        return scorer.scoreAll(query, texts);
+    }
 }
\ No newline at end of file
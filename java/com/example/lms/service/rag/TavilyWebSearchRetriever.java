@@ -3,7 +3,9 @@ package com.example.lms.service.rag;
 import dev.langchain4j.rag.content.Content;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.rag.query.Query;
+import com.example.lms.search.provider.WebSearchL2Cache;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.MediaType;
@@ -40,11 +42,33 @@ public class TavilyWebSearchRetriever implements ContentRetriever {
     @Value("${tavily.timeout-ms:3000}")
     private int timeoutMs;
 
+    /** Persistent L2 (restart-surviving); fresh hits skip the API, stale hits are a fail-soft fallback. */
+    @Autowired(required = false)
+    private WebSearchL2Cache webL2Cache;
+
+    private static final String L2_PROVIDER = "tavily";
+
     @Override
     public List<Content> retrieve(Query query) {
         String q = (query != null && query.text() != null) ? query.text().strip() : "";
         if (q.isBlank() || apiKey == null || apiKey.isBlank()) return List.of();
 
+        String l2Policy = "max=" + Math.max(1, maxResults);
+        WebSearchL2Cache.Hit l2 = (webL2Cache != null) ? webL2Cache.get(L2_PROVIDER, q, l2Policy) : null;
+        if (l2 != null && l2.fresh()) {
+            return l2.snippets().stream().map(Content::from).toList();
+        }
+        List<Content> fetched = fetch(q);
+        if (!fetched.isEmpty()) {
+            if (webL2Cache != null) {
+                webL2Cache.put(L2_PROVIDER, q, l2Policy, fetched.stream().map(c -> c.textSegment().text()).toList());
+            }
+            return fetched;
+        }
+        return l2 != null ? l2.snippets().stream().map(Content::from).toList() : fetched;
+    }
+
+    private List<Content> fetch(String q) {
         try {
             WebClient client = http.baseUrl(baseUrl).build();
             Map<String, Object> req = Map.of(
@@ -2,11 +2,17 @@
 package com.example.lms.service.rag.auth;
 
 import com.example.lms.domain.enums.RerankSourceCredibility;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -21,6 +27,11 @@ import org.slf4j.LoggerFactory;
  *    - 값 범위 [0,1]을 등급으로 매핑: >=0.95 OFFICIAL, >=0.75 TRUSTED, >=0.50 COMMUNITY, 그 외 UNVERIFIED
  * 2) 설정 매칭이 없으면 내장 휴리스틱으로 분류(정부/교육/벤더/문서, 메이저 미디어/백과, 커뮤니티/블로그 등).</p>
  *
+ * <p>도메인 목록은 모두 역순 라벨 트라이({@link DomainSuffixTrie})로 컴파일되어 호스트당 O(라벨 수)로
+ * 분류되며, 결과는 호스트 단위로 캐시된다. {@code search.authority.tier-file} 로 지정한 파일
+ * ({@code <domain> <OFFICIAL|TRUSTED|COMMUNITY|UNVERIFIED|0.0~1.0>}, {@code =host} 는 정확 일치)은
+ * 변경 시 자동 재로드되어 재배포 없이 도메인을 추가할 수 있다.</p>
+ *
  * <p><b>주의:</b> KR 포털(예: naver.com/daum.net)은 하위 서브도메인에 UGC(카페/블로그/지식iN)가 섞여 있어
  * 단순 {@code endsWith("naver.com")} 같은 규칙은 오분류를 유발한다. (DEV_COMMUNITY/DOCS로 잘못 라우팅되어
  * 증거 선택이 끊기는 패턴) 따라서 UGC 서브도메인은 명시적으로 UNVERIFIED로 하향한다.</p>
@@ -29,14 +40,45 @@ import org.slf4j.LoggerFactory;
 public class AuthorityScorer {
     private static final Logger log = LoggerFactory.getLogger(AuthorityScorer.class);
 
-    /** domain → weight table loaded from configuration (lower-case). */
-    private final Map<String, Double> table;
+    // Built-in heuristic phases: the lowest matching phase wins, then the most specific domain.
+    private static final int P_GOV = 0;
+    private static final int P_VENDOR_FORUM = 1;
+    private static final int P_PORTAL = 2;
+    private static final int P_FINANCE = 3;
+    private static final int P_DIRECTORY = 4;
+    private static final int P_VENDOR = 5;
+    private static final int P_BLOG = 6;
+    private static final int P_DOCS = 7;
+    private static final int P_MEDIA = 8;
+    private static final int P_COMMUNITY = 9;
+
+    private record Rule(int phase, RerankSourceCredibility tier) {
+    }
+
+    private static final DomainSuffixTrie<Rule> BUILTIN = buildBuiltin();
+
+    /** Override priority: deny (UNVERIFIED) wins, then OFFICIAL, TRUSTED, COMMUNITY. */
+    private static final RerankSourceCredibility[] OVERRIDE_ORDER = {
+            RerankSourceCredibility.UNVERIFIED,
+            RerankSourceCredibility.OFFICIAL,
+            RerankSourceCredibility.TRUSTED,
+            RerankSourceCredibility.COMMUNITY
+    };
 
-    /** Hard overrides (allow/deny) loaded from configuration. */
-    private final Set<String> overrideOfficial;
-    private final Set<String> overrideTrusted;
-    private final Set<String> overrideCommunity;
-    private final Set<String> overrideUnverified;
+    /** domain → weight table loaded from configuration (lower-case); overlapping suffixes keep the max. */
+    private final DomainSuffixTrie<Double> table;
+
+    /** Hard overrides (allow/deny) loaded from configuration → index into {@link #OVERRIDE_ORDER}. */
+    private final DomainSuffixTrie<Integer> overrides;
+
+    /** Operator tier file (hot-reloaded on mtime change). */
+    private final Path tierFile;
+    private final long tierFileCheckNanos;
+    private volatile long tierFileNextCheck;
+    private volatile long tierFileMtime = Long.MIN_VALUE;
+    private volatile DomainSuffixTrie<RerankSourceCredibility> tierFileTrie = DomainSuffixTrie.empty();
+
+    private final Cache<String, RerankSourceCredibility> hostCache;
 
     // Tier weights (decay multipliers)
     private final double tierOfficial;
@@ -61,7 +103,10 @@ public class AuthorityScorer {
             @Value("${authority.tier-weights.wiki:0.80}")    double wWiki,
             @Value("${authority.tier-weights.news:0.70}")    double wNews,
             @Value("${authority.tier-weights.community:0.55}") double wCommunity,
-            @Value("${authority.tier-weights.unverified:0.25}") double wUnverified
+            @Value("${authority.tier-weights.unverified:0.25}") double wUnverified,
+            @Value("${search.authority.tier-file:}") String tierFile,
+            @Value("${search.authority.tier-file-check-ms:10000}") long tierFileCheckMs,
+            @Value("${search.authority.host-cache-size:20000}") long hostCacheSize
     ) {
         LinkedHashMap<String, Double> merged = new LinkedHashMap<>();
         merged.putAll(parse(officialCsv));
@@ -74,12 +119,24 @@ public class AuthorityScorer {
             merged.putAll(parse(legacyCsv));
         }
 
-        this.table = Collections.unmodifiableMap(merged);
-
-        this.overrideOfficial = Collections.unmodifiableSet(parseDomainList(overrideOfficialCsv));
-        this.overrideTrusted  = Collections.unmodifiableSet(parseDomainList(overrideTrustedCsv));
-        this.overrideCommunity = Collections.unmodifiableSet(parseDomainList(overrideCommunityCsv));
-        this.overrideUnverified = Collections.unmodifiableSet(parseDomainList(overrideUnverifiedCsv));
+        DomainSuffixTrie.Builder<Double> tb = DomainSuffixTrie.<Double>builder().merge(Math::max);
+        merged.forEach((k, v) -> tb.put(normalizeHost(k), v));
+        this.table = tb.build();
+
+        Set<String> overrideOfficial = parseDomainList(overrideOfficialCsv);
+        Set<String> overrideTrusted = parseDomainList(overrideTrustedCsv);
+        Set<String> overrideCommunity = parseDomainList(overrideCommunityCsv);
+        Set<String> overrideUnverified = parseDomainList(overrideUnverifiedCsv);
+        DomainSuffixTrie.Builder<Integer> ob = DomainSuffixTrie.<Integer>builder().merge(Math::min);
+        overrideUnverified.forEach(d -> ob.put(d, 0));
+        overrideOfficial.forEach(d -> ob.put(d, 1));
+        overrideTrusted.forEach(d -> ob.put(d, 2));
+        overrideCommunity.forEach(d -> ob.put(d, 3));
+        this.overrides = ob.build();
+
+        this.tierFile = (tierFile == null || tierFile.isBlank()) ? null : Paths.get(tierFile.trim());
+        this.tierFileCheckNanos = java.util.concurrent.TimeUnit.MILLISECONDS.toNanos(Math.max(0L, tierFileCheckMs));
+        this.hostCache = Caffeine.newBuilder().maximumSize(Math.max(1L, hostCacheSize)).build();
 
         this.tierOfficial  = clamp(wOfficial);
         this.tierGuide     = clamp(wGuide);
@@ -95,13 +152,14 @@ public class AuthorityScorer {
         }
 
 
-        int o1 = overrideOfficial != null ? overrideOfficial.size() : 0;
-        int o2 = overrideTrusted != null ? overrideTrusted.size() : 0;
-        int o3 = overrideCommunity != null ? overrideCommunity.size() : 0;
-        int o4 = overrideUnverified != null ? overrideUnverified.size() : 0;
+        int o1 = overrideOfficial.size();
+        int o2 = overrideTrusted.size();
+        int o3 = overrideCommunity.size();
+        int o4 = overrideUnverified.size();
         if (o1 + o2 + o3 + o4 > 0) {
             log.info("[AuthorityScorer] Loaded override sets: official={}, trusted={}, community={}, unverified={}", o1, o2, o3, o4);
         }
+        maybeReloadTierFile();
     }
 
     /** (하위호환) weightFor는 등급·감쇠 매핑으로 위임한다. */
@@ -120,129 +178,32 @@ public class AuthorityScorer {
         if (h == null || h.isBlank()) {
             return RerankSourceCredibility.UNVERIFIED;
         }
+        maybeReloadTierFile();
+        // 후보 배치마다 같은 호스트가 반복되므로 호스트 단위로 결과를 캐시한다.
+        return hostCache.get(h, this::classifyHost);
+    }
 
+    RerankSourceCredibility classifyHost(String h) {
         // 0) hard overrides (allow/deny) before table/heuristics
         RerankSourceCredibility o = overrideCredibility(h);
         if (o != null) {
             return o;
         }
 
+        // 0.5) 운영자 tier 파일 (재배포 없이 추가 가능, 가장 구체적인 항목 우선)
+        RerankSourceCredibility filed = tierFileTrie.mostSpecific(h);
+        if (filed != null) {
+            return filed;
+        }
+
         // 1) 설정 테이블 매칭 → 수치 → 등급
         Double configured = bestMatchingWeight(h, table);
         if (configured != null) {
             return mapWeightToCredibility(configured);
         }
 
-        // 2) 내장 휴리스틱
-
-        // 정부/교육
-        if (isGovOrEdu(h)) {
-            return RerankSourceCredibility.OFFICIAL;
-        }
-
-        // Vendor-hosted community forums should not be treated as "OFFICIAL docs".
-        // (They are still high-signal, but user-generated.)
-        if (h.equals("community.openai.com")) {
-            return RerankSourceCredibility.COMMUNITY;
-        }
-
-        // KR portals: avoid over-promoting UGC subdomains.
-        RerankSourceCredibility portalCred = portalCredibilityOverride(h);
-        if (portalCred != null) {
-            return portalCred;
-        }
-
-        // KR finance disclosure & regulator sites (high authority, should be OFFICIAL).
-        if (h.equals("dart.fss.or.kr")
-                || h.equals("opendart.fss.or.kr")
-                || h.equals("fss.or.kr")
-                || h.endsWith(".fss.or.kr")
-                || h.equals("kind.krx.co.kr")
-                || h.equals("krx.co.kr")
-                || h.endsWith(".krx.co.kr")
-                || h.equals("fs.moef.go.kr")
-                || h.equals("www.fsc.go.kr")
-                || h.endsWith(".fsc.go.kr")) {
-            return RerankSourceCredibility.OFFICIAL;
-        }
-
-        // KR company profile directories (useful for entity/company lookups)
-        if (h.equals("rocketpunch.com") || h.endsWith(".rocketpunch.com")
-                || h.equals("jobplanet.co.kr") || h.endsWith(".jobplanet.co.kr")
-                || h.equals("jobkorea.co.kr") || h.endsWith(".jobkorea.co.kr")
-                || h.equals("incruit.com") || h.endsWith(".incruit.com")
-                || h.equals("saramin.co.kr") || h.endsWith(".saramin.co.kr")
-                || h.equals("wanted.co.kr") || h.endsWith(".wanted.co.kr")
-                || h.equals("jumpit.co.kr") || h.endsWith(".jumpit.co.kr")
-                || h.equals("catch.co.kr") || h.endsWith(".catch.co.kr")
-                || h.equals("thevc.kr") || h.endsWith(".thevc.kr")
-                || h.equals("bizno.net") || h.endsWith(".bizno.net")) {
-            return RerankSourceCredibility.TRUSTED;
-        }
-
-
-
-        // Major platform domains (often used as primary sources for profile/channel pages).
-        // These are not "OFFICIAL docs", but are typically higher signal than random blogs.
-        if (h.equals("twitch.tv") || h.endsWith(".twitch.tv")
-                || h.equals("watcha.com") || h.endsWith(".watcha.com")) {
-            return RerankSourceCredibility.TRUSTED;
-        }
-
-        boolean isGoogleFamily =
-                h.equals("google.dev") || h.endsWith(".google.dev")
-                        || h.equals("google.com") || h.endsWith(".google.com")
-                        || h.equals("googleapis.com") || h.endsWith(".googleapis.com");
-
-        boolean isMajorVendor =
-                isGoogleFamily
-                        || h.equals("openai.com") || h.endsWith(".openai.com")
-                        || h.equals("microsoft.com") || h.endsWith(".microsoft.com")
-                        || h.equals("apple.com") || h.endsWith(".apple.com")
-                        || h.equals("oracle.com") || h.endsWith(".oracle.com")
-                        || h.equals("spring.io") || h.endsWith(".spring.io")
-                        || h.equals("anthropic.com") || h.endsWith(".anthropic.com");
-
-        // Generic blog platforms / UGC hosts (exclude major vendor families)
-        if (isBlogOrUgcHost(h) && !isMajorVendor) {
-            return RerankSourceCredibility.UNVERIFIED;
-        }
-
-        // OFFICIAL: vendor/government/education/documentation
-        if (isMajorVendor
-                || h.equals("apache.org") || h.endsWith(".apache.org")
-                || h.startsWith("developer.") || h.contains(".docs.") || h.startsWith("docs.")
-        ) {
-            return RerankSourceCredibility.OFFICIAL;
-        }
-
-        // TRUSTED: major media / encyclopedias (general)
-        if (h.equals("reuters.com") || h.endsWith(".reuters.com")
-                || h.equals("bbc.com") || h.endsWith(".bbc.com")
-                || h.equals("bloomberg.com") || h.endsWith(".bloomberg.com")
-                || h.equals("nytimes.com") || h.endsWith(".nytimes.com")
-                || h.equals("wsj.com") || h.endsWith(".wsj.com")
-                || h.equals("britannica.com") || h.endsWith(".britannica.com")
-                || h.equals("wikipedia.org") || h.endsWith(".wikipedia.org")
-        ) {
-            return RerankSourceCredibility.TRUSTED;
-        }
-
-        // COMMUNITY: dev Q&A / issue trackers / community platforms
-        if (h.equals("github.com") || h.endsWith(".github.com")
-                || h.equals("gitlab.com") || h.endsWith(".gitlab.com")
-                || h.equals("bitbucket.org") || h.endsWith(".bitbucket.org")
-                || h.equals("stackoverflow.com") || h.endsWith(".stackoverflow.com")
-                || h.equals("stackexchange.com") || h.endsWith(".stackexchange.com")
-                || h.equals("reddit.com") || h.endsWith(".reddit.com")
-                || h.equals("medium.com") || h.endsWith(".medium.com")
-                || h.equals("hashnode.com") || h.endsWith(".hashnode.com")
-                || h.equals("dev.to") || h.endsWith(".dev.to")
-        ) {
-            return RerankSourceCredibility.COMMUNITY;
-        }
-
-        return RerankSourceCredibility.UNVERIFIED;
+        // 2) 내장 휴리스틱 (BUILTIN 트라이 + 라벨 경계가 없는 패턴 몇 개)
+        return builtinCredibility(h);
     }
 
     /** 등급별 지수 감쇠 상수(OFFICIAL=1.0 ... UNVERIFIED=0.25). */
@@ -267,27 +228,173 @@ public class AuthorityScorer {
     // ─────────────────────────────────────────────────────────────────────────
 
     private RerankSourceCredibility overrideCredibility(String normalizedHost) {
-        if (normalizedHost == null || normalizedHost.isBlank()) return null;
-        String h = normalizedHost;
-        // Allow "deny" to win
-        if (matchesAny(h, overrideUnverified)) return RerankSourceCredibility.UNVERIFIED;
-        if (matchesAny(h, overrideOfficial)) return RerankSourceCredibility.OFFICIAL;
-        if (matchesAny(h, overrideTrusted)) return RerankSourceCredibility.TRUSTED;
-        if (matchesAny(h, overrideCommunity)) return RerankSourceCredibility.COMMUNITY;
-        return null;
+        if (normalizedHost == null || normalizedHost.isBlank() || overrides.isEmpty()) return null;
+        // Allow "deny" to win: keep the lowest priority index among all matching suffixes.
+        int[] best = {Integer.MAX_VALUE};
+        overrides.forEachMatch(normalizedHost, p -> best[0] = Math.min(best[0], p));
+        return best[0] == Integer.MAX_VALUE ? null : OVERRIDE_ORDER[best[0]];
+    }
+
+    private static RerankSourceCredibility builtinCredibility(String h) {
+        Rule[] best = new Rule[1];
+        BUILTIN.forEachMatch(h, r -> {
+            // shallow → deep visit: a lower phase always wins, the same phase prefers the deeper entry
+            if (best[0] == null || r.phase() <= best[0].phase()) {
+                best[0] = r;
+            }
+        });
+        Rule hit = best[0];
+        int phase = hit == null ? Integer.MAX_VALUE : hit.phase();
+
+        // 정부/교육 (ex: foo.edu.au)
+        if (phase > P_GOV && h.contains(".edu.")) {
+            return RerankSourceCredibility.OFFICIAL;
+        }
+        if (phase <= P_BLOG) {
+            return hit.tier();
+        }
+        // Generic blog hosts (blog.example.com); major vendor families are matched above.
+        if (h.contains("blog.")) {
+            return RerankSourceCredibility.UNVERIFIED;
+        }
+        if (phase <= P_DOCS) {
+            return hit.tier();
+        }
+        // OFFICIAL: documentation host patterns
+        if (h.startsWith("developer.") || h.contains(".docs.") || h.startsWith("docs.")) {
+            return RerankSourceCredibility.OFFICIAL;
+        }
+        return hit != null ? hit.tier() : RerankSourceCredibility.UNVERIFIED;
+    }
+
+    /**
+     * Built-in domain table. Order inside the trie no longer matters; precedence is encoded by phase.
+     *
+     * <p><b>KR portals:</b> every naver.com/daum.net subdomain defaults to UNVERIFIED (UGC such as
+     * blog/cafe/kin/post) and only the listed exact hosts are promoted.</p>
+     */
+    private static DomainSuffixTrie<Rule> buildBuiltin() {
+        DomainSuffixTrie.Builder<Rule> b = DomainSuffixTrie.builder();
+        RerankSourceCredibility official = RerankSourceCredibility.OFFICIAL;
+        RerankSourceCredibility trusted = RerankSourceCredibility.TRUSTED;
+        RerankSourceCredibility community = RerankSourceCredibility.COMMUNITY;
+        RerankSourceCredibility unverified = RerankSourceCredibility.UNVERIFIED;
+
+        // 정부/교육
+        putAll(b, P_GOV, official, "go.kr", "ac.kr", "gov", "edu");
+
+        // Vendor-hosted community forums should not be treated as "OFFICIAL docs".
+        b.putExact("community.openai.com", new Rule(P_VENDOR_FORUM, community));
+
+        // KR portals: avoid over-promoting UGC subdomains.
+        putAll(b, P_PORTAL, unverified, "naver.com", "daum.net");
+        b.putExact("naver.com", new Rule(P_PORTAL, trusted));
+        b.putExact("developers.naver.com", new Rule(P_PORTAL, official));
+        for (String h : List.of("d2.naver.com", "news.naver.com", "chzzk.naver.com", "m.chzzk.naver.com")) {
+            b.putExact(h, new Rule(P_PORTAL, trusted));
+        }
+        b.putExact("daum.net", new Rule(P_PORTAL, trusted));
+
+        // KR finance disclosure & regulator sites (dart/opendart/kind are subdomains; fsc/moef are under go.kr)
+        putAll(b, P_FINANCE, official, "fss.or.kr", "krx.co.kr");
+
+        // KR company profile directories + major platform domains (profile/channel pages)
+        putAll(b, P_DIRECTORY, trusted,
+                "rocketpunch.com", "jobplanet.co.kr", "jobkorea.co.kr", "incruit.com", "saramin.co.kr",
+                "wanted.co.kr", "jumpit.co.kr", "catch.co.kr", "thevc.kr", "bizno.net",
+                "twitch.tv", "watcha.com");
+
+        // Major vendor families win over generic blog patterns (e.g. blog.google.com).
+        putAll(b, P_VENDOR, official,
+                "google.dev", "google.com", "googleapis.com", "openai.com", "microsoft.com",
+                "apple.com", "oracle.com", "spring.io", "anthropic.com");
+
+        // Generic blog platforms / UGC hosts
+        putAll(b, P_BLOG, unverified, "tistory.com", "velog.io", "brunch.co.kr", "wordpress.com", "blogspot.com");
+
+        putAll(b, P_DOCS, official, "apache.org");
+
+        // TRUSTED: major media / encyclopedias (general)
+        putAll(b, P_MEDIA, trusted,
+                "reuters.com", "bbc.com", "bloomberg.com", "nytimes.com", "wsj.com", "britannica.com", "wikipedia.org");
+
+        // COMMUNITY: dev Q&A / issue trackers / community platforms
+        putAll(b, P_COMMUNITY, community,
+                "github.com", "gitlab.com", "bitbucket.org", "stackoverflow.com", "stackexchange.com",
+                "reddit.com", "medium.com", "hashnode.com", "dev.to");
+        return b.build();
+    }
+
+    private static void putAll(DomainSuffixTrie.Builder<Rule> b, int phase, RerankSourceCredibility tier, String... domains) {
+        Rule r = new Rule(phase, tier);
+        for (String d : domains) {
+            b.put(d, r);
+        }
+    }
+
+    /** Re-reads the operator tier file when its mtime changed (checked at most every tier-file-check-ms). */
+    private void maybeReloadTierFile() {
+        if (tierFile == null) return;
+        long now = System.nanoTime();
+        if (now - tierFileNextCheck < 0 && tierFileMtime != Long.MIN_VALUE) return;
+        synchronized (this) {
+            if (now - tierFileNextCheck < 0 && tierFileMtime != Long.MIN_VALUE) return;
+            tierFileNextCheck = now + tierFileCheckNanos;
+            try {
+                long mtime = Files.isRegularFile(tierFile) ? Files.getLastModifiedTime(tierFile).toMillis() : -1L;
+                if (mtime == tierFileMtime) return;
+                DomainSuffixTrie<RerankSourceCredibility> next = mtime < 0
+                        ? DomainSuffixTrie.empty()
+                        : parseTierFile(Files.readAllLines(tierFile, StandardCharsets.UTF_8));
+                tierFileTrie = next;
+                tierFileMtime = mtime;
+                hostCache.invalidateAll();
+                log.info("[AuthorityScorer] tier file {} loaded ({} entries)", tierFile, next.size());
+            } catch (Exception e) {
+                // fail-soft: keep the previous table
+                tierFileMtime = tierFileMtime == Long.MIN_VALUE ? -1L : tierFileMtime;
+                log.warn("[AuthorityScorer] tier file {} reload failed: {}", tierFile, e.toString());
+            }
+        }
     }
 
-    private static boolean matchesAny(String host, Set<String> suffixes) {
-        if (host == null || host.isBlank() || suffixes == null || suffixes.isEmpty()) return false;
-        for (String s : suffixes) {
-            if (s == null || s.isBlank()) continue;
-            String suf = normalizeDomainToken(s);
-            if (suf == null) continue;
-            if (host.equals(suf) || host.endsWith("." + suf)) {
-                return true;
+    static DomainSuffixTrie<RerankSourceCredibility> parseTierFile(List<String> lines) {
+        DomainSuffixTrie.Builder<RerankSourceCredibility> b = DomainSuffixTrie.builder();
+        for (String line : lines) {
+            String t = line == null ? "" : line;
+            int hash = t.indexOf('#');
+            if (hash >= 0) t = t.substring(0, hash);
+            t = t.trim();
+            if (t.isEmpty()) continue;
+            String[] kv = t.split("[\\s=:,]+", 2);
+            boolean exact = t.startsWith("=");
+            if (exact) {
+                kv = t.substring(1).trim().split("[\\s=:,]+", 2);
+            }
+            if (kv.length < 2) continue;
+            RerankSourceCredibility tier = parseTier(kv[1].trim());
+            String domain = normalizeDomainToken(kv[0]);
+            if (tier == null || domain == null) continue;
+            if (exact) {
+                b.putExact(domain, tier);
+            } else {
+                b.put(domain, tier);
             }
         }
-        return false;
+        return b.build();
+    }
+
+    private static RerankSourceCredibility parseTier(String v) {
+        if (v == null || v.isEmpty()) return null;
+        try {
+            return RerankSourceCredibility.valueOf(v.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ignore) {
+        }
+        try {
+            return mapWeightToCredibility(Double.parseDouble(v));
+        } catch (NumberFormatException ignore) {
+            return null;
+        }
     }
 
     private static Set<String> parseDomainList(String csv) {
@@ -350,80 +457,6 @@ public class AuthorityScorer {
                 ));
     }
 
-    private static boolean isGovOrEdu(String host) {
-        return host.endsWith(".go.kr")
-                || host.endsWith(".ac.kr")
-                || host.endsWith(".gov")
-                || host.endsWith(".edu")
-                || host.contains(".edu.");
-    }
-
-    private static boolean isBlogOrUgcHost(String h) {
-        if (h == null || h.isBlank()) return false;
-        // common patterns
-        if (h.contains("blog.") || h.startsWith("blog.")) return true;
-        // KR blog platforms
-        if (h.endsWith("tistory.com") || h.endsWith("velog.io") || h.endsWith("brunch.co.kr")) return true;
-        // portal UGC explicitly
-        if (h.endsWith("blog.naver.com") || h.endsWith("cafe.naver.com")
-                || h.endsWith("kin.naver.com") || h.endsWith("post.naver.com")) return true;
-        if (h.endsWith("blog.daum.net") || h.endsWith("cafe.daum.net")) return true;
-        // generic UGC platforms
-        return h.endsWith("wordpress.com") || h.endsWith("blogspot.com");
-    }
-
-    /**
-     * KR portal overrides: return non-null when the host belongs to a portal family.
-     * The goal is to avoid marking UGC subdomains as TRUSTED.
-     */
-    private static RerankSourceCredibility portalCredibilityOverride(String h) {
-        if (h == null) return null;
-
-        // NAVER
-        if (h.equals("naver.com") || h.endsWith(".naver.com")) {
-            // UGC → UNVERIFIED
-            if (h.endsWith("blog.naver.com") || h.endsWith("cafe.naver.com")
-                    || h.endsWith("kin.naver.com") || h.endsWith("post.naver.com")
-                    || h.endsWith("m.blog.naver.com") || h.endsWith("m.cafe.naver.com")
-            ) {
-                return RerankSourceCredibility.UNVERIFIED;
-            }
-            // Dev/docs/engineering subdomains (high signal)
-            if (h.equals("developers.naver.com")) {
-                return RerankSourceCredibility.OFFICIAL;
-            }
-            if (h.equals("d2.naver.com")) {
-                return RerankSourceCredibility.TRUSTED;
-            }
-            if (h.equals("news.naver.com")) {
-                return RerankSourceCredibility.TRUSTED;
-            }
-            // Naver streaming platform (Chzzk) - trusted platform pages.
-            if (h.equals("chzzk.naver.com") || h.equals("m.chzzk.naver.com")) {
-                return RerankSourceCredibility.TRUSTED;
-            }
-            // root portal
-            if (h.equals("naver.com") || h.equals("www.naver.com")) {
-                return RerankSourceCredibility.TRUSTED;
-            }
-            // default: do not auto-promote arbitrary naver subdomains
-            return RerankSourceCredibility.UNVERIFIED;
-        }
-
-        // DAUM
-        if (h.equals("daum.net") || h.endsWith(".daum.net")) {
-            if (h.endsWith("blog.daum.net") || h.endsWith("cafe.daum.net")) {
-                return RerankSourceCredibility.UNVERIFIED;
-            }
-            if (h.equals("daum.net") || h.equals("www.daum.net")) {
-                return RerankSourceCredibility.TRUSTED;
-            }
-            return RerankSourceCredibility.UNVERIFIED;
-        }
-
-        return null;
-    }
-
     /** URL → host 안전 추출 */
     private static String host(String url) {
         if (url == null || url.isBlank()) return null;
@@ -451,24 +484,17 @@ public class AuthorityScorer {
     }
 
     /** 설정 테이블에서 가장 잘 매칭되는 가중치 선택(가장 높은 값 우선) */
-    private static Double bestMatchingWeight(String host, Map<String, Double> table) {
+    private static Double bestMatchingWeight(String host, DomainSuffixTrie<Double> table) {
         if (table == null || table.isEmpty()) return null;
         if (host == null || host.isBlank()) return null;
 
-        String hNorm = normalizeHost(host);
-        Double best = null;
-        for (Map.Entry<String, Double> e : table.entrySet()) {
-            String key = e.getKey();
-            if (key == null || key.isBlank()) continue;
-            String kNorm = normalizeHost(key);
-            if (kNorm == null) continue;
-            if (hNorm.equals(kNorm) || hNorm.endsWith("." + kNorm)) {
-                if (best == null || e.getValue() > best) {
-                    best = e.getValue();
-                }
+        Double[] best = new Double[1];
+        table.forEachMatch(host, w -> {
+            if (best[0] == null || w > best[0]) {
+                best[0] = w;
             }
-        }
-        return best;
+        });
+        return best[0];
     }
 
     /** 수치 가중치 → 등급 임계값 매핑 */
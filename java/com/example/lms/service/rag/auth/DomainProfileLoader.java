@@ -33,6 +33,10 @@ import org.slf4j.LoggerFactory;
  * "subdomain of suffix". We intentionally do <i>not</i> use raw {@code endsWith()}
  * because it can allow unrelated domains such as {@code notopenai.com} to match
  * {@code openai.com}.</p>
+ *
+ * <p>Each profile is compiled into a {@link DomainSuffixTrie} at (re)load time so that
+ * {@link #isAllowedByProfile(String, String)} costs O(host labels) instead of a scan over every
+ * suffix; {@link #reload()} swaps both maps atomically.</p>
  */
 @Component
 public class DomainProfileLoader {
@@ -70,7 +74,10 @@ public class DomainProfileLoader {
     private String devCommunityDenyCsv;
 
     /** profileName -> list of allowed suffixes (normalized lower-case). */
-    private final Map<String, List<String>> profiles = new LinkedHashMap<>();
+    private volatile Map<String, List<String>> profiles = Map.of();
+
+    /** profileName -> compiled suffix trie over {@link #profiles}. */
+    private volatile Map<String, DomainSuffixTrie<Boolean>> profileTries = Map.of();
 
     public DomainProfileLoader(DomainWhitelist domainWhitelist) {
         this.domainWhitelist = domainWhitelist;
@@ -91,7 +98,7 @@ public class DomainProfileLoader {
      */
     @PostConstruct
     public synchronized void load() {
-        profiles.clear();
+        Map<String, List<String>> loaded = new LinkedHashMap<>();
 
         // ─────────────────────────────────────────────────────────────────────
         // 1) OFFICIAL profile
@@ -158,7 +165,7 @@ public class DomainProfileLoader {
 
         applyOverrides(officialSet, officialExtraCsv, officialDenyCsv);
 
-        profiles.put("official", new ArrayList<>(officialSet));
+        loaded.put("official", new ArrayList<>(officialSet));
 
         // ─────────────────────────────────────────────────────────────────────
         // 2) DOCS profile (official + doc-centric domains)
@@ -176,7 +183,7 @@ public class DomainProfileLoader {
                 "docs.github.com"
         ));
         applyOverrides(docsSet, docsExtraCsv, docsDenyCsv);
-        profiles.put("docs", new ArrayList<>(docsSet));
+        loaded.put("docs", new ArrayList<>(docsSet));
 
         // ─────────────────────────────────────────────────────────────────────
         // 3) DEV COMMUNITY profile (Q&A, issue trackers, forums)
@@ -198,7 +205,7 @@ public class DomainProfileLoader {
         applyOverrides(devCommunitySet, devCommunityExtraCsv, devCommunityDenyCsv);
         // Avoid accidental list overlap: do not allow official suffixes to live in dev_community profile.
         devCommunitySet.removeAll(officialSet);
-        profiles.put("dev_community", new ArrayList<>(devCommunitySet));
+        loaded.put("dev_community", new ArrayList<>(devCommunitySet));
 
         // ─────────────────────────────────────────────────────────────────────
         // 4) COMMUNITY BLOG profile (opt-in)
@@ -225,7 +232,7 @@ public class DomainProfileLoader {
                 "woowabros.github.io",
                 "spoqa.github.io"
         ));
-        profiles.put("community_blog", new ArrayList<>(blogSet));
+        loaded.put("community_blog", new ArrayList<>(blogSet));
 
         // ─────────────────────────────────────────────────────────────────────
         // 5) KR company profiles (used by entity/company lookups and UAW idle pipeline)
@@ -238,14 +245,14 @@ public class DomainProfileLoader {
                 "kind.krx.co.kr",
                 "krx.co.kr"
         ));
-        profiles.put("kr_company_disclosure", new ArrayList<>(krCompanyDisclosure));
+        loaded.put("kr_company_disclosure", new ArrayList<>(krCompanyDisclosure));
 
         LinkedHashSet<String> krCompanyStartup = new LinkedHashSet<>(officialSet);
         krCompanyStartup.addAll(List.of(
                 "rocketpunch.com",
                 "thevc.kr"
         ));
-        profiles.put("kr_company_startup", new ArrayList<>(krCompanyStartup));
+        loaded.put("kr_company_startup", new ArrayList<>(krCompanyStartup));
 
         LinkedHashSet<String> krCompanyHiring = new LinkedHashSet<>(officialSet);
         krCompanyHiring.addAll(List.of(
@@ -255,7 +262,7 @@ public class DomainProfileLoader {
                 "jobplanet.co.kr",
                 "jumpit.saramin.co.kr"
         ));
-        profiles.put("kr_company_hiring", new ArrayList<>(krCompanyHiring));
+        loaded.put("kr_company_hiring", new ArrayList<>(krCompanyHiring));
 
         LinkedHashSet<String> krCompanyPress = new LinkedHashSet<>(officialSet);
         krCompanyPress.addAll(List.of(
@@ -264,14 +271,14 @@ public class DomainProfileLoader {
                 "hankyung.com",
                 "mk.co.kr"
         ));
-        profiles.put("kr_company_press", new ArrayList<>(krCompanyPress));
+        loaded.put("kr_company_press", new ArrayList<>(krCompanyPress));
 
         LinkedHashSet<String> krCompany = new LinkedHashSet<>(officialSet);
         krCompany.addAll(krCompanyDisclosure);
         krCompany.addAll(krCompanyStartup);
         krCompany.addAll(krCompanyHiring);
         krCompany.addAll(krCompanyPress);
-        profiles.put("kr_company", new ArrayList<>(krCompany));
+        loaded.put("kr_company", new ArrayList<>(krCompany));
 
 
         // ─────────────────────────────────────────────────────────────────────
@@ -297,7 +304,7 @@ public class DomainProfileLoader {
                 "wikidata.org",
                 "namu.wiki"
         ));
-        profiles.put("jul14", new ArrayList<>(jul14));
+        loaded.put("jul14", new ArrayList<>(jul14));
 
         // ─────────────────────────────────────────────────────────────────────
         // 7) Load external profiles from directory
@@ -318,7 +325,7 @@ public class DomainProfileLoader {
                                     String n = normalizeSuffix(trimmed);
                                     if (n != null) list.add(n);
                                 }
-                                profiles.put(profileName, list);
+                                loaded.put(profileName, list);
                             }
                         }
                     }
@@ -329,8 +336,19 @@ public class DomainProfileLoader {
             }
         }
 
+        Map<String, DomainSuffixTrie<Boolean>> tries = new HashMap<>();
+        for (Map.Entry<String, List<String>> e : loaded.entrySet()) {
+            DomainSuffixTrie.Builder<Boolean> b = DomainSuffixTrie.builder();
+            for (String suf : e.getValue()) {
+                b.put(normalizeSuffix(suf), Boolean.TRUE);
+            }
+            tries.put(e.getKey(), b.build());
+        }
+        this.profiles = Collections.unmodifiableMap(loaded);
+        this.profileTries = tries;
+
         if (log.isInfoEnabled()) {
-            log.info("[DomainProfileLoader] loaded profiles: {}", profiles.keySet());
+            log.info("[DomainProfileLoader] loaded profiles: {}", loaded.keySet());
         }
     }
 
@@ -354,11 +372,12 @@ public class DomainProfileLoader {
         String effectiveProfile = (profile == null || profile.isBlank()) ? defaultProfile : profile;
         String key = effectiveProfile.toLowerCase(Locale.ROOT).trim();
 
-        List<String> list = profiles.get(key);
-        if (list == null || list.isEmpty()) {
-            list = profiles.get("official");
+        Map<String, DomainSuffixTrie<Boolean>> tries = profileTries;
+        DomainSuffixTrie<Boolean> trie = tries.get(key);
+        if (trie == null || trie.isEmpty()) {
+            trie = tries.get("official");
         }
-        if (list == null || list.isEmpty()) {
+        if (trie == null || trie.isEmpty()) {
             return false;
         }
 
@@ -368,14 +387,8 @@ public class DomainProfileLoader {
         String lowerHost = normalizeHost(host);
         if (lowerHost == null) return false;
 
-        for (String suf : list) {
-            String s = normalizeSuffix(suf);
-            if (s == null) continue;
-            if (hostMatchesSuffix(lowerHost, s)) {
-                return true;
-            }
-        }
-        return false;
+        // exact host OR subdomain match (label boundary), never a raw endsWith().
+        return trie.matches(lowerHost);
     }
 
     /** Returns true if the input profile exists. */
@@ -471,12 +484,6 @@ public class DomainProfileLoader {
         return host;
     }
 
-    private static boolean hostMatchesSuffix(String lowerHost, String suffix) {
-        if (lowerHost == null || lowerHost.isBlank() || suffix == null || suffix.isBlank()) return false;
-        // exact host OR subdomain match.  Prevent "notopenai.com" matching "openai.com".
-        return lowerHost.equals(suffix) || lowerHost.endsWith("." + suffix);
-    }
-
     private static String normalizeHost(String h) {
         if (h == null) return null;
         String s = h.trim().toLowerCase(Locale.ROOT);
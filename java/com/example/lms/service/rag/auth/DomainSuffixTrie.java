@@ -0,0 +1,168 @@
+package com.example.lms.service.rag.auth;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+
+/**
+ * Immutable trie over reversed domain labels ({@code docs.spring.io -> io/spring/docs}).
+ *
+ * <p>Each node may carry a <i>suffix</i> value (matches the domain itself and every subdomain,
+ * never a raw string suffix such as {@code notopenai.com}) and an <i>exact</i> value (matches
+ * only that host). Lookups walk the host once from its last label, so cost is O(labels)
+ * regardless of how many domains are registered.</p>
+ */
+public final class DomainSuffixTrie<V> {
+
+    private static final DomainSuffixTrie<?> EMPTY = new DomainSuffixTrie<>(new Node<>(), 0);
+
+    private static final class Node<V> {
+        Map<String, Node<V>> children;
+        V suffixValue;
+        V exactValue;
+
+        Node<V> child(String label) {
+            return children == null ? null : children.get(label);
+        }
+    }
+
+    private final Node<V> root;
+    private final int size;
+
+    private DomainSuffixTrie(Node<V> root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> DomainSuffixTrie<V> empty() {
+        return (DomainSuffixTrie<V>) EMPTY;
+    }
+
+    public static <V> Builder<V> builder() {
+        return new Builder<>();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /** True when {@code host} equals or is a subdomain of any suffix entry, or equals an exact entry. */
+    public boolean matches(String host) {
+        return mostSpecific(host) != null;
+    }
+
+    /** Value of the deepest matching entry; an exact entry wins over a suffix entry on the same host. */
+    public V mostSpecific(String host) {
+        Object[] best = new Object[1];
+        forEachMatch(host, v -> best[0] = v);
+        @SuppressWarnings("unchecked")
+        V v = (V) best[0];
+        return v;
+    }
+
+    /**
+     * Visits every matching value from the shortest suffix to the full host
+     * (the exact-host value, if any, is visited last).
+     */
+    public void forEachMatch(String host, Consumer<? super V> visitor) {
+        if (host == null || host.isEmpty() || size == 0) {
+            return;
+        }
+        Node<V> node = root;
+        int end = host.length();
+        while (end > 0) {
+            int dot = host.lastIndexOf('.', end - 1);
+            node = node.child(host.substring(dot + 1, end));
+            if (node == null) {
+                return;
+            }
+            if (node.suffixValue != null) {
+                visitor.accept(node.suffixValue);
+            }
+            end = dot;
+        }
+        if (node.exactValue != null) {
+            visitor.accept(node.exactValue);
+        }
+    }
+
+    /** Lower-cases and strips scheme, path, port and surrounding dots; {@code null} when empty. */
+    public static String normalizeDomain(String raw) {
+        if (raw == null) return null;
+        String t = raw.trim().toLowerCase(Locale.ROOT);
+        if (t.startsWith("http://")) t = t.substring(7);
+        if (t.startsWith("https://")) t = t.substring(8);
+        int slash = t.indexOf('/');
+        if (slash >= 0) t = t.substring(0, slash);
+        int colon = t.indexOf(':');
+        if (colon >= 0) t = t.substring(0, colon);
+        while (t.startsWith(".")) t = t.substring(1);
+        while (t.endsWith(".")) t = t.substring(0, t.length() - 1);
+        return t.isEmpty() ? null : t;
+    }
+
+    /** Not thread-safe; discard the builder after {@link #build()}. */
+    public static final class Builder<V> {
+        private final Node<V> root = new Node<>();
+        private int size;
+        private BinaryOperator<V> merge = (oldV, newV) -> newV;
+
+        /** Resolves two values registered for the same domain (default: last one wins). */
+        public Builder<V> merge(BinaryOperator<V> merge) {
+            if (merge != null) {
+                this.merge = merge;
+            }
+            return this;
+        }
+
+        /** Registers {@code domain} and all its subdomains. */
+        public Builder<V> put(String domain, V value) {
+            return add(domain, value, false);
+        }
+
+        /** Registers {@code host} only (no subdomains). */
+        public Builder<V> putExact(String host, V value) {
+            return add(host, value, true);
+        }
+
+        private Builder<V> add(String domain, V value, boolean exact) {
+            String d = normalizeDomain(domain);
+            if (d == null || value == null) {
+                return this;
+            }
+            Node<V> node = root;
+            int end = d.length();
+            while (end > 0) {
+                int dot = d.lastIndexOf('.', end - 1);
+                String label = d.substring(dot + 1, end);
+                if (node.children == null) {
+                    node.children = new HashMap<>(4);
+                }
+                node = node.children.computeIfAbsent(label, k -> new Node<>());
+                end = dot;
+            }
+            V prev = exact ? node.exactValue : node.suffixValue;
+            V next = prev == null ? value : merge.apply(prev, value);
+            if (prev == null) {
+                size++;
+            }
+            if (exact) {
+                node.exactValue = next;
+            } else {
+                node.suffixValue = next;
+            }
+            return this;
+        }
+
+        public DomainSuffixTrie<V> build() {
+            return size == 0 ? empty() : new DomainSuffixTrie<>(root, size);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.example.lms.service.rag.orchestrator;
 
+import com.abandonware.ai.addons.budget.TimeBudget;
+import com.abandonware.ai.addons.budget.TimeBudgetContext;
 import com.example.lms.config.RagProperties;
 import com.example.lms.service.rag.query.QueryAnalysisResult;
 import com.example.lms.service.rag.query.QueryAnalysisService;
@@ -122,6 +124,8 @@ public class UnifiedRagOrchestrator {
         public List<Doc> dpp = new ArrayList<>();
         public List<Doc> onnx = new ArrayList<>();
         public List<Doc> finalResults = new ArrayList<>();
+        /** Same map as {@code response.debug} (stage labels, lane wall times, wasted speculative work). */
+        public Map<String, Object> debug = new LinkedHashMap<>();
     }
 
     // --- Dependencies (migrated to DI; no more Class.forName for main retrievers)
@@ -161,6 +165,11 @@ public class UnifiedRagOrchestrator {
     @org.springframework.beans.factory.annotation.Autowired(required = false)
     private dev.langchain4j.model.embedding.EmbeddingModel embeddingModel;
 
+    // Dedicated bounded lane pool (AbortPolicy, not shared with web fan-out); absent → legacy sequential lanes.
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    @org.springframework.beans.factory.annotation.Qualifier("ragLaneExecutor")
+    private ExecutorService laneExecutor;
+
     public UnifiedRagOrchestrator() {
         // Dependencies are injected by Spring; default constructor kept for
         // frameworks/tests.
@@ -182,6 +191,9 @@ public class UnifiedRagOrchestrator {
     public QueryTrace queryWithTrace(QueryRequest req) {
         QueryTrace trace = new QueryTrace();
         trace.response = queryInternal(req, trace);
+        if (trace.response != null && trace.response.debug != null) {
+            trace.debug = trace.response.debug;
+        }
         if (trace.response != null && trace.response.results != null) {
             trace.finalResults = snapshotDocs(trace.response.results);
         }
@@ -466,6 +478,10 @@ public class UnifiedRagOrchestrator {
         if (retry) {
             dbg.put("retrieval_retry", Boolean.TRUE);
         }
+        if (laneExecutor != null && lanesConfig().isConcurrent()) {
+            retrieveLanesConcurrently(req, dbg, trace, pool);
+            return pool;
+        }
         // [PATCH] Sequential Fallback Logic (Web -> Vector -> KG/BM25)
         // 1) Web Search (Primary)
         boolean webSuccess = false;
@@ -480,29 +496,7 @@ public class UnifiedRagOrchestrator {
             webAttempted = true;
             List<Doc> webDocs = new ArrayList<>();
             try {
-                List<Content> contents = webRetriever.retrieve(new Query(req.query));
-                if (contents == null) {
-                    contents = Collections.emptyList();
-                    log.warn("[Orchestrator] Web retriever returned null, treating as empty");
-                }
-
-                for (int i = 0; i < contents.size() && i < req.topK; i++) {
-                    Content c = contents.get(i);
-                    if (c == null) {
-                        continue;
-                    }
-
-                    Doc d = new Doc();
-                    d.title = extractTitle(c.metadata(), "Web Result #" + (i + 1));
-                    d.snippet = buildSnippet(c);
-                    d.source = "WEB";
-                    d.score = 1.0 - (i * 0.01);
-
-                    d.meta = extractMetadata(c);
-                    d.id = stableId("WEB", d.meta, i);
-
-                    webDocs.add(d);
-                }
+                webDocs = webDocsOf(webRetriever.retrieve(new Query(req.query)), req.topK);
 
                 dbg.put("stage.web", "success (" + webDocs.size() + ")");
             } catch (Exception e) {
@@ -596,6 +590,341 @@ public class UnifiedRagOrchestrator {
         return pool;
     }
 
+    private List<Doc> webDocsOf(List<Content> contents, int topK) {
+        if (contents == null) {
+            contents = Collections.emptyList();
+            log.warn("[Orchestrator] Web retriever returned null, treating as empty");
+        }
+        List<Doc> webDocs = new ArrayList<>();
+        for (int i = 0; i < contents.size() && i < topK; i++) {
+            Content c = contents.get(i);
+            if (c == null) {
+                continue;
+            }
+
+            Doc d = new Doc();
+            d.title = extractTitle(c.metadata(), "Web Result #" + (i + 1));
+            d.snippet = buildSnippet(c);
+            d.source = "WEB";
+            d.score = 1.0 - (i * 0.01);
+
+            d.meta = extractMetadata(c);
+            d.id = stableId("WEB", d.meta, i);
+
+            webDocs.add(d);
+        }
+        return webDocs;
+    }
+
+    private RagProperties.Lanes lanesConfig() {
+        RagProperties.Lanes lanes = (ragProperties != null) ? ragProperties.getLanes() : null;
+        return (lanes != null) ? lanes : new RagProperties.Lanes();
+    }
+
+    /** One retrieval lane running on {@link #laneExecutor}. */
+    private static final class Lane {
+        final String name;
+        final long startNanos;
+        final long deadlineNanos;
+        volatile Future<List<?>> future;
+        volatile long endNanos;
+        List<?> result;
+        String status = "running";
+        /** Rejected by the lane pool and run on the caller thread instead. */
+        boolean inline;
+
+        Lane(String name, long startNanos, long deadlineNanos) {
+            this.name = name;
+            this.startNanos = startNanos;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        long wallMs() {
+            long end = endNanos != 0 ? endNanos : System.nanoTime();
+            return TimeUnit.NANOSECONDS.toMillis(end - startNanos);
+        }
+    }
+
+    /**
+     * Speculative lane scheduler: Web, Vector, KG and BM25 run concurrently (local lanes
+     * optionally after {@code rag.lanes.hedge-delay-ms}), each bounded by its own deadline
+     * derived from the request {@link TimeBudget}. Lanes still running once the pool is
+     * good enough or past their deadline are cancelled and reported as wasted work.
+     *
+     * <p>The vector lane returns raw contents; its top-K and source tag are decided after
+     * web finishes, so the Web→Vector fallback semantics of the sequential path hold.</p>
+     */
+    private void retrieveLanesConcurrently(QueryRequest req, Map<String, Object> dbg, QueryTrace trace, List<Doc> pool) {
+        RagProperties.Lanes cfg = lanesConfig();
+        TimeBudget budget = TimeBudgetContext.get();
+        LinkedBlockingQueue<Lane> done = new LinkedBlockingQueue<>();
+        Map<String, Lane> lanes = new LinkedHashMap<>();
+        final String q = req.query;
+
+        if (req.useWeb && webRetriever == null) {
+            dbg.putIfAbsent("stage.web", "missing_webRetriever");
+        }
+        if (req.useVector && vectorRetriever == null) {
+            dbg.putIfAbsent("stage.vector", "missing_vectorRetriever");
+        }
+        if (req.useKg && kgRetriever == null) {
+            dbg.putIfAbsent("stage.kg", "missing_kgRetriever");
+        }
+        if (req.useBm25 && bm25Index == null) {
+            dbg.putIfAbsent("stage.bm25", "missing_bm25Index");
+        }
+
+        boolean webAttempted = req.useWeb && webRetriever != null && (req.seedWeb == null || req.seedWeb.isEmpty());
+        if (webAttempted) {
+            startLane(lanes, done, "web", cfg.getWebTimeoutMs(), budget,
+                    () -> webDocsOf(webRetriever.retrieve(new Query(q)), req.topK));
+        }
+
+        // Hedge: give web a head start; skip local lanes entirely if it already filled the pool.
+        int goodEnough = cfg.getGoodEnoughDocs();
+        if (webAttempted && cfg.getHedgeDelayMs() > 0) {
+            long hedge = cfg.getHedgeDelayMs();
+            if (budget != null) {
+                hedge = Math.min(hedge, budget.remainingMillis());
+            }
+            awaitLane(lanes.get("web"), done, hedge);
+        }
+        boolean skipLocal = goodEnough > 0 && pool.size() + laneSize(lanes.get("web")) >= goodEnough;
+        if (skipLocal) {
+            dbg.put("lanes.local", "skipped:good_enough");
+        } else {
+            if (req.useVector && vectorRetriever != null && (req.seedVector == null || req.seedVector.isEmpty())) {
+                startLane(lanes, done, "vector", cfg.getLocalTimeoutMs(), budget, () -> retrieveOrEmpty(vectorRetriever, q, "VECTOR"));
+            }
+            if (req.useKg && kgRetriever != null) {
+                startLane(lanes, done, "kg", cfg.getLocalTimeoutMs(), budget,
+                        () -> toDocsOrEmpty(kgRetriever, q, Math.max(4, req.topK / 2), "KG"));
+            }
+            if (req.useBm25 && bm25Index != null) {
+                startLane(lanes, done, "bm25", cfg.getLocalTimeoutMs(), budget,
+                        () -> toDocsOrEmpty(bm25Index, q, req.topK, "BM25"));
+            }
+        }
+
+        // Collect in completion order until all lanes finished, timed out, or the pool is good enough.
+        // A web lane that already finished during the hedge wait counts towards good-enough.
+        int collected = pool.size() + laneSize(lanes.get("web"));
+        boolean interrupted = false;
+        while (true) {
+            // nanoTime values are only compared as differences (overflow-safe).
+            long now = System.nanoTime();
+            long wait = Long.MAX_VALUE;
+            boolean running = false;
+            for (Lane l : lanes.values()) {
+                if ("running".equals(l.status)) {
+                    running = true;
+                    wait = Math.min(wait, l.deadlineNanos - now);
+                }
+            }
+            if (!running) {
+                break;
+            }
+            Lane l;
+            try {
+                l = (wait <= 0) ? done.poll() : done.poll(wait, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException ie) {
+                interrupted = true;
+                break;
+            }
+            if (l == null) {
+                now = System.nanoTime();
+                for (Lane x : lanes.values()) {
+                    if ("running".equals(x.status) && x.deadlineNanos - now <= 0) {
+                        x.status = "timeout";
+                        x.future.cancel(true);
+                    }
+                }
+                continue;
+            }
+            if (!"running".equals(l.status)) {
+                continue;
+            }
+            finishLane(l);
+            collected += laneSize(l);
+            Lane web = lanes.get("web");
+            if (goodEnough > 0 && collected >= goodEnough && (web == null || !"running".equals(web.status))) {
+                for (Lane x : lanes.values()) {
+                    if ("running".equals(x.status)) {
+                        x.status = "cancelled:good_enough";
+                        x.future.cancel(true);
+                    }
+                }
+            }
+        }
+        if (interrupted) {
+            for (Lane x : lanes.values()) {
+                if ("running".equals(x.status)) {
+                    x.status = "cancelled:interrupted";
+                    x.future.cancel(true);
+                }
+            }
+            Thread.currentThread().interrupt();
+        }
+
+        // Assemble in the sequential order (Web, Vector, KG, BM25) with the same stage labels.
+        long wastedMs = 0;
+        int wastedLanes = 0;
+        for (Lane l : lanes.values()) {
+            dbg.put("lane." + l.name + ".ms", l.wallMs());
+            dbg.put("lane." + l.name + ".status", l.status);
+            if (l.inline) {
+                dbg.put("lane." + l.name + ".inline", true);
+            }
+            if (!"ok".equals(l.status)) {
+                wastedMs += l.wallMs();
+                wastedLanes++;
+            }
+        }
+        dbg.put("lanes.mode", cfg.getHedgeDelayMs() > 0 ? "hedged" : "concurrent");
+        dbg.put("lanes.wasted.ms", wastedMs);
+        dbg.put("lanes.wasted.count", wastedLanes);
+
+        boolean webSuccess = false;
+        if (webAttempted) {
+            Lane web = lanes.get("web");
+            @SuppressWarnings("unchecked")
+            List<Doc> webDocs = "ok".equals(web.status) ? (List<Doc>) web.result : new ArrayList<>();
+            if ("ok".equals(web.status)) {
+                dbg.put("stage.web", "success (" + webDocs.size() + ")");
+            } else if (!"error".equals(web.status)) {
+                dbg.put("stage.web", web.status);
+            }
+            if (trace != null) {
+                trace.web = snapshotDocs(webDocs);
+            }
+            if (!webDocs.isEmpty()) {
+                pool.addAll(webDocs);
+                webSuccess = true;
+            } else if ("ok".equals(web.status)) {
+                dbg.put("stage.web", "empty");
+            }
+        }
+
+        Lane vector = lanes.get("vector");
+        if (vector != null) {
+            int vectorK = req.topK;
+            String vectorSource = "VECTOR";
+            if (webAttempted && !webSuccess) {
+                vectorK = Math.max(req.topK * 2, 10);
+                vectorSource = "VECTOR-FALLBACK";
+                dbg.put("stage.vector.fallback", "triggered");
+            }
+            dbg.put("stage.vector", webSuccess ? "augment" : "strict_fallback");
+            @SuppressWarnings("unchecked")
+            List<Content> contents = "ok".equals(vector.status) ? (List<Content>) vector.result : List.of();
+            List<Doc> vectorDocs = toDocsFromContents(contents, vectorK, vectorSource, false);
+            if (trace != null) {
+                trace.vector = snapshotDocs(vectorDocs);
+            }
+            if (vectorDocs.isEmpty()) {
+                dbg.put("stage.vector", dbg.get("stage.vector") + ":" + ("ok".equals(vector.status) ? "empty" : vector.status));
+            } else {
+                dbg.put("stage.vector", dbg.get("stage.vector") + ":" + vectorDocs.size());
+                pool.addAll(vectorDocs);
+            }
+        }
+
+        for (String name : new String[]{"kg", "bm25"}) {
+            Lane l = lanes.get(name);
+            if (l == null) {
+                continue;
+            }
+            @SuppressWarnings("unchecked")
+            List<Doc> docs = "ok".equals(l.status) ? (List<Doc>) l.result : List.of();
+            if (trace != null) {
+                if ("kg".equals(name)) trace.kg = snapshotDocs(docs);
+                else trace.bm25 = snapshotDocs(docs);
+            }
+            if (docs.isEmpty()) {
+                dbg.put("stage." + name, "ok".equals(l.status) ? "empty" : l.status);
+            } else {
+                dbg.put("stage." + name, "ok:" + docs.size());
+                pool.addAll(docs);
+            }
+        }
+    }
+
+    private void startLane(Map<String, Lane> lanes, LinkedBlockingQueue<Lane> done, String name,
+                           long capMs, TimeBudget budget, Callable<List<?>> work) {
+        long ms = capMs > 0 ? capMs : Long.MAX_VALUE;
+        if (budget != null) {
+            ms = Math.min(ms, budget.remainingMillis());
+        }
+        long now = System.nanoTime();
+        // "no cap" is still a finite offset so deadline - now never overflows
+        long deadline = now + ((ms == Long.MAX_VALUE) ? (Long.MAX_VALUE >> 2) : TimeUnit.MILLISECONDS.toNanos(ms));
+        Lane lane = new Lane(name, now, deadline);
+        lanes.put(name, lane);
+        Callable<List<?>> task = () -> {
+            TimeBudget prev = TimeBudgetContext.get();
+            try {
+                if (budget != null) TimeBudgetContext.set(budget);
+                return work.call();
+            } finally {
+                lane.endNanos = System.nanoTime();
+                if (prev != null) TimeBudgetContext.set(prev);
+                else TimeBudgetContext.clear();
+                done.add(lane);
+            }
+        };
+        try {
+            lane.future = laneExecutor.submit(task);
+        } catch (RejectedExecutionException rex) {
+            // Pool saturated: run this lane sequentially on the caller, like the legacy path.
+            FutureTask<List<?>> inline = new FutureTask<>(task);
+            lane.inline = true;
+            lane.future = inline;
+            inline.run();
+        }
+    }
+
+    /** Waits up to {@code waitMs} for {@code lane}; other lanes completing meanwhile are re-queued. */
+    private static void awaitLane(Lane lane, LinkedBlockingQueue<Lane> done, long waitMs) {
+        if (lane == null || !"running".equals(lane.status)) {
+            return;
+        }
+        try {
+            lane.future.get(Math.max(0L, waitMs), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException | CancellationException ignore) {
+            // still running or failed; the collect loop decides
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        if (lane.future.isDone() && done.remove(lane)) {
+            finishLane(lane);
+        }
+    }
+
+    private static void finishLane(Lane l) {
+        try {
+            l.result = l.future.get();
+            l.status = "ok";
+        } catch (Exception e) {
+            log.warn("[Orchestrator] lane {} failed, fail-soft continuing: {}", l.name, e.toString());
+            l.status = "error";
+        }
+    }
+
+    private static int laneSize(Lane l) {
+        return (l != null && "ok".equals(l.status) && l.result != null) ? l.result.size() : 0;
+    }
+
+    private List<?> retrieveOrEmpty(ContentRetriever retriever, String query, String sourceTag) {
+        try {
+            List<Content> contents = retriever.retrieve(new Query(query));
+            return contents == null ? List.of() : contents;
+        } catch (Exception e) {
+            log.warn("[UnifiedRagOrchestrator] Failed to retrieve from {}: {}", sourceTag, e.toString());
+            return List.of();
+        }
+    }
+
     private List<Doc> fuseRrf(List<Doc> pool, int k, QueryRequest req) {
         if (pool == null || pool.isEmpty())
             return List.of();
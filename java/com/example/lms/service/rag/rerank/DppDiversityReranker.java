@@ -1,11 +1,17 @@
 package com.example.lms.service.rag.rerank;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.util.*;
 import java.util.function.Function;
 
 /**
  * Drop-in diversity reranker with MMR-like selection.
  * Designed to be resilient to missing dependencies. Constructor accepts varargs for optional deps.
+ *
+ * <p>Text and its 3-gram signature are extracted once per candidate; each candidate keeps a
+ * running max-similarity to the selected set that is updated only against the newly picked
+ * item, so a request costs O(k·n) similarity evaluations.</p>
  */
 public class DppDiversityReranker {
 
@@ -19,6 +25,14 @@ public class DppDiversityReranker {
         }
     }
 
+    /** Per-class text extractor (title + snippet fields/getters, else toString), resolved once. */
+    private static final ClassValue<Function<Object, String>> TEXT_OF = new ClassValue<>() {
+        @Override
+        protected Function<Object, String> computeValue(Class<?> type) {
+            return textExtractor(type);
+        }
+    };
+
     private final Config cfg;
     @SuppressWarnings("unused")
     private final Object[] deps;
@@ -30,57 +44,31 @@ public class DppDiversityReranker {
 
     /** Generic rerank: in-place safe (returns new list). */
     public <T> List<T> rerank(List<T> in, String query, int k) {
+        return rerank(in, query, k, null);
+    }
+
+    /**
+     * Same as {@link #rerank(List, String, int)}, but uses embedding cosine for pairs where
+     * {@code vectorOf} yields vectors of equal length (text shingles otherwise).
+     */
+    public <T> List<T> rerank(List<T> in, String query, int k, Function<T, float[]> vectorOf) {
         if (in == null || in.isEmpty()) return Collections.emptyList();
         k = Math.min(Math.max(1, k), in.size());
         double lambda = cfg != null ? cfg.lambda : 0.7;
 
-        // Extract text for similarity: try common getters/fields via reflection; fallback to toString()
-        Function<T,String> textOf = (T x) -> {
-            try {
-                // title + snippet fields if exist
-                StringBuilder sb = new StringBuilder();
-                try { sb.append(String.valueOf(x.getClass().getField("title").get(x))).append(" "); } catch (Throwable ignore) {}
-                try { sb.append(String.valueOf(x.getClass().getField("snippet").get(x))).append(" "); } catch (Throwable ignore) {}
-                if (sb.length() == 0) {
-                    try { sb.append(String.valueOf(x.getClass().getMethod("getTitle").invoke(x))).append(" "); } catch (Throwable ignore) {}
-                    try { sb.append(String.valueOf(x.getClass().getMethod("getSnippet").invoke(x))).append(" "); } catch (Throwable ignore) {}
-                }
-                if (sb.length() == 0) sb.append(String.valueOf(x));
-                return sb.toString();
-            } catch (Throwable t) {
-                return String.valueOf(x);
-            }
-        };
+        int n = in.size();
+        String[] texts = new String[n];
+        for (int i = 0; i < n; i++) texts[i] = textOf(in.get(i));
 
         // Relevance: basic position prior (higher = better) with light query overlap bonus
-        Map<T, Double> rel = new IdentityHashMap<>();
-        for (int i=0;i<in.size();i++) {
-            T t = in.get(i);
-            double base = 1.0 - (i * 1.0 / Math.max(1, in.size()-1)); // 1..0
-            double bonus = overlapScore(textOf.apply(t), query);
-            rel.put(t, clamp01(0.85*base + 0.15*bonus));
-        }
-
-        List<T> chosen = new ArrayList<>();
-        chosen.add(in.get(0));
-        while (chosen.size() < k) {
-            T best = null;
-            double bestScore = -1e9;
-            for (T cand : in) {
-                if (chosen.contains(cand)) continue;
-                double relevance = rel.getOrDefault(cand, 0.5);
-                double maxSim = 0.0;
-                for (T sel : chosen) {
-                    double s = textSimilarity(textOf.apply(cand), textOf.apply(sel));
-                    if (s > maxSim) maxSim = s;
-                }
-                double mmr = lambda * relevance - (1.0 - lambda) * maxSim;
-                if (mmr > bestScore) { bestScore = mmr; best = cand; }
-            }
-            if (best == null) break;
-            chosen.add(best);
+        String[] qs = (query == null || query.isBlank()) ? null : query.toLowerCase(Locale.ROOT).split("\\s+");
+        double[] rel = new double[n];
+        for (int i = 0; i < n; i++) {
+            double base = 1.0 - (i * 1.0 / Math.max(1, n - 1)); // 1..0
+            double bonus = overlapScore(texts[i], qs);
+            rel[i] = clamp01(0.85 * base + 0.15 * bonus);
         }
-        return chosen;
+        return select(in, k, lambda, rel, texts, vectors(in, vectorOf));
     }
 
     /** Convenience select overloads (for compatibility). */
@@ -92,57 +80,155 @@ public class DppDiversityReranker {
         if (in == null || in.isEmpty()) return Collections.emptyList();
         k = Math.min(Math.max(1, k), in.size());
         lambda = Math.max(0.0, Math.min(1.0, lambda));
-        Map<T, Double> rel = new IdentityHashMap<>();
-        for (int i=0;i<in.size();i++) {
-            double base = 1.0 - (i * 1.0 / Math.max(1, in.size()-1));
-            rel.put(in.get(i), base);
+        int n = in.size();
+        String[] texts = new String[n];
+        double[] rel = new double[n];
+        for (int i = 0; i < n; i++) {
+            texts[i] = textOf.apply(in.get(i));
+            rel[i] = 1.0 - (i * 1.0 / Math.max(1, n - 1));
         }
-        List<T> chosen = new ArrayList<>();
+        return select(in, k, lambda, rel, texts, null);
+    }
+
+    /** Greedy MMR with incrementally maintained max-similarity to the selected set. */
+    private static <T> List<T> select(List<T> in, int k, double lambda, double[] rel,
+                                      String[] texts, float[][] vecs) {
+        int n = in.size();
+        long[][] sigs = new long[n][];
+        for (int i = 0; i < n; i++) sigs[i] = shingleSignature(texts[i]);
+
+        boolean[] picked = new boolean[n];
+        double[] maxSim = new double[n];
+        List<T> chosen = new ArrayList<>(k);
+        int last = 0;
+        picked[0] = true;
         chosen.add(in.get(0));
         while (chosen.size() < k) {
-            T best = null; double bestScore = -1e9;
-            for (T cand : in) {
-                if (chosen.contains(cand)) continue;
-                double relevance = rel.getOrDefault(cand, 0.5);
-                double simMax = 0.0;
-                for (T sel : chosen) {
-                    double s = textSimilarity(textOf.apply(cand), textOf.apply(sel));
-                    if (s > simMax) simMax = s;
-                }
-                double mmr = lambda * relevance - (1.0 - lambda) * simMax;
-                if (mmr > bestScore) { bestScore = mmr; best = cand; }
+            int best = -1;
+            double bestScore = -1e9;
+            for (int i = 0; i < n; i++) {
+                if (picked[i]) continue;
+                double s = similarity(i, last, sigs, vecs);
+                if (s > maxSim[i]) maxSim[i] = s;
+                double mmr = lambda * rel[i] - (1.0 - lambda) * maxSim[i];
+                if (mmr > bestScore) { bestScore = mmr; best = i; }
             }
-            if (best == null) break;
-            chosen.add(best);
+            if (best < 0) break;
+            picked[best] = true;
+            chosen.add(in.get(best));
+            last = best;
         }
         return chosen;
     }
 
-    private static double textSimilarity(String a, String b) {
-        if (a == null || b == null) return 0.0;
-        Set<String> A = shingles(a, 3);
-        Set<String> B = shingles(b, 3);
-        if (A.isEmpty() || B.isEmpty()) return 0.0;
-        int inter = 0;
-        for (String x : A) if (B.contains(x)) inter++;
-        return inter / Math.sqrt((double)A.size() * (double)B.size());
+    private static double similarity(int a, int b, long[][] sigs, float[][] vecs) {
+        if (vecs != null && vecs[a] != null && vecs[b] != null && vecs[a].length == vecs[b].length) {
+            return cosine(vecs[a], vecs[b]);
+        }
+        return textSimilarity(sigs[a], sigs[b]);
     }
 
-    private static Set<String> shingles(String s, int n) {
-        Set<String> set = new HashSet<>();
-        if (s == null) return set;
+    /** |A∩B| / sqrt(|A|·|B|) over sorted, distinct shingle codes. */
+    static double textSimilarity(long[] a, long[] b) {
+        if (a.length == 0 || b.length == 0) return 0.0;
+        int i = 0, j = 0, inter = 0;
+        while (i < a.length && j < b.length) {
+            long x = a[i], y = b[j];
+            if (x == y) { inter++; i++; j++; }
+            else if (x < y) i++;
+            else j++;
+        }
+        return inter / Math.sqrt((double) a.length * (double) b.length);
+    }
+
+    /** Lower-cased character 3-grams packed into longs (16 bits per char), sorted and distinct. */
+    static long[] shingleSignature(String s) {
+        if (s == null) return new long[0];
         s = s.toLowerCase(Locale.ROOT);
-        for (int i=0;i<=s.length()-n;i++) set.add(s.substring(i, i+n));
-        return set;
+        int m = s.length() - 2;
+        if (m <= 0) return new long[0];
+        long[] codes = new long[m];
+        for (int i = 0; i < m; i++) {
+            codes[i] = ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+        }
+        Arrays.sort(codes);
+        int u = 1;
+        for (int i = 1; i < m; i++) {
+            if (codes[i] != codes[u - 1]) codes[u++] = codes[i];
+        }
+        return u == m ? codes : Arrays.copyOf(codes, u);
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        double dot = 0, na = 0, nb = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += (double) a[i] * b[i];
+            na += (double) a[i] * a[i];
+            nb += (double) b[i] * b[i];
+        }
+        if (na == 0 || nb == 0) return 0.0;
+        return dot / Math.sqrt(na * nb);
     }
 
-    private static double overlapScore(String text, String query) {
-        if (text == null || query == null || query.isBlank()) return 0.0;
-        String[] qs = query.toLowerCase(Locale.ROOT).split("\\s+");
+    private static <T> float[][] vectors(List<T> in, Function<T, float[]> vectorOf) {
+        if (vectorOf == null) return null;
+        float[][] out = new float[in.size()][];
+        for (int i = 0; i < out.length; i++) {
+            try { out[i] = vectorOf.apply(in.get(i)); } catch (Throwable ignore) {}
+        }
+        return out;
+    }
+
+    private static String textOf(Object x) {
+        if (x == null) return "null";
+        try {
+            return TEXT_OF.get(x.getClass()).apply(x);
+        } catch (Throwable t) {
+            return String.valueOf(x);
+        }
+    }
+
+    // Extract text for similarity: try common getters/fields via reflection; fallback to toString()
+    private static Function<Object, String> textExtractor(Class<?> type) {
+        Field title = publicField(type, "title");
+        Field snippet = publicField(type, "snippet");
+        Method getTitle = null, getSnippet = null;
+        if (title == null && snippet == null) {
+            getTitle = publicMethod(type, "getTitle");
+            getSnippet = publicMethod(type, "getSnippet");
+        }
+        if (title == null && snippet == null && getTitle == null && getSnippet == null) {
+            return String::valueOf;
+        }
+        final Field tf = title, sf = snippet;
+        final Method tm = getTitle, sm = getSnippet;
+        return x -> {
+            // title + snippet fields if exist
+            StringBuilder sb = new StringBuilder();
+            try { if (tf != null) sb.append(String.valueOf(tf.get(x))).append(" "); } catch (Throwable ignore) {}
+            try { if (sf != null) sb.append(String.valueOf(sf.get(x))).append(" "); } catch (Throwable ignore) {}
+            try { if (tm != null) sb.append(String.valueOf(tm.invoke(x))).append(" "); } catch (Throwable ignore) {}
+            try { if (sm != null) sb.append(String.valueOf(sm.invoke(x))).append(" "); } catch (Throwable ignore) {}
+            if (sb.length() == 0) sb.append(String.valueOf(x));
+            return sb.toString();
+        };
+    }
+
+    private static Field publicField(Class<?> type, String name) {
+        try { return type.getField(name); } catch (Throwable ignore) { return null; }
+    }
+
+    private static Method publicMethod(Class<?> type, String name) {
+        try { return type.getMethod(name); } catch (Throwable ignore) { return null; }
+    }
+
+    private static double overlapScore(String text, String[] qs) {
+        if (text == null || qs == null) return 0.0;
+        String lower = text.toLowerCase(Locale.ROOT);
         int hit = 0;
-        for (String q : qs) if (text.toLowerCase(Locale.ROOT).contains(q)) hit++;
+        for (String q : qs) if (lower.contains(q)) hit++;
         return clamp01(hit * 1.0 / Math.max(1, qs.length));
-        }
+    }
 
     private static double clamp01(double x){ return Math.max(0.0, Math.min(1.0, x)); }
-}
\ No newline at end of file
+}
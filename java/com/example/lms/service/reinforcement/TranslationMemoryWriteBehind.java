@@ -0,0 +1,475 @@
+package com.example.lms.service.reinforcement;
+
+import ai.abandonware.nova.orch.storage.DegradedStorage;
+import ai.abandonware.nova.orch.storage.PendingMemoryEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind buffer for TranslationMemory hit-count and energy/temperature updates.
+ *
+ * <p>Per {@code sourceHash} (and session) it coalesces hit deltas and keeps only the latest
+ * energy/temperature, then flushes them as JDBC batch updates every {@code flush-interval-ms}
+ * or as soon as {@code flush-size} keys are pending. Only rows already known to exist are
+ * buffered, so the caller's "0 rows updated → insert" logic still runs synchronously for new
+ * snippets.</p>
+ *
+ * <ul>
+ *   <li>Overflow (more than {@code max-pending} keys) goes to the {@link DegradedStorage} outbox
+ *       when present; otherwise the caller falls back to a synchronous write.</li>
+ *   <li>Shutdown performs a final flush; anything it cannot write is handed to the outbox.</li>
+ *   <li>Outbox events come back through {@link #replay(PendingMemoryEvent)}.</li>
+ * </ul>
+ *
+ * <p>The statement groups of one flush run in a single transaction when a
+ * {@link PlatformTransactionManager} is available. Without one, a failure re-queues only the
+ * groups that were not committed yet, so hit deltas are never applied twice.</p>
+ */
+@Component
+public class TranslationMemoryWriteBehind {
+
+    private static final Logger log = LoggerFactory.getLogger(TranslationMemoryWriteBehind.class);
+
+    /** {@link PendingMemoryEvent#reason()} of outbox events written by this buffer. */
+    public static final String OUTBOX_REASON = "tm_write_behind";
+
+    static final String SQL_HITS = """
+            UPDATE translation_memory
+               SET hit_count = COALESCE(hit_count, 0) + ?,
+                   last_used_at = NOW()
+             WHERE source_hash = ?""";
+    static final String SQL_ENERGY = """
+            UPDATE translation_memory
+               SET energy = ?, temperature = ?, updated_at = NOW()
+             WHERE source_hash = ?""";
+    static final String SQL_ENERGY_SESSION = """
+            UPDATE translation_memory
+               SET energy = ?, temperature = ?, updated_at = NOW()
+             WHERE source_hash = ?
+               AND session_id = ?""";
+
+    /**
+     * A flush or replay failed after {@code committedGroups} statement groups (hits, energy,
+     * session energy, in that order) were already committed.
+     */
+    static final class WriteFailedException extends RuntimeException {
+        final int committedGroups;
+
+        WriteFailedException(int committedGroups, RuntimeException cause) {
+            super(cause.getMessage(), cause);
+            this.committedGroups = committedGroups;
+        }
+    }
+
+    /** Coalesced delta for one (hash, session) key; mutated only inside {@code compute}. */
+    static final class Pending {
+        final String hash;
+        final String sessionId;
+        int hits;
+        boolean hasEnergy;
+        double energy;
+        double temperature;
+
+        Pending(String hash, String sessionId) {
+            this.hash = hash;
+            this.sessionId = sessionId;
+        }
+    }
+
+    private final ObjectProvider<JdbcTemplate> jdbcProvider;
+    private final ObjectProvider<DegradedStorage> outboxProvider;
+    private final ObjectProvider<PlatformTransactionManager> txProvider;
+    private final boolean enabled;
+    private final int flushSize;
+    private final int maxPending;
+
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final Cache<String, Boolean> knownRows;
+    private final AtomicBoolean flushing = new AtomicBoolean(false);
+    private final ScheduledExecutorService scheduler;
+
+    private final DistributionSummary rowsPerFlush;
+    private final Timer flushLatency;
+    private final Counter overflow;
+    private final Counter dropped;
+    private final AtomicLong droppedTotal = new AtomicLong();
+
+    public TranslationMemoryWriteBehind(
+            ObjectProvider<JdbcTemplate> jdbcProvider,
+            ObjectProvider<DegradedStorage> outboxProvider,
+            ObjectProvider<PlatformTransactionManager> txProvider,
+            ObjectProvider<MeterRegistry> registryProvider,
+            @Value("${memory.write-behind.enabled:true}") boolean enabled,
+            @Value("${memory.write-behind.flush-size:256}") int flushSize,
+            @Value("${memory.write-behind.flush-interval-ms:1000}") long flushIntervalMs,
+            @Value("${memory.write-behind.max-pending:10000}") int maxPending) {
+        this.jdbcProvider = jdbcProvider;
+        this.outboxProvider = outboxProvider;
+        this.txProvider = txProvider;
+        this.enabled = enabled;
+        this.flushSize = Math.max(1, flushSize);
+        this.maxPending = Math.max(this.flushSize, maxPending);
+        this.knownRows = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(30))
+                .maximumSize(50_000)
+                .build();
+
+        MeterRegistry registry = registryProvider == null ? null : registryProvider.getIfAvailable();
+        if (registry != null) {
+            this.rowsPerFlush = DistributionSummary.builder("memory.writebehind.flush.rows")
+                    .description("coalesced TranslationMemory updates per flush")
+                    .register(registry);
+            this.flushLatency = Timer.builder("memory.writebehind.flush.latency")
+                    .publishPercentileHistogram()
+                    .register(registry);
+            this.overflow = Counter.builder("memory.writebehind.overflow")
+                    .description("deltas handed to the degraded outbox or written synchronously")
+                    .register(registry);
+            this.dropped = Counter.builder("memory.writebehind.dropped")
+                    .description("deltas lost because they could neither be written nor moved to the outbox")
+                    .register(registry);
+        } else {
+            this.rowsPerFlush = null;
+            this.flushLatency = null;
+            this.overflow = null;
+            this.dropped = null;
+        }
+
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "tm-write-behind");
+            t.setDaemon(true);
+            return t;
+        });
+        if (enabled) {
+            long period = Math.max(50L, flushIntervalMs);
+            scheduler.scheduleWithFixedDelay(this::flushQuietly, period, period, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /** Marks a row as existing (after a successful synchronous update or insert). */
+    public void markKnown(String hash) {
+        if (hash != null && !hash.isBlank()) {
+            knownRows.put(hash, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Buffers {@code hit_count += 1, last_used_at = NOW()} when the row is known to exist.
+     *
+     * @return {@code false} when the caller must write synchronously
+     */
+    public boolean recordHitIfKnown(String hash) {
+        if (!enabled || hash == null || knownRows.getIfPresent(hash) == null) {
+            return false;
+        }
+        return merge(hash, null, 1, false, 0, 0);
+    }
+
+    /**
+     * Buffers the latest energy/temperature for an existing row ({@code sessionId} null =
+     * match by hash only). Marks the row as known.
+     *
+     * @return {@code false} when the caller must write synchronously
+     */
+    public boolean recordEnergy(String hash, String sessionId, double energy, double temperature) {
+        if (!enabled || hash == null) {
+            return false;
+        }
+        markKnown(hash);
+        return merge(hash, sessionId, 0, true, energy, temperature);
+    }
+
+    private boolean merge(String hash, String sessionId, int hits, boolean hasEnergy, double energy, double temp) {
+        String key = (sessionId == null) ? hash : hash + '\u0000' + sessionId;
+        if (pending.size() >= maxPending && !pending.containsKey(key)) {
+            if (overflow != null) overflow.increment();
+            Pending p = new Pending(hash, sessionId);
+            p.hits = hits;
+            p.hasEnergy = hasEnergy;
+            p.energy = energy;
+            p.temperature = temp;
+            return toOutbox(List.of(p), "overflow");
+        }
+        pending.compute(key, (k, p) -> {
+            if (p == null) p = new Pending(hash, sessionId);
+            p.hits += hits;
+            if (hasEnergy) {
+                p.hasEnergy = true;
+                p.energy = energy;
+                p.temperature = temp;
+            }
+            return p;
+        });
+        if (pending.size() >= flushSize && !flushing.get()) {
+            try {
+                scheduler.execute(this::flushQuietly);
+            } catch (Exception ignore) {
+                // shutting down; the final flush picks it up
+            }
+        }
+        return true;
+    }
+
+    /** Number of keys waiting for the next flush. */
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /** Deltas lost so far (no JDBC and no outbox to hold them). */
+    public long droppedCount() {
+        return droppedTotal.get();
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("[TmWriteBehind] flush failed: {}", e.toString());
+        }
+    }
+
+    /**
+     * Writes all pending deltas as JDBC batches. On failure the deltas that were not committed
+     * are merged back for the next attempt.
+     *
+     * @return rows (keys) written
+     */
+    public int flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return 0;
+        }
+        List<Pending> batch = new ArrayList<>();
+        try {
+            for (String key : pending.keySet()) {
+                Pending p = pending.remove(key);
+                if (p != null) batch.add(p);
+            }
+            if (batch.isEmpty()) {
+                return 0;
+            }
+            JdbcTemplate jdbc = jdbcProvider == null ? null : jdbcProvider.getIfAvailable();
+            if (jdbc == null) {
+                if (!toOutbox(batch, "no_jdbc")) {
+                    drop(batch.size(), "no_jdbc");
+                }
+                return 0;
+            }
+            long start = System.nanoTime();
+            write(jdbc, transactionTemplate(), batch);
+            if (flushLatency != null) flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            if (rowsPerFlush != null) rowsPerFlush.record(batch.size());
+            return batch.size();
+        } catch (WriteFailedException e) {
+            requeue(batch, e.committedGroups);
+            throw e;
+        } catch (RuntimeException e) {
+            requeue(batch, 0);
+            throw e;
+        } finally {
+            flushing.set(false);
+        }
+    }
+
+    /** Merges back what a failed write left uncommitted; counts what cannot be kept. */
+    private void requeue(List<Pending> batch, int committedGroups) {
+        int lost = 0;
+        for (Pending p : uncommitted(batch, committedGroups)) {
+            if (!merge(p.hash, p.sessionId, p.hits, p.hasEnergy, p.energy, p.temperature)) {
+                lost++;
+            }
+        }
+        if (lost > 0) {
+            drop(lost, "requeue_overflow");
+        }
+    }
+
+    /** The part of {@code batch} not covered by the first {@code committedGroups} groups. */
+    static List<Pending> uncommitted(List<Pending> batch, int committedGroups) {
+        List<Pending> rest = new ArrayList<>(batch.size());
+        for (Pending p : batch) {
+            Pending r = new Pending(p.hash, p.sessionId);
+            r.hits = committedGroups >= 1 ? 0 : p.hits;
+            r.hasEnergy = p.hasEnergy && committedGroups < (p.sessionId == null ? 2 : 3);
+            r.energy = p.energy;
+            r.temperature = p.temperature;
+            if (r.hits > 0 || r.hasEnergy) {
+                rest.add(r);
+            }
+        }
+        return rest;
+    }
+
+    private TransactionTemplate transactionTemplate() {
+        PlatformTransactionManager tm = txProvider == null ? null : txProvider.getIfAvailable();
+        return tm == null ? null : new TransactionTemplate(tm);
+    }
+
+    /**
+     * Runs the three statement groups, inside {@code tx} when given (all or nothing).
+     *
+     * @throws WriteFailedException with the number of groups that stay committed
+     */
+    static void write(JdbcTemplate jdbc, TransactionTemplate tx, List<Pending> batch) {
+        List<Object[]> hits = new ArrayList<>();
+        List<Object[]> energy = new ArrayList<>();
+        List<Object[]> energyBySession = new ArrayList<>();
+        for (Pending p : batch) {
+            if (p.hits > 0) {
+                hits.add(new Object[]{p.hits, p.hash});
+            }
+            if (p.hasEnergy) {
+                if (p.sessionId == null) {
+                    energy.add(new Object[]{p.energy, p.temperature, p.hash});
+                } else {
+                    energyBySession.add(new Object[]{p.energy, p.temperature, p.hash, p.sessionId});
+                }
+            }
+        }
+        int[] done = {0};
+        Runnable groups = () -> {
+            if (!hits.isEmpty()) jdbc.batchUpdate(SQL_HITS, hits);
+            done[0] = 1;
+            if (!energy.isEmpty()) jdbc.batchUpdate(SQL_ENERGY, energy);
+            done[0] = 2;
+            if (!energyBySession.isEmpty()) jdbc.batchUpdate(SQL_ENERGY_SESSION, energyBySession);
+            done[0] = 3;
+        };
+        try {
+            if (tx != null) {
+                tx.executeWithoutResult(status -> groups.run());
+            } else {
+                groups.run();
+            }
+        } catch (RuntimeException e) {
+            // a rolled-back transaction leaves nothing committed
+            throw new WriteFailedException(tx != null ? 0 : done[0], e);
+        }
+    }
+
+    private void drop(int n, String why) {
+        droppedTotal.addAndGet(n);
+        if (dropped != null) dropped.increment(n);
+        log.warn("[TmWriteBehind] {} delta(s) dropped ({}): no outbox", n, why);
+    }
+
+    private boolean toOutbox(List<Pending> items, String why) {
+        DegradedStorage outbox = outboxProvider == null ? null : outboxProvider.getIfAvailable();
+        if (outbox == null) {
+            return false;
+        }
+        for (Pending p : items) {
+            String body = encode(p);
+            outbox.putPending(new PendingMemoryEvent(p.sessionId, "tm:" + why, p.hash, body,
+                    Instant.now(), body.length(), OUTBOX_REASON));
+        }
+        return true;
+    }
+
+    /**
+     * Re-applies an outbox event written by this buffer; returns false if it is not one.
+     * Throws when nothing was committed, so the drainer can retry the whole event. After a
+     * partial write the remainder moves into the buffer and the event counts as consumed.
+     */
+    public boolean replay(PendingMemoryEvent e) {
+        if (e == null || !OUTBOX_REASON.equals(e.reason()) || e.userQueryHash() == null) {
+            return false;
+        }
+        int hits = 0;
+        Double energy = null;
+        Double temp = null;
+        for (String part : String.valueOf(e.answerSnippet()).split(";")) {
+            int eq = part.indexOf('=');
+            if (eq <= 0) continue;
+            String k = part.substring(0, eq).trim().toLowerCase(Locale.ROOT);
+            String v = part.substring(eq + 1).trim();
+            try {
+                switch (k) {
+                    case "hits" -> hits = Integer.parseInt(v);
+                    case "energy" -> energy = Double.parseDouble(v);
+                    case "temp" -> temp = Double.parseDouble(v);
+                    default -> { }
+                }
+            } catch (NumberFormatException ignore) {
+                // malformed field: skip
+            }
+        }
+        boolean hasEnergy = energy != null && temp != null;
+        Pending p = new Pending(e.userQueryHash(), e.sessionKey());
+        p.hits = hits;
+        p.hasEnergy = hasEnergy;
+        p.energy = hasEnergy ? energy : 0;
+        p.temperature = hasEnergy ? temp : 0;
+        JdbcTemplate jdbc = jdbcProvider == null ? null : jdbcProvider.getIfAvailable();
+        if (jdbc == null) {
+            throw new IllegalStateException("no JdbcTemplate");
+        }
+        try {
+            write(jdbc, transactionTemplate(), List.of(p));
+        } catch (WriteFailedException wf) {
+            if (wf.committedGroups == 0) {
+                throw wf;
+            }
+            log.warn("[TmWriteBehind] replay of {} partially applied, re-buffering the rest: {}",
+                    p.hash, wf.getMessage());
+            requeue(List.of(p), wf.committedGroups);
+        }
+        return true;
+    }
+
+    static String encode(Pending p) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("hits=").append(p.hits);
+        if (p.hasEnergy) {
+            sb.append(";energy=").append(p.energy).append(";temp=").append(p.temperature);
+        }
+        return sb.toString();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(2, TimeUnit.SECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("[TmWriteBehind] final flush failed, moving {} delta(s) to outbox: {}", pending.size(), e.toString());
+        }
+        if (!pending.isEmpty()) {
+            List<Pending> rest = new ArrayList<>(pending.values());
+            pending.clear();
+            if (!toOutbox(rest, "shutdown")) {
+                drop(rest.size(), "shutdown");
+            }
+        }
+    }
+}
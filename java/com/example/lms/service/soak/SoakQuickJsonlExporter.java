@@ -1,17 +1,21 @@
 package com.example.lms.service.soak;
 
+import com.example.lms.infra.io.AsyncJsonlSink;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
-import java.io.FileWriter;
+import java.nio.file.Path;
 
 /**
  * Append /internal/soak/quick responses to a JSONL file (dataset feedback loop).
+ *
+ * <p>Writes go through an {@link AsyncJsonlSink} (file kept open, batched flushes); when the
+ * queue is full a report is dropped and counted rather than stalling the soak run.</p>
  */
 @Component
 @ConditionalOnProperty(prefix = "soak.export", name = "enabled", havingValue = "true", matchIfMissing = true)
@@ -27,23 +31,41 @@ public class SoakQuickJsonlExporter {
     @Value("${soak.export.file:seed10.jsonl}")
     private String fileName;
 
-    public synchronized void append(SoakQuickReport rep) {
+    private volatile AsyncJsonlSink sink;
+
+    public void append(SoakQuickReport rep) {
         if (rep == null) return;
         try {
-            File d = new File(dir);
-            if (!d.exists() && !d.mkdirs()) {
-                log.debug("[SOAK] export dir create failed: {}", d.getAbsolutePath());
-                return;
-            }
-            File f = new File(d, fileName);
             String line = om.writeValueAsString(rep);
-            try (FileWriter w = new FileWriter(f, true)) {
-                w.write(line);
-                w.write("\n");
+            if (!sink().offer(line)) {
+                log.debug("[SOAK] jsonl export dropped (queue full)");
             }
         } catch (Exception e) {
             // fail-soft
             log.debug("[SOAK] jsonl export failed: {}", e.toString());
         }
     }
+
+    private AsyncJsonlSink sink() {
+        AsyncJsonlSink s = sink;
+        if (s == null) {
+            synchronized (this) {
+                s = sink;
+                if (s == null) {
+                    s = new AsyncJsonlSink("soak-export", Path.of(dir, fileName),
+                            AsyncJsonlSink.Config.defaults().withRotation(0L, 0));
+                    sink = s;
+                }
+            }
+        }
+        return s;
+    }
+
+    @PreDestroy
+    public void close() {
+        AsyncJsonlSink s = sink;
+        if (s != null) {
+            s.close();
+        }
+    }
 }
@@ -1,5 +1,8 @@
 package com.example.lms.service.vector;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.store.embedding.EmbeddingMatch;
@@ -46,6 +49,7 @@ import java.util.regex.Pattern;
 public class UpstashVectorStoreAdapter implements EmbeddingStore<TextSegment> {
 
     private static final Logger log = LoggerFactory.getLogger(UpstashVectorStoreAdapter.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
 
     private final WebClient webClient;
 
@@ -276,7 +280,7 @@ public class UpstashVectorStoreAdapter implements EmbeddingStore<TextSegment> {
 
         try {
             Map<String, Object> body = new LinkedHashMap<>();
-            body.put("vector", toList(queryEmbedding));
+            body.put("vector", queryEmbedding.vector()); // float[] serializes as a number array, no boxing
             body.put("topK", topK);
             body.put("includeMetadata", true);
             body.put("includeData", true);
@@ -311,38 +315,19 @@ public class UpstashVectorStoreAdapter implements EmbeddingStore<TextSegment> {
                 return new EmbeddingSearchResult<>(List.of());
             }
 
-            var mapper = new com.fasterxml.jackson.databind.ObjectMapper();
-            var resultArr = mapper.readTree(resp).path("result");
-            if (!resultArr.isArray()) {
-                // Some APIs may return {matches:[...]}; best-effort fallback
-                resultArr = mapper.readTree(resp).path("matches");
-            }
-            if (!resultArr.isArray()) {
-                return new EmbeddingSearchResult<>(List.of());
-            }
-
             List<EmbeddingMatch<TextSegment>> out = new ArrayList<>();
-            for (var n : resultArr) {
-                String id = n.path("id").asText("");
-                double score = n.path("score").asDouble(0);
-                if (minScore > 0 && score < minScore) {
+            for (QueryHit h : parseQueryHits(resp)) {
+                if (minScore > 0 && h.score() < minScore) {
                     continue;
                 }
-
-                String data = n.path("data").asText("");
-                var mdNode = n.path("metadata");
-                @SuppressWarnings("unchecked")
-                Map<String, Object> md = mapper.convertValue(mdNode, Map.class);
-                if (md == null)
-                    md = new HashMap<>();
-
-                String text = !blank(data) ? data : Objects.toString(md.getOrDefault("text", ""), "");
+                Map<String, Object> md = h.metadata();
+                String text = !blank(h.data()) ? h.data() : Objects.toString(md.getOrDefault("text", ""), "");
 
                 TextSegment seg = TextSegment.from(
                         text,
                         dev.langchain4j.data.document.Metadata.from(md));
 
-                out.add(new EmbeddingMatch<>(score, id, request.queryEmbedding(), seg));
+                out.add(new EmbeddingMatch<>(h.score(), h.id(), request.queryEmbedding(), seg));
             }
 
             return new EmbeddingSearchResult<>(out);
@@ -384,7 +369,7 @@ public class UpstashVectorStoreAdapter implements EmbeddingStore<TextSegment> {
                 return Map.of();
             }
 
-            var mapper = new com.fasterxml.jackson.databind.ObjectMapper();
+            var mapper = MAPPER;
             var node = mapper.readTree(resp).path("result");
             if (node.isMissingNode() || node.isNull()) {
                 return Map.of();
@@ -424,7 +409,7 @@ public class UpstashVectorStoreAdapter implements EmbeddingStore<TextSegment> {
                 return List.of();
             }
 
-            var mapper = new com.fasterxml.jackson.databind.ObjectMapper();
+            var mapper = MAPPER;
             var arr = mapper.readTree(resp).path("result");
             if (!arr.isArray()) {
                 return List.of();
@@ -480,7 +465,7 @@ public class UpstashVectorStoreAdapter implements EmbeddingStore<TextSegment> {
 
             Map<String, Object> obj = new LinkedHashMap<>();
             obj.put("id", ids.get(i));
-            obj.put("vector", toList(e));
+            obj.put("vector", e.vector());
             obj.put("metadata", meta);
             if (seg != null && !blank(seg.text())) {
                 obj.put("data", seg.text());
@@ -557,13 +542,58 @@ public class UpstashVectorStoreAdapter implements EmbeddingStore<TextSegment> {
         return t;
     }
 
-    private List<Float> toList(Embedding e) {
-        float[] arr = e.vector();
-        List<Float> list = new ArrayList<>(arr.length);
-        for (float v : arr) {
-            list.add(v);
+    private record QueryHit(String id, double score, String data, Map<String, Object> metadata) {}
+
+    /**
+     * Single streaming pass over a query response: {@code {result:[...]}} or, best-effort,
+     * {@code {matches:[...]}}. Returned vectors (if any) are skipped without materializing.
+     */
+    private static List<QueryHit> parseQueryHits(String resp) throws java.io.IOException {
+        List<QueryHit> hits = new ArrayList<>();
+        try (JsonParser p = MAPPER.getFactory().createParser(resp)) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                return hits;
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken t = p.nextToken();
+                if (!("result".equals(field) || "matches".equals(field)) || t != JsonToken.START_ARRAY) {
+                    p.skipChildren();
+                    continue;
+                }
+                while (p.nextToken() == JsonToken.START_OBJECT) {
+                    hits.add(readHit(p));
+                }
+                return hits;
+            }
+        }
+        return hits;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static QueryHit readHit(JsonParser p) throws java.io.IOException {
+        String id = "";
+        double score = 0;
+        String data = "";
+        Map<String, Object> md = null;
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String f = p.currentName();
+            JsonToken t = p.nextToken();
+            switch (f) {
+                case "id" -> id = t == JsonToken.VALUE_NULL ? "" : p.getValueAsString("");
+                case "score" -> score = p.getValueAsDouble(0);
+                case "data" -> data = t == JsonToken.VALUE_NULL ? "" : p.getValueAsString("");
+                case "metadata" -> {
+                    if (t == JsonToken.START_OBJECT) {
+                        md = MAPPER.readValue(p, Map.class);
+                    } else {
+                        p.skipChildren();
+                    }
+                }
+                default -> p.skipChildren();
+            }
         }
-        return list;
+        return new QueryHit(id, score, data, md == null ? new HashMap<>() : md);
     }
 
     private String idOf(TextSegment seg) {
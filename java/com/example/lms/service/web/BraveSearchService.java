@@ -2,6 +2,7 @@ package com.example.lms.service.web;
 
 import com.example.lms.config.ConfigValueGuards;
 import com.example.lms.search.TraceStore;
+import com.example.lms.search.provider.WebSearchL2Cache;
 import com.example.lms.trace.LogCorrelation;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
@@ -158,6 +159,12 @@ public class BraveSearchService implements WebSearchProvider {
     @Autowired(required = false)
     private CacheManager cacheManager;
 
+    // Optional: restart-surviving L2 shared with the hybrid provider
+    @Autowired(required = false)
+    private WebSearchL2Cache webL2Cache;
+
+    private static final String L2_PROVIDER = "brave";
+
     public BraveSearchService(BraveSearchProperties props) {
         this.props = props;
         this.restTemplate = new RestTemplate();
@@ -318,32 +325,49 @@ public class BraveSearchService implements WebSearchProvider {
      */
     public List<String> searchCacheOnly(String query, int topK) {
         try {
-            if (cacheManager == null || query == null || query.isBlank() || topK <= 0) {
+            if (query == null || query.isBlank() || topK <= 0) {
                 return List.of();
             }
-            Cache cache = cacheManager.getCache("webSearchCache");
-            if (cache == null) {
+            Cache cache = cacheManager == null ? null : cacheManager.getCache("webSearchCache");
+            if (cache == null && webL2Cache == null) {
                 return List.of();
             }
 
             // Try the exact key first (must match @Cacheable key)
-            List<String> hit = getCached(cache, query, topK);
+            List<String> hit = cache == null ? null : getCached(cache, query, topK);
 
             // Some callers clamp k to [5..20]; probe that too to improve hit-rate.
             int k2 = Math.min(Math.max(topK, 5), BRAVE_MAX_TOPK);
-            if ((hit == null || hit.isEmpty()) && k2 != topK) {
+            if (cache != null && (hit == null || hit.isEmpty()) && k2 != topK) {
                 hit = getCached(cache, query, k2);
             }
 
             // Also probe the sanitized variant (cache keys are caller-provided).
             String safeQuery = sanitizeQuery(query);
-            if ((hit == null || hit.isEmpty()) && safeQuery != null && !safeQuery.isBlank() && !safeQuery.equals(query)) {
+            if (cache != null && (hit == null || hit.isEmpty()) && safeQuery != null && !safeQuery.isBlank() && !safeQuery.equals(query)) {
                 hit = getCached(cache, safeQuery, topK);
                 if ((hit == null || hit.isEmpty()) && k2 != topK) {
                     hit = getCached(cache, safeQuery, k2);
                 }
             }
 
+            // L2 (persistent) probe: stale entries are acceptable on the cache-only path.
+            if ((hit == null || hit.isEmpty()) && webL2Cache != null && safeQuery != null && !safeQuery.isBlank()) {
+                WebSearchL2Cache.Hit l2 = webL2Cache.get(L2_PROVIDER, safeQuery, l2Policy(topK));
+                if (l2 == null && k2 != topK) {
+                    l2 = webL2Cache.get(L2_PROVIDER, safeQuery, l2Policy(k2));
+                }
+                if (l2 != null) {
+                    hit = l2.snippets();
+                    try {
+                        TraceStore.put("web.brave.cacheOnly.l2.hit", true);
+                        TraceStore.put("web.brave.cacheOnly.l2.fresh", l2.fresh());
+                        TraceStore.put("web.brave.cacheOnly.l2.ageMs", l2.ageMs());
+                    } catch (Throwable ignore) {
+                    }
+                }
+            }
+
             if (hit == null || hit.isEmpty()) {
                 try {
                     TraceStore.putIfAbsent("web.brave.cacheOnly.miss", true);
@@ -378,6 +402,10 @@ public class BraveSearchService implements WebSearchProvider {
         }
     }
 
+    private static String l2Policy(int topK) {
+        return "k=" + topK;
+    }
+
     private static List<String> getCached(Cache cache, String query, int topK) {
         try {
             String key = query + "-" + topK;
@@ -503,6 +531,20 @@ public class BraveSearchService implements WebSearchProvider {
                     elapsedMs);
         }
 
+        // Gate -2: fresh L2 hit (survives restarts) spends no quota.
+        if (webL2Cache != null) {
+            WebSearchL2Cache.Hit l2 = webL2Cache.get(L2_PROVIDER, safeQuery,
+                    l2Policy(Math.min(limit > 0 ? limit : 5, BRAVE_MAX_TOPK)));
+            if (l2 != null && l2.fresh()) {
+                try {
+                    TraceStore.put("web.brave.l2.fresh", true);
+                } catch (Exception ignore) {
+                    // fail-soft
+                }
+                return BraveSearchResult.ok(l2.snippets(), (System.nanoTime() - t0Ns) / 1_000_000L);
+            }
+        }
+
         // Gate -1: cool-down after 429 to avoid retry storms.
         long now = System.currentTimeMillis();
         long cooldownUntil = cooldownUntilEpochMs.get();
@@ -625,6 +667,9 @@ public class BraveSearchService implements WebSearchProvider {
             
             // Seed cache for cache-only rescue paths (searchWithMeta is not @Cacheable).
             seedWebSearchCache(query, safeQuery, topK, snippets);
+            if (webL2Cache != null) {
+                webL2Cache.put(L2_PROVIDER, safeQuery, l2Policy(topK), snippets);
+            }
 
             // Consume local quota on success
             if (!snippets.isEmpty() && props.monthlyQuota() > 0) {
@@ -1,11 +1,9 @@
 // src/main/java/com/example/lms/trace/CloudPointerClient.java
 package com.example.lms.trace;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
 
 
 
@@ -14,14 +12,22 @@ import java.nio.charset.StandardCharsets;
  * Lightweight HTTP sink for forwarding trace events to external collectors.
  * Controlled via environment variables:
  *
- *   CLOUD_POINTER_URLS       CSV of endpoints, e.g. "https://log1/ingest,https://log2/ingest"
- *   CLOUD_POINTER_TOKEN      Optional bearer token (Authorization: Bearer)
- *   CLOUD_POINTER_TIMEOUT_MS Request timeout in milliseconds (default 1200)
+ *   CLOUD_POINTER_URLS           CSV of endpoints, e.g. "https://log1/ingest,https://log2/ingest"
+ *   CLOUD_POINTER_TOKEN          Optional bearer token (Authorization: Bearer)
+ *   CLOUD_POINTER_TIMEOUT_MS     Request timeout in milliseconds (default 1200)
+ *   CLOUD_POINTER_QUEUE_CAPACITY Max queued events; the oldest is dropped when full (default 10000)
+ *   CLOUD_POINTER_BATCH_MAX      Max events per POST (default 200)
+ *   CLOUD_POINTER_FLUSH_MS       Max time an event waits for its batch to fill (default 1000)
+ *   CLOUD_POINTER_GZIP           Gzip request bodies (default true)
+ *   CLOUD_POINTER_MAX_RETRIES    Retries per endpoint and batch before backing off (default 2)
+ *
+ * Events are sent as NDJSON batches ({@code {"ts","type","stage","kv"}} per line) by a background
+ * exporter; {@link #trySend} only enqueues. The {@code kv} map is serialized later on the exporter
+ * thread, so callers must not mutate it after handing it over.
  *
  * Failures are swallowed (best-effort, non-blocking).
  */
 public final class CloudPointerClient {
-    private static final ObjectMapper MAPPER = new ObjectMapper();
 
     private static final String URLS   = System.getenv().getOrDefault("CLOUD_POINTER_URLS", "");
     private static final String TOKEN  = System.getenv().getOrDefault("CLOUD_POINTER_TOKEN", "");
@@ -29,49 +35,59 @@ public final class CloudPointerClient {
 
     private CloudPointerClient() {}
 
-    public static void trySend(String type, String stage, java.util.Map<String, Object> kv) {
-        if (URLS == null || URLS.isBlank()) return;
-        try {
-            java.util.Map<String, Object> ev = new java.util.LinkedHashMap<>();
-            ev.put("type", type);
-            ev.put("stage", stage);
-            ev.put("kv", kv);
-            byte[] body = MAPPER.writeValueAsBytes(ev);
-            for (String u : URLS.split(",")) {
-                String url = u.trim();
-                if (url.isEmpty()) continue;
-                post(url, body);
+    /** Created on first use so that processes without CLOUD_POINTER_URLS never start a thread. */
+    private static final class Holder {
+        static final CloudPointerExporter EXPORTER = create();
+
+        private static CloudPointerExporter create() {
+            try {
+                CloudPointerExporter ex = new CloudPointerExporter(
+                        Arrays.asList(URLS.split(",")),
+                        TOKEN,
+                        TIMEOUT,
+                        parseInt(env("CLOUD_POINTER_QUEUE_CAPACITY", "10000"), 10_000),
+                        parseInt(env("CLOUD_POINTER_BATCH_MAX", "200"), 200),
+                        parseInt(env("CLOUD_POINTER_FLUSH_MS", "1000"), 1000),
+                        !"false".equalsIgnoreCase(env("CLOUD_POINTER_GZIP", "true").trim()),
+                        parseInt(env("CLOUD_POINTER_MAX_RETRIES", "2"), 2));
+                if (!ex.hasEndpoints()) {
+                    return null;
+                }
+                ex.start();
+                Runtime.getRuntime().addShutdownHook(
+                        new Thread(() -> ex.close(Duration.ofSeconds(3)), "cloud-pointer-shutdown"));
+                return ex;
+            } catch (Exception e) {
+                // fail-soft: a malformed URL disables forwarding instead of breaking callers
+                return null;
             }
-        } catch (Exception ignore) {
-            // Ignore all errors
         }
     }
 
-    private static void post(String url, byte[] body) {
-        HttpURLConnection conn = null;
+    public static void trySend(String type, String stage, Map<String, Object> kv) {
+        if (URLS == null || URLS.isBlank()) return;
         try {
-            conn = (HttpURLConnection) new URL(url).openConnection();
-            conn.setConnectTimeout(TIMEOUT);
-            conn.setReadTimeout(TIMEOUT);
-            conn.setRequestMethod("POST");
-            conn.setRequestProperty("Content-Type", "application/json");
-            if (TOKEN != null && !TOKEN.isBlank()) {
-                conn.setRequestProperty("Authorization", "Bearer " + TOKEN);
+            CloudPointerExporter ex = Holder.EXPORTER;
+            if (ex != null) {
+                ex.enqueue(type, stage, kv);
             }
-            conn.setDoOutput(true);
-            try (OutputStream os = conn.getOutputStream()) {
-                os.write(body);
-            }
-            // Read response code to ensure the request is sent
-            int code = conn.getResponseCode();
-            // ignore code
-        } catch (Exception ignore) {
-        } finally {
-            if (conn != null) conn.disconnect();
+        } catch (Throwable ignore) {
+            // Ignore all errors
         }
     }
 
+    /** Exporter counters (queued/dropped/sent/failed...), empty when forwarding is disabled. */
+    public static Map<String, Object> stats() {
+        if (URLS == null || URLS.isBlank()) return Map.of();
+        CloudPointerExporter ex = Holder.EXPORTER;
+        return (ex == null) ? Map.of() : ex.stats();
+    }
+
+    private static String env(String name, String def) {
+        return System.getenv().getOrDefault(name, def);
+    }
+
     private static int parseInt(String s, int def) {
-        try { return Integer.parseInt(s); } catch (Exception ignore) { return def; }
+        try { return Integer.parseInt(s.trim()); } catch (Exception ignore) { return def; }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,307 @@
+package com.example.lms.trace;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Background exporter behind {@link CloudPointerClient}.
+ *
+ * <p>{@link #enqueue} only appends to a bounded queue; when the queue is full the oldest event is
+ * dropped. A single daemon thread drains the queue into NDJSON batches (optionally gzip-encoded)
+ * and POSTs each batch to every endpoint over a shared keep-alive {@link HttpClient}. Failed
+ * endpoints are retried with exponential backoff and then skipped until their backoff expires, so
+ * one dead collector does not stall the others. {@link #close(Duration)} flushes what is left.</p>
+ */
+final class CloudPointerExporter implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(CloudPointerExporter.class);
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final long MAX_BACKOFF_MS = 60_000L;
+
+    /** One queued event; serialized on the exporter thread, not the caller's. */
+    private record Event(long ts, String type, String stage, Map<String, Object> kv) {}
+
+    private final List<Endpoint> endpoints;
+    private final String token;
+    private final Duration timeout;
+    private final int batchMax;
+    private final long flushMs;
+    private final boolean gzip;
+    private final int maxRetries;
+    private final BlockingQueue<Event> queue;
+    private final HttpClient http;
+
+    private final AtomicLong enqueued = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+
+    private final Object sendLock = new Object();
+    private volatile boolean running;
+    private Thread worker;
+
+    CloudPointerExporter(List<String> urls, String token, int timeoutMs, int queueCapacity,
+                         int batchMax, long flushMs, boolean gzip, int maxRetries) {
+        List<Endpoint> eps = new ArrayList<>();
+        for (String u : urls) {
+            if (u != null && !u.isBlank()) {
+                eps.add(new Endpoint(URI.create(u.trim())));
+            }
+        }
+        this.endpoints = List.copyOf(eps);
+        this.token = token;
+        this.timeout = Duration.ofMillis(Math.max(100, timeoutMs));
+        this.batchMax = Math.max(1, batchMax);
+        this.flushMs = Math.max(10L, flushMs);
+        this.gzip = gzip;
+        this.maxRetries = Math.max(0, maxRetries);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.http = HttpClient.newBuilder()
+                .connectTimeout(this.timeout)
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+    }
+
+    boolean hasEndpoints() {
+        return !endpoints.isEmpty();
+    }
+
+    synchronized void start() {
+        if (running || endpoints.isEmpty()) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::loop, "cloud-pointer-exporter");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /** Never blocks: a full queue drops its oldest event to make room. */
+    void enqueue(String type, String stage, Map<String, Object> kv) {
+        Event ev = new Event(System.currentTimeMillis(), type, stage, kv);
+        enqueued.incrementAndGet();
+        while (!queue.offer(ev)) {
+            if (queue.poll() != null) {
+                dropped.incrementAndGet();
+            }
+        }
+    }
+
+    private void loop() {
+        List<Event> batch = new ArrayList<>(batchMax);
+        while (running) {
+            try {
+                Event first = queue.poll(flushMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // Linger up to flushMs for a fuller batch unless one is already waiting.
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushMs);
+                while (batch.size() < batchMax) {
+                    queue.drainTo(batch, batchMax - batch.size());
+                    long left = deadline - System.nanoTime();
+                    if (batch.size() >= batchMax || left <= 0) {
+                        break;
+                    }
+                    Event next = queue.poll(left, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                send(batch);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Throwable t) {
+                // fail-soft: the exporter thread must survive anything a batch throws
+                log.debug("[CloudPointer] export loop error: {}", t.toString());
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /** Sends everything currently queued, in batches, on the calling thread. */
+    void flush() {
+        List<Event> batch = new ArrayList<>(batchMax);
+        while (queue.drainTo(batch, batchMax) > 0) {
+            send(batch);
+            batch.clear();
+        }
+    }
+
+    private void send(List<Event> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        synchronized (sendLock) {
+            byte[] body;
+            try {
+                body = encode(batch);
+            } catch (IOException e) {
+                failed.addAndGet(batch.size());
+                log.debug("[CloudPointer] encode failed: {}", e.toString());
+                return;
+            }
+            batches.incrementAndGet();
+            for (Endpoint ep : endpoints) {
+                if (post(ep, body)) {
+                    sent.addAndGet(batch.size());
+                } else {
+                    failed.addAndGet(batch.size());
+                }
+            }
+        }
+    }
+
+    private byte[] encode(List<Event> batch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256 * batch.size());
+        try (OutputStream out = gzip ? new GZIPOutputStream(bytes, 8192) : bytes) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            for (Event ev : batch) {
+                line.put("ts", ev.ts());
+                line.put("type", ev.type());
+                line.put("stage", ev.stage());
+                line.put("kv", ev.kv());
+                try {
+                    out.write(MAPPER.writeValueAsBytes(line));
+                    out.write('\n');
+                } catch (IOException bad) {
+                    // fail-soft: skip an event whose kv cannot be serialized
+                    failed.incrementAndGet();
+                }
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private boolean post(Endpoint ep, byte[] body) {
+        long now = System.currentTimeMillis();
+        if (now < ep.retryAfterMs) {
+            return false;
+        }
+        HttpRequest.Builder rb = HttpRequest.newBuilder(ep.uri)
+                .timeout(timeout)
+                .header("Content-Type", "application/x-ndjson")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body));
+        if (gzip) {
+            rb.header("Content-Encoding", "gzip");
+        }
+        if (token != null && !token.isBlank()) {
+            rb.header("Authorization", "Bearer " + token);
+        }
+        HttpRequest req = rb.build();
+        for (int attempt = 0; attempt <= maxRetries; attempt++) {
+            if (attempt > 0) {
+                retries.incrementAndGet();
+                try {
+                    Thread.sleep(Math.min(2_000L, 100L << (attempt - 1)));
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            try {
+                HttpResponse<Void> res = http.send(req, HttpResponse.BodyHandlers.discarding());
+                int sc = res.statusCode();
+                if (sc >= 200 && sc < 300) {
+                    ep.failures = 0;
+                    ep.retryAfterMs = 0L;
+                    return true;
+                }
+                if (sc < 500 && sc != 429) {
+                    // Client errors will not improve on retry.
+                    break;
+                }
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                // fail-soft: retried below
+                log.debug("[CloudPointer] POST {} failed: {}", ep.uri, e.toString());
+            }
+        }
+        ep.failures++;
+        ep.retryAfterMs = System.currentTimeMillis()
+                + Math.min(MAX_BACKOFF_MS, 1_000L << Math.min(16, ep.failures - 1));
+        return false;
+    }
+
+    /** Stops the worker and flushes the queue, giving up after {@code deadline}. */
+    void close(Duration deadline) {
+        Thread w;
+        synchronized (this) {
+            running = false;
+            w = worker;
+            worker = null;
+        }
+        if (w != null) {
+            try {
+                // The worker finishes its current batch and exits within one poll interval.
+                w.join(Math.max(1L, Math.min(deadline.toMillis(), flushMs * 2 + timeout.toMillis())));
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Thread flusher = new Thread(this::flush, "cloud-pointer-flush");
+        flusher.setDaemon(true);
+        flusher.start();
+        try {
+            flusher.join(Math.max(1L, deadline.toMillis()));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        close(Duration.ofSeconds(5));
+    }
+
+    Map<String, Object> stats() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("endpoints", endpoints.size());
+        m.put("queued", queue.size());
+        m.put("enqueued", enqueued.get());
+        m.put("dropped", dropped.get());
+        m.put("sent", sent.get());
+        m.put("failed", failed.get());
+        m.put("batches", batches.get());
+        m.put("retries", retries.get());
+        return m;
+    }
+
+    /** Per-endpoint backoff state; only touched under {@code sendLock}. */
+    private static final class Endpoint {
+        final URI uri;
+        int failures;
+        long retryAfterMs;
+
+        Endpoint(URI uri) {
+            this.uri = uri;
+        }
+    }
+}
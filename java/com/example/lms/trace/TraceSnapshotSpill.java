@@ -0,0 +1,176 @@
+package com.example.lms.trace;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compressed on-disk segments for snapshots evicted from the in-memory ring.
+ *
+ * <p>Each {@link #append(List)} writes one gzip member (a batch of JSON lines) to the current
+ * segment, so a segment stays readable while it is still being written: a torn last member is
+ * simply ignored on read. Segments roll over after {@code segmentSnapshots} records and only the
+ * newest {@code maxSegments} are kept.</p>
+ *
+ * <p>Writes are expected from a single thread; reads may run concurrently.</p>
+ */
+final class TraceSnapshotSpill {
+
+    private static final Logger log = LoggerFactory.getLogger(TraceSnapshotSpill.class);
+    private static final String PREFIX = "snapshots-";
+    private static final String SUFFIX = ".jsonl.gz";
+    private static final TypeReference<Map<String, Object>> MAP = new TypeReference<>() {
+    };
+
+    private final ObjectMapper om = new ObjectMapper();
+    private final Path dir;
+    private final int segmentSnapshots;
+    private final int maxSegments;
+    private final AtomicLong spilled = new AtomicLong();
+
+    private Path current;
+    private int currentCount;
+    private int segmentSeq;
+
+    TraceSnapshotSpill(Path dir, int segmentSnapshots, int maxSegments) {
+        this.dir = dir;
+        this.segmentSnapshots = Math.max(1, segmentSnapshots);
+        this.maxSegments = Math.max(1, maxSegments);
+    }
+
+    long spilled() {
+        return spilled.get();
+    }
+
+    /** Appends one batch as a single gzip member. */
+    void append(List<Map<String, Object>> records) throws IOException {
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+        Files.createDirectories(dir);
+        if (current == null || currentCount >= segmentSnapshots) {
+            current = dir.resolve(String.format("%s%013d-%04d%s",
+                    PREFIX, System.currentTimeMillis(), (segmentSeq++ % 10_000), SUFFIX));
+            currentCount = 0;
+            prune();
+        }
+        try (OutputStream out = Files.newOutputStream(current,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+             GZIPOutputStream gz = new GZIPOutputStream(out, 8192);
+             Writer w = new OutputStreamWriter(gz, StandardCharsets.UTF_8)) {
+            for (Map<String, Object> r : records) {
+                w.write(om.writeValueAsString(r));
+                w.write('\n');
+            }
+        }
+        currentCount += records.size();
+        spilled.addAndGet(records.size());
+    }
+
+    /** Newest-first records across segments, at most {@code limit}. */
+    List<Map<String, Object>> recent(int limit) {
+        List<Map<String, Object>> out = new ArrayList<>();
+        if (limit <= 0) {
+            return out;
+        }
+        for (Path seg : segmentsNewestFirst()) {
+            List<Map<String, Object>> rows = read(seg);
+            Collections.reverse(rows);
+            for (Map<String, Object> r : rows) {
+                out.add(r);
+                if (out.size() >= limit) {
+                    return out;
+                }
+            }
+        }
+        return out;
+    }
+
+    Optional<Map<String, Object>> find(String id) {
+        if (id == null || id.isBlank()) {
+            return Optional.empty();
+        }
+        for (Path seg : segmentsNewestFirst()) {
+            for (Map<String, Object> r : read(seg)) {
+                if (id.equals(r.get("id"))) {
+                    return Optional.of(r);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    private List<Path> segmentsNewestFirst() {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> s = Files.list(dir)) {
+            List<Path> segs = new ArrayList<>(s
+                    .filter(p -> {
+                        String n = p.getFileName().toString();
+                        return n.startsWith(PREFIX) && n.endsWith(SUFFIX);
+                    })
+                    .sorted()
+                    .toList());
+            Collections.reverse(segs);
+            return segs;
+        } catch (IOException e) {
+            log.debug("[TRACE_SNAPSHOT] spill list failed: {}", e.toString());
+            return List.of();
+        }
+    }
+
+    private void prune() {
+        List<Path> segs = segmentsNewestFirst();
+        // The segment about to be created counts towards the limit.
+        for (int i = maxSegments - 1; i < segs.size(); i++) {
+            try {
+                Files.deleteIfExists(segs.get(i));
+            } catch (IOException e) {
+                log.debug("[TRACE_SNAPSHOT] spill prune failed: {}", e.toString());
+            }
+        }
+    }
+
+    private List<Map<String, Object>> read(Path seg) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        try (BufferedReader r = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(seg), 8192), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = r.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    rows.add(om.readValue(line, MAP));
+                } catch (IOException bad) {
+                    // fail-soft: skip a corrupt line
+                }
+            }
+        } catch (IOException e) {
+            // fail-soft: a torn trailing member (crash mid-write) ends the segment
+        }
+        return rows;
+    }
+}
@@ -3,6 +3,8 @@ package com.example.lms.trace;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.example.lms.search.TraceStore;
 import dev.langchain4j.rag.content.Content;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
@@ -12,9 +14,8 @@ import org.springframework.stereotype.Component;
 
 import java.time.Instant;
 import java.net.URI;
-import java.util.ArrayDeque;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.Deque;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -22,6 +23,12 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * In-memory ring buffer for request/task trace snapshots.
@@ -36,7 +43,11 @@ import java.util.Locale;
  * <p>Design goals:</p>
  * <ul>
  *   <li>Fail-soft: never block the request.</li>
- *   <li>Bounded memory: keep only the last N snapshots.</li>
+ *   <li>Cheap hot path: the request thread only copies the trace map and publishes into a
+ *       lock-free ring; sanitization runs on a background worker and HTML is rendered on first
+ *       view ({@link #getWithHtml(String)}).</li>
+ *   <li>Bounded memory: keep only the last N snapshots (optionally spilling evicted ones to
+ *       compressed segments on disk so they survive restarts).</li>
  *   <li>Safe serialization: sanitize values to JSON-friendly primitives/strings.</li>
  * </ul>
  */
@@ -127,18 +138,116 @@ public class TraceSnapshotStore {
     @Value("${trace.snapshot.html.max-len:60000}")
     private int htmlMaxLen;
 
+    // ---------------------------------------------------------------------
+    // Background sanitize + spill (optional)
+    // ---------------------------------------------------------------------
+
+    /** Pending sanitize/spill tasks; when full, sanitization falls back to first read and spill is skipped. */
+    @Value("${trace.snapshot.async.queue-capacity:2048}")
+    private int asyncQueueCapacity;
+
+    @Value("${trace.snapshot.spill.enabled:false}")
+    private boolean spillEnabled;
+
+    @Value("${trace.snapshot.spill.dir:./data/trace-snapshots}")
+    private String spillDir;
+
+    /** Snapshots per compressed segment; {@code segment-snapshots * max-segments} survive restarts. */
+    @Value("${trace.snapshot.spill.segment-snapshots:500}")
+    private int spillSegmentSnapshots;
+
+    @Value("${trace.snapshot.spill.max-segments:10}")
+    private int spillMaxSegments;
+
     private final ObjectProvider<com.example.lms.service.trace.TraceHtmlBuilder> htmlBuilderProvider;
 
     /** Per-trace capture budget (helps prevent over-capture for loops/background tasks). */
     private final java.util.concurrent.ConcurrentHashMap<String, CaptureBudget> budgets = new java.util.concurrent.ConcurrentHashMap<>();
 
-    private final Object lock = new Object();
-    private final Deque<TraceSnapshot> ring = new ArrayDeque<>();
+    /**
+     * Lock-free ring: writers claim a sequence number and overwrite slot {@code seq % capacity};
+     * readers walk sequences newest-first and skip slots that were overwritten meanwhile.
+     */
+    private volatile AtomicReferenceArray<Captured> ring;
+    private final AtomicLong seq = new AtomicLong();
+
+    private volatile ThreadPoolExecutor worker;
+    private volatile TraceSnapshotSpill spill;
+    /** Evicted snapshots waiting for the next spill batch (worker thread only). */
+    private final List<Map<String, Object>> spillBuffer = new ArrayList<>();
+
+    private final AtomicLong captured = new AtomicLong();
+    private final AtomicLong captureNanos = new AtomicLong();
+    private final AtomicLong captureMaxNanos = new AtomicLong();
+    private final AtomicLong asyncDropped = new AtomicLong();
+    private final AtomicLong sanitizedOnRead = new AtomicLong();
+    private final AtomicLong htmlRendered = new AtomicLong();
+    private final AtomicLong spillErrors = new AtomicLong();
 
     public TraceSnapshotStore(ObjectProvider<com.example.lms.service.trace.TraceHtmlBuilder> htmlBuilderProvider) {
         this.htmlBuilderProvider = htmlBuilderProvider;
     }
 
+    @PostConstruct
+    void init() {
+        ring();
+        if (spillEnabled && spillDir != null && !spillDir.isBlank()) {
+            spill = new TraceSnapshotSpill(Paths.get(spillDir), spillSegmentSnapshots, spillMaxSegments);
+        }
+        ThreadPoolExecutor ex = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(16, asyncQueueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "trace-snapshot-worker");
+                    t.setDaemon(true);
+                    return t;
+                },
+                (r, e) -> asyncDropped.incrementAndGet());
+        worker = ex;
+    }
+
+    /** Drains pending work and spills the live ring so it survives the restart. */
+    @PreDestroy
+    void shutdown() {
+        ThreadPoolExecutor ex = worker;
+        worker = null;
+        if (ex != null) {
+            ex.shutdown();
+            try {
+                ex.awaitTermination(2, TimeUnit.SECONDS);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        TraceSnapshotSpill sp = spill;
+        if (sp == null) {
+            return;
+        }
+        try {
+            List<Captured> live = liveNewestFirst(Integer.MAX_VALUE);
+            for (int i = live.size() - 1; i >= 0; i--) {
+                spillBuffer.add(toRecord(live.get(i)));
+            }
+            flushSpill(sp);
+        } catch (Throwable t) {
+            // fail-soft
+            spillErrors.incrementAndGet();
+        }
+    }
+
+    private AtomicReferenceArray<Captured> ring() {
+        AtomicReferenceArray<Captured> r = ring;
+        if (r == null) {
+            synchronized (seq) {
+                r = ring;
+                if (r == null) {
+                    r = new AtomicReferenceArray<>(Math.max(1, maxSize));
+                    ring = r;
+                }
+            }
+        }
+        return r;
+    }
+
     private static final class CaptureBudget {
         volatile long firstAtMs;
         volatile long lastAtMs;
@@ -173,6 +282,107 @@ public class TraceSnapshotStore {
     ) {
     }
 
+    /**
+     * Ring entry. The request thread only fills in identifiers and a shallow copy of the trace;
+     * sanitization runs on the worker (or on first read if the worker fell behind) and HTML is
+     * rendered on first view. Both results are memoized.
+     */
+    private final class Captured {
+        final long seqNo;
+        final String id;
+        final long ts;
+        final String sid;
+        final String traceId;
+        final String requestId;
+        final String reason;
+        final String method;
+        final String path;
+        final Integer status;
+        final String err;
+        final boolean hasMlBreadcrumbs;
+        final int traceEntryCount;
+        final Map<String, String> mdc;
+        final String htmlOverride;
+
+        private Map<String, Object> rawTrace;
+        private volatile Map<String, Object> trace;
+        private volatile boolean htmlDone;
+        private String html;
+        private boolean htmlTruncated;
+
+        Captured(long seqNo, String id, long ts, String sid, String traceId, String requestId,
+                 String reason, String method, String path, Integer status, String err,
+                 boolean hasMlBreadcrumbs, int traceEntryCount, Map<String, String> mdc,
+                 Map<String, Object> rawTrace, String htmlOverride) {
+            this.seqNo = seqNo;
+            this.id = id;
+            this.ts = ts;
+            this.sid = sid;
+            this.traceId = traceId;
+            this.requestId = requestId;
+            this.reason = reason;
+            this.method = method;
+            this.path = path;
+            this.status = status;
+            this.err = err;
+            this.hasMlBreadcrumbs = hasMlBreadcrumbs;
+            this.traceEntryCount = traceEntryCount;
+            this.mdc = mdc;
+            this.rawTrace = rawTrace;
+            this.htmlOverride = htmlOverride;
+        }
+
+        Map<String, Object> trace(boolean onRead) {
+            Map<String, Object> t = trace;
+            if (t != null) {
+                return t;
+            }
+            synchronized (this) {
+                if (trace == null) {
+                    if (onRead) {
+                        sanitizedOnRead.incrementAndGet();
+                    }
+                    trace = sanitizeTrace(rawTrace);
+                    rawTrace = null;
+                }
+                return trace;
+            }
+        }
+
+        boolean hasHtml() {
+            return htmlDone ? html != null : (htmlOverride != null || htmlEnabled);
+        }
+
+        String html() {
+            if (htmlDone) {
+                return html;
+            }
+            synchronized (this) {
+                if (!htmlDone) {
+                    String tsIso = Instant.ofEpochMilli(ts).toString();
+                    String h = renderHtml(id, tsIso, sid, traceId, requestId, reason, method, path, status, err,
+                            mdc, trace(true), htmlOverride);
+                    if (h != null && h.length() > Math.max(1024, htmlMaxLen)) {
+                        h = h.substring(0, Math.max(1024, htmlMaxLen)) + "\n<!-- truncated -->";
+                        htmlTruncated = true;
+                    }
+                    html = h;
+                    htmlDone = true;
+                    htmlRendered.incrementAndGet();
+                }
+                return html;
+            }
+        }
+
+        TraceSnapshot toSnapshot(boolean withHtml) {
+            String h = withHtml ? html() : (htmlDone ? html : null);
+            boolean truncated = htmlDone && htmlTruncated;
+            return new TraceSnapshot(id, ts, Instant.ofEpochMilli(ts).toString(), sid, sid, traceId, requestId,
+                    reason, method, path, status, err, hasMlBreadcrumbs, traceEntryCount, mdc, trace(true),
+                    h, truncated);
+        }
+    }
+
     /** Capture current MDC + TraceStore into the ring buffer. Returns snapshot id or null. */
     public String captureCurrent(
             String reason,
@@ -209,9 +419,9 @@ public class TraceSnapshotStore {
         if (!enabled) {
             return null;
         }
+        long t0 = System.nanoTime();
         try {
             long ts = System.currentTimeMillis();
-            String tsIso = Instant.ofEpochMilli(ts).toString();
 
             Map<String, String> mdc = safeMdc();
             Map<String, Object> rawTrace = (traceOverride == null) ? safeTrace() : traceOverride;
@@ -256,34 +466,16 @@ public class TraceSnapshotStore {
                 return null;
             }
 
-            Map<String, Object> trace = sanitizeTrace(rawTrace);
-
             String err = (error == null) ? null : limit(String.valueOf(error), 600);
-
             String id = UUID.randomUUID().toString();
+            String override = (htmlOverride != null && !htmlOverride.isBlank()) ? htmlOverride : null;
 
-            // Optional: store an HTML diagnostics view (useful for web-based inspection).
-            String html = null;
-            boolean htmlTruncated = false;
-            if (htmlOverride != null && !htmlOverride.isBlank()) {
-                html = wrapHtmlIfNeeded(htmlOverride, id, tsIso, sid, traceId, requestId, safe(reason), safe(method), safe(path), status, err);
-            } else if (htmlEnabled) {
-                try {
-                    html = buildHtmlSnapshot(id, tsIso, sid, traceId, requestId, safe(reason), safe(method), safe(path), status, err, mdc, trace);
-                } catch (Throwable ignore) {
-                    html = null;
-                }
-            }
-            if (html != null && html.length() > Math.max(1024, htmlMaxLen)) {
-                html = html.substring(0, Math.max(1024, htmlMaxLen)) + "\n<!-- truncated -->";
-                htmlTruncated = true;
-            }
-
-            TraceSnapshot snap = new TraceSnapshot(
+            AtomicReferenceArray<Captured> r = ring();
+            long n = seq.getAndIncrement();
+            Captured snap = new Captured(
+                    n,
                     id,
                     ts,
-                    tsIso,
-                    sid,
                     sid,
                     traceId,
                     requestId,
@@ -295,16 +487,13 @@ public class TraceSnapshotStore {
                     (hasMl || hasOrch),
                     rawTrace == null ? 0 : rawTrace.size(),
                     mdc,
-                    trace,
-                    html,
-                    htmlTruncated
+                    copyTrace(rawTrace),
+                    override
             );
-
-            synchronized (lock) {
-                ring.addFirst(snap);
-                while (ring.size() > Math.max(1, maxSize)) {
-                    ring.removeLast();
-                }
+            Captured evicted = r.getAndSet((int) (n % r.length()), snap);
+            submit(() -> snap.trace(false));
+            if (evicted != null && spill != null) {
+                submit(() -> spillEvicted(evicted));
             }
 
             // Minimal console breadcrumb for correlation.
@@ -322,6 +511,10 @@ public class TraceSnapshotStore {
                         (err == null ? "" : (" err=" + err)));
             }
 
+            long dt = System.nanoTime() - t0;
+            captured.incrementAndGet();
+            captureNanos.addAndGet(dt);
+            captureMaxNanos.accumulateAndGet(dt, Math::max);
             return id;
         } catch (Throwable t) {
             // Fail-soft.
@@ -333,38 +526,243 @@ public class TraceSnapshotStore {
         }
     }
 
-    /** Return newest-first snapshot summaries. */
+    /** Return newest-first snapshot summaries (spilled snapshots fill in after the live ring). */
     public List<Map<String, Object>> listSummaries(int limit) {
         int lim = Math.max(1, Math.min(limit <= 0 ? 50 : limit, maxSize));
         List<Map<String, Object>> out = new ArrayList<>();
-        synchronized (lock) {
-            int i = 0;
-            for (TraceSnapshot s : ring) {
-                if (s == null) continue;
-                out.add(summary(s));
-                if (++i >= lim) break;
+        for (Captured c : liveNewestFirst(lim)) {
+            out.add(summary(c));
+        }
+        TraceSnapshotSpill sp = spill;
+        if (sp != null && out.size() < lim) {
+            for (Map<String, Object> rec : sp.recent(lim - out.size())) {
+                TraceSnapshot s = fromRecord(rec);
+                if (s != null) {
+                    Map<String, Object> m = summary(s, htmlEnabled || s.html() != null);
+                    m.put("spilled", true);
+                    out.add(m);
+                }
             }
         }
         return out;
     }
 
+    /** Snapshot without rendering HTML ({@code html} is set only if it was already rendered). */
     public Optional<TraceSnapshot> get(String id) {
+        return find(id, false);
+    }
+
+    /** Snapshot with HTML rendered on demand (memoized for live snapshots). */
+    public Optional<TraceSnapshot> getWithHtml(String id) {
+        return find(id, true);
+    }
+
+    /** Capture overhead and background pipeline counters. */
+    public Map<String, Object> captureStats() {
+        long n = captured.get();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("captured", n);
+        m.put("captureAvgMicros", n == 0 ? 0.0 : (captureNanos.get() / 1000.0d) / n);
+        m.put("captureMaxMicros", captureMaxNanos.get() / 1000L);
+        ThreadPoolExecutor ex = worker;
+        m.put("asyncQueued", ex == null ? 0 : ex.getQueue().size());
+        m.put("asyncDropped", asyncDropped.get());
+        m.put("sanitizedOnRead", sanitizedOnRead.get());
+        m.put("htmlRendered", htmlRendered.get());
+        TraceSnapshotSpill sp = spill;
+        if (sp != null) {
+            m.put("spilled", sp.spilled());
+            m.put("spillErrors", spillErrors.get());
+        }
+        return m;
+    }
+
+    private Optional<TraceSnapshot> find(String id, boolean withHtml) {
         if (id == null || id.isBlank()) return Optional.empty();
-        synchronized (lock) {
-            for (TraceSnapshot s : ring) {
-                if (s != null && id.equals(s.id())) {
-                    return Optional.of(s);
-                }
+        for (Captured c : liveNewestFirst(Integer.MAX_VALUE)) {
+            if (id.equals(c.id)) {
+                return Optional.of(c.toSnapshot(withHtml));
             }
         }
-        return Optional.empty();
+        TraceSnapshotSpill sp = spill;
+        if (sp == null) {
+            return Optional.empty();
+        }
+        return sp.find(id).map(this::fromRecord).map(s -> withHtml && s.html() == null ? withRenderedHtml(s) : s);
+    }
+
+    private List<Captured> liveNewestFirst(int limit) {
+        AtomicReferenceArray<Captured> r = ring();
+        int cap = r.length();
+        long head = seq.get();
+        List<Captured> out = new ArrayList<>(Math.min(cap, Math.max(1, limit)));
+        for (long n = head - 1; n >= 0 && n >= head - cap && out.size() < limit; n--) {
+            Captured c = r.get((int) (n % cap));
+            // Skip slots that were claimed but not yet written, or overwritten by a newer capture.
+            if (c != null && c.seqNo == n) {
+                out.add(c);
+            }
+        }
+        return out;
+    }
+
+    private void submit(Runnable task) {
+        ThreadPoolExecutor ex = worker;
+        if (ex == null) {
+            // Not started (non-Spring use) or shutting down: leave the work to the first read.
+            return;
+        }
+        try {
+            ex.execute(task);
+        } catch (RejectedExecutionException ignore) {
+            // fail-soft
+            asyncDropped.incrementAndGet();
+        }
+    }
+
+    /** Worker thread: buffers evicted snapshots and group-commits them once idle or 64 are pending. */
+    private void spillEvicted(Captured c) {
+        TraceSnapshotSpill sp = spill;
+        if (sp == null) {
+            return;
+        }
+        spillBuffer.add(toRecord(c));
+        ThreadPoolExecutor ex = worker;
+        if (spillBuffer.size() >= 64 || ex == null || ex.getQueue().isEmpty()) {
+            flushSpill(sp);
+        }
+    }
+
+    private void flushSpill(TraceSnapshotSpill sp) {
+        if (spillBuffer.isEmpty()) {
+            return;
+        }
+        try {
+            sp.append(new ArrayList<>(spillBuffer));
+        } catch (Throwable t) {
+            // fail-soft: drop the batch rather than grow without bound
+            spillErrors.incrementAndGet();
+            LOG.debug("[TRACE_SNAPSHOT] spill failed: {}", t.toString());
+        } finally {
+            spillBuffer.clear();
+        }
+    }
+
+    private Map<String, Object> toRecord(Captured c) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", c.id);
+        m.put("ts", c.ts);
+        m.put("sid", c.sid);
+        m.put("traceId", c.traceId);
+        m.put("requestId", c.requestId);
+        m.put("reason", c.reason);
+        m.put("method", c.method);
+        m.put("path", c.path);
+        m.put("status", c.status);
+        m.put("error", c.err);
+        m.put("hasMlBreadcrumbs", c.hasMlBreadcrumbs);
+        m.put("traceEntryCount", c.traceEntryCount);
+        m.put("mdc", c.mdc);
+        m.put("trace", c.trace(false));
+        if (c.htmlOverride != null) {
+            m.put("htmlOverride", limit(c.htmlOverride, Math.max(1024, htmlMaxLen)));
+        }
+        return m;
+    }
+
+    @SuppressWarnings("unchecked")
+    private TraceSnapshot fromRecord(Map<String, Object> m) {
+        try {
+            long ts = ((Number) m.getOrDefault("ts", 0L)).longValue();
+            Object st = m.get("status");
+            Object mdc = m.get("mdc");
+            Object trace = m.get("trace");
+            String sid = firstString(m.get("sid"));
+            String override = firstString(m.get("htmlOverride"));
+            return new TraceSnapshot(
+                    firstString(m.get("id")),
+                    ts,
+                    Instant.ofEpochMilli(ts).toString(),
+                    sid,
+                    sid,
+                    firstString(m.get("traceId")),
+                    firstString(m.get("requestId")),
+                    firstString(m.get("reason")),
+                    firstString(m.get("method")),
+                    firstString(m.get("path")),
+                    st instanceof Number num ? num.intValue() : null,
+                    firstString(m.get("error")),
+                    truthy(m.get("hasMlBreadcrumbs")),
+                    m.get("traceEntryCount") instanceof Number num ? num.intValue() : 0,
+                    mdc instanceof Map<?, ?> mm ? (Map<String, String>) mm : Map.of(),
+                    trace instanceof Map<?, ?> tm ? (Map<String, Object>) tm : Map.of(),
+                    override,
+                    false
+            );
+        } catch (Throwable t) {
+            // fail-soft: unreadable record
+            return null;
+        }
+    }
+
+    private TraceSnapshot withRenderedHtml(TraceSnapshot s) {
+        String h = renderHtml(s.id(), s.tsIso(), s.sid(), s.traceId(), s.requestId(), s.reason(), s.method(),
+                s.path(), s.status(), s.error(), s.mdc(), s.trace(), null);
+        boolean truncated = false;
+        if (h != null && h.length() > Math.max(1024, htmlMaxLen)) {
+            h = h.substring(0, Math.max(1024, htmlMaxLen)) + "\n<!-- truncated -->";
+            truncated = true;
+        }
+        return new TraceSnapshot(s.id(), s.tsEpochMs(), s.tsIso(), s.sid(), s.sessionId(), s.traceId(),
+                s.requestId(), s.reason(), s.method(), s.path(), s.status(), s.error(), s.hasMlBreadcrumbs(),
+                s.traceEntryCount(), s.mdc(), s.trace(), h, truncated);
+    }
+
+    private String renderHtml(String id, String tsIso, String sid, String traceId, String requestId,
+                              String reason, String method, String path, Integer status, String err,
+                              Map<String, String> mdc, Map<String, Object> trace, String htmlOverride) {
+        if (htmlOverride != null) {
+            return wrapHtmlIfNeeded(htmlOverride, id, tsIso, sid, traceId, requestId, safe(reason), safe(method), safe(path), status, err);
+        }
+        if (!htmlEnabled) {
+            return null;
+        }
+        try {
+            return buildHtmlSnapshot(id, tsIso, sid, traceId, requestId, safe(reason), safe(method), safe(path), status, err, mdc, trace);
+        } catch (Throwable ignore) {
+            return null;
+        }
     }
 
     // ---------------------------------------------------------------------
     // Internals
     // ---------------------------------------------------------------------
 
-    private Map<String, Object> summary(TraceSnapshot s) {
+    private Map<String, Object> summary(Captured c) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", c.id);
+        m.put("ts", Instant.ofEpochMilli(c.ts).toString());
+        m.put("sid", c.sid);
+        m.put("traceId", c.traceId);
+        m.put("requestId", c.requestId);
+        m.put("reason", c.reason);
+        m.put("method", c.method);
+        m.put("path", c.path);
+        m.put("status", c.status);
+        m.put("hasMlBreadcrumbs", c.hasMlBreadcrumbs);
+        m.put("traceEntryCount", c.traceEntryCount);
+        m.put("hasHtml", c.hasHtml());
+        // htmlTruncated is written before the volatile htmlDone flag.
+        if (c.htmlDone && c.htmlTruncated) {
+            m.put("htmlTruncated", true);
+        }
+        if (c.err != null) {
+            m.put("error", c.err);
+        }
+        return m;
+    }
+
+    private Map<String, Object> summary(TraceSnapshot s, boolean hasHtml) {
         Map<String, Object> m = new LinkedHashMap<>();
         m.put("id", s.id());
         m.put("ts", s.tsIso());
@@ -377,7 +775,7 @@ public class TraceSnapshotStore {
         m.put("status", s.status());
         m.put("hasMlBreadcrumbs", s.hasMlBreadcrumbs());
         m.put("traceEntryCount", s.traceEntryCount());
-        m.put("hasHtml", s.html() != null);
+        m.put("hasHtml", hasHtml);
         if (s.htmlTruncated()) {
             m.put("htmlTruncated", true);
         }
@@ -400,6 +798,30 @@ public class TraceSnapshotStore {
         }
     }
 
+    /**
+     * Request-thread copy: bounded and shallow (top-level collections/maps are copied one level
+     * deep so later mutation of the live TraceStore map cannot leak into the snapshot).
+     */
+    private Map<String, Object> copyTrace(Map<String, Object> raw) {
+        if (raw == null || raw.isEmpty()) {
+            return Map.of();
+        }
+        int max = Math.max(50, maxEntries);
+        Map<String, Object> out = new LinkedHashMap<>(Math.min(raw.size(), max) * 4 / 3 + 1);
+        for (Map.Entry<String, Object> e : raw.entrySet()) {
+            if (e == null) continue;
+            Object v = e.getValue();
+            if (v instanceof java.util.Collection<?> c) {
+                v = new ArrayList<>(c);
+            } else if (v instanceof Map<?, ?> m) {
+                v = new LinkedHashMap<>(m);
+            }
+            out.put(e.getKey(), v);
+            if (out.size() >= max) break;
+        }
+        return out;
+    }
+
     private Map<String, Object> sanitizeTrace(Map<String, Object> raw) {
         if (raw == null || raw.isEmpty()) {
             return Map.of();
@@ -164,6 +164,10 @@ public class QueryTransformer {
     @org.springframework.beans.factory.annotation.Autowired(required = false)
     private AnchorNarrower anchorNarrower;
 
+    /** Optional near-duplicate layer behind {@link #llmCache} (disabled by default). */
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    private SemanticQueryCache semanticCache;
+
     @org.springframework.beans.factory.annotation.Value("${nova.orch.enabled:true}")
     private boolean novaOrchEnabled;
 
@@ -599,6 +603,21 @@ public class QueryTransformer {
      * </p>
      */
     private String cachedLlm(String prompt) {
+        return cachedLlm(prompt, null, null);
+    }
+
+    /**
+     * {@link #cachedLlm(String)} with an optional semantic key.
+     *
+     * <p>
+     * When {@code semanticTask} and {@code userQuery} are given and the semantic cache is
+     * enabled, an exact-prompt miss is followed by a near-duplicate lookup on the
+     * normalised user query within the same task before any LLM call is made.
+     * {@code semanticTask} must capture every template parameter other than the query
+     * (e.g. subject, intent) so reused answers stay prompt-compatible.
+     * </p>
+     */
+    private String cachedLlm(String prompt, @Nullable String semanticTask, @Nullable String userQuery) {
         if (prompt == null || prompt.isBlank()) {
             return "";
         }
@@ -608,6 +627,28 @@ public class QueryTransformer {
             return cached;
         }
 
+        SemanticQueryCache sc = semanticCache;
+        float[] semanticVector = null;
+        if (sc != null && sc.isEnabled() && semanticTask != null && userQuery != null) {
+            semanticVector = sc.embed(userQuery);
+            SemanticQueryCache.Match m = sc.lookup(semanticTask, userQuery, semanticVector);
+            if (m != null) {
+                try {
+                    TraceStore.inc("qtx.semanticCache.hit.count");
+                    TraceStore.put("qtx.semanticCache.lastHit.task", semanticTask);
+                    TraceStore.put("qtx.semanticCache.lastHit.similarity", m.similarity());
+                } catch (Throwable ignore) {
+                    // best-effort
+                }
+                llmCache.put(prompt, m.answer());
+                if (sc.sampleShadow()) {
+                    shadowCheckSemanticHit(sc, m, prompt);
+                }
+                return m.answer();
+            }
+        }
+        final float[] semanticKey = semanticVector;
+
         // UAW: Request-scoped aux degradation/strike/compression should block
         // additional LLM calls.
         // Cache hits are still allowed (no new external call).
@@ -683,7 +724,11 @@ public class QueryTransformer {
             try {
                 Future<?> task = ex.submit(ContextPropagation.wrap(() -> {
                     try {
+                        long t0 = System.nanoTime();
                         String out = runLLM(p);
+                        if (sc != null && out != null && !out.isBlank()) {
+                            sc.recordLlmLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0));
+                        }
                         created.complete(out == null ? "" : out);
                     } catch (Throwable t) {
                         if (faultMaskingLayerMonitor != null) {
@@ -733,6 +778,9 @@ public class QueryTransformer {
                 inflightTasks.remove(p);
                 if (r != null && !r.isBlank()) {
                     llmCache.put(p, r);
+                    if (semanticKey != null) {
+                        sc.put(semanticTask, userQuery, semanticKey, r);
+                    }
                 }
             });
             return created;
@@ -842,6 +890,34 @@ public class QueryTransformer {
         }
     }
 
+    /**
+     * Sampled shadow call for a semantic hit: runs the real prompt in the
+     * background and records a false hit when the answers disagree. Skipped while
+     * the aux LLM is bypassed so verification never adds load to a degraded stage.
+     */
+    private void shadowCheckSemanticHit(SemanticQueryCache sc, SemanticQueryCache.Match m, String prompt) {
+        try {
+            if (computeBypassDecision().bypass()) {
+                return;
+            }
+            ExecutorService ex = (llmFastExecutor != null) ? llmFastExecutor : ForkJoinPool.commonPool();
+            ex.submit(ContextPropagation.wrap(() -> {
+                try {
+                    String fresh = runLLM(prompt);
+                    if (sc.recordShadow(m, fresh)) {
+                        // The reused answer was wrong for this prompt; serve the real one from now on.
+                        llmCache.put(prompt, fresh);
+                        TraceStore.inc("qtx.semanticCache.falseHit.count");
+                    }
+                } catch (Throwable ignore) {
+                    // fail-soft
+                }
+            }));
+        } catch (RejectedExecutionException ignore) {
+            // fail-soft
+        }
+    }
+
     private record BypassDecision(
             boolean bypass,
             AuxBlockedReason reason,
@@ -1625,7 +1701,7 @@ public class QueryTransformer {
             // Build the keyword variants prompt using the prompt builder
             String prompt = QUERY_KEYWORD_PROMPT_BUILDER
                     .buildKeywordVariantsPrompt(q, subject, MAX_VARIANTS);
-            String ans = cachedLlm(prompt);
+            String ans = cachedLlm(prompt, "variants:" + Objects.toString(subject, ""), q);
             if (ans == null || ans.isBlank()) {
                 // LLM이 응답하지 못했으면 deterministic cheap-path로 우회
                 return cheapVariantsFallback(q, subject);
@@ -1979,7 +2055,7 @@ public class QueryTransformer {
         // Build the intent buff prompt using the prompt builder
         String prompt = QUERY_KEYWORD_PROMPT_BUILDER
                 .buildIntentBuffPrompt(base, intent, MAX_DYNAMIC_BUFFS);
-        String ans = cachedLlm(prompt);
+        String ans = cachedLlm(prompt, "buffs:" + intent, base);
         if (ans == null || ans.isBlank())
             return List.of();
 
@@ -2037,7 +2113,7 @@ public class QueryTransformer {
         }
         // Build the classification prompt using the prompt builder
         String prompt = QUERY_KEYWORD_PROMPT_BUILDER.buildIntentClassificationPrompt(query);
-        String result = cachedLlm(prompt);
+        String result = cachedLlm(prompt, "intent", query);
         if (result == null || result.isBlank())
             return QueryIntent.GENERAL_KNOWLEDGE;
         try {
@@ -2064,7 +2140,7 @@ public class QueryTransformer {
     private List<String> generateSubQueries(String question) {
         // Build the sub queries prompt using the prompt builder
         String prompt = QUERY_KEYWORD_PROMPT_BUILDER.buildSubQueriesPrompt(question);
-        String ans = cachedLlm(prompt);
+        String ans = cachedLlm(prompt, "subq", question);
         if (ans == null || ans.isBlank())
             return List.of();
         return Arrays.stream(ans.split("\\r?\\n"))
@@ -0,0 +1,383 @@
+package com.example.lms.transform;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * QueryTransformer 보조 LLM 호출용 의미(near-duplicate) 캐시.
+ *
+ * <p>정확 일치 프롬프트 캐시(L1)를 놓친 경우, 정규화한 사용자 질의를 임베딩하여
+ * 같은 작업(task) 안에서 코사인 유사도가 임계값 이상인 이전 질의의 변환 결과를 재사용한다.
+ * 작업별 인덱스는 작고(기본 256개) 전수 내적으로 조회한다.</p>
+ *
+ * <p>오탐 방지: 질의에 포함된 숫자 토큰(연도, 버전, 모델명 숫자 등)이 다르면 유사도와 무관하게
+ * 재사용하지 않는다. 적중 중 일부는 실제 LLM을 섀도 호출해 결과가 어긋나면
+ * false-hit 으로 집계하고 해당 항목을 제거한다.</p>
+ */
+@Component
+public class SemanticQueryCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SemanticQueryCache.class);
+
+    private static final Pattern WS = Pattern.compile("\\s+");
+    private static final Pattern DIGITS = Pattern.compile("\\d+(?:[.,]\\d+)*");
+    private static final Pattern ANSWER_SPLIT = Pattern.compile("[^\\p{IsHangul}\\p{L}\\p{Nd}]+");
+
+    /** 재사용된 결과와 섀도 결과의 토큰 Jaccard 가 이 값 미만이면 false-hit. */
+    static final double SHADOW_AGREEMENT = 0.5;
+
+    public record Match(String task, String query, String answer, double similarity, Entry entry) {
+    }
+
+    public record Stats(long lookups, long hits, long misses, long shadowChecks, long falseHits,
+                        long savedLatencyMs, int tasks) {
+        public double hitRate() {
+            return lookups == 0 ? 0.0 : (double) hits / lookups;
+        }
+
+        public double falseHitRate() {
+            return shadowChecks == 0 ? 0.0 : (double) falseHits / shadowChecks;
+        }
+    }
+
+    static final class Entry {
+        final String query;
+        final String digits;
+        final float[] vector;
+        final String answer;
+        final long createdAtMs;
+        volatile boolean dead;
+
+        Entry(String query, String digits, float[] vector, String answer, long createdAtMs) {
+            this.query = query;
+            this.digits = digits;
+            this.vector = vector;
+            this.answer = answer;
+            this.createdAtMs = createdAtMs;
+        }
+    }
+
+    /** 작업별 고정 크기 링 버퍼. 가장 오래된 항목부터 덮어쓴다. */
+    private static final class Bucket {
+        private final Entry[] ring;
+        private int next;
+
+        Bucket(int capacity) {
+            this.ring = new Entry[capacity];
+        }
+
+        synchronized void add(Entry e) {
+            for (int i = 0; i < ring.length; i++) {
+                Entry old = ring[i];
+                if (old != null && old.query.equals(e.query)) {
+                    ring[i] = e;
+                    return;
+                }
+            }
+            ring[next] = e;
+            next = (next + 1) % ring.length;
+        }
+
+        synchronized Entry[] snapshot() {
+            return ring.clone();
+        }
+    }
+
+    private final boolean enabled;
+    private final Function<String, float[]> embedder;
+    private final double threshold;
+    private final int maxEntriesPerTask;
+    private final long ttlMs;
+    private final double shadowSampleRate;
+    private final int minQueryChars;
+
+    private final Cache<String, Bucket> buckets;
+    /** 같은 질의가 여러 작업(intent/variants/subq)에서 연달아 조회되므로 벡터를 잠시 보관한다. */
+    private final Cache<String, float[]> vectors;
+
+    private final AtomicLong lookups = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong shadowChecks = new AtomicLong();
+    private final AtomicLong falseHits = new AtomicLong();
+    private final AtomicLong savedLatencyMs = new AtomicLong();
+    /** 실제 LLM 호출 지연의 EWMA(ms). 적중 시 절약 지연 추정에 사용한다. */
+    private volatile double llmLatencyEwmaMs;
+
+    @Autowired
+    public SemanticQueryCache(
+            ObjectProvider<EmbeddingModel> embeddingModelProvider,
+            ObjectProvider<MeterRegistry> meterRegistryProvider,
+            @Value("${query-transformer.semantic-cache.enabled:false}") boolean enabled,
+            @Value("${query-transformer.semantic-cache.threshold:0.95}") double threshold,
+            @Value("${query-transformer.semantic-cache.max-entries-per-task:256}") int maxEntriesPerTask,
+            @Value("${query-transformer.semantic-cache.ttl-minutes:30}") long ttlMinutes,
+            @Value("${query-transformer.semantic-cache.shadow-sample-rate:0.05}") double shadowSampleRate,
+            @Value("${query-transformer.semantic-cache.min-query-chars:4}") int minQueryChars) {
+        this(enabled && embeddingModelProvider.getIfAvailable() != null,
+                modelEmbedder(embeddingModelProvider),
+                threshold, maxEntriesPerTask, Duration.ofMinutes(Math.max(1L, ttlMinutes)).toMillis(),
+                shadowSampleRate, minQueryChars);
+        if (this.enabled) {
+            MeterRegistry registry = meterRegistryProvider.getIfAvailable();
+            if (registry != null) {
+                bindMetrics(registry);
+            }
+        }
+    }
+
+    /** 테스트/비 Spring 용 생성자. {@code embedder} 가 {@code null} 을 반환하면 조회를 건너뛴다. */
+    SemanticQueryCache(boolean enabled, Function<String, float[]> embedder, double threshold,
+                       int maxEntriesPerTask, long ttlMs, double shadowSampleRate, int minQueryChars) {
+        this.enabled = enabled && embedder != null;
+        this.embedder = embedder;
+        this.threshold = threshold;
+        this.maxEntriesPerTask = Math.max(1, maxEntriesPerTask);
+        this.ttlMs = Math.max(1L, ttlMs);
+        this.shadowSampleRate = Math.max(0.0, Math.min(1.0, shadowSampleRate));
+        this.minQueryChars = Math.max(1, minQueryChars);
+        this.buckets = Caffeine.newBuilder().maximumSize(256).build();
+        this.vectors = Caffeine.newBuilder()
+                .maximumSize(1024)
+                .expireAfterWrite(Duration.ofMinutes(5))
+                .build();
+    }
+
+    private static Function<String, float[]> modelEmbedder(ObjectProvider<EmbeddingModel> provider) {
+        return text -> {
+            EmbeddingModel model = provider.getIfAvailable();
+            if (model == null) {
+                return null;
+            }
+            return model.embed(text).content().vector();
+        };
+    }
+
+    private void bindMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("qtx.semantic_cache.lookups", hits, AtomicLong::get)
+                .tag("result", "hit").register(registry);
+        FunctionCounter.builder("qtx.semantic_cache.lookups", misses, AtomicLong::get)
+                .tag("result", "miss").register(registry);
+        FunctionCounter.builder("qtx.semantic_cache.shadow_checks", shadowChecks, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("qtx.semantic_cache.false_hits", falseHits, AtomicLong::get)
+                .register(registry);
+        FunctionCounter.builder("qtx.semantic_cache.saved_latency", savedLatencyMs, AtomicLong::get)
+                .baseUnit("milliseconds").register(registry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** 공백/대소문자 정규화. 의미 비교와 숫자 가드는 이 형태로 수행한다. */
+    static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        return WS.matcher(query.trim().toLowerCase(Locale.ROOT)).replaceAll(" ");
+    }
+
+    static String digitSignature(String normalized) {
+        Matcher m = DIGITS.matcher(normalized);
+        StringBuilder sb = new StringBuilder();
+        while (m.find()) {
+            sb.append(m.group()).append('|');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 정규화 질의의 단위 벡터. 비활성/너무 짧은 질의/임베딩 실패 시 {@code null}.
+     */
+    public float[] embed(String userQuery) {
+        if (!enabled) {
+            return null;
+        }
+        String q = normalize(userQuery);
+        if (q.length() < minQueryChars) {
+            return null;
+        }
+        float[] cached = vectors.getIfPresent(q);
+        if (cached != null) {
+            return cached;
+        }
+        try {
+            float[] v = unit(embedder.apply(q));
+            if (v != null) {
+                vectors.put(q, v);
+            }
+            return v;
+        } catch (Exception e) {
+            // fail-soft: 의미 캐시는 선택 계층이므로 임베딩 실패는 미스로 처리
+            log.debug("[SemanticQueryCache] embed failed: {}", e.toString());
+            return null;
+        }
+    }
+
+    /** 같은 작업 안에서 임계값 이상으로 가장 가까운 항목. 없으면 {@code null}. */
+    public Match lookup(String task, String userQuery, float[] vector) {
+        if (!enabled || task == null || vector == null) {
+            return null;
+        }
+        lookups.incrementAndGet();
+        Bucket bucket = buckets.getIfPresent(task);
+        if (bucket == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        String q = normalize(userQuery);
+        String digits = digitSignature(q);
+        long now = System.currentTimeMillis();
+        Entry best = null;
+        double bestSim = threshold;
+        for (Entry e : bucket.snapshot()) {
+            if (e == null || e.dead || now - e.createdAtMs > ttlMs || e.vector.length != vector.length) {
+                continue;
+            }
+            if (!e.digits.equals(digits)) {
+                continue;
+            }
+            double sim = dot(e.vector, vector);
+            if (sim >= bestSim) {
+                bestSim = sim;
+                best = e;
+            }
+        }
+        if (best == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        savedLatencyMs.addAndGet(Math.round(llmLatencyEwmaMs));
+        return new Match(task, best.query, best.answer, bestSim, best);
+    }
+
+    /** LLM 성공 결과를 등록한다. 빈 응답은 저장하지 않는다. */
+    public void put(String task, String userQuery, float[] vector, String answer) {
+        if (!enabled || task == null || vector == null || answer == null || answer.isBlank()) {
+            return;
+        }
+        String q = normalize(userQuery);
+        Entry e = new Entry(q, digitSignature(q), vector, answer, System.currentTimeMillis());
+        buckets.get(task, k -> new Bucket(maxEntriesPerTask)).add(e);
+    }
+
+    /** 실제 LLM 호출 지연을 기록한다(절약 지연 추정용). */
+    public void recordLlmLatency(long elapsedMs) {
+        if (elapsedMs <= 0) {
+            return;
+        }
+        double prev = llmLatencyEwmaMs;
+        llmLatencyEwmaMs = prev <= 0 ? elapsedMs : prev * 0.9 + elapsedMs * 0.1;
+    }
+
+    /** 이번 적중을 섀도 호출로 검증할지 여부. */
+    public boolean sampleShadow() {
+        return enabled && shadowSampleRate > 0
+                && ThreadLocalRandom.current().nextDouble() < shadowSampleRate;
+    }
+
+    /**
+     * 섀도 호출 결과를 재사용된 결과와 비교한다. 어긋나면 false-hit 으로 집계하고
+     * 해당 항목을 더 이상 재사용하지 않는다. 빈 섀도 결과는 판정하지 않는다.
+     *
+     * @return false-hit 여부
+     */
+    public boolean recordShadow(Match match, String fresh) {
+        if (match == null || fresh == null || fresh.isBlank()) {
+            return false;
+        }
+        shadowChecks.incrementAndGet();
+        if (agreement(match.answer(), fresh) >= SHADOW_AGREEMENT) {
+            return false;
+        }
+        falseHits.incrementAndGet();
+        if (match.entry() != null) {
+            match.entry().dead = true;
+        }
+        return true;
+    }
+
+    public Stats stats() {
+        return new Stats(lookups.get(), hits.get(), misses.get(), shadowChecks.get(), falseHits.get(),
+                savedLatencyMs.get(), (int) buckets.estimatedSize());
+    }
+
+    /** 두 응답의 토큰 집합 Jaccard 유사도(대소문자 무시). */
+    static double agreement(String a, String b) {
+        Set<String> ta = tokens(a);
+        Set<String> tb = tokens(b);
+        if (ta.isEmpty() && tb.isEmpty()) {
+            return 1.0;
+        }
+        int inter = 0;
+        for (String t : ta) {
+            if (tb.contains(t)) {
+                inter++;
+            }
+        }
+        int union = ta.size() + tb.size() - inter;
+        return union == 0 ? 0.0 : (double) inter / union;
+    }
+
+    private static Set<String> tokens(String s) {
+        Set<String> out = new HashSet<>();
+        if (s == null) {
+            return out;
+        }
+        for (String t : ANSWER_SPLIT.split(s.toLowerCase(Locale.ROOT))) {
+            if (!t.isEmpty()) {
+                out.add(t);
+            }
+        }
+        return out;
+    }
+
+    private static float[] unit(float[] v) {
+        if (v == null || v.length == 0) {
+            return null;
+        }
+        double norm = 0.0;
+        for (float x : v) {
+            norm += (double) x * x;
+        }
+        if (norm <= 0.0) {
+            return null;
+        }
+        float inv = (float) (1.0 / Math.sqrt(norm));
+        float[] out = Arrays.copyOf(v, v.length);
+        for (int i = 0; i < out.length; i++) {
+            out[i] *= inv;
+        }
+        return out;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double s = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            s += a[i] * b[i];
+        }
+        return s;
+    }
+}
@@ -42,6 +42,9 @@ public class UawAutolearnOrchestrator {
     @org.springframework.beans.factory.annotation.Autowired(required = false)
     private UawSelfCleanOrchestrator selfCleanOrchestrator;
 
+    @org.springframework.beans.factory.annotation.Autowired(required = false)
+    private UawDatasetWriter datasetWriter;
+
     private final ReentrantLock lock = new ReentrantLock();
 
     public UawAutolearnOrchestrator(Environment env,
@@ -128,6 +131,13 @@ public class UawAutolearnOrchestrator {
 				}
 
             // Closed-loop: retrain/reindex step
+				// append() only queues; make accepted samples visible to ingestNewSamples first.
+				if (datasetWriter != null && result.acceptedCount() > 0) {
+					long flushMs = env.getProperty("uaw.autolearn.dataset.flush-timeout-ms", Long.class, 5000L);
+					if (!datasetWriter.flush(flushMs)) {
+						log.warn("[UAW] dataset flush timed out after {} ms; retrain may miss recent samples", flushMs);
+					}
+				}
 				retrainOrchestrator.maybeRetrain(dataset.toPath(), result.acceptedCount(), token);
 
 				// [PATCH] Optional: run one self-clean cycle after retrain (shadow-merge/quarantine-redrive/global rebuild)
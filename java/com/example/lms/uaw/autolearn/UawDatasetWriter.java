@@ -1,30 +1,72 @@
 package com.example.lms.uaw.autolearn;
 
+import com.example.lms.infra.io.AsyncJsonlSink;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileOutputStream;
-import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.security.MessageDigest;
 import java.time.Instant;
-import java.util.Locale;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Appends autolearn samples to dataset JSONL files.
+ *
+ * <p>Each dataset file gets one {@link AsyncJsonlSink}: callers only serialize and enqueue,
+ * the file stays open on the sink's writer thread. Training data is not rotated and a full
+ * queue blocks briefly instead of dropping. At most {@code uaw.dataset.max-open-files} sinks
+ * stay open; the least recently used one is drained and closed to make room. Until that
+ * close has finished no new sink is opened for the same file, so two writers never append
+ * to one file, and {@link #flush(long)} waits for it too.</p>
+ *
+ * <p>{@link #append} returning {@code true} means "queued"; call {@link #flush(long)} before
+ * reading the files back (e.g. retrain ingest).</p>
+ */
 @Component
 public class UawDatasetWriter {
 
+    private static final AsyncJsonlSink.Config SINK_CONFIG = AsyncJsonlSink.Config.defaults()
+            .withRotation(0L, 0)
+            .withFsyncIntervalMs(1000L)
+            .withOverflow(AsyncJsonlSink.Overflow.BLOCK, 1000L);
+
+    /** How long an append waits for an evicted sink of the same file to finish closing. */
+    private static final long CLOSE_WAIT_MS = 5_000L;
+
     private final ObjectMapper om = new ObjectMapper();
+    /** Access-ordered so the eldest entry is the least recently appended file; guarded by itself. */
+    private final LinkedHashMap<Path, AsyncJsonlSink> sinks = new LinkedHashMap<>(16, 0.75f, true);
+    /** Evicted sinks still draining, completed once their writer thread has exited; guarded by {@code sinks}. */
+    private final Map<Path, CompletableFuture<Void>> closing = new HashMap<>();
 
     private final UawDatasetTrainingDataFilter trainingDataFilter;
+    private final int maxOpenFiles;
 
     public UawDatasetWriter(UawDatasetTrainingDataFilter trainingDataFilter) {
+        this(trainingDataFilter, 8);
+    }
+
+    @Autowired
+    public UawDatasetWriter(UawDatasetTrainingDataFilter trainingDataFilter,
+                            @Value("${uaw.dataset.max-open-files:8}") int maxOpenFiles) {
         this.trainingDataFilter = trainingDataFilter;
+        this.maxOpenFiles = Math.max(1, maxOpenFiles);
     }
 
-    public synchronized boolean append(File file,
+    public boolean append(File file,
                                        String datasetName,
                                        String question,
                                        String answer,
@@ -38,9 +80,6 @@ public class UawDatasetWriter {
             return false;
         }
         try {
-            File parent = file.getParentFile();
-            if (parent != null) parent.mkdirs();
-
             ObjectNode n = om.createObjectNode();
             n.put("ts", Instant.now().toString());
             n.put("source", "uaw_autolearn");
@@ -55,18 +94,123 @@ public class UawDatasetWriter {
             n.put("evidenceCount", evidenceCount);
             n.put("id", sha1((datasetName == null ? "" : datasetName) + "|" + q + "|" + a));
 
-            try (FileOutputStream fos = new FileOutputStream(file, true);
-                 OutputStreamWriter w = new OutputStreamWriter(fos, StandardCharsets.UTF_8);
-                 BufferedWriter bw = new BufferedWriter(w)) {
-                bw.write(om.writeValueAsString(n));
-                bw.write("\n");
+            Path path = file.toPath().toAbsolutePath().normalize();
+            String line = om.writeValueAsString(n);
+            // A sink evicted between lookup and offer is closed; retry once on a fresh one.
+            for (int attempt = 0; attempt < 2; attempt++) {
+                AsyncJsonlSink sink = sinkFor(path);
+                if (sink == null) return false;
+                if (sink.offer(line)) return true;
+                if (!sink.isClosed()) return false;
             }
-            return true;
+            return false;
         } catch (Exception e) {
             return false;
         }
     }
 
+    /**
+     * Waits until every line queued so far is written to its file.
+     *
+     * @return {@code false} when a sink did not catch up within {@code timeoutMs}
+     */
+    public boolean flush(long timeoutMs) {
+        List<AsyncJsonlSink> open;
+        List<CompletableFuture<Void>> draining;
+        synchronized (sinks) {
+            open = new ArrayList<>(sinks.values());
+            draining = new ArrayList<>(closing.values());
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, timeoutMs));
+        boolean ok = true;
+        for (AsyncJsonlSink sink : open) {
+            ok &= sink.isClosed() || sink.flush(millisLeft(deadline));
+        }
+        for (CompletableFuture<Void> done : draining) {
+            ok &= await(done, millisLeft(deadline));
+        }
+        return ok;
+    }
+
+    @PreDestroy
+    public void close() {
+        List<AsyncJsonlSink> open;
+        List<CompletableFuture<Void>> draining;
+        synchronized (sinks) {
+            open = new ArrayList<>(sinks.values());
+            draining = new ArrayList<>(closing.values());
+            sinks.clear();
+        }
+        open.forEach(AsyncJsonlSink::close);
+        draining.forEach(done -> await(done, CLOSE_WAIT_MS));
+    }
+
+    /**
+     * Returns the open sink for {@code path}, or {@code null} when an evicted sink for the
+     * same file did not finish closing in time.
+     */
+    private AsyncJsonlSink sinkFor(Path path) {
+        AsyncJsonlSink sink;
+        Path evictedPath = null;
+        AsyncJsonlSink evicted = null;
+        CompletableFuture<Void> evictedDone = null;
+        while (true) {
+            CompletableFuture<Void> pending;
+            synchronized (sinks) {
+                pending = closing.get(path);
+                if (pending == null) {
+                    sink = sinks.get(path);
+                    if (sink == null || sink.isClosed()) {
+                        sink = new AsyncJsonlSink("uaw-dataset", path, SINK_CONFIG);
+                        sinks.put(path, sink);
+                        if (sinks.size() > maxOpenFiles) {
+                            Iterator<Map.Entry<Path, AsyncJsonlSink>> it = sinks.entrySet().iterator();
+                            Map.Entry<Path, AsyncJsonlSink> eldest = it.next();
+                            it.remove();
+                            evictedPath = eldest.getKey();
+                            evicted = eldest.getValue();
+                            evictedDone = new CompletableFuture<>();
+                            closing.put(evictedPath, evictedDone);
+                        }
+                    }
+                    break;
+                }
+            }
+            // the previous writer of this file is still draining
+            if (!await(pending, CLOSE_WAIT_MS)) return null;
+        }
+        if (evicted != null) {
+            try {
+                evicted.close(); // drains queued lines before closing the file
+                while (!evicted.awaitTermination(CLOSE_WAIT_MS)) {
+                    // a slow disk: keep the path reserved until the writer thread is gone
+                }
+            } finally {
+                synchronized (sinks) {
+                    closing.remove(evictedPath, evictedDone);
+                }
+                evictedDone.complete(null);
+            }
+        }
+        return sink;
+    }
+
+    private static boolean await(CompletableFuture<Void> done, long timeoutMs) {
+        try {
+            done.get(Math.max(0L, timeoutMs), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception timeout) {
+            return done.isDone();
+        }
+    }
+
+    private static long millisLeft(long deadlineNanos) {
+        return Math.max(0L, TimeUnit.NANOSECONDS.toMillis(deadlineNanos - System.nanoTime()));
+    }
+
     private static String sha1(String s) {
         try {
             MessageDigest md = MessageDigest.getInstance("SHA-1");
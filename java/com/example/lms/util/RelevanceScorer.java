@@ -1,7 +1,12 @@
 package com.example.lms.util;
 
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 
+import java.util.ArrayList;
+import java.util.List;
+
 //검색
 
 /**
@@ -41,6 +46,73 @@ public class RelevanceScorer {
         if (na == 0 || nb == 0) return 0.0;
         return dot / (Math.sqrt(na) * Math.sqrt(nb) + EPS);
     }
+    /**
+     * 배치 버전: query 는 한 번만 임베딩(정규화)하고, 후보들은 {@code embedAll} 한 번으로 보냅니다.
+     * 결과 배열은 {@code docs} 순서와 같으며, 빈 문서·임베딩 실패는 0.0 입니다.
+     */
+    public double[] scoreAll(String query, List<String> docs) {
+        if (docs == null || docs.isEmpty()) return new double[0];
+        double[] out = new double[docs.size()];
+        if (query == null || query.isBlank()) return out;
+        float[] q;
+        try {
+            q = unit(embeddingModel.embed(query).content().vector());
+        } catch (Exception ex) {
+            return out;
+        }
+        if (q == null) return out;
+
+        List<TextSegment> segments = new ArrayList<>(docs.size());
+        int[] slot = new int[docs.size()];
+        for (int i = 0; i < docs.size(); i++) {
+            String d = docs.get(i);
+            if (d == null || d.isBlank()) {
+                slot[i] = -1;
+                continue;
+            }
+            slot[i] = segments.size();
+            segments.add(TextSegment.from(d));
+        }
+        if (segments.isEmpty()) return out;
+
+        List<Embedding> embs;
+        try {
+            embs = embeddingModel.embedAll(segments).content();
+        } catch (Exception ex) {
+            return out;
+        }
+        if (embs == null || embs.size() != segments.size()) return out;
+        for (int i = 0; i < out.length; i++) {
+            if (slot[i] < 0) continue;
+            Embedding e = embs.get(slot[i]);
+            if (e != null && e.vector() != null) out[i] = cosineToUnit(q, e.vector());
+        }
+        return out;
+    }
+
+    /** L2-normalized copy, or null for empty/zero vectors. */
+    private static float[] unit(float[] v) {
+        if (v == null || v.length == 0) return null;
+        double n = 0;
+        for (float x : v) n += x * x;
+        if (n == 0) return null;
+        float inv = (float) (1.0 / Math.sqrt(n));
+        float[] u = new float[v.length];
+        for (int i = 0; i < v.length; i++) u[i] = v[i] * inv;
+        return u;
+    }
+
+    private static double cosineToUnit(float[] unitQ, float[] v) {
+        int n = Math.min(unitQ.length, v.length);
+        double dot = 0, nv = 0;
+        for (int i = 0; i < n; i++) {
+            dot += unitQ[i] * v[i];
+            nv  += v[i] * v[i];
+        }
+        if (nv == 0) return 0.0;
+        return dot / (Math.sqrt(nv) + EPS);
+    }
+
     /**
      * BM25(텍스트 빈도)와 코사인 임베딩 유사도를 모두 반영한 정규화 스코어.
      *
@@ -74,6 +74,11 @@ public class FingerprintAwareEmbeddingStore implements EmbeddingStore<TextSegmen
     }
 
 
+    /** The wrapped store (for identity checks against a concrete backend). */
+    public EmbeddingStore<TextSegment> delegate() {
+        return delegate;
+    }
+
     @Override
     public String add(Embedding embedding) {
         return delegate.add(embedding);
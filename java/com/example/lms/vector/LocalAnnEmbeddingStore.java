@@ -0,0 +1,696 @@
+package com.example.lms.vector;
+
+import com.example.lms.service.VectorMetaKeys;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.RelevanceScore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.filter.comparison.IsEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsIn;
+import dev.langchain4j.store.embedding.filter.logical.And;
+import dev.langchain4j.store.embedding.filter.logical.Or;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * Persistent local {@link EmbeddingStore} used instead of the in-memory fallback.
+ *
+ * <ul>
+ * <li>Every mutation is appended to {@code segments.log} as a length + CRC32 framed record;
+ * a torn tail (crash mid-write) is truncated on the next open, so restarts only replay
+ * complete records.</li>
+ * <li>Upserts are keyed by id (stable ids from {@code EmbeddingStoreManager} overwrite
+ * instead of duplicating); superseded records are compacted away once they dominate.</li>
+ * <li>Metadata filters on {@code sid}/{@code sid_logical}/{@code domain}/{@code kb_domain}
+ * are resolved through per-value row bitmaps before any vector is scored;
+ * the remaining filter is then evaluated only on those candidates.</li>
+ * <li>Scoring is an exact dot-product scan over the heap-resident candidates. The
+ * {@code HnswIndex}/{@code IvfFlatIndex} graphs are build-once over a fixed matrix and
+ * support neither in-place upserts nor deletes, so they are not used here; at the
+ * fallback/shadow sizes this store serves the scan stays within the read deadline.</li>
+ * <li>Each row remembers which writer it was stored for ({@link #writerId(String)}), so
+ * {@link #isCurrent(String, TextSegment, String)} only reports a row as current for the
+ * backend that is actually receiving writes.</li>
+ * <li>While it mirrors a remote writer the store is a cache, bounded by
+ * {@link #mirrorMaxRows(int)}: the least recently written rows are evicted (logged as
+ * removals, so the log and the startup replay stay bounded too). As the writer itself it is
+ * never trimmed.</li>
+ * </ul>
+ *
+ * <p>Instances are shared per directory ({@link #open(Path, boolean)}) so the fallback and
+ * shadow paths never run two writers against the same log.</p>
+ */
+public class LocalAnnEmbeddingStore implements EmbeddingStore<TextSegment>, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalAnnEmbeddingStore.class);
+
+    static final String LOG_FILE = "segments.log";
+    private static final byte OP_UPSERT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_CLEAR = 3;
+    /** Upsert carrying the writer id; plain {@link #OP_UPSERT} records replay with none. */
+    private static final byte OP_UPSERT_W = 4;
+    static final String LOCAL_WRITER = "local";
+    private static final int COMPACT_MIN_RECORDS = 1_000;
+    private static final Set<String> INDEXED_KEYS = Set.of(
+            VectorMetaKeys.META_SID, VectorMetaKeys.META_SID_LOGICAL,
+            VectorMetaKeys.META_DOMAIN, VectorMetaKeys.META_KB_DOMAIN);
+
+    private static final Map<Path, LocalAnnEmbeddingStore> SHARED = new ConcurrentHashMap<>();
+
+    private static final class Row {
+        final String id;
+        final float[] vector;
+        final float invNorm;
+        final TextSegment segment;
+        final String writer;
+
+        Row(String id, float[] vector, TextSegment segment, String writer) {
+            this.id = id;
+            this.vector = vector;
+            double n = 0;
+            for (float x : vector) n += x * x;
+            this.invNorm = n == 0 ? 0f : (float) (1.0 / Math.sqrt(n));
+            this.segment = segment;
+            this.writer = writer;
+        }
+    }
+
+    private final Path dir;
+    private final Path logFile;
+    private final boolean syncOnWrite;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Row> rows = new ArrayList<>();
+    private final BitSet live = new BitSet();
+    private final Map<String, Integer> rowById = new HashMap<>();
+    private final Map<String, Map<String, BitSet>> postings = new HashMap<>();
+    private FileChannel channel;
+    private long records;
+    private volatile String writerId = LOCAL_WRITER;
+    /** Row cap while mirroring a remote writer; {@code <= 0} means unbounded. */
+    private volatile int mirrorMaxRows;
+    /** Record count at the last failed compaction; retried only after more appends. */
+    private long compactFailedAt = -1;
+
+    /** Returns the process-wide store for {@code dir}, opening (and replaying) it on first use. */
+    public static LocalAnnEmbeddingStore open(Path dir, boolean syncOnWrite) {
+        Path key = dir.toAbsolutePath().normalize();
+        return SHARED.computeIfAbsent(key, k -> {
+            try {
+                return new LocalAnnEmbeddingStore(k, syncOnWrite);
+            } catch (IOException e) {
+                throw new UncheckedIOException("local vector store open failed: " + k, e);
+            }
+        });
+    }
+
+    LocalAnnEmbeddingStore(Path dir, boolean syncOnWrite) throws IOException {
+        this.dir = dir;
+        this.logFile = dir.resolve(LOG_FILE);
+        this.syncOnWrite = syncOnWrite;
+        Files.createDirectories(dir);
+        long t0 = System.nanoTime();
+        long good = replay();
+        this.channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        if (channel.size() > good) {
+            log.warn("[LocalAnnStore] truncating torn tail of {} ({} -> {} bytes)", logFile, channel.size(), good);
+            channel.truncate(good);
+        }
+        channel.position(good);
+        maybeCompactLocked();
+        log.info("[LocalAnnStore] opened {} rows={} records={} in {} ms",
+                dir, size(), records, (System.nanoTime() - t0) / 1_000_000L);
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rowById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(String id) {
+        lock.readLock().lock();
+        try {
+            return id != null && rowById.containsKey(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Names the backend this store is written for ({@code local} when it is the writer
+     * itself, otherwise the remote it mirrors). Stamped on every subsequent upsert.
+     */
+    public void writerId(String writerId) {
+        this.writerId = (writerId == null || writerId.isBlank()) ? LOCAL_WRITER : writerId.trim();
+    }
+
+    public String writerId() {
+        return writerId;
+    }
+
+    /** Caps the rows kept while mirroring a remote writer ({@code <= 0} = unbounded). */
+    public void mirrorMaxRows(int maxRows) {
+        this.mirrorMaxRows = maxRows;
+    }
+
+    /**
+     * True when re-embedding {@code id} would be a no-op: the row has the same text, was
+     * embedded with {@code fingerprint} ({@code emb_fp} metadata) and was stored for the
+     * current {@link #writerId() writer}. A {@code null} fingerprint never matches.
+     */
+    public boolean isCurrent(String id, TextSegment segment, String fingerprint) {
+        if (id == null || segment == null || fingerprint == null) return false;
+        lock.readLock().lock();
+        try {
+            Integer r = rowById.get(id);
+            Row row = r == null ? null : rows.get(r);
+            if (row == null || row.segment == null || !Objects.equals(row.segment.text(), segment.text())) {
+                return false;
+            }
+            Object fp = metadataOf(row).toMap().get(EmbeddingFingerprint.META_EMB_FP);
+            return fp != null && fingerprint.equals(String.valueOf(fp)) && Objects.equals(row.writer, writerId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------ writes
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment segment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), segment == null ? null : Collections.singletonList(segment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = generateIds(embeddings.size());
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments) {
+        if (ids == null || embeddings == null || ids.isEmpty()) return;
+        int n = Math.min(ids.size(), embeddings.size());
+        String writer = writerId;
+        lock.writeLock().lock();
+        try {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            List<Row> batch = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                String id = ids.get(i);
+                Embedding e = embeddings.get(i);
+                if (id == null || e == null || e.vector() == null || e.vector().length == 0) continue;
+                TextSegment seg = (segments != null && i < segments.size()) ? segments.get(i) : null;
+                frame(buf, encodeUpsert(id, e.vector(), seg, writer));
+                batch.add(new Row(id, e.vector().clone(), seg, writer));
+            }
+            // durable first, then visible
+            appendLocked(buf.toByteArray(), batch.size());
+            for (Row row : batch) applyUpsert(row);
+            evictOverCapLocked(writer);
+            maybeCompactLocked();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("local vector store append failed: " + logFile, ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        if (ids == null || ids.isEmpty()) return;
+        lock.writeLock().lock();
+        try {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            Set<String> removed = new LinkedHashSet<>();
+            for (String id : ids) {
+                if (id == null || !rowById.containsKey(id) || !removed.add(id)) continue;
+                frame(buf, encodeRemove(id));
+            }
+            // durable first, then visible: a failed append leaves the rows in place
+            appendLocked(buf.toByteArray(), removed.size());
+            for (String id : removed) applyRemove(id);
+            maybeCompactLocked();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("local vector store append failed: " + logFile, ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        if (filter == null) return;
+        List<String> ids = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            BitSet cand = candidates(filter);
+            for (int r = cand.nextSetBit(0); r >= 0; r = cand.nextSetBit(r + 1)) {
+                Row row = rows.get(r);
+                if (filter.test(metadataOf(row))) ids.add(row.id);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        removeAll(ids);
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            ByteArrayOutputStream buf = new ByteArrayOutputStream();
+            frame(buf, new byte[]{OP_CLEAR});
+            appendLocked(buf.toByteArray(), 1);
+            applyClear();
+            maybeCompactLocked();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("local vector store append failed: " + logFile, ex);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------ search
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        if (request == null || request.queryEmbedding() == null) return new EmbeddingSearchResult<>(List.of());
+        float[] q = request.queryEmbedding().vector();
+        double qn = 0;
+        for (float x : q) qn += x * x;
+        if (qn == 0) return new EmbeddingSearchResult<>(List.of());
+        float qInv = (float) (1.0 / Math.sqrt(qn));
+        int k = Math.max(1, request.maxResults());
+        double minScore = request.minScore();
+        Filter filter = request.filter();
+
+        PriorityQueue<EmbeddingMatch<TextSegment>> top =
+                new PriorityQueue<>(Comparator.comparingDouble(EmbeddingMatch::score));
+        lock.readLock().lock();
+        try {
+            BitSet cand = candidates(filter);
+            for (int r = cand.nextSetBit(0); r >= 0; r = cand.nextSetBit(r + 1)) {
+                Row row = rows.get(r);
+                if (row.vector.length != q.length) continue;
+                float dot = 0;
+                for (int i = 0; i < q.length; i++) dot += q[i] * row.vector[i];
+                double score = RelevanceScore.fromCosineSimilarity(dot * qInv * row.invNorm);
+                if (score < minScore) continue;
+                if (top.size() >= k && score <= top.peek().score()) continue;
+                if (filter != null && !filter.test(metadataOf(row))) continue;
+                top.add(new EmbeddingMatch<>(score, row.id, Embedding.from(row.vector.clone()), row.segment));
+                if (top.size() > k) top.poll();
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<EmbeddingMatch<TextSegment>> out = new ArrayList<>(top);
+        out.sort(Comparator.comparingDouble((EmbeddingMatch<TextSegment> m) -> m.score()).reversed());
+        return new EmbeddingSearchResult<>(out);
+    }
+
+    /**
+     * Rows that can satisfy {@code filter}, narrowed through the metadata bitmaps for
+     * equality / membership on indexed keys (combined through AND / OR). Anything the
+     * bitmaps cannot express keeps the full live set and is checked per row.
+     */
+    private BitSet candidates(Filter filter) {
+        BitSet narrowed = narrow(filter);
+        BitSet out = (BitSet) live.clone();
+        if (narrowed != null) out.and(narrowed);
+        return out;
+    }
+
+    private BitSet narrow(Filter f) {
+        if (f instanceof IsEqualTo eq && INDEXED_KEYS.contains(eq.key())) {
+            BitSet b = postings.getOrDefault(eq.key(), Map.of()).get(String.valueOf(eq.comparisonValue()));
+            return b == null ? new BitSet() : b;
+        }
+        if (f instanceof IsIn in && INDEXED_KEYS.contains(in.key())) {
+            BitSet acc = new BitSet();
+            Map<String, BitSet> byValue = postings.getOrDefault(in.key(), Map.of());
+            for (Object v : in.comparisonValues()) {
+                BitSet b = byValue.get(String.valueOf(v));
+                if (b != null) acc.or(b);
+            }
+            return acc;
+        }
+        if (f instanceof And and) {
+            BitSet l = narrow(and.left());
+            BitSet r = narrow(and.right());
+            if (l == null) return r;
+            if (r == null) return l;
+            BitSet acc = (BitSet) l.clone();
+            acc.and(r);
+            return acc;
+        }
+        if (f instanceof Or or) {
+            BitSet l = narrow(or.left());
+            BitSet r = narrow(or.right());
+            if (l == null || r == null) return null;
+            BitSet acc = (BitSet) l.clone();
+            acc.or(r);
+            return acc;
+        }
+        return null;
+    }
+
+    private static Metadata metadataOf(Row row) {
+        return row.segment != null && row.segment.metadata() != null ? row.segment.metadata() : new Metadata();
+    }
+
+    // ------------------------------------------------------------------ state
+
+    private void applyUpsert(Row row) {
+        applyRemove(row.id);
+        int r = rows.size();
+        rows.add(row);
+        live.set(r);
+        rowById.put(row.id, r);
+        if (row.segment != null && row.segment.metadata() != null) {
+            for (Map.Entry<String, Object> e : row.segment.metadata().toMap().entrySet()) {
+                if (!INDEXED_KEYS.contains(e.getKey()) || e.getValue() == null) continue;
+                postings.computeIfAbsent(e.getKey(), k -> new HashMap<>())
+                        .computeIfAbsent(String.valueOf(e.getValue()), v -> new BitSet())
+                        .set(r);
+            }
+        }
+    }
+
+    private void applyRemove(String id) {
+        Integer r = rowById.remove(id);
+        if (r == null) return;
+        live.clear(r);
+        Row old = rows.set(r, null);
+        if (old != null && old.segment != null && old.segment.metadata() != null) {
+            for (Map.Entry<String, Object> e : old.segment.metadata().toMap().entrySet()) {
+                Map<String, BitSet> byValue = postings.get(e.getKey());
+                if (byValue == null || e.getValue() == null) continue;
+                BitSet b = byValue.get(String.valueOf(e.getValue()));
+                if (b != null) b.clear(r);
+            }
+        }
+    }
+
+    /** Mirror mode only: drops the least recently written rows beyond {@link #mirrorMaxRows}. */
+    private void evictOverCapLocked(String writer) throws IOException {
+        int cap = mirrorMaxRows;
+        int over = rowById.size() - cap;
+        if (cap <= 0 || over <= 0 || LOCAL_WRITER.equals(writer)) return;
+        ByteArrayOutputStream buf = new ByteArrayOutputStream();
+        List<String> evict = new ArrayList<>(over);
+        // rows are appended in write order and an upsert moves its row to the end
+        for (int r = live.nextSetBit(0); r >= 0 && evict.size() < over; r = live.nextSetBit(r + 1)) {
+            String id = rows.get(r).id;
+            evict.add(id);
+            frame(buf, encodeRemove(id));
+        }
+        appendLocked(buf.toByteArray(), evict.size());
+        for (String id : evict) applyRemove(id);
+        log.debug("[LocalAnnStore] mirror cap {} reached, evicted {} rows", cap, evict.size());
+    }
+
+    private void applyClear() {
+        rows.clear();
+        live.clear();
+        rowById.clear();
+        postings.clear();
+    }
+
+    // ------------------------------------------------------------------ log
+
+    /**
+     * Appends {@code frames} framed records. On failure the log is cut back to where the
+     * batch started, so a half-written batch can neither replay nor hide later appends.
+     */
+    private void appendLocked(byte[] bytes, int frames) throws IOException {
+        if (bytes.length == 0) return;
+        long start = channel.position();
+        try {
+            ByteBuffer bb = ByteBuffer.wrap(bytes);
+            while (bb.hasRemaining()) channel.write(bb);
+            if (syncOnWrite) channel.force(false);
+        } catch (IOException e) {
+            try {
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException rollback) {
+                e.addSuppressed(rollback);
+            }
+            throw e;
+        }
+        records += frames;
+    }
+
+    private static void frame(ByteArrayOutputStream buf, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        DataOutputStream out = new DataOutputStream(buf);
+        out.writeInt(payload.length);
+        out.writeInt((int) crc.getValue());
+        out.write(payload);
+    }
+
+    /** Replays complete records and returns the byte offset just after the last good one. */
+    private long replay() throws IOException {
+        if (!Files.exists(logFile)) return 0L;
+        long good = 0L;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(logFile), 1 << 16))) {
+            while (true) {
+                int len;
+                try {
+                    len = in.readInt();
+                } catch (EOFException eof) {
+                    break;
+                }
+                if (len <= 0 || len > (64 << 20)) break;
+                int expected = in.readInt();
+                byte[] payload = new byte[len];
+                in.readFully(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != expected) break;
+                applyRecord(payload);
+                records++;
+                good += 8L + len;
+            }
+        } catch (EOFException torn) {
+            // partial record at the tail: stop at the last complete one
+        }
+        return good;
+    }
+
+    private void applyRecord(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte op = in.readByte();
+        switch (op) {
+            case OP_UPSERT, OP_UPSERT_W -> {
+                String writer = op == OP_UPSERT_W ? in.readUTF() : null;
+                String id = in.readUTF();
+                float[] v = new float[in.readInt()];
+                for (int i = 0; i < v.length; i++) v[i] = in.readFloat();
+                TextSegment seg = null;
+                if (in.readBoolean()) {
+                    String text = readString(in);
+                    seg = TextSegment.from(text, readMetadata(in));
+                }
+                applyUpsert(new Row(id, v, seg, writer));
+            }
+            case OP_REMOVE -> applyRemove(in.readUTF());
+            case OP_CLEAR -> applyClear();
+            default -> throw new IOException("unknown op " + op);
+        }
+    }
+
+    private static byte[] encodeUpsert(String id, float[] v, TextSegment seg, String writer) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + v.length * 4);
+        DataOutputStream out = new DataOutputStream(bytes);
+        if (writer == null) {
+            out.writeByte(OP_UPSERT);
+        } else {
+            out.writeByte(OP_UPSERT_W);
+            out.writeUTF(writer);
+        }
+        out.writeUTF(id);
+        out.writeInt(v.length);
+        for (float x : v) out.writeFloat(x);
+        out.writeBoolean(seg != null);
+        if (seg != null) {
+            writeString(out, seg.text());
+            writeMetadata(out, seg.metadata());
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] encodeRemove(String id) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(OP_REMOVE);
+        out.writeUTF(id);
+        return bytes.toByteArray();
+    }
+
+    /** Typed metadata encoding so values round-trip with the types {@link Metadata} accepts. */
+    private static void writeMetadata(DataOutputStream out, Metadata md) throws IOException {
+        Map<String, Object> map = md == null ? Map.of() : md.toMap();
+        out.writeInt(map.size());
+        for (Map.Entry<String, Object> e : map.entrySet()) {
+            writeString(out, e.getKey());
+            Object v = e.getValue();
+            if (v instanceof Integer i) { out.writeByte('I'); out.writeInt(i); }
+            else if (v instanceof Long l) { out.writeByte('L'); out.writeLong(l); }
+            else if (v instanceof Float f) { out.writeByte('F'); out.writeFloat(f); }
+            else if (v instanceof Double d) { out.writeByte('D'); out.writeDouble(d); }
+            else if (v instanceof UUID u) { out.writeByte('U'); writeString(out, u.toString()); }
+            else { out.writeByte('S'); writeString(out, String.valueOf(v)); }
+        }
+    }
+
+    private static Metadata readMetadata(DataInputStream in) throws IOException {
+        int n = in.readInt();
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < n; i++) {
+            String key = readString(in);
+            byte type = in.readByte();
+            Object v = switch (type) {
+                case 'I' -> in.readInt();
+                case 'L' -> in.readLong();
+                case 'F' -> in.readFloat();
+                case 'D' -> in.readDouble();
+                case 'U' -> UUID.fromString(readString(in));
+                default -> readString(in);
+            };
+            map.put(key, v);
+        }
+        return Metadata.from(map);
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] b = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Rewrites the log with live rows only once superseded records outnumber them. A failed
+     * rewrite keeps the current log (and an open channel) and is retried after more appends.
+     */
+    private void maybeCompactLocked() throws IOException {
+        int liveRows = rowById.size();
+        if (records < COMPACT_MIN_RECORDS || records <= 2L * Math.max(1, liveRows)) return;
+        if (compactFailedAt >= 0 && records < compactFailedAt + COMPACT_MIN_RECORDS) return;
+        Path tmp = dir.resolve(LOG_FILE + ".compact");
+        long newRecords = 0;
+        try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE))) {
+            for (int r = live.nextSetBit(0); r >= 0; r = live.nextSetBit(r + 1)) {
+                Row row = rows.get(r);
+                ByteArrayOutputStream buf = new ByteArrayOutputStream();
+                frame(buf, encodeUpsert(row.id, row.vector, row.segment, row.writer));
+                buf.writeTo(os);
+                newRecords++;
+            }
+        }
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            ch.force(true);
+        }
+        channel.close();
+        try {
+            moveIntoPlace(tmp);
+        } catch (IOException e) {
+            // fail-soft: the old log is intact; reopen it so later writes and reads keep working
+            channel = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.READ);
+            channel.position(channel.size());
+            compactFailedAt = records;
+            Files.deleteIfExists(tmp);
+            log.warn("[LocalAnnStore] compaction of {} failed, keeping the current log: {}", logFile, e.toString());
+            return;
+        }
+        channel = FileChannel.open(logFile, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        channel.position(channel.size());
+        records = newRecords;
+        compactFailedAt = -1;
+
+        // compact row storage as well so dead slots do not accumulate
+        List<Row> keep = new ArrayList<>(liveRows);
+        for (int r = live.nextSetBit(0); r >= 0; r = live.nextSetBit(r + 1)) keep.add(rows.get(r));
+        applyClear();
+        for (Row row : keep) applyUpsert(row);
+        log.info("[LocalAnnStore] compacted {} -> {} records", logFile, newRecords);
+    }
+
+    /** Replaces the log with the compacted copy; a test seam for move failures. */
+    void moveIntoPlace(Path compacted) throws IOException {
+        Files.move(compacted, logFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Forces pending appends to disk; used on shutdown when per-write sync is off. */
+    public void flush() {
+        lock.writeLock().lock();
+        try {
+            if (channel.isOpen()) channel.force(false);
+        } catch (IOException e) {
+            log.warn("[LocalAnnStore] flush failed: {}", e.toString());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (channel.isOpen()) {
+                channel.force(false);
+                channel.close();
+            }
+        } catch (IOException e) {
+            log.warn("[LocalAnnStore] close failed: {}", e.toString());
+        } finally {
+            SHARED.remove(dir, this);
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.lms.vector;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Holds the on-disk {@link LocalAnnEmbeddingStore} used as the non-remote fallback and as
+ * the read shadow behind Upstash. Deliberately not an {@code EmbeddingStore} bean itself so
+ * the existing {@code @ConditionalOnMissingBean(EmbeddingStore.class)} and qualifier wiring
+ * stays unchanged.
+ *
+ * <p>Fail-soft: when disabled or when the directory cannot be opened {@link #get()} returns
+ * {@code null} and callers keep their in-memory behaviour.</p>
+ */
+@Component
+public class LocalVectorStoreProvider {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalVectorStoreProvider.class);
+
+    @Value("${vector.local.enabled:true}")
+    private boolean enabled;
+
+    @Value("${vector.local.dir:./data/vector-local}")
+    private String dir;
+
+    /** fsync after every batch; turn off for bulk rebuilds where a re-ingest is acceptable. */
+    @Value("${vector.local.sync-on-write:true}")
+    private boolean syncOnWrite;
+
+    @Value("${vector.local.shadow-read-timeout-ms:800}")
+    private long shadowReadTimeoutMs;
+
+    /**
+     * Rows kept while the store only mirrors a remote writer (Pinecone/Upstash); the least
+     * recently written are evicted beyond this. Ignored when the store is the writer.
+     */
+    @Value("${vector.local.mirror-max-rows:100000}")
+    private int mirrorMaxRows;
+
+    private volatile LocalAnnEmbeddingStore store;
+    private volatile boolean failed;
+
+    public LocalAnnEmbeddingStore get() {
+        LocalAnnEmbeddingStore s = store;
+        if (s != null || !enabled || failed) return s;
+        synchronized (this) {
+            if (store == null && !failed) {
+                try {
+                    LocalAnnEmbeddingStore opened = LocalAnnEmbeddingStore.open(Path.of(dir), syncOnWrite);
+                    opened.mirrorMaxRows(mirrorMaxRows);
+                    store = opened;
+                } catch (Exception e) {
+                    failed = true;
+                    log.warn("[LocalAnnStore] disabled: cannot open {}: {}", dir, e.toString());
+                }
+            }
+            return store;
+        }
+    }
+
+    public long shadowReadTimeoutMs() {
+        return shadowReadTimeoutMs;
+    }
+
+    @PreDestroy
+    public void close() {
+        LocalAnnEmbeddingStore s = store;
+        if (s != null) s.close();
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.lms.vector;
+
+import com.example.lms.infra.exec.ContextAwareExecutorService;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Remote store with a local read shadow. Searches go to the remote store under a deadline
+ * and fall back to the local {@link LocalAnnEmbeddingStore} on timeout, error or an empty
+ * answer; writes go to the remote store and are mirrored locally (fail-soft) so the shadow
+ * stays warm.
+ */
+public class ShadowedEmbeddingStore implements EmbeddingStore<TextSegment> {
+
+    private static final Logger log = LoggerFactory.getLogger(ShadowedEmbeddingStore.class);
+
+    private static final int READ_THREADS = 8;
+    private static final int READ_QUEUE = 32;
+
+    /**
+     * Bounded: remote reads that pile up behind a stalled remote are rejected (and answered
+     * from the local store) instead of spawning a thread per caller.
+     */
+    private static final ExecutorService READS;
+
+    static {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(READ_THREADS, READ_THREADS,
+                30L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(READ_QUEUE), r -> {
+                    Thread t = new Thread(r, "vec-shadow-read");
+                    t.setDaemon(true);
+                    return t;
+                }, new ThreadPoolExecutor.AbortPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        READS = new ContextAwareExecutorService(pool);
+    }
+
+    private final EmbeddingStore<TextSegment> remote;
+    private final LocalAnnEmbeddingStore local;
+    private final long timeoutMs;
+
+    public ShadowedEmbeddingStore(EmbeddingStore<TextSegment> remote, LocalAnnEmbeddingStore local, long timeoutMs) {
+        this.remote = remote;
+        this.local = local;
+        this.timeoutMs = Math.max(1L, timeoutMs);
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        Future<EmbeddingSearchResult<TextSegment>> f;
+        try {
+            f = READS.submit(() -> remote.search(request));
+        } catch (RejectedExecutionException saturated) {
+            try { com.example.lms.search.TraceStore.inc("vector.shadow.rejected"); } catch (Exception ignore) {}
+            return local.search(request);
+        }
+        try {
+            EmbeddingSearchResult<TextSegment> res = f.get(timeoutMs, TimeUnit.MILLISECONDS);
+            if (res != null && res.matches() != null && !res.matches().isEmpty()) return res;
+            try { com.example.lms.search.TraceStore.inc("vector.shadow.empty"); } catch (Exception ignore) {}
+        } catch (TimeoutException te) {
+            f.cancel(true);
+            try { com.example.lms.search.TraceStore.inc("vector.shadow.timeout"); } catch (Exception ignore) {}
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            f.cancel(true);
+        } catch (ExecutionException ee) {
+            log.debug("[VectorShadow] remote search failed: {}", String.valueOf(ee.getCause()));
+            try { com.example.lms.search.TraceStore.inc("vector.shadow.error"); } catch (Exception ignore) {}
+        }
+        return local.search(request);
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = remote.add(embedding);
+        mirror(() -> local.add(id, embedding));
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        remote.add(id, embedding);
+        mirror(() -> local.add(id, embedding));
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment segment) {
+        String id = remote.add(embedding, segment);
+        mirror(() -> local.addAll(List.of(id), List.of(embedding), segment == null ? null : List.of(segment)));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = remote.addAll(embeddings);
+        mirror(() -> local.addAll(ids, embeddings, null));
+        return ids;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> segments) {
+        List<String> ids = remote.addAll(embeddings, segments);
+        mirror(() -> local.addAll(ids, embeddings, segments));
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments) {
+        remote.addAll(ids, embeddings, segments);
+        mirror(() -> local.addAll(ids, embeddings, segments));
+    }
+
+    @Override
+    public void removeAll(Collection<String> ids) {
+        remote.removeAll(ids);
+        mirror(() -> local.removeAll(ids));
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        remote.removeAll(filter);
+        mirror(() -> local.removeAll(filter));
+    }
+
+    @Override
+    public void removeAll() {
+        remote.removeAll();
+        mirror(local::removeAll);
+    }
+
+    private static void mirror(Runnable r) {
+        try {
+            r.run();
+        } catch (Exception e) {
+            log.debug("[VectorShadow] local mirror failed: {}", e.toString());
+        }
+    }
+}
@@ -98,6 +98,9 @@ if (file("demo-2").exists()) include(":demo-2")
 if (file("demo-3").exists()) include(":demo-3")
 if (file("lms-core").exists()) include(":lms-core")
 
+// JMH micro-benchmarks for retrieval/ranking hot paths (./gradlew :bench:jmh)
+if (file("bench").exists()) include(":bench")
+
 // backup modules
 if (file("lms-core-backup").exists()) include(":lms-core-backup")
 if (file("demo-1-backup").exists()) include(":demo-1-backup")
@@ -0,0 +1,232 @@
+package ai.abandonware.nova.orch.storage;
+
+import ai.abandonware.nova.config.NovaOrchestrationProperties;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Segment mode of {@link FileDegradedStorage}: throughput at a large backlog, restart
+ * recovery and quarantine.
+ */
+class FileDegradedStorageSegmentTest {
+
+    @TempDir
+    Path dir;
+
+    private FileDegradedStorage open(int maxAttempts) {
+        return open(maxAttempts, 1024L * 1024L, 0, 0);
+    }
+
+    private FileDegradedStorage open(int maxAttempts, long segmentBytes, int maxFiles, long maxBytes) {
+        NovaOrchestrationProperties props = new NovaOrchestrationProperties();
+        NovaOrchestrationProperties.DegradedStorageProps ds = props.getDegradedStorage();
+        ds.setPath(dir.resolve("outbox").toString());
+        ds.setFormat("segment");
+        ds.setSegmentBytes(segmentBytes);
+        ds.setMaxFiles(maxFiles);
+        ds.setMaxBytes(maxBytes);
+        ds.setEnforceOnWrite(false);
+        ds.setMaxAttempts(maxAttempts);
+        return new FileDegradedStorage(props, new ObjectMapper().findAndRegisterModules());
+    }
+
+    private static PendingMemoryEvent event(int i) {
+        return new PendingMemoryEvent("s" + (i % 16), null, "h" + i, "answer snippet " + i,
+                Instant.now(), 20, "test");
+    }
+
+    private long segmentFiles() throws Exception {
+        try (Stream<Path> files = Files.list(dir.resolve("outbox"))) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".log")).count();
+        }
+    }
+
+    @Test
+    void drainsHundredThousandPendingEvents() throws Exception {
+        int n = 100_000;
+        FileDegradedStorage storage = open(10);
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                storage.putPending(event(i));
+            }
+            assertEquals(n, storage.stats().pendingCount());
+            assertTrue(segmentFiles() > 1, "expected the log to roll over several segments");
+
+            int drained = 0;
+            List<DegradedStorageWithAck.ClaimedPending> batch;
+            while (!(batch = storage.claim(500)).isEmpty()) {
+                for (DegradedStorageWithAck.ClaimedPending c : batch) {
+                    assertEquals("h" + drained, c.event().userQueryHash());
+                    storage.ack(c.token());
+                    drained++;
+                }
+            }
+            long ms = (System.nanoTime() - start) / 1_000_000L;
+
+            assertEquals(n, drained);
+            assertEquals(0, storage.stats().pendingCount());
+            assertEquals(0, storage.stats().inflightCount());
+            assertEquals(1, segmentFiles(), "fully acked segments should be deleted");
+            assertTrue(ms < 60_000, "put+drain of " + n + " events took " + ms + " ms");
+        } finally {
+            storage.close();
+        }
+    }
+
+    @Test
+    void unackedRecordsSurviveRestart() throws Exception {
+        FileDegradedStorage storage = open(10);
+        for (int i = 0; i < 10; i++) {
+            storage.putPending(event(i));
+        }
+        List<DegradedStorageWithAck.ClaimedPending> claimed = storage.claim(4);
+        storage.ack(claimed.get(0).token());
+        storage.ack(claimed.get(1).token());
+        // claimed.get(2..3) stay inflight and must come back as pending
+        storage.close();
+
+        FileDegradedStorage reopened = open(10);
+        try {
+            assertEquals(8, reopened.stats().pendingCount());
+            List<DegradedStorageWithAck.ClaimedPending> rest = reopened.claim(100);
+            assertEquals(8, rest.size());
+            assertEquals("h2", rest.get(0).event().userQueryHash());
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void tornAckTailIsTruncatedSoLaterAcksStayAligned() throws Exception {
+        FileDegradedStorage storage = open(10);
+        for (int i = 0; i < 6; i++) {
+            storage.putPending(event(i));
+        }
+        storage.ack(storage.claim(1).get(0).token());
+        storage.close();
+
+        Path ack;
+        try (Stream<Path> files = Files.list(dir.resolve("outbox"))) {
+            ack = files.filter(p -> p.getFileName().toString().endsWith(".ack")).findFirst().orElseThrow();
+        }
+        // Crash mid-write: a partial 8-byte offset at the end of the ack file.
+        Files.write(ack, new byte[]{0, 0, 0}, StandardOpenOption.APPEND);
+
+        FileDegradedStorage reopened = open(10);
+        assertEquals(5, reopened.stats().pendingCount());
+        assertEquals(0, Files.size(ack) % 8, "torn ack entry should be cut on recovery");
+        DegradedStorageWithAck.ClaimedPending next = reopened.claim(1).get(0);
+        assertEquals("h1", next.event().userQueryHash());
+        reopened.ack(next.token());
+        reopened.close();
+
+        FileDegradedStorage again = open(10);
+        try {
+            assertEquals(4, again.stats().pendingCount());
+            assertEquals("h2", again.claim(1).get(0).event().userQueryHash());
+        } finally {
+            again.close();
+        }
+    }
+
+    @Test
+    void nackRequeuesThenQuarantines() {
+        FileDegradedStorage storage = open(2);
+        try {
+            storage.putPending(event(1));
+
+            DegradedStorageWithAck.ClaimedPending first = storage.claim(1).get(0);
+            storage.nack(first.token(), "boom");
+            DegradedStorageWithAck.ClaimedPending second = storage.claim(1).get(0);
+            assertEquals(1, second.attemptCount());
+            assertNotEquals(first.token(), second.token());
+
+            storage.nack(second.token(), "boom again");
+            assertTrue(storage.claim(1).isEmpty());
+            List<DegradedStorageWithAck.OutboxPeekItem> q = storage.peek("quarantine", 10, 100);
+            assertEquals(1, q.size());
+            assertEquals("boom again", q.get(0).lastError());
+        } finally {
+            storage.close();
+        }
+    }
+
+    @Test
+    void maxBytesDropsOldestWholeSegmentsOnly() throws Exception {
+        long segBytes = 64L * 1024L;
+        FileDegradedStorage storage = open(10, segBytes, 0, 2 * segBytes);
+        try {
+            int n = 0;
+            while (segmentFiles() < 5) {
+                storage.putPending(event(n++));
+            }
+            DegradedStorageWithAck.OutboxSweepResult r = storage.sweep();
+
+            assertTrue(r.removedByMaxBytes() > 0);
+            assertTrue(r.bytesAfter() <= 2 * segBytes, "bytes after sweep: " + r.bytesAfter());
+            int left = storage.stats().pendingCount();
+            assertEquals(n - r.removedByMaxBytes(), left);
+            assertTrue(left > 0, "retention must not discard the whole backlog");
+            // Survivors are the newest records, still in order.
+            List<DegradedStorageWithAck.ClaimedPending> rest = storage.claim(n);
+            assertEquals("h" + r.removedByMaxBytes(), rest.get(0).event().userQueryHash());
+            assertEquals("h" + (n - 1), rest.get(rest.size() - 1).event().userQueryHash());
+        } finally {
+            storage.close();
+        }
+    }
+
+    @Test
+    void maxBytesKeepsBacklogWhenExcessIsInActiveOrInflightSegment() throws Exception {
+        long segBytes = 64L * 1024L;
+        // Active segment alone exceeds the limit: nothing can be reclaimed.
+        FileDegradedStorage storage = open(10, segBytes, 0, 1024);
+        try {
+            for (int i = 0; i < 50; i++) {
+                storage.putPending(event(i));
+            }
+            assertEquals(0, storage.sweep().removedByMaxBytes());
+            assertEquals(50, storage.stats().pendingCount());
+
+            // Older segment pinned by an inflight record: still nothing is dropped.
+            DegradedStorageWithAck.ClaimedPending held = storage.claim(1).get(0);
+            int n = 50;
+            while (segmentFiles() < 2) {
+                storage.putPending(event(n++));
+            }
+            int before = storage.stats().pendingCount();
+            assertEquals(0, storage.sweep().removedByMaxBytes());
+            assertEquals(before, storage.stats().pendingCount());
+            storage.ack(held.token());
+        } finally {
+            storage.close();
+        }
+    }
+
+    @Test
+    void maxFilesKeepsNewestPending() {
+        FileDegradedStorage storage = open(10, 64L * 1024L, 10, 0);
+        try {
+            for (int i = 0; i < 25; i++) {
+                storage.putPending(event(i));
+            }
+            assertEquals(15, storage.sweep().removedByMaxFiles());
+            List<DegradedStorageWithAck.ClaimedPending> rest = storage.claim(100);
+            assertEquals(10, rest.size());
+            assertEquals("h15", rest.get(0).event().userQueryHash());
+        } finally {
+            storage.close();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.abandonware.ai.agent.integrations;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HNSW: a concurrently built graph must reach high recall@10 against the exact
+ * scan after a save/load round trip; directories without 'hnsw.bin' keep working.
+ */
+class HnswIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void concurrentBuildRoundTripHasHighRecall() throws Exception {
+        Random rnd = new Random(5);
+        int n = 3000, dim = 24;
+        float[][] mat = new float[n][dim];
+        for (float[] r : mat) for (int i = 0; i < dim; i++) r[i] = (float) rnd.nextGaussian();
+
+        HnswIndex.Graph graph = new HnswIndex.Graph(mat, 12, 100, 42L);
+        IntStream.range(0, n).parallel().forEach(graph::insert);
+        graph.freeze();
+        HnswIndex.save(dir, metaFor(n), graph);
+        assertTrue(Files.exists(dir.resolve(HnswIndex.HNSW_FILE)));
+
+        HnswIndex idx = new HnswIndex(dir);
+        int k = 10, found = 0, queries = 50;
+        for (int t = 0; t < queries; t++) {
+            float[] q = new float[dim];
+            for (int i = 0; i < dim; i++) q[i] = (float) rnd.nextGaussian();
+            Set<String> exact = new HashSet<>(exactTopK(mat, q, k));
+            for (AnnIndex.AnnHit h : idx.search(q, k, 64)) if (exact.contains(h.docId())) found++;
+        }
+        double recall = found / (double) (queries * k);
+        assertTrue(recall >= 0.9, "recall@10=" + recall);
+    }
+
+    @Test
+    void exactDuplicateIsTopHit() throws Exception {
+        Random rnd = new Random(9);
+        float[][] mat = new float[500][8];
+        for (float[] r : mat) for (int i = 0; i < 8; i++) r[i] = (float) rnd.nextGaussian();
+        HnswIndex.Graph graph = new HnswIndex.Graph(mat, 8, 64, 1L);
+        for (int i = 0; i < mat.length; i++) graph.insert(i);
+        graph.freeze();
+        HnswIndex.save(dir, metaFor(mat.length), graph);
+
+        AnnIndex.AnnHit top = new HnswIndex(dir).search(mat[321], 1, 32).get(0);
+        assertEquals("doc-321", top.docId());
+        assertEquals(0.0, top.score(), 1e-5);
+    }
+
+    @Test
+    void fallsBackToIvfWithoutGraphFile() throws Exception {
+        float[][] mat = {{1f, 0f}, {0f, 1f}, {0.7f, 0.7f}};
+        IvfFlatIndex.save(dir, mat, metaFor(3), 1);
+        assertEquals("doc-1", new HnswIndex(dir).search(new float[]{0f, 2f}, 1, 8).get(0).docId());
+    }
+
+    private static AnnMeta metaFor(int rows) {
+        AnnMeta meta = new AnnMeta();
+        for (int i = 0; i < rows; i++) {
+            meta.rowToId.add("doc-" + i);
+            meta.idToRow.put("doc-" + i, i);
+        }
+        return meta;
+    }
+
+    private static List<String> exactTopK(float[][] mat, float[] q, int k) {
+        Integer[] idx = new Integer[mat.length];
+        for (int i = 0; i < idx.length; i++) idx[i] = i;
+        Arrays.sort(idx, Comparator.comparingDouble(i -> Distance.cosine(q, mat[i])));
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < k; i++) out.add("doc-" + idx[i]);
+        return out;
+    }
+}
@@ -0,0 +1,89 @@
+package com.abandonware.ai.agent.integrations;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * IVF-Flat: probing every list must equal the exact cosine ranking; legacy
+ * files without 'ivf.bin' must still be searchable.
+ */
+class IvfFlatIndexTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void fullProbeMatchesExactCosine() throws Exception {
+        Random rnd = new Random(7);
+        float[][] mat = randomMatrix(rnd, 2000, 32);
+        IvfFlatIndex.save(dir, mat, metaFor(mat.length), 16);
+        assertTrue(Files.exists(dir.resolve(IvfFlatIndex.IVF_FILE)));
+
+        IvfFlatIndex idx = new IvfFlatIndex(dir);
+        for (int t = 0; t < 5; t++) {
+            float[] q = randomMatrix(rnd, 1, 32)[0];
+            List<AnnIndex.AnnHit> hits = idx.search(q, 10, 0);
+            List<String> exact = exactTopK(mat, q, 10);
+            assertEquals(exact, hits.stream().map(AnnIndex.AnnHit::docId).toList());
+            for (int i = 1; i < hits.size(); i++) assertTrue(hits.get(i - 1).score() <= hits.get(i).score());
+        }
+    }
+
+    @Test
+    void nprobeLimitsScanButFindsExactDuplicate() throws Exception {
+        Random rnd = new Random(11);
+        float[][] mat = randomMatrix(rnd, 1000, 16);
+        IvfFlatIndex.save(dir, mat, metaFor(mat.length), 32);
+
+        List<AnnIndex.AnnHit> hits = new IvfFlatIndex(dir).search(mat[123].clone(), 1, 1);
+        assertEquals("doc-123", hits.get(0).docId());
+        assertEquals(0.0, hits.get(0).score(), 1e-5);
+    }
+
+    @Test
+    void legacyFlatFileIsStillSearchable() throws Exception {
+        Random rnd = new Random(3);
+        float[][] mat = randomMatrix(rnd, 50, 8);
+        IvfFlatIndex.save(dir, mat, metaFor(mat.length), 4);
+        Files.delete(dir.resolve(IvfFlatIndex.IVF_FILE));
+
+        float[] q = mat[7].clone();
+        for (int i = 0; i < q.length; i++) q[i] *= 3f;
+        assertEquals("doc-7", new IvfFlatIndex(dir).search(q, 3, 64).get(0).docId());
+    }
+
+    @Test
+    void missingIndexReturnsEmpty() throws Exception {
+        assertTrue(new IvfFlatIndex(dir.resolve("nope")).search(new float[]{1f, 0f}, 5, 8).isEmpty());
+    }
+
+    private static AnnMeta metaFor(int rows) {
+        AnnMeta meta = new AnnMeta();
+        for (int i = 0; i < rows; i++) {
+            meta.rowToId.add("doc-" + i);
+            meta.idToRow.put("doc-" + i, i);
+        }
+        return meta;
+    }
+
+    private static float[][] randomMatrix(Random rnd, int rows, int dim) {
+        float[][] m = new float[rows][dim];
+        for (float[] r : m) for (int i = 0; i < dim; i++) r[i] = (float) rnd.nextGaussian();
+        return m;
+    }
+
+    private static List<String> exactTopK(float[][] mat, float[] q, int k) {
+        Integer[] idx = new Integer[mat.length];
+        for (int i = 0; i < idx.length; i++) idx[i] = i;
+        Arrays.sort(idx, Comparator.comparingDouble(i -> Distance.cosine(q, mat[i])));
+        List<String> out = new ArrayList<>();
+        for (int i = 0; i < k; i++) out.add("doc-" + idx[i]);
+        return out;
+    }
+}
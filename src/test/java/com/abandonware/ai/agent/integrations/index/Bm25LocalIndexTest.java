@@ -0,0 +1,106 @@
+package com.abandonware.ai.agent.integrations.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Inverted-index BM25: MaxScore top-k must match an exhaustive scan, and
+ * incremental add/remove must behave like a fresh load.
+ */
+class Bm25LocalIndexTest {
+
+    private static final String[] VOCAB = {
+            "검색", "랭킹", "벡터", "임베딩", "원신", "캐릭터", "search", "ranking",
+            "vector", "index", "latency", "bm25", "fusion", "rerank", "query", "token"
+    };
+
+    @Test
+    void maxScoreMatchesExhaustiveScoring() {
+        Random rnd = new Random(42);
+        Bm25LocalIndex idx = new Bm25LocalIndex();
+        List<Bm25LocalIndex.Doc> docs = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            StringBuilder sb = new StringBuilder();
+            int len = 3 + rnd.nextInt(40);
+            for (int j = 0; j < len; j++) sb.append(VOCAB[(int) Math.abs(rnd.nextGaussian() * 5) % VOCAB.length]).append(' ');
+            Bm25LocalIndex.Doc d = new Bm25LocalIndex.Doc("d" + i, "", sb.toString(), "u" + i, 0L);
+            docs.add(d);
+            idx.add(d);
+        }
+
+        for (String query : List.of("검색 랭킹", "bm25 fusion rerank", "token token query", "원신 캐릭터 vector latency")) {
+            List<Map.Entry<Bm25LocalIndex.Doc, Double>> hits = idx.search(query, 10);
+            List<double[]> expected = exhaustive(docs, query);
+            assertEquals(Math.min(10, expected.size()), hits.size());
+            for (int i = 0; i < hits.size(); i++) {
+                assertEquals(expected.get(i)[1], hits.get(i).getValue(), 1e-9, query + " @" + i);
+            }
+        }
+    }
+
+    @Test
+    void upsertAndRemoveAreIncremental() {
+        Bm25LocalIndex idx = new Bm25LocalIndex();
+        idx.add(new Bm25LocalIndex.Doc("a", "alpha", "vector index", "", 0L));
+        idx.add(new Bm25LocalIndex.Doc("b", "beta", "bm25 ranking", "", 0L));
+        assertEquals("b", idx.search("ranking", 5).get(0).getKey().id);
+
+        idx.add(new Bm25LocalIndex.Doc("b", "beta", "vector only", "", 0L));
+        assertTrue(idx.search("ranking", 5).isEmpty());
+        assertEquals(2, idx.search("vector", 5).size());
+
+        assertTrue(idx.remove("a"));
+        assertFalse(idx.remove("a"));
+        assertEquals(1, idx.size());
+        assertEquals("b", idx.search("vector", 5).get(0).getKey().id);
+    }
+
+    @Test
+    void loadsTsvAndFailsSoftOnMissingPath() throws Exception {
+        Path tsv = Files.createTempFile("bm25", ".tsv");
+        Files.write(tsv, List.of("1\t제목\t한국어 검색 엔진\thttp://x\t123", "broken line", "2\ttitle\tenglish search\thttp://y\tNaN"),
+                StandardCharsets.UTF_8);
+        Bm25LocalIndex idx = new Bm25LocalIndex();
+        idx.loadFromTsv(tsv);
+        idx.loadFromTsv(Path.of("does-not-exist.tsv"));
+        assertEquals(2, idx.size());
+        assertEquals("1", idx.search("검색 엔진", 1).get(0).getKey().id);
+        Files.deleteIfExists(tsv);
+    }
+
+    private static List<double[]> exhaustive(List<Bm25LocalIndex.Doc> docs, String query) {
+        int n = docs.size();
+        List<List<String>> toks = new ArrayList<>();
+        Map<String, Integer> df = new HashMap<>();
+        double total = 0;
+        for (Bm25LocalIndex.Doc d : docs) {
+            List<String> t = Bm25LocalIndex.tokenize(d.title + " " + d.text);
+            toks.add(t);
+            total += t.size();
+            for (String u : new HashSet<>(t)) df.merge(u, 1, Integer::sum);
+        }
+        double avgdl = total / n;
+        List<double[]> out = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            double s = 0;
+            boolean hit = false;
+            for (String q : Bm25LocalIndex.tokenize(query)) {
+                int f = Collections.frequency(toks.get(i), q);
+                if (f == 0) continue;
+                hit = true;
+                int nq = df.get(q);
+                double idf = Math.log(1.0 + (n - nq + 0.5) / (nq + 0.5));
+                s += idf * (f * 2.2) / (f + 1.2 * (1 - 0.75 + 0.75 * toks.get(i).size() / avgdl));
+            }
+            if (hit) out.add(new double[]{i, s});
+        }
+        out.sort((a, b) -> Double.compare(b[1], a[1]));
+        return out;
+    }
+}
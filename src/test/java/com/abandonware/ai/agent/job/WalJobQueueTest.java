@@ -0,0 +1,178 @@
+package com.abandonware.ai.agent.job;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Redelivery, late-ack handling, concurrency limits, TTL eviction and enqueue→dequeue latency of
+ * {@link WalJobQueue} (latency compared with {@link InMemoryJobQueue}).
+ */
+class WalJobQueueTest {
+
+    @TempDir
+    Path dir;
+
+    private WalJobQueue open(long visibilityMs, long ttlMs, int flowConcurrency) {
+        return new WalJobQueue(dir.resolve("jobs.wal"), visibilityMs, ttlMs, flowConcurrency, false, 3_600_000L);
+    }
+
+    private static JobRequest req(String flow, int n) {
+        return new JobRequest(flow, Map.of("n", n), "r" + n, "s");
+    }
+
+    @Test
+    void unackedJobsAreRedeliveredAfterRestart() {
+        WalJobQueue q = open(60_000, 60_000, 0);
+        String done = q.enqueue(req("f", 1));
+        String crashed = q.enqueue(req("f", 2));
+        String pending = q.enqueue(req("f", 3));
+        assertEquals(done, q.dequeue("f", 0).orElseThrow().id().value());
+        q.ackSuccess(done, new JobResult(Map.of("ok", true)));
+        assertEquals(crashed, q.dequeue("f", 0).orElseThrow().id().value());
+        q.close();
+
+        WalJobQueue reopened = open(60_000, 60_000, 0);
+        try {
+            JobRecord first = reopened.dequeue("f", 0).orElseThrow();
+            assertEquals(crashed, first.id().value());
+            assertEquals(2, first.request().payload().get("n"));
+            assertEquals(pending, reopened.dequeue("f", 0).orElseThrow().id().value());
+            assertTrue(reopened.dequeue("f", 0).isEmpty());
+            JobRecord finished = reopened.find(done).orElseThrow();
+            assertEquals(JobState.SUCCEEDED, finished.state());
+            assertEquals(true, finished.result().orElseThrow().data().get("ok"));
+        } finally {
+            reopened.close();
+        }
+    }
+
+    @Test
+    void visibilityTimeoutRedeliversAndTtlEvicts() throws Exception {
+        WalJobQueue q = open(20, 0, 0);
+        try {
+            String id = q.enqueue(req("f", 1));
+            assertTrue(q.dequeue("f", 0).isPresent());
+            Thread.sleep(30);
+            q.reap();
+            JobRecord again = q.dequeue("f", 0).orElseThrow();
+            assertEquals(id, again.id().value());
+
+            q.ackFailure(id, "boom", true);
+            assertEquals(JobState.DLQ, q.find(id).orElseThrow().state());
+            q.reap();
+            assertTrue(q.find(id).isEmpty());
+        } finally {
+            q.close();
+        }
+    }
+
+    @Test
+    void lateAckAfterRequeueIsIgnored() throws Exception {
+        WalJobQueue q = open(20, 60_000, 0);
+        try {
+            String id = q.enqueue(req("f", 1));
+            assertTrue(q.dequeue("f", 0).isPresent());
+            Thread.sleep(30);
+            q.reap();
+
+            q.ackSuccess(id, new JobResult(Map.of("late", true)));
+            assertEquals(JobState.PENDING, q.find(id).orElseThrow().state());
+
+            JobRecord again = q.dequeue("f", 0).orElseThrow();
+            assertEquals(id, again.id().value());
+            q.ackSuccess(id, new JobResult(Map.of("ok", true)));
+            q.ackSuccess(id, new JobResult(Map.of("dup", true)));
+            assertEquals(JobState.SUCCEEDED, q.find(id).orElseThrow().state());
+            assertEquals(true, q.find(id).orElseThrow().result().orElseThrow().data().get("ok"));
+            assertTrue(q.dequeue("f", 0).isEmpty());
+            java.util.Collection<?> completed =
+                    (java.util.Collection<?>) org.springframework.test.util.ReflectionTestUtils.getField(q, "completed");
+            assertEquals(1, completed.size());
+        } finally {
+            q.close();
+        }
+    }
+
+    @Test
+    void flowConcurrencyLimitBlocksUntilAck() throws Exception {
+        WalJobQueue q = open(60_000, 60_000, 1);
+        try {
+            String a = q.enqueue(req("f", 1));
+            q.enqueue(req("f", 2));
+            q.enqueue(req("other", 3));
+            assertEquals(a, q.dequeue("f", 0).orElseThrow().id().value());
+            assertTrue(q.dequeue("f", 50).isEmpty(), "second job must wait for the free slot");
+            assertTrue(q.dequeue("other", 0).isPresent(), "limit is per flow");
+
+            Thread acker = new Thread(() -> {
+                try {
+                    Thread.sleep(50);
+                } catch (InterruptedException ignored) {
+                }
+                q.ackSuccess(a, null);
+            });
+            acker.start();
+            assertTrue(q.dequeue("f", 5_000).isPresent());
+            acker.join();
+        } finally {
+            q.close();
+        }
+    }
+
+    @Test
+    void blockingDequeueBeatsPollingLatency() throws Exception {
+        int n = 100;
+        long walP99;
+        WalJobQueue wal = open(60_000, 60_000, 0);
+        try {
+            walP99 = p99Micros(wal, n);
+        } finally {
+            wal.close();
+        }
+        long memP99 = p99Micros(new InMemoryJobQueue(), n);
+
+        assertTrue(walP99 < 20_000, "wal p99=" + walP99 + "us");
+        assertTrue(walP99 < memP99, "wal p99=" + walP99 + "us, in-memory p99=" + memP99 + "us");
+    }
+
+    /** One consumer blocked in dequeue; the producer enqueues one job at a time. */
+    private static long p99Micros(JobQueue q, int n) throws Exception {
+        SynchronousQueue<Long> seen = new SynchronousQueue<>();
+        Thread consumer = new Thread(() -> {
+            for (int i = 0; i < n; i++) {
+                Optional<JobRecord> r;
+                do {
+                    r = q.dequeue("lat", 1_000);
+                } while (r.isEmpty());
+                try {
+                    seen.put(System.nanoTime());
+                } catch (InterruptedException e) {
+                    return;
+                }
+                q.ackSuccess(r.get().id().value(), null);
+            }
+        });
+        consumer.start();
+        long[] lat = new long[n];
+        for (int i = 0; i < n; i++) {
+            Thread.sleep(1);
+            long t0 = System.nanoTime();
+            q.enqueue(req("lat", i));
+            Long t1 = seen.poll(5, TimeUnit.SECONDS);
+            assertNotNull(t1);
+            lat[i] = (t1 - t0) / 1_000L;
+        }
+        consumer.join();
+        Arrays.sort(lat);
+        return lat[(int) Math.ceil(n * 0.99) - 1];
+    }
+}
@@ -0,0 +1,79 @@
+package com.abandonware.ai.agent.service.rag.bm25;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * NRT holder: upserts become visible after a refresh without a commit, a searcher acquired
+ * before a refresh stays usable, and commit user data survives a reopen.
+ */
+class Bm25IndexHolderTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void upsertsVisibleAfterRefreshAndOldSearcherStaysOpen() throws Exception {
+        Bm25IndexHolder holder = new Bm25IndexHolder(dir, 60_000);
+        try {
+            IndexSearcher before = holder.acquire();
+            holder.writer().updateDocument(new Term("id", "a"), doc("a", "hello lucene"));
+            holder.refreshBlocking();
+
+            IndexSearcher after = holder.acquire();
+            try {
+                assertEquals(1, after.count(new TermQuery(new Term("content", "lucene"))));
+                // pre-refresh searcher is still open (ref-counted) and sees its own snapshot
+                assertEquals(0, before.count(new TermQuery(new Term("content", "lucene"))));
+            } finally {
+                holder.release(after);
+                holder.release(before);
+            }
+
+            holder.writer().updateDocument(new Term("id", "a"), doc("a", "replaced text"));
+            holder.refreshBlocking();
+            IndexSearcher s = holder.acquire();
+            try {
+                assertEquals(1, s.getIndexReader().numDocs());
+                assertEquals(0, s.count(new TermQuery(new Term("content", "lucene"))));
+            } finally {
+                holder.release(s);
+            }
+            holder.commit(Map.of("tm.watermark", "2024-01-01T00:00"));
+        } finally {
+            holder.close();
+        }
+
+        Bm25IndexHolder reopened = new Bm25IndexHolder(dir, 60_000);
+        try {
+            assertEquals("2024-01-01T00:00", reopened.lastCommitData().get("tm.watermark"));
+            IndexSearcher s = reopened.acquire();
+            try {
+                assertEquals(1, s.count(new TermQuery(new Term("content", "replaced"))));
+            } finally {
+                reopened.release(s);
+            }
+        } finally {
+            reopened.close();
+        }
+    }
+
+    private static Document doc(String id, String body) {
+        Document d = new Document();
+        d.add(new StringField("id", id, Field.Store.YES));
+        d.add(new TextField("content", body, Field.Store.YES));
+        return d;
+    }
+}
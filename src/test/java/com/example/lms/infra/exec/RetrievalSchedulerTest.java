@@ -0,0 +1,91 @@
+package com.example.lms.infra.exec;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Shared fan-out: results keep input order, the per-request cap holds, and stragglers
+ * are dropped once the deadline or the quorum is reached.
+ */
+class RetrievalSchedulerTest {
+
+    private final RetrievalScheduler scheduler = new RetrievalScheduler(8, 64, null);
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void keepsOrderAndRespectsPerRequestCap() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<Supplier<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            int v = i;
+            tasks.add(() -> {
+                peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(5);
+                running.decrementAndGet();
+                return v;
+            });
+        }
+        List<Integer> out = scheduler.fanOut(tasks, 3, 0, 0, x -> true, -1);
+        for (int i = 0; i < 12; i++) assertEquals(i, out.get(i));
+        assertTrue(peak.get() <= 3, "peak=" + peak.get());
+    }
+
+    @Test
+    void deadlineDropsStragglers() {
+        CountDownLatch never = new CountDownLatch(1);
+        List<Supplier<String>> tasks = List.of(
+                () -> "fast",
+                () -> {
+                    try {
+                        never.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException ie) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "slow";
+                });
+        long t0 = System.nanoTime();
+        List<String> out = scheduler.fanOut(tasks, 2, 100, 0, x -> true, "none");
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0) < 2000);
+        assertEquals(List.of("fast", "none"), out);
+    }
+
+    @Test
+    void quorumCancelsRemainingWork() {
+        AtomicInteger started = new AtomicInteger();
+        List<Supplier<String>> tasks = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            int v = i;
+            tasks.add(() -> {
+                started.incrementAndGet();
+                if (v > 0) sleep(2000);
+                return "r" + v;
+            });
+        }
+        List<String> out = scheduler.fanOut(tasks, 2, 0, 1, s -> s != null, null);
+        assertEquals("r0", out.get(0));
+        for (int i = 1; i < 6; i++) assertNull(out.get(i));
+        assertTrue(started.get() < 6);
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
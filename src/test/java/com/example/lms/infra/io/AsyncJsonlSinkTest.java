@@ -0,0 +1,86 @@
+package com.example.lms.infra.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ordering, concurrent producers, rotation and drop accounting of {@link AsyncJsonlSink}.
+ */
+class AsyncJsonlSinkTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void concurrentProducersLoseNothingAndCloseDrains() throws Exception {
+        Path file = dir.resolve("a/events.jsonl");
+        AsyncJsonlSink sink = new AsyncJsonlSink("t", file, AsyncJsonlSink.Config.defaults()
+                .withCapacity(100_000).withRotation(0L, 0));
+        int threads = 4;
+        int perThread = 5_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            pool.execute(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    sink.offer("{\"t\":" + id + ",\"i\":" + i + "}");
+                }
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        pool.shutdown();
+        sink.close();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(threads * perThread, lines.size());
+        assertEquals(threads * perThread, sink.stats().written());
+        assertEquals(0, sink.stats().dropped());
+        assertFalse(sink.offer("{}"), "closed sink must reject");
+    }
+
+    @Test
+    void flushMakesLinesVisibleWithoutClose() throws Exception {
+        Path file = dir.resolve("f.jsonl");
+        AsyncJsonlSink sink = new AsyncJsonlSink("t", file, AsyncJsonlSink.Config.defaults()
+                .withFlushIntervalMs(60_000L));
+        try {
+            sink.offer("{\"n\":1}");
+            sink.offer("{\"n\":2}");
+            assertTrue(sink.flush(5_000));
+            assertEquals(List.of("{\"n\":1}", "{\"n\":2}"), Files.readAllLines(file));
+        } finally {
+            sink.close();
+        }
+    }
+
+    @Test
+    void rotatesBySizeAndKeepsBackups() throws Exception {
+        Path file = dir.resolve("r.jsonl");
+        AsyncJsonlSink sink = new AsyncJsonlSink("t", file, AsyncJsonlSink.Config.defaults()
+                .withRotation(100L, 2));
+        String line = "x".repeat(39); // 40 bytes with newline
+        for (int i = 0; i < 10; i++) {
+            sink.offer(line);
+        }
+        sink.close();
+
+        assertTrue(Files.exists(file));
+        assertTrue(Files.exists(dir.resolve("r.jsonl.1")));
+        assertTrue(Files.exists(dir.resolve("r.jsonl.2")));
+        assertFalse(Files.exists(dir.resolve("r.jsonl.3")));
+        assertTrue(Files.size(file) <= 100L);
+        assertEquals(4, sink.stats().rotations());
+    }
+}
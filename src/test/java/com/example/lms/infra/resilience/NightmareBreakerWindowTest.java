@@ -0,0 +1,102 @@
+package com.example.lms.infra.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Sliding-window statistics and the failure-rate / slow-call-rate trip rules. */
+class NightmareBreakerWindowTest {
+
+    private static NightmareBreakerProperties props() {
+        NightmareBreakerProperties p = new NightmareBreakerProperties();
+        // Keep the consecutive rules out of the way so only the rate rules can trip.
+        p.setFailureThreshold(100);
+        p.setSlowCallThreshold(100);
+        p.setSlowCallThresholdMs(100);
+        p.setSlidingWindow(Duration.ofMinutes(5));
+        p.setMinimumCalls(10);
+        return p;
+    }
+
+    @Test
+    void windowDropsExpiredBucketsAndReportsP95() {
+        BreakerWindow w = new BreakerWindow(1_000L, 10);
+        for (int i = 0; i < 19; i++) {
+            w.record(10_000L, false, false, 8L);
+        }
+        w.record(10_000L, true, true, 4_000L);
+
+        BreakerWindow.Stats s = w.snapshot(10_050L);
+        assertEquals(20, s.calls());
+        assertEquals(1, s.failures());
+        assertEquals(0.05, s.failureRate(), 1e-9);
+        assertEquals(10L, s.p95LatencyMs());
+
+        w.record(10_500L, true, false, 3_000L);
+        assertEquals(21, w.snapshot(10_500L).calls());
+        // One full window later only the newer bucket is left.
+        BreakerWindow.Stats later = w.snapshot(11_050L);
+        assertEquals(1, later.calls());
+        assertEquals(5_000L, later.p95LatencyMs());
+        assertEquals(0, w.snapshot(20_000L).calls());
+    }
+
+    @Test
+    void failureRateTripsOnlyAfterMinimumCalls() {
+        NightmareBreakerProperties p = props();
+        p.setFailureRateThreshold(0.5);
+        NightmareBreaker b = new NightmareBreaker(p);
+        String key = "websearch:naver";
+
+        for (int i = 0; i < 4; i++) {
+            b.recordFailure(key, NightmareBreaker.FailureKind.HTTP_5XX, null, "ctx");
+            assertFalse(b.isOpen(key), "below minimum calls");
+        }
+        for (int i = 0; i < 6; i++) {
+            b.recordSuccess(key, 5L);
+        }
+        assertEquals(0.4, b.inspect(key).windowFailureRate, 1e-9);
+
+        b.recordFailure(key, NightmareBreaker.FailureKind.HTTP_5XX, null, "ctx");
+        assertFalse(b.isOpen(key), "5/11 < 0.5");
+        b.recordFailure(key, NightmareBreaker.FailureKind.HTTP_5XX, null, "ctx");
+        assertTrue(b.isOpen(key), "6/12 >= 0.5");
+        // The trip starts a fresh window.
+        assertEquals(0, b.inspect(key).windowCalls);
+    }
+
+    @Test
+    void slowCallRateTripsWithoutConsecutiveSlowCalls() {
+        NightmareBreakerProperties p = props();
+        p.setSlowCallRateThreshold(0.5);
+        NightmareBreaker b = new NightmareBreaker(p);
+        String key = "chat:ollama";
+
+        for (int i = 0; i < 9; i++) {
+            b.recordSuccess(key, (i % 2 == 0) ? 5L : 400L);
+            assertFalse(b.isOpen(key));
+        }
+        NightmareBreaker.StateView v = b.inspect(key);
+        assertEquals(9, v.windowCalls);
+        assertEquals(500L, v.windowP95LatencyMs);
+        assertTrue(v.consecutiveSlowCalls <= 1);
+
+        b.recordSuccess(key, 400L);
+        assertTrue(b.isOpen(key), "5/10 slow >= 0.5");
+    }
+
+    @Test
+    void rateRulesAreOffByDefault() {
+        NightmareBreakerProperties p = props();
+        NightmareBreaker b = new NightmareBreaker(p);
+        String key = "websearch:brave";
+        for (int i = 0; i < 50; i++) {
+            b.recordSuccess(key, 400L);
+            b.recordFailure(key, NightmareBreaker.FailureKind.HTTP_5XX, null, "ctx");
+        }
+        assertFalse(b.isOpen(key));
+        assertEquals(100, b.inspect(key).windowCalls);
+    }
+}
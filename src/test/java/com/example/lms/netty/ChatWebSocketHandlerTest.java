@@ -0,0 +1,255 @@
+package com.example.lms.netty;
+
+import com.example.lms.dto.ChatRequestDto;
+import com.example.lms.service.ChatResult;
+import com.example.lms.service.ChatService;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.WebSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/** Event-loop offloading, per-connection limits and cancellation of the /ws chat handler. */
+class ChatWebSocketHandlerTest {
+
+    private static final long LLM_LATENCY_MS = 1000;
+
+    private final ChatService chatService = mock(ChatService.class);
+    private final HttpClient http = HttpClient.newHttpClient();
+    private final List<WebSocket> sockets = new ArrayList<>();
+    private ChatWebSocketHandler handler;
+    private EventLoopGroup boss;
+    private EventLoopGroup worker;
+    private URI uri;
+
+    /** Starts the real pipeline on a single worker event loop, so any blocking would show up as lag. */
+    private void startServer(int executorThreads) throws InterruptedException {
+        handler = new ChatWebSocketHandler(chatService);
+        ReflectionTestUtils.setField(handler, "executorThreads", executorThreads);
+        handler.init();
+        boss = new NioEventLoopGroup(1);
+        worker = new NioEventLoopGroup(1);
+        Channel server = new ServerBootstrap()
+                .group(boss, worker)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChatChannelInitializer(handler))
+                .bind("127.0.0.1", 0).sync().channel();
+        uri = URI.create("ws://127.0.0.1:" + ((InetSocketAddress) server.localAddress()).getPort() + "/ws");
+    }
+
+    @AfterEach
+    void tearDown() {
+        sockets.forEach(WebSocket::abort);
+        if (handler != null) handler.shutdown();
+        if (boss != null) boss.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+        if (worker != null) worker.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+    }
+
+    private BlockingQueue<String> connect(List<WebSocket> into) {
+        BlockingQueue<String> inbox = new LinkedBlockingQueue<>();
+        WebSocket ws = http.newWebSocketBuilder().buildAsync(uri, new WebSocket.Listener() {
+            private final StringBuilder buf = new StringBuilder();
+
+            @Override
+            public CompletionStage<?> onText(WebSocket w, CharSequence data, boolean last) {
+                buf.append(data);
+                if (last) {
+                    inbox.add(buf.toString());
+                    buf.setLength(0);
+                }
+                w.request(1);
+                return null;
+            }
+        }).join();
+        into.add(ws);
+        return inbox;
+    }
+
+    private static String await(BlockingQueue<String> inbox, String type) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            String m = inbox.poll(100, TimeUnit.MILLISECONDS);
+            if (m != null && m.contains("\"type\":\"" + type + "\"")) {
+                return m;
+            }
+        }
+        return fail("no '" + type + "' event");
+    }
+
+    @Test
+    void slowLlmDoesNotStallEventLoopAcross200Sockets() throws Exception {
+        when(chatService.ask(anyString())).thenAnswer(inv -> {
+            Thread.sleep(LLM_LATENCY_MS); // stub LLM
+            return ChatResult.of("answer to " + inv.getArgument(0) + " ".repeat(150), "stub", false);
+        });
+        startServer(64);
+
+        // Probe: a task re-scheduled on the event loop every 5 ms records how late it runs.
+        AtomicLong maxLagMs = new AtomicLong();
+        EventLoop loop = worker.next();
+        ScheduledFuture<?> probe = loop.scheduleAtFixedRate(new Runnable() {
+            long expected = System.nanoTime();
+
+            @Override
+            public void run() {
+                long now = System.nanoTime();
+                maxLagMs.accumulateAndGet(TimeUnit.NANOSECONDS.toMillis(now - expected), Math::max);
+                expected = now + TimeUnit.MILLISECONDS.toNanos(5);
+            }
+        }, 5, 5, TimeUnit.MILLISECONDS);
+
+        int n = 200;
+        List<BlockingQueue<String>> inboxes = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            inboxes.add(connect(sockets));
+        }
+        // Warm-up request so one-time class loading (Jackson, codec paths) is not counted as lag.
+        sockets.get(0).sendText("warm-up", true).join();
+        await(inboxes.get(0), "final");
+        maxLagMs.set(0);
+        for (int i = 0; i < n; i++) {
+            sockets.get(i).sendText("{\"type\":\"ask\",\"message\":\"q" + i + "\",\"id\":\"c" + i + "\"}", true).join();
+        }
+        for (int i = 0; i < n; i++) {
+            String fin = await(inboxes.get(i), "final");
+            assertTrue(fin.contains("\"id\":\"c" + i + "\""), fin);
+        }
+        probe.cancel(false);
+
+        verify(chatService, times(n + 1)).ask(anyString());
+        // Had any LLM call run on the loop, the probe would have waited at least LLM_LATENCY_MS.
+        assertTrue(maxLagMs.get() < LLM_LATENCY_MS, "event loop lag " + maxLagMs.get() + " ms");
+    }
+
+    @Test
+    void secondRequestOnSameConnectionIsRejectedWhileFirstRuns() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(chatService.ask(anyString())).thenAnswer(inv -> {
+            release.await(10, TimeUnit.SECONDS);
+            return ChatResult.of("done", "stub", false);
+        });
+        startServer(4);
+        BlockingQueue<String> inbox = connect(sockets);
+
+        sockets.get(0).sendText("first", true).join();
+        sockets.get(0).sendText("second", true).join();
+        assertTrue(await(inbox, "error").contains("in-flight"));
+
+        release.countDown();
+        assertTrue(await(inbox, "token").contains("done"));
+        await(inbox, "final");
+        verify(chatService, times(1)).ask(anyString());
+    }
+
+    @Test
+    void cancelFrameStopsDeliveryAndCancelsSession() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(chatService.continueChat(any(ChatRequestDto.class))).thenAnswer(inv -> {
+            entered.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return ChatResult.of("late answer", "stub", false);
+        });
+        startServer(4);
+        BlockingQueue<String> inbox = connect(sockets);
+
+        sockets.get(0).sendText("{\"message\":\"hi\",\"sessionId\":7,\"id\":\"a\"}", true).join();
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        sockets.get(0).sendText("{\"type\":\"cancel\",\"id\":\"a\"}", true).join();
+
+        assertTrue(await(inbox, "status").contains("\"id\":\"a\""));
+        String cancelled = await(inbox, "status");
+        assertTrue(cancelled.contains("cancelled"), cancelled);
+        verify(chatService, timeout(2000)).cancelSession(7L);
+
+        release.countDown();
+        String late = inbox.poll(500, TimeUnit.MILLISECONDS);
+        assertNull(late, "no frames after cancel");
+    }
+
+    @Test
+    void cancelledSessionRunFreesSlotForNextRequest() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(chatService.continueChat(any(ChatRequestDto.class))).thenAnswer(inv -> {
+            ChatRequestDto req = inv.getArgument(0);
+            if ("slow".equals(req.getMessage())) {
+                release.await(10, TimeUnit.SECONDS);
+                return ChatResult.of("stale answer", "stub", false);
+            }
+            return ChatResult.of("fresh answer", "stub", false);
+        });
+        startServer(4);
+        BlockingQueue<String> inbox = connect(sockets);
+
+        sockets.get(0).sendText("{\"message\":\"slow\",\"sessionId\":7,\"id\":\"a\"}", true).join();
+        verify(chatService, timeout(5000)).continueChat(any(ChatRequestDto.class));
+        sockets.get(0).sendText("{\"type\":\"cancel\",\"id\":\"a\"}", true).join();
+        String ack = await(inbox, "status");
+        while (!ack.contains("cancelled")) {
+            ack = await(inbox, "status");
+        }
+        assertTrue(ack.contains("\"backend\":\"session-cancelled\""), ack);
+
+        // The stuck backend call still holds its worker, but not the connection's only slot.
+        sockets.get(0).sendText("{\"message\":\"next\",\"sessionId\":7,\"id\":\"b\"}", true).join();
+        String token = await(inbox, "token");
+        assertTrue(token.contains("fresh answer") && token.contains("\"id\":\"b\""), token);
+        await(inbox, "final");
+
+        release.countDown();
+        String late = inbox.poll(500, TimeUnit.MILLISECONDS);
+        assertNull(late, "stale completion must not be delivered");
+    }
+
+    @Test
+    void cancelInterruptsSessionlessAsk() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(chatService.ask(anyString())).thenAnswer(inv -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return ChatResult.of("late", "stub", false);
+        });
+        startServer(4);
+        BlockingQueue<String> inbox = connect(sockets);
+
+        sockets.get(0).sendText("{\"message\":\"hi\",\"id\":\"a\"}", true).join();
+        verify(chatService, timeout(5000)).ask(anyString());
+        sockets.get(0).sendText("{\"type\":\"cancel\",\"id\":\"a\"}", true).join();
+
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "worker running ask() was not interrupted");
+        String ack = await(inbox, "status");
+        while (!ack.contains("cancelled")) {
+            ack = await(inbox, "status");
+        }
+        assertTrue(ack.contains("\"backend\":\"interrupted\""), ack);
+        verify(chatService, never()).cancelSession(any());
+        assertNull(inbox.poll(500, TimeUnit.MILLISECONDS), "no error frame for the interrupted call");
+    }
+}
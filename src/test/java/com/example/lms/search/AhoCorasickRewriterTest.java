@@ -0,0 +1,101 @@
+package com.example.lms.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Leftmost-longest semantics and large-dictionary behaviour of {@link AhoCorasickRewriter}. */
+class AhoCorasickRewriterTest {
+
+    @Test
+    void prefersLeftmostThenLongest() {
+        Map<String, String> dict = new LinkedHashMap<>();
+        dict.put("bc", "X");
+        dict.put("abcd", "Y");
+        dict.put("cde", "Z");
+        dict.put("ab", "W");
+        AhoCorasickRewriter r = AhoCorasickRewriter.compile(dict);
+
+        assertEquals("Ye", r.rewrite("abcde"));
+        assertEquals("Wc", r.rewrite("abc"));
+        assertEquals("xXx", r.rewrite("xbcx"));
+        assertEquals("Z", r.rewrite("cde"));
+    }
+
+    @Test
+    void doesNotRescanReplacementsAndKeepsUnmatchedTextIdentity() {
+        AhoCorasickRewriter r = AhoCorasickRewriter.compile(Map.of("a", "b", "b", "c"));
+        assertEquals("bc", r.rewrite("ab"));
+
+        String untouched = "nothing to see";
+        assertSame(untouched, r.rewrite(untouched));
+        assertSame(untouched, AhoCorasickRewriter.EMPTY.rewrite(untouched));
+    }
+
+    @Test
+    void koreanTypoMapMatchesLongestKeyFirstReplace() {
+        Map<String, String> dict = Map.of(
+                "에대해", "에 대해",
+                "알와봐", "알아봐",
+                "원신에대해", "원신에 대해");
+        AhoCorasickRewriter r = AhoCorasickRewriter.compile(dict);
+        assertEquals("원신에 대해 알아봐", r.rewrite("원신에대해 알와봐"));
+        assertEquals("게임에 대해", r.rewrite("게임에대해"));
+    }
+
+    @Test
+    void tenThousandEntriesAgreeWithNaiveScan() {
+        Random rnd = new Random(42);
+        Map<String, String> dict = new HashMap<>();
+        while (dict.size() < 10_000) {
+            dict.put(word(rnd, 3 + rnd.nextInt(6)), "<" + dict.size() + ">");
+        }
+        AhoCorasickRewriter r = AhoCorasickRewriter.compile(dict);
+        assertEquals(10_000, r.size());
+
+        String[] keys = dict.keySet().toArray(new String[0]);
+        for (int q = 0; q < 200; q++) {
+            StringBuilder sb = new StringBuilder();
+            for (int k = 0; k < 6; k++) {
+                sb.append(rnd.nextBoolean() ? keys[rnd.nextInt(keys.length)] : word(rnd, 4)).append(' ');
+            }
+            String text = sb.toString();
+            assertEquals(naive(dict, text), r.rewrite(text), text);
+        }
+    }
+
+    /** Reference: at each position take the longest key, then skip past it. */
+    private static String naive(Map<String, String> dict, String text) {
+        int max = dict.keySet().stream().mapToInt(String::length).max().orElse(0);
+        StringBuilder out = new StringBuilder();
+        int i = 0;
+        while (i < text.length()) {
+            String hit = null;
+            for (int l = Math.min(max, text.length() - i); l > 0 && hit == null; l--) {
+                if (dict.containsKey(text.substring(i, i + l))) {
+                    hit = text.substring(i, i + l);
+                }
+            }
+            if (hit == null) {
+                out.append(text.charAt(i++));
+            } else {
+                out.append(dict.get(hit));
+                i += hit.length();
+            }
+        }
+        return out.toString();
+    }
+
+    private static String word(Random rnd, int len) {
+        char[] c = new char[len];
+        for (int i = 0; i < len; i++) {
+            c[i] = (char) ('a' + rnd.nextInt(6));
+        }
+        return new String(c);
+    }
+}
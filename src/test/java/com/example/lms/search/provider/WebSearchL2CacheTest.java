@@ -0,0 +1,107 @@
+package com.example.lms.search.provider;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** TTL/stale/SWR semantics, restart survival and bounds of {@link WebSearchL2Cache}. */
+class WebSearchL2CacheTest {
+
+    private static WebSearchL2Cache open(Path dir, long freshMs, long staleMs, int maxEntries) {
+        return new WebSearchL2Cache(true, dir, freshMs, staleMs, maxEntries, 64L * 1024 * 1024, 100, 100);
+    }
+
+    @Test
+    void survivesRestartAndToleratesTornTail(@TempDir Path dir) throws Exception {
+        WebSearchL2Cache c = open(dir, 60_000, 60_000, 1000);
+        c.put("naver", "  Spring  Boot ", "strict", List.of("a", "b"));
+        c.put("brave", "spring boot", "k=5", List.of("x"));
+        c.close();
+        Files.writeString(dir.resolve("l2.jsonl"), "{\"k\":\"torn", StandardOpenOption.APPEND);
+
+        WebSearchL2Cache reopened = open(dir, 60_000, 60_000, 1000);
+        WebSearchL2Cache.Hit hit = reopened.get("naver", "spring boot", "strict");
+        assertNotNull(hit);
+        assertTrue(hit.fresh());
+        assertEquals(List.of("a", "b"), hit.snippets());
+        assertEquals(List.of("x"), reopened.get("brave", "SPRING BOOT", "k=5").snippets());
+        assertNull(reopened.get("naver", "spring boot", "free"));
+        reopened.put("naver", "after", "strict", List.of("z"));
+        reopened.close();
+
+        WebSearchL2Cache third = open(dir, 60_000, 60_000, 1000);
+        assertEquals(List.of("z"), third.get("naver", "after", "strict").snippets());
+        third.close();
+    }
+
+    @Test
+    void servesStaleThenExpiresAndRevalidatesOnce(@TempDir Path dir) throws Exception {
+        WebSearchL2Cache c = open(dir, 0, 200, 1000);
+        c.put("naver", "q", "p", List.of("old"));
+        Thread.sleep(20);
+        WebSearchL2Cache.Hit stale = c.get("naver", "q", "p");
+        assertNotNull(stale);
+        assertFalse(stale.fresh());
+        assertTrue(c.beginRevalidate("naver", "q", "p"));
+        assertFalse(c.beginRevalidate("naver", "q", "p"));
+        c.put("naver", "q", "p", List.of("new"));
+        assertTrue(c.beginRevalidate("naver", "q", "p"));
+
+        Thread.sleep(300);
+        assertNull(c.get("naver", "q", "p"));
+        c.close();
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedAndSkipsEmptyResults(@TempDir Path dir) {
+        WebSearchL2Cache c = open(dir, 60_000, 0, 10);
+        c.put("naver", "empty", "p", List.of());
+        assertNull(c.get("naver", "empty", "p"));
+        for (int i = 0; i < 30; i++) {
+            c.put("naver", "q" + i, "p", List.of("s" + i));
+        }
+        c.maintain(); // eviction runs off the put path; drive it deterministically
+        assertTrue(c.stats().entries() <= 10);
+        assertNotNull(c.get("naver", "q29", "p"));
+        assertNull(c.get("naver", "q0", "p"));
+        assertTrue(c.stats().evictions() >= 20);
+        c.close();
+    }
+
+    @Test
+    void onlyTheShortSwrWindowIsRevalidatable(@TempDir Path dir) throws Exception {
+        WebSearchL2Cache c = new WebSearchL2Cache(true, dir, 0, 100, 60_000, 1000, 64L * 1024 * 1024, 100, 100);
+        c.put("naver", "q", "p", List.of("old"));
+        Thread.sleep(20);
+        WebSearchL2Cache.Hit swr = c.get("naver", "q", "p");
+        assertFalse(swr.fresh());
+        assertTrue(swr.revalidatable());
+
+        Thread.sleep(200);
+        WebSearchL2Cache.Hit stale = c.get("naver", "q", "p");
+        assertNotNull(stale, "still available as a fail-soft fallback");
+        assertFalse(stale.revalidatable());
+        c.close();
+    }
+
+    @Test
+    void boundsAreEnforcedInTheBackground(@TempDir Path dir) throws Exception {
+        WebSearchL2Cache c = open(dir, 60_000, 0, 10);
+        for (int i = 0; i < 30; i++) {
+            c.put("naver", "q" + i, "p", List.of("s" + i));
+        }
+        long deadline = System.nanoTime() + 5_000_000_000L;
+        while (c.stats().entries() > 10 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(c.stats().entries() <= 10, "background maintenance should trim the index");
+        assertNotNull(c.get("naver", "q29", "p"));
+        c.close();
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.lms.service.embedding;
+
+import com.example.lms.util.RelevanceScorer;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Batch embedding: cache misses go to the delegate in one call (deduplicated),
+ * repeats are served from the cache, and batch scoring matches the pairwise scorer.
+ */
+class DecoratingEmbeddingModelTest {
+
+    /** Deterministic 3-d embedder that counts round-trips. */
+    static final class CountingModel implements EmbeddingModel {
+        int singleCalls;
+        int batchCalls;
+        final List<Integer> batchSizes = new ArrayList<>();
+
+        @Override
+        public Response<Embedding> embed(String text) {
+            singleCalls++;
+            return Response.from(vec(text));
+        }
+
+        @Override
+        public Response<List<Embedding>> embedAll(List<TextSegment> segments) {
+            batchCalls++;
+            batchSizes.add(segments.size());
+            List<Embedding> out = new ArrayList<>();
+            for (TextSegment s : segments) out.add(vec(s.text()));
+            return Response.from(out);
+        }
+
+        static Embedding vec(String t) {
+            int h = t.hashCode();
+            return Embedding.from(new float[]{(h & 0xff) + 1, ((h >> 8) & 0xff) + 1, t.length()});
+        }
+    }
+
+    @Test
+    void missesAreEmbeddedInOneDeduplicatedCall() {
+        CountingModel delegate = new CountingModel();
+        DecoratingEmbeddingModel model = new DecoratingEmbeddingModel(delegate, new EmbeddingCache.InMemory(), Duration.ofMinutes(5));
+
+        List<TextSegment> segs = List.of(TextSegment.from("a"), TextSegment.from("b"), TextSegment.from("a"));
+        List<Embedding> first = model.embedAll(segs).content();
+        assertEquals(1, delegate.batchCalls);
+        assertEquals(List.of(2), delegate.batchSizes);
+        assertArrayEquals(first.get(0).vector(), first.get(2).vector());
+
+        model.embedAll(List.of(TextSegment.from("b"), TextSegment.from("c")));
+        assertEquals(List.of(2, 1), delegate.batchSizes);
+        assertEquals(0, delegate.singleCalls);
+    }
+
+    @Test
+    void batchScoresMatchPairwiseScores() {
+        DecoratingEmbeddingModel model = new DecoratingEmbeddingModel(new CountingModel(), new EmbeddingCache.InMemory(), Duration.ofMinutes(5));
+        RelevanceScorer scorer = new RelevanceScorer(model);
+        List<String> docs = List.of("alpha", "", "beta gamma", "alpha");
+
+        double[] batch = scorer.scoreAll("query text", docs);
+        for (int i = 0; i < docs.size(); i++) {
+            assertEquals(scorer.score("query text", docs.get(i)), batch[i], 1e-6);
+        }
+    }
+}
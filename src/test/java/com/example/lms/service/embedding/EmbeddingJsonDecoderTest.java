@@ -0,0 +1,45 @@
+package com.example.lms.service.embedding;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Streaming decoder must agree with the tree parse on Ollama and HF response shapes,
+ * including vectors longer than the initial scratch buffer.
+ */
+class EmbeddingJsonDecoderTest {
+
+    @Test
+    void readsOllamaEmbeddingsAndSkipsOtherFields() throws Exception {
+        String json = "{\"model\":\"m\",\"meta\":{\"a\":[1,2]},\"embeddings\":[[0.5,-1,2e-3],[],[3]],\"total_duration\":12}";
+        List<float[]> v = EmbeddingJsonDecoder.readVectors(json, "embeddings");
+        assertEquals(3, v.size());
+        assertArrayEquals(new float[]{0.5f, -1f, 0.002f}, v.get(0));
+        assertEquals(0, v.get(1).length);
+        assertArrayEquals(new float[]{3f}, v.get(2));
+        assertNull(EmbeddingJsonDecoder.readVectors("{\"error\":\"x\"}", "embeddings"));
+    }
+
+    @Test
+    void largeVectorsMatchTreeParse() throws Exception {
+        Random rnd = new Random(3);
+        float[][] mat = new float[4][5000];
+        for (float[] r : mat) for (int i = 0; i < r.length; i++) r[i] = (float) rnd.nextGaussian();
+        String json = new ObjectMapper().writeValueAsString(java.util.Map.of("embeddings", mat));
+
+        List<float[]> v = EmbeddingJsonDecoder.readVectors(json, "embeddings");
+        for (int r = 0; r < mat.length; r++) assertArrayEquals(mat[r], v.get(r));
+    }
+
+    @Test
+    void readsHfShapes() throws Exception {
+        assertArrayEquals(new float[]{1f, 2f}, EmbeddingJsonDecoder.readFirstVector("[1,2]"));
+        assertArrayEquals(new float[]{1f, 2f}, EmbeddingJsonDecoder.readFirstVector("[[1,2],[3,4]]"));
+        assertEquals(0, EmbeddingJsonDecoder.readFirstVector("{\"error\":\"loading\"}").length);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.lms.service.embedding;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Micro-batcher: requests inside one window share a flush, identical texts are sent once,
+ * every caller receives the vector for its own text, slow flushes overlap, a full queue
+ * rejects, and cancelled texts are not sent.
+ */
+class EmbeddingMicroBatcherTest {
+
+    @Test
+    void coalescesAndDeduplicatesWithinWindow() throws Exception {
+        List<List<String>> flushes = new CopyOnWriteArrayList<>();
+        try (EmbeddingMicroBatcher batcher = new EmbeddingMicroBatcher(texts -> {
+            flushes.add(texts);
+            List<float[]> out = new ArrayList<>();
+            for (String t : texts) out.add(new float[]{t.length()});
+            return new EmbeddingMicroBatcher.Result(out, null);
+        }, 64, 200_000, null)) {
+            List<CompletableFuture<EmbeddingMicroBatcher.Item>> fs = new ArrayList<>();
+            String[] texts = {"a", "bb", "a", "ccc", "bb"};
+            for (String t : texts) fs.add(batcher.submit(t));
+
+            for (int i = 0; i < texts.length; i++) {
+                assertEquals(texts[i].length(), fs.get(i).get(5, TimeUnit.SECONDS).vector()[0]);
+            }
+            assertEquals(1, flushes.size());
+            assertEquals(List.of("a", "bb", "ccc"), flushes.get(0));
+        }
+    }
+
+    @Test
+    void flushesWhenBatchIsFullAndPropagatesFailoverStage() throws Exception {
+        List<Integer> sizes = new CopyOnWriteArrayList<>();
+        try (EmbeddingMicroBatcher batcher = new EmbeddingMicroBatcher(texts -> {
+            sizes.add(texts.size());
+            List<float[]> out = new ArrayList<>();
+            for (String t : texts) out.add(new float[]{1f});
+            return new EmbeddingMicroBatcher.Result(out, "fastfail");
+        }, 2, 5_000_000, null)) {
+            CompletableFuture<EmbeddingMicroBatcher.Item> a = batcher.submit("x");
+            CompletableFuture<EmbeddingMicroBatcher.Item> b = batcher.submit("y");
+            assertEquals("fastfail", a.get(2, TimeUnit.SECONDS).failoverStage());
+            b.get(2, TimeUnit.SECONDS);
+            assertEquals(List.of(2), sizes);
+        }
+    }
+
+    @Test
+    void slowFlushDoesNotBlockNextBatch() throws Exception {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        try (EmbeddingMicroBatcher batcher = new EmbeddingMicroBatcher(texts -> {
+            bothRunning.countDown();
+            await(release);
+            return new EmbeddingMicroBatcher.Result(List.of(new float[]{1f}), null);
+        }, 1, 0, 2, 16, null)) {
+            CompletableFuture<EmbeddingMicroBatcher.Item> a = batcher.submit("a");
+            CompletableFuture<EmbeddingMicroBatcher.Item> b = batcher.submit("b");
+            assertTrue(bothRunning.await(2, TimeUnit.SECONDS), "second batch waited for the first flush");
+            release.countDown();
+            a.get(2, TimeUnit.SECONDS);
+            b.get(2, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void fullQueueRejectsImmediately() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (EmbeddingMicroBatcher batcher = new EmbeddingMicroBatcher(texts -> {
+            await(release);
+            List<float[]> out = new ArrayList<>();
+            for (String t : texts) out.add(new float[]{1f});
+            return new EmbeddingMicroBatcher.Result(out, null);
+        }, 1, 0, 1, 1, null)) {
+            List<CompletableFuture<EmbeddingMicroBatcher.Item>> fs = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                fs.add(batcher.submit("t" + i));
+                Thread.sleep(2);
+            }
+            long rejected = fs.stream().filter(f -> f.isCompletedExceptionally()).count();
+            assertTrue(rejected > 0, "bounded queue should reject while flushes are stuck");
+            ExecutionException ex = assertThrows(ExecutionException.class,
+                    () -> fs.stream().filter(CompletableFuture::isCompletedExceptionally).findFirst().get().get());
+            assertInstanceOf(RejectedExecutionException.class, ex.getCause());
+
+            release.countDown();
+            for (CompletableFuture<EmbeddingMicroBatcher.Item> f : fs) {
+                if (!f.isCompletedExceptionally()) f.get(5, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    @Test
+    void cancelledTextIsNotSent() throws Exception {
+        List<List<String>> flushes = new CopyOnWriteArrayList<>();
+        try (EmbeddingMicroBatcher batcher = new EmbeddingMicroBatcher(texts -> {
+            flushes.add(texts);
+            List<float[]> out = new ArrayList<>();
+            for (String t : texts) out.add(new float[]{1f});
+            return new EmbeddingMicroBatcher.Result(out, null);
+        }, 64, 200_000, null)) {
+            CompletableFuture<EmbeddingMicroBatcher.Item> a = batcher.submit("a");
+            CompletableFuture<EmbeddingMicroBatcher.Item> b = batcher.submit("b");
+            a.cancel(false);
+            b.get(5, TimeUnit.SECONDS);
+            assertEquals(List.of(List.of("b")), flushes);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.lms.service.onnx;
+
+import ai.onnxruntime.NodeInfo;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OnnxValue;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtSession;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/** Batched scoring against a stub session: same scores as per-pair runs, in input order. */
+class OnnxRuntimeServiceBatchTest {
+
+    private final OrtEnvironment env = OrtEnvironment.getEnvironment();
+    private final List<Integer> batchSizes = new ArrayList<>();
+
+    /**
+     * A stand-in cross-encoder whose logit depends on every token position it can see: masked
+     * positions are ignored when the model has an attention mask, and count otherwise.
+     */
+    private OrtSession stubSession(boolean withMask) throws Exception {
+        OrtSession session = mock(OrtSession.class);
+        Map<String, NodeInfo> inputs = new LinkedHashMap<>();
+        inputs.put("input_ids", null);
+        if (withMask) {
+            inputs.put("attention_mask", null);
+        }
+        inputs.put("token_type_ids", null);
+        when(session.getInputInfo()).thenReturn(inputs);
+        Map<String, NodeInfo> outputs = new LinkedHashMap<>();
+        outputs.put("logits", null);
+        when(session.getOutputInfo()).thenReturn(outputs);
+
+        when(session.run(anyMap())).thenAnswer(inv -> {
+            Map<String, OnnxTensor> in = inv.getArgument(0);
+            long[][] ids = (long[][]) in.get("input_ids").getValue();
+            long[][] mask = withMask ? (long[][]) in.get("attention_mask").getValue() : null;
+            batchSizes.add(ids.length);
+            float[][] logits = new float[ids.length][1];
+            for (int r = 0; r < ids.length; r++) {
+                float s = 0;
+                for (int p = 0; p < ids[r].length; p++) {
+                    if (mask == null || mask[r][p] == 1) {
+                        s += (ids[r][p] + 1) * (p + 1) * 0.001f;
+                    }
+                }
+                logits[r][0] = s;
+            }
+            OnnxTensor t = OnnxTensor.createTensor(env, logits);
+            OrtSession.Result res = mock(OrtSession.Result.class);
+            when(res.get(0)).thenReturn(t);
+            when(res.get(anyString())).thenReturn(Optional.<OnnxValue>of(t));
+            return res;
+        });
+        return session;
+    }
+
+    private OnnxRuntimeService service(boolean withMask, int batchSize) throws Exception {
+        OnnxRuntimeService svc = new OnnxRuntimeService();
+        ReflectionTestUtils.setField(svc, "batchSize", batchSize);
+        ReflectionTestUtils.setField(svc, "normalize", false);
+        svc.bindSession(env, stubSession(withMask));
+        return svc;
+    }
+
+    /** Pairs of varied length so batches need padding. */
+    private static OnnxRuntimeService.Enc[] encodings(int n) {
+        SplittableRandom r = new SplittableRandom(7);
+        OnnxRuntimeService.Enc[] encs = new OnnxRuntimeService.Enc[n];
+        for (int i = 0; i < n; i++) {
+            int len = 3 + r.nextInt(40);
+            int[] ids = new int[len];
+            int[] attn = new int[len];
+            int[] tt = new int[len];
+            for (int p = 0; p < len; p++) {
+                ids[p] = 1 + r.nextInt(30000);
+                attn[p] = 1;
+                tt[p] = p < len / 2 ? 0 : 1;
+            }
+            encs[i] = new OnnxRuntimeService.Enc(ids, attn, tt);
+        }
+        return encs;
+    }
+
+    private static float[] score(OnnxRuntimeService svc, OnnxRuntimeService.Enc[] encs) {
+        float[] out = new float[encs.length];
+        java.util.Arrays.fill(out, -1f);
+        svc.scoreEncoded(encs, out);
+        return out;
+    }
+
+    @Test
+    void batchScoresMatchPerPairScoresInInputOrder() throws Exception {
+        OnnxRuntimeService.Enc[] encs = encodings(45);
+
+        float[] batched = score(service(true, 16), encs);
+        assertEquals(List.of(16, 16, 13), batchSizes);
+        batchSizes.clear();
+        float[] perPair = score(service(true, 1), encs);
+
+        for (int i = 0; i < encs.length; i++) {
+            assertNotEquals(-1f, batched[i], "pair " + i + " not scored");
+            assertEquals(perPair[i], batched[i], 1e-4f, "pair " + i);
+        }
+    }
+
+    @Test
+    void modelWithoutAttentionMaskIsScoredOnePairAtATime() throws Exception {
+        OnnxRuntimeService.Enc[] encs = encodings(10);
+
+        float[] out = score(service(false, 16), encs);
+
+        assertEquals(10, batchSizes.size());
+        assertTrue(batchSizes.stream().allMatch(b -> b == 1), batchSizes.toString());
+        batchSizes.clear();
+        float[] single = new float[1];
+        OnnxRuntimeService ref = service(false, 1);
+        for (int i = 0; i < encs.length; i++) {
+            ref.scoreEncoded(new OnnxRuntimeService.Enc[]{encs[i]}, single);
+            assertEquals(single[0], out[i], 1e-4f, "pair " + i);
+        }
+    }
+
+    @Test
+    void oversizedBatchesDoNotGrowRetainedBuffers() throws Exception {
+        OnnxRuntimeService svc = service(true, 64);
+        ReflectionTestUtils.setField(svc, "maxRetainedBufferLongs", 256);
+        OnnxRuntimeService.Enc[] encs = encodings(64);
+        @SuppressWarnings("unchecked")
+        java.nio.LongBuffer[] retained = ((ThreadLocal<java.nio.LongBuffer[]>)
+                ReflectionTestUtils.getField(OnnxRuntimeService.class, "INPUT_BUFFERS")).get();
+        java.util.Arrays.fill(retained, null);
+
+        float[] big = score(svc, encs);
+
+        for (java.nio.LongBuffer b : retained) {
+            assertTrue(b == null || b.capacity() <= 256, "retained " + (b == null ? 0 : b.capacity()));
+        }
+
+        ReflectionTestUtils.setField(svc, "maxRetainedBufferLongs", 65536);
+        float[] ref = score(svc, encs);
+        assertArrayEquals(ref, big, 1e-4f);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.lms.service.rag.auth;
+
+import com.example.lms.domain.enums.RerankSourceCredibility;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.example.lms.domain.enums.RerankSourceCredibility.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Reversed-label trie lookups behind {@link AuthorityScorer} and {@link DomainProfileLoader}. */
+class AuthorityScorerTrieTest {
+
+    private static AuthorityScorer scorer(String overrideUnverified, String weights, String tierFile) {
+        return new AuthorityScorer("", weights, "", "", "",
+                "", "", "", overrideUnverified,
+                1.0, 0.85, 0.80, 0.70, 0.55, 0.25,
+                tierFile, 0L, 1000L);
+    }
+
+    @Test
+    void trieMatchesOnLabelBoundariesOnly() {
+        DomainSuffixTrie<String> t = DomainSuffixTrie.<String>builder()
+                .put("openai.com", "suffix")
+                .putExact("news.naver.com", "exact")
+                .build();
+        assertEquals("suffix", t.mostSpecific("openai.com"));
+        assertEquals("suffix", t.mostSpecific("platform.openai.com"));
+        assertNull(t.mostSpecific("notopenai.com"));
+        assertEquals("exact", t.mostSpecific("news.naver.com"));
+        assertNull(t.mostSpecific("x.news.naver.com"));
+    }
+
+    @Test
+    void builtinTiersKeepHeuristicPrecedence() {
+        AuthorityScorer s = scorer("", "", "");
+        assertEquals(OFFICIAL, s.getSourceCredibility("https://www.moel.go.kr/x"));
+        assertEquals(OFFICIAL, s.getSourceCredibility("https://cs.stanford.edu/a"));
+        assertEquals(OFFICIAL, s.getSourceCredibility("https://www.unsw.edu.au/a"));
+        assertEquals(COMMUNITY, s.getSourceCredibility("https://community.openai.com/t/1"));
+        assertEquals(OFFICIAL, s.getSourceCredibility("https://platform.openai.com/docs"));
+        assertEquals(UNVERIFIED, s.getSourceCredibility("https://blog.naver.com/abc"));
+        assertEquals(TRUSTED, s.getSourceCredibility("https://www.naver.com"));
+        assertEquals(TRUSTED, s.getSourceCredibility("https://news.naver.com/a"));
+        assertEquals(OFFICIAL, s.getSourceCredibility("https://dart.fss.or.kr/x"));
+        assertEquals(TRUSTED, s.getSourceCredibility("https://www.jobplanet.co.kr/x"));
+        assertEquals(OFFICIAL, s.getSourceCredibility("https://blog.google.com/x"));
+        assertEquals(UNVERIFIED, s.getSourceCredibility("https://blog.reuters.com/x"));
+        assertEquals(UNVERIFIED, s.getSourceCredibility("https://foo.tistory.com/1"));
+        assertEquals(OFFICIAL, s.getSourceCredibility("https://docs.python.org/3"));
+        assertEquals(TRUSTED, s.getSourceCredibility("https://en.wikipedia.org/wiki/X"));
+        assertEquals(COMMUNITY, s.getSourceCredibility("https://github.com/a/b"));
+        assertEquals(UNVERIFIED, s.getSourceCredibility("https://notgithub.com/a"));
+    }
+
+    @Test
+    void overridesAndTableBeatBuiltins() {
+        AuthorityScorer s = scorer("gist.github.com", "github.com:0.96,example.org:0.6,docs.example.org:0.8", "");
+        assertEquals(UNVERIFIED, s.getSourceCredibility("https://gist.github.com/x"));
+        assertEquals(OFFICIAL, s.getSourceCredibility("https://github.com/x"));
+        assertEquals(TRUSTED, s.getSourceCredibility("https://docs.example.org/x"));
+        assertEquals(COMMUNITY, s.getSourceCredibility("https://example.org/x"));
+    }
+
+    @Test
+    void tierFileIsHotReloaded(@TempDir Path dir) throws Exception {
+        Path f = dir.resolve("tiers.txt");
+        Files.writeString(f, "# operator tiers\nexample.com OFFICIAL\n=exact.example.net 0.8\n");
+        AuthorityScorer s = scorer("", "", f.toString());
+        assertEquals(OFFICIAL, s.getSourceCredibility("https://a.example.com/x"));
+        assertEquals(TRUSTED, s.getSourceCredibility("https://exact.example.net/x"));
+        assertEquals(UNVERIFIED, s.getSourceCredibility("https://sub.exact.example.net/x"));
+
+        Files.writeString(f, "example.com COMMUNITY\n");
+        Files.setLastModifiedTime(f, FileTime.fromMillis(Files.getLastModifiedTime(f).toMillis() + 5000));
+        assertEquals(COMMUNITY, s.getSourceCredibility("https://a.example.com/x"));
+    }
+
+    @Test
+    void twoHundredCandidateBatchIsCheap() {
+        AuthorityScorer s = scorer("", "", "");
+        String[] hosts = {"go.kr", "naver.com", "blog.naver.com", "github.com", "stackoverflow.com",
+                "openai.com", "reuters.com", "tistory.com", "example.com", "docs.spring.io"};
+        List<String> urls = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            urls.add("https://s" + (i % 20) + "." + hosts[i % hosts.length] + "/p/" + i);
+        }
+        long t0 = System.nanoTime();
+        int official = 0;
+        for (int round = 0; round < 500; round++) {
+            for (String u : urls) {
+                if (s.getSourceCredibility(u) == RerankSourceCredibility.OFFICIAL) official++;
+            }
+        }
+        long ms = (System.nanoTime() - t0) / 1_000_000L;
+        assertTrue(official > 0);
+        assertTrue(ms < 5_000, "100k classifications took " + ms + "ms");
+    }
+}
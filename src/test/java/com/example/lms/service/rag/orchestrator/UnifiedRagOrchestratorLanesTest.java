@@ -0,0 +1,153 @@
+package com.example.lms.service.rag.orchestrator;
+
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lanes run concurrently: a slow web lane no longer delays the vector lane, the
+ * web-empty vector fallback still applies once web has finished, and a lane the pool
+ * rejects runs inline instead of being dropped.
+ */
+class UnifiedRagOrchestratorLanesTest {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void slowEmptyWebOverlapsVectorAndTriggersFallback() {
+        ContentRetriever web = q -> {
+            sleep(300);
+            return List.of();
+        };
+        ContentRetriever vector = q -> {
+            sleep(300);
+            return java.util.stream.IntStream.range(0, 20).mapToObj(i -> Content.from("v" + i)).toList();
+        };
+        UnifiedRagOrchestrator orch = orchestrator(web, vector);
+
+        UnifiedRagOrchestrator.QueryRequest req = request();
+        long t0 = System.nanoTime();
+        UnifiedRagOrchestrator.QueryTrace trace = orch.queryWithTrace(req);
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+
+        assertTrue(ms < 550, "lanes should overlap, took " + ms + "ms");
+        assertEquals("triggered", trace.debug.get("stage.vector.fallback"));
+        assertEquals(16, trace.vector.size()); // max(topK * 2, 10)
+        assertEquals("VECTOR-FALLBACK", trace.vector.get(0).source);
+        assertEquals("ok", trace.debug.get("lane.vector.status"));
+    }
+
+    @Test
+    void goodEnoughCancelsStragglers() {
+        ContentRetriever web = q -> java.util.stream.IntStream.range(0, 8).mapToObj(i -> Content.from("w" + i)).toList();
+        ContentRetriever vector = q -> {
+            sleep(2_000);
+            return List.of(Content.from("late"));
+        };
+        UnifiedRagOrchestrator orch = orchestrator(web, vector);
+        com.example.lms.config.RagProperties props = new com.example.lms.config.RagProperties();
+        props.getLanes().setGoodEnoughDocs(5);
+        ReflectionTestUtils.setField(orch, "ragProperties", props);
+
+        long t0 = System.nanoTime();
+        UnifiedRagOrchestrator.QueryTrace trace = orch.queryWithTrace(request());
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+
+        assertTrue(ms < 1_500, "straggler should be cancelled, took " + ms + "ms");
+        assertEquals("cancelled:good_enough", trace.debug.get("lane.vector.status"));
+        assertEquals(1, trace.debug.get("lanes.wasted.count"));
+        assertEquals(8, trace.web.size());
+    }
+
+    @Test
+    void webFinishedDuringHedgeCountsTowardsGoodEnough() {
+        ContentRetriever web = q -> docs("w", 3);
+        ContentRetriever vector = q -> docs("v", 3);
+        ContentRetriever kg = q -> {
+            sleep(2_000);
+            return List.of(Content.from("late"));
+        };
+        UnifiedRagOrchestrator orch = orchestrator(web, vector);
+        ReflectionTestUtils.setField(orch, "kgRetriever", kg);
+        com.example.lms.config.RagProperties props = new com.example.lms.config.RagProperties();
+        props.getLanes().setHedgeDelayMs(300);
+        props.getLanes().setGoodEnoughDocs(5);
+        ReflectionTestUtils.setField(orch, "ragProperties", props);
+        UnifiedRagOrchestrator.QueryRequest req = request();
+        req.useKg = true;
+
+        long t0 = System.nanoTime();
+        UnifiedRagOrchestrator.QueryTrace trace = orch.queryWithTrace(req);
+        long ms = (System.nanoTime() - t0) / 1_000_000;
+
+        assertTrue(ms < 1_500, "3 web + 3 vector docs are good enough, took " + ms + "ms");
+        assertEquals("cancelled:good_enough", trace.debug.get("lane.kg.status"));
+    }
+
+    @Test
+    void rejectedLaneRunsInline() {
+        ExecutorService saturated = new java.util.concurrent.ThreadPoolExecutor(1, 1, 0L,
+                java.util.concurrent.TimeUnit.MILLISECONDS, new java.util.concurrent.SynchronousQueue<>(),
+                new java.util.concurrent.ThreadPoolExecutor.AbortPolicy());
+        try {
+            ContentRetriever web = q -> {
+                sleep(200);
+                return docs("w", 2);
+            };
+            UnifiedRagOrchestrator orch = orchestrator(web, q -> docs("v", 2));
+            ReflectionTestUtils.setField(orch, "laneExecutor", saturated);
+
+            UnifiedRagOrchestrator.QueryTrace trace = orch.queryWithTrace(request());
+
+            assertEquals("ok", trace.debug.get("lane.web.status"));
+            assertEquals("ok", trace.debug.get("lane.vector.status"));
+            assertEquals(Boolean.TRUE, trace.debug.get("lane.vector.inline"));
+            assertEquals(2, trace.vector.size());
+        } finally {
+            saturated.shutdownNow();
+        }
+    }
+
+    private static List<Content> docs(String prefix, int n) {
+        return java.util.stream.IntStream.range(0, n).mapToObj(i -> Content.from(prefix + i)).toList();
+    }
+
+    private UnifiedRagOrchestrator orchestrator(ContentRetriever web, ContentRetriever vector) {
+        UnifiedRagOrchestrator orch = new UnifiedRagOrchestrator();
+        ReflectionTestUtils.setField(orch, "webRetriever", web);
+        ReflectionTestUtils.setField(orch, "vectorRetriever", vector);
+        ReflectionTestUtils.setField(orch, "laneExecutor", pool);
+        return orch;
+    }
+
+    private static UnifiedRagOrchestrator.QueryRequest request() {
+        UnifiedRagOrchestrator.QueryRequest req = new UnifiedRagOrchestrator.QueryRequest();
+        req.query = "test query";
+        req.useKg = false;
+        req.useBm25 = false;
+        req.enableDiversity = false;
+        req.topK = 8;
+        return req;
+    }
+
+    private static void sleep(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.lms.service.rag.rerank;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Incremental MMR picks the same items as the textbook "recompute max-sim against every
+ * selected item" loop, and embedding cosine is used when vectors are supplied.
+ */
+class DppDiversityRerankerTest {
+
+    public static class Doc {
+        public String title;
+        public String snippet;
+
+        Doc(String title, String snippet) {
+            this.title = title;
+            this.snippet = snippet;
+        }
+    }
+
+    @Test
+    void matchesNaiveMmr() {
+        Random rnd = new Random(11);
+        String[] words = {"seoul", "weather", "game", "patch", "notes", "genshin", "banner", "rain", "team", "build"};
+        List<Doc> docs = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            StringBuilder sb = new StringBuilder();
+            for (int w = 0; w < 6; w++) sb.append(words[rnd.nextInt(words.length)]).append(' ');
+            docs.add(new Doc("t" + (i % 7), sb.toString()));
+        }
+        DppDiversityReranker dpp = new DppDiversityReranker(new DppDiversityReranker.Config(0.6, 10));
+
+        List<Doc> got = dpp.rerank(docs, "genshin banner", 15);
+        assertEquals(naive(docs, "genshin banner", 15, 0.6), got);
+    }
+
+    @Test
+    void usesVectorsWhenPresent() {
+        List<Doc> docs = List.of(new Doc("a", "x"), new Doc("b", "y"), new Doc("c", "z"));
+        Map<Doc, float[]> vec = new IdentityHashMap<>();
+        vec.put(docs.get(0), new float[]{1, 0});
+        vec.put(docs.get(1), new float[]{1, 0.01f}); // near-duplicate of the first
+        vec.put(docs.get(2), new float[]{0, 1});
+        DppDiversityReranker dpp = new DppDiversityReranker(new DppDiversityReranker.Config(0.5, 2));
+
+        List<Doc> got = dpp.rerank(docs, "", 2, vec::get);
+        assertSame(docs.get(2), got.get(1));
+    }
+
+    @Test
+    void signatureSimilarityMatchesSetCosine() {
+        long[] a = DppDiversityReranker.shingleSignature("Hello hello");
+        long[] b = DppDiversityReranker.shingleSignature("hello world");
+        Set<String> A = shingles("Hello hello"), B = shingles("hello world");
+        long inter = A.stream().filter(B::contains).count();
+        assertEquals(A.size(), a.length);
+        assertEquals(inter / Math.sqrt((double) A.size() * B.size()), DppDiversityReranker.textSimilarity(a, b), 1e-12);
+    }
+
+    /** Reference: the original quadratic MMR loop. */
+    private static List<Doc> naive(List<Doc> in, String query, int k, double lambda) {
+        String[] qs = query.toLowerCase(Locale.ROOT).split("\\s+");
+        double[] rel = new double[in.size()];
+        for (int i = 0; i < in.size(); i++) {
+            String t = text(in.get(i)).toLowerCase(Locale.ROOT);
+            int hit = 0;
+            for (String q : qs) if (t.contains(q)) hit++;
+            double base = 1.0 - (i * 1.0 / Math.max(1, in.size() - 1));
+            rel[i] = Math.max(0, Math.min(1, 0.85 * base + 0.15 * Math.min(1.0, hit * 1.0 / qs.length)));
+        }
+        List<Doc> chosen = new ArrayList<>(List.of(in.get(0)));
+        while (chosen.size() < k) {
+            Doc best = null;
+            double bestScore = -1e9;
+            for (int i = 0; i < in.size(); i++) {
+                Doc c = in.get(i);
+                if (chosen.contains(c)) continue;
+                double maxSim = 0;
+                for (Doc s : chosen) {
+                    Set<String> A = shingles(text(c)), B = shingles(text(s));
+                    if (A.isEmpty() || B.isEmpty()) continue;
+                    long inter = A.stream().filter(B::contains).count();
+                    maxSim = Math.max(maxSim, inter / Math.sqrt((double) A.size() * B.size()));
+                }
+                double mmr = lambda * rel[i] - (1 - lambda) * maxSim;
+                if (mmr > bestScore) { bestScore = mmr; best = c; }
+            }
+            chosen.add(best);
+        }
+        return chosen;
+    }
+
+    private static String text(Doc d) {
+        return d.title + " " + d.snippet + " ";
+    }
+
+    private static Set<String> shingles(String s) {
+        Set<String> set = new HashSet<>();
+        s = s.toLowerCase(Locale.ROOT);
+        for (int i = 0; i <= s.length() - 3; i++) set.add(s.substring(i, i + 3));
+        return set;
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.lms.service.reinforcement;
+
+import ai.abandonware.nova.orch.storage.PendingMemoryEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Coalescing and outbox replay of {@link TranslationMemoryWriteBehind}.
+ */
+class TranslationMemoryWriteBehindTest {
+
+    static final class RecordingJdbc extends JdbcTemplate {
+        final List<String> sql = new ArrayList<>();
+        final List<List<Object[]>> args = new ArrayList<>();
+        /** SQL that fails once with a connection error. */
+        String failOnce;
+
+        @Override
+        public int[] batchUpdate(String s, List<Object[]> batchArgs) {
+            if (s.equals(failOnce)) {
+                failOnce = null;
+                throw new DataAccessResourceFailureException("connection reset");
+            }
+            sql.add(s);
+            args.add(batchArgs);
+            return new int[batchArgs.size()];
+        }
+    }
+
+    /** Records commit/rollback; the test jdbc does not actually roll back. */
+    static final class CountingTxManager implements PlatformTransactionManager {
+        int commits;
+        int rollbacks;
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+            commits++;
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+            rollbacks++;
+        }
+    }
+
+    private static TranslationMemoryWriteBehind newBuffer(JdbcTemplate jdbc) {
+        return newBuffer(jdbc, null);
+    }
+
+    private static TranslationMemoryWriteBehind newBuffer(JdbcTemplate jdbc, PlatformTransactionManager tm) {
+        StaticListableBeanFactory bf = new StaticListableBeanFactory(
+                tm == null ? Map.of("jdbc", jdbc) : Map.of("jdbc", jdbc, "tx", tm));
+        return new TranslationMemoryWriteBehind(bf.getBeanProvider(JdbcTemplate.class), null,
+                bf.getBeanProvider(PlatformTransactionManager.class), null,
+                true, 10_000, 60_000, 10_000);
+    }
+
+    private static long hitsWritten(RecordingJdbc jdbc) {
+        long n = 0;
+        for (int i = 0; i < jdbc.sql.size(); i++) {
+            if (jdbc.sql.get(i).equals(TranslationMemoryWriteBehind.SQL_HITS)) {
+                for (Object[] a : jdbc.args.get(i)) n += (Integer) a[0];
+            }
+        }
+        return n;
+    }
+
+    @Test
+    void unknownRowsAreNotBuffered() {
+        TranslationMemoryWriteBehind wb = newBuffer(new RecordingJdbc());
+        try {
+            assertFalse(wb.recordHitIfKnown("h1"));
+            assertEquals(0, wb.pendingCount());
+        } finally {
+            wb.shutdown();
+        }
+    }
+
+    @Test
+    void hitsAndEnergyCoalescePerRow() {
+        RecordingJdbc jdbc = new RecordingJdbc();
+        TranslationMemoryWriteBehind wb = newBuffer(jdbc);
+        try {
+            wb.markKnown("h1");
+            for (int i = 0; i < 5; i++) {
+                assertTrue(wb.recordHitIfKnown("h1"));
+            }
+            wb.recordEnergy("h1", null, 0.1, 1.0);
+            wb.recordEnergy("h1", null, 0.7, 0.5);
+            assertEquals(1, wb.pendingCount());
+
+            assertEquals(1, wb.flush());
+            assertEquals(List.of(TranslationMemoryWriteBehind.SQL_HITS, TranslationMemoryWriteBehind.SQL_ENERGY), jdbc.sql);
+            assertArrayEquals(new Object[]{5, "h1"}, jdbc.args.get(0).get(0));
+            assertArrayEquals(new Object[]{0.7, 0.5, "h1"}, jdbc.args.get(1).get(0));
+            assertEquals(0, wb.pendingCount());
+        } finally {
+            wb.shutdown();
+        }
+    }
+
+    @Test
+    void outboxEventReplaysAsOneBatch() {
+        RecordingJdbc jdbc = new RecordingJdbc();
+        TranslationMemoryWriteBehind wb = newBuffer(jdbc);
+        try {
+            TranslationMemoryWriteBehind.Pending p = new TranslationMemoryWriteBehind.Pending("h2", "s1");
+            p.hits = 3;
+            p.hasEnergy = true;
+            p.energy = 0.25;
+            p.temperature = 0.75;
+            String body = TranslationMemoryWriteBehind.encode(p);
+            PendingMemoryEvent e = new PendingMemoryEvent("s1", "tm:overflow", "h2", body,
+                    java.time.Instant.now(), body.length(), TranslationMemoryWriteBehind.OUTBOX_REASON);
+
+            assertTrue(wb.replay(e));
+            assertEquals(List.of(TranslationMemoryWriteBehind.SQL_HITS, TranslationMemoryWriteBehind.SQL_ENERGY_SESSION), jdbc.sql);
+            assertArrayEquals(new Object[]{3, "h2"}, jdbc.args.get(0).get(0));
+            assertArrayEquals(new Object[]{0.25, 0.75, "h2", "s1"}, jdbc.args.get(1).get(0));
+        } finally {
+            wb.shutdown();
+        }
+    }
+
+    @Test
+    void partialFailureWithoutTransactionRetriesOnlyUncommittedGroups() {
+        RecordingJdbc jdbc = new RecordingJdbc();
+        TranslationMemoryWriteBehind wb = newBuffer(jdbc);
+        try {
+            wb.markKnown("h1");
+            for (int i = 0; i < 3; i++) {
+                wb.recordHitIfKnown("h1");
+            }
+            wb.recordEnergy("h1", null, 0.4, 0.6);
+            jdbc.failOnce = TranslationMemoryWriteBehind.SQL_ENERGY;
+
+            assertThrows(TranslationMemoryWriteBehind.WriteFailedException.class, wb::flush);
+            assertEquals(1, wb.pendingCount());
+            wb.flush();
+
+            assertEquals(3, hitsWritten(jdbc), "hits already committed must not be applied again");
+            assertEquals(List.of(TranslationMemoryWriteBehind.SQL_HITS, TranslationMemoryWriteBehind.SQL_ENERGY), jdbc.sql);
+        } finally {
+            wb.shutdown();
+        }
+    }
+
+    @Test
+    void failureInsideTransactionRollsBackAndRetriesEverything() {
+        RecordingJdbc jdbc = new RecordingJdbc();
+        CountingTxManager tm = new CountingTxManager();
+        TranslationMemoryWriteBehind wb = newBuffer(jdbc, tm);
+        try {
+            wb.markKnown("h1");
+            wb.recordHitIfKnown("h1");
+            wb.recordEnergy("h1", null, 0.4, 0.6);
+            jdbc.failOnce = TranslationMemoryWriteBehind.SQL_ENERGY;
+
+            assertThrows(TranslationMemoryWriteBehind.WriteFailedException.class, wb::flush);
+            assertEquals(1, tm.rollbacks);
+            jdbc.sql.clear();
+            jdbc.args.clear();
+            wb.flush();
+
+            assertEquals(1, tm.commits);
+            assertEquals(List.of(TranslationMemoryWriteBehind.SQL_HITS, TranslationMemoryWriteBehind.SQL_ENERGY), jdbc.sql);
+        } finally {
+            wb.shutdown();
+        }
+    }
+
+    @Test
+    void partiallyAppliedReplayIsConsumedAndRestIsBuffered() {
+        RecordingJdbc jdbc = new RecordingJdbc();
+        TranslationMemoryWriteBehind wb = newBuffer(jdbc);
+        try {
+            TranslationMemoryWriteBehind.Pending p = new TranslationMemoryWriteBehind.Pending("h3", null);
+            p.hits = 2;
+            p.hasEnergy = true;
+            p.energy = 0.1;
+            p.temperature = 0.9;
+            String body = TranslationMemoryWriteBehind.encode(p);
+            PendingMemoryEvent e = new PendingMemoryEvent(null, "tm:overflow", "h3", body,
+                    java.time.Instant.now(), body.length(), TranslationMemoryWriteBehind.OUTBOX_REASON);
+            jdbc.failOnce = TranslationMemoryWriteBehind.SQL_ENERGY;
+
+            assertTrue(wb.replay(e), "no drainer nack after the hits were committed");
+            assertEquals(1, wb.pendingCount());
+            wb.flush();
+            assertEquals(2, hitsWritten(jdbc));
+        } finally {
+            wb.shutdown();
+        }
+    }
+
+    @Test
+    void deltasWithoutJdbcOrOutboxAreCountedAsDropped() {
+        StaticListableBeanFactory empty = new StaticListableBeanFactory();
+        TranslationMemoryWriteBehind wb = new TranslationMemoryWriteBehind(empty.getBeanProvider(JdbcTemplate.class),
+                null, null, null, true, 10_000, 60_000, 10_000);
+        try {
+            wb.recordEnergy("h4", null, 0.2, 0.8);
+            assertEquals(0, wb.flush());
+            assertEquals(1, wb.droppedCount());
+        } finally {
+            wb.shutdown();
+        }
+    }
+}
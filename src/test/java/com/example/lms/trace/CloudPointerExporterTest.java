@@ -0,0 +1,112 @@
+package com.example.lms.trace;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Batching, drop-oldest and per-endpoint backoff of the trace exporter. */
+class CloudPointerExporterTest {
+
+    private final List<HttpServer> servers = new ArrayList<>();
+
+    @AfterEach
+    void stopServers() {
+        servers.forEach(s -> s.stop(0));
+    }
+
+    /** Collector that records every NDJSON line it receives and answers {@code status}. */
+    private String collector(int status, List<String> lines, AtomicInteger hits) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/ingest", ex -> {
+            hits.incrementAndGet();
+            byte[] raw = ex.getRequestBody().readAllBytes();
+            InputStream in = "gzip".equals(ex.getRequestHeaders().getFirst("Content-Encoding"))
+                    ? new GZIPInputStream(new ByteArrayInputStream(raw))
+                    : new ByteArrayInputStream(raw);
+            for (String l : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (!l.isBlank()) {
+                    lines.add(l);
+                }
+            }
+            ex.sendResponseHeaders(status, -1);
+            ex.close();
+        });
+        server.start();
+        servers.add(server);
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/ingest";
+    }
+
+    @Test
+    void eventsArriveAsGzipNdjsonBatches() throws IOException {
+        List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger hits = new AtomicInteger();
+        String url = collector(200, lines, hits);
+
+        CloudPointerExporter ex = new CloudPointerExporter(List.of(url), "", 2000, 100, 50, 50, true, 0);
+        ex.start();
+        for (int i = 0; i < 5; i++) {
+            ex.enqueue("orchestration_decision", "route", Map.of("i", i));
+        }
+        ex.close(Duration.ofSeconds(5));
+
+        assertEquals(5, lines.size());
+        assertTrue(lines.get(0).contains("\"type\":\"orchestration_decision\""));
+        assertTrue(hits.get() >= 1 && hits.get() <= 5);
+        assertEquals(5L, ex.stats().get("sent"));
+    }
+
+    @Test
+    void fullQueueDropsOldest() throws IOException {
+        List<String> lines = Collections.synchronizedList(new ArrayList<>());
+        String url = collector(200, lines, new AtomicInteger());
+
+        CloudPointerExporter ex = new CloudPointerExporter(List.of(url), "", 2000, 3, 50, 50, false, 0);
+        for (int i = 0; i < 5; i++) {
+            ex.enqueue("t" + i, "s", Map.of());
+        }
+        assertEquals(2L, ex.stats().get("dropped"));
+        ex.flush();
+
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).contains("\"t2\""));
+        assertTrue(lines.get(2).contains("\"t4\""));
+    }
+
+    @Test
+    void failingEndpointBacksOffWithoutBlockingHealthyOne() throws IOException {
+        List<String> good = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger badHits = new AtomicInteger();
+        String okUrl = collector(200, good, new AtomicInteger());
+        String badUrl = collector(503, new ArrayList<>(), badHits);
+
+        CloudPointerExporter ex = new CloudPointerExporter(List.of(badUrl, okUrl), "tok", 2000, 100, 50, 50, true, 1);
+        ex.enqueue("a", "s", Map.of());
+        ex.flush();
+        assertEquals(2, badHits.get(), "initial attempt + one retry");
+        assertEquals(1, good.size());
+
+        ex.enqueue("b", "s", Map.of());
+        ex.flush();
+        assertEquals(2, badHits.get(), "backing off: not contacted again");
+        assertEquals(2, good.size());
+        Map<String, Object> st = ex.stats();
+        assertEquals(2L, st.get("sent"));
+        assertEquals(2L, st.get("failed"));
+        assertEquals(1L, st.get("retries"));
+    }
+}
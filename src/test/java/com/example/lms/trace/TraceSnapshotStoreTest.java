@@ -0,0 +1,110 @@
+package com.example.lms.trace;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+/** Ring capture, lazy HTML, and spill of evicted snapshots across a restart. */
+class TraceSnapshotStoreTest {
+
+    @SuppressWarnings("unchecked")
+    private static TraceSnapshotStore store(int maxSize, Path spillDir) {
+        TraceSnapshotStore s = new TraceSnapshotStore(mock(ObjectProvider.class));
+        ReflectionTestUtils.setField(s, "enabled", true);
+        ReflectionTestUtils.setField(s, "maxSize", maxSize);
+        ReflectionTestUtils.setField(s, "maxValueLen", 2000);
+        ReflectionTestUtils.setField(s, "maxEntries", 800);
+        ReflectionTestUtils.setField(s, "allowReasonsCsv", "");
+        ReflectionTestUtils.setField(s, "denyReasonsCsv", "");
+        ReflectionTestUtils.setField(s, "allowKeysCsv", "");
+        ReflectionTestUtils.setField(s, "denyKeysCsv", "");
+        ReflectionTestUtils.setField(s, "captureSample", 1.0d);
+        ReflectionTestUtils.setField(s, "htmlEnabled", true);
+        ReflectionTestUtils.setField(s, "htmlMaxLen", 60000);
+        ReflectionTestUtils.setField(s, "asyncQueueCapacity", 256);
+        ReflectionTestUtils.setField(s, "spillEnabled", spillDir != null);
+        ReflectionTestUtils.setField(s, "spillDir", spillDir == null ? "" : spillDir.toString());
+        ReflectionTestUtils.setField(s, "spillSegmentSnapshots", 3);
+        ReflectionTestUtils.setField(s, "spillMaxSegments", 10);
+        s.init();
+        return s;
+    }
+
+    private static String capture(TraceSnapshotStore s, int i, Map<String, Object> trace) {
+        return s.captureCustom("task_" + i, "GET", "/p/" + i, null, null, trace, null);
+    }
+
+    @Test
+    void captureIsVisibleImmediatelyAndHtmlRendersOnDemand() {
+        TraceSnapshotStore s = store(8, null);
+        List<String> live = new ArrayList<>(List.of("a"));
+        Map<String, Object> trace = new LinkedHashMap<>();
+        trace.put("orch.stage", "retrieve");
+        trace.put("web.list", live);
+
+        String id = capture(s, 1, trace);
+        assertNotNull(id);
+        // Mutating the live trace after capture must not leak into the snapshot.
+        live.add("b");
+        trace.put("late", 1);
+
+        TraceSnapshotStore.TraceSnapshot snap = s.get(id).orElseThrow();
+        assertNull(snap.html());
+        assertEquals(List.of("a"), snap.trace().get("web.list"));
+        assertFalse(snap.trace().containsKey("late"));
+
+        String html = s.getWithHtml(id).orElseThrow().html();
+        assertNotNull(html);
+        assertTrue(html.contains(id));
+        assertSame(html, s.getWithHtml(id).orElseThrow().html());
+        assertEquals(1L, s.captureStats().get("htmlRendered"));
+        s.shutdown();
+    }
+
+    @Test
+    void ringKeepsNewestAndListsNewestFirst() {
+        TraceSnapshotStore s = store(4, null);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(capture(s, i, Map.of("k", i)));
+        }
+        List<Map<String, Object>> sums = s.listSummaries(50);
+        assertEquals(4, sums.size());
+        assertEquals(ids.get(9), sums.get(0).get("id"));
+        assertEquals(ids.get(6), sums.get(3).get("id"));
+        assertTrue(s.get(ids.get(5)).isEmpty());
+        s.shutdown();
+    }
+
+    @Test
+    void evictedAndLiveSnapshotsSurviveRestartViaSpill(@TempDir Path dir) {
+        TraceSnapshotStore s = store(4, dir);
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            ids.add(capture(s, i, Map.of("k", i)));
+        }
+        s.shutdown();
+
+        TraceSnapshotStore restarted = store(4, dir);
+        for (String id : ids) {
+            TraceSnapshotStore.TraceSnapshot snap = restarted.get(id).orElse(null);
+            assertNotNull(snap, id);
+            assertEquals(ids.indexOf(id), ((Number) snap.trace().get("k")).intValue());
+        }
+        List<Map<String, Object>> sums = restarted.listSummaries(4);
+        assertEquals(ids.get(11), sums.get(0).get("id"));
+        assertEquals(Boolean.TRUE, sums.get(0).get("spilled"));
+        assertNotNull(restarted.getWithHtml(ids.get(0)).orElseThrow().html());
+        restarted.shutdown();
+    }
+}
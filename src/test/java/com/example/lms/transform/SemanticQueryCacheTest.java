@@ -0,0 +1,86 @@
+package com.example.lms.transform;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** Near-duplicate lookup, numeric guard and shadow false-hit accounting. */
+class SemanticQueryCacheTest {
+
+    /** Fixed vectors per normalised query; unknown queries are orthogonal to everything. */
+    private static Function<String, float[]> embedder(Map<String, float[]> table) {
+        return q -> table.getOrDefault(q, new float[]{0f, 0f, 0f, 1f});
+    }
+
+    private static SemanticQueryCache cache(Map<String, float[]> table) {
+        return new SemanticQueryCache(true, embedder(table), 0.95, 8, 60_000L, 1.0, 2);
+    }
+
+    @Test
+    void nearDuplicateWithinTaskIsReused() {
+        SemanticQueryCache c = cache(Map.of(
+                "spring boot 캐시 설정", new float[]{1f, 0.01f, 0f, 0f},
+                "spring boot 캐시 설정 방법", new float[]{1f, 0.05f, 0f, 0f}));
+
+        float[] v1 = c.embed("Spring  Boot 캐시 설정");
+        assertNull(c.lookup("intent", "Spring Boot 캐시 설정", v1));
+        c.put("intent", "Spring Boot 캐시 설정", v1, "TECHNICAL_HOWTO");
+
+        float[] v2 = c.embed("spring boot 캐시 설정 방법");
+        SemanticQueryCache.Match m = c.lookup("intent", "spring boot 캐시 설정 방법", v2);
+        assertNotNull(m);
+        assertEquals("TECHNICAL_HOWTO", m.answer());
+        assertTrue(m.similarity() >= 0.95);
+
+        // Same query, different task: never crosses template boundaries.
+        assertNull(c.lookup("subq", "spring boot 캐시 설정 방법", v2));
+
+        SemanticQueryCache.Stats s = c.stats();
+        assertEquals(3, s.lookups());
+        assertEquals(1, s.hits());
+    }
+
+    @Test
+    void differingNumbersBlockReuse() {
+        float[] same = {1f, 0f, 0f, 0f};
+        SemanticQueryCache c = cache(Map.of("아이폰 15 가격", same, "아이폰 16 가격", same));
+
+        c.put("variants:", "아이폰 15 가격", c.embed("아이폰 15 가격"), "아이폰 15 출고가");
+        assertNull(c.lookup("variants:", "아이폰 16 가격", c.embed("아이폰 16 가격")));
+    }
+
+    @Test
+    void shadowDisagreementCountsFalseHitAndRetiresEntry() {
+        float[] same = {1f, 0f, 0f, 0f};
+        SemanticQueryCache c = cache(Map.of("서울 날씨", same, "서울 날씨 어때", same));
+        c.put("subq", "서울 날씨", c.embed("서울 날씨"), "서울 오늘 날씨");
+
+        SemanticQueryCache.Match m = c.lookup("subq", "서울 날씨 어때", c.embed("서울 날씨 어때"));
+        assertNotNull(m);
+        assertTrue(c.sampleShadow());
+        assertFalse(c.recordShadow(m, "서울 오늘 날씨 예보"));
+        assertTrue(c.recordShadow(m, "부산 해수욕장 개장"));
+
+        SemanticQueryCache.Stats s = c.stats();
+        assertEquals(2, s.shadowChecks());
+        assertEquals(1, s.falseHits());
+        assertEquals(0.5, s.falseHitRate(), 1e-9);
+        assertNull(c.lookup("subq", "서울 날씨 어때", c.embed("서울 날씨 어때")));
+    }
+
+    @Test
+    void disabledOrFailingEmbedderIsAMiss() {
+        SemanticQueryCache off = new SemanticQueryCache(false, q -> new float[]{1f}, 0.9, 8, 60_000L, 0.0, 1);
+        assertFalse(off.isEnabled());
+        assertNull(off.embed("anything"));
+
+        SemanticQueryCache failing = new SemanticQueryCache(true, q -> {
+            throw new IllegalStateException("embedding down");
+        }, 0.9, 8, 60_000L, 0.0, 1);
+        assertNull(failing.embed("anything"));
+        assertNull(failing.lookup("intent", "anything", null));
+    }
+}
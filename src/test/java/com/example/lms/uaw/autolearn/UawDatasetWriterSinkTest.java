@@ -0,0 +1,101 @@
+package com.example.lms.uaw.autolearn;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * flush() makes queued samples readable, and the number of open dataset files stays bounded
+ * without losing or interleaving lines from evicted files.
+ */
+class UawDatasetWriterSinkTest {
+
+    @TempDir
+    Path dir;
+
+    private final UawDatasetTrainingDataFilter filter = mock(UawDatasetTrainingDataFilter.class);
+    private UawDatasetWriter writer;
+
+    @AfterEach
+    void tearDown() {
+        if (writer != null) writer.close();
+    }
+
+    @Test
+    void flushMakesQueuedLinesVisible() throws Exception {
+        writer = new UawDatasetWriter(filter, 4);
+        Path file = dir.resolve("train.jsonl");
+        for (int i = 0; i < 50; i++) {
+            assertTrue(writer.append(file.toFile(), "ds", "q" + i, "a" + i, "m", 1, "s"));
+        }
+
+        assertTrue(writer.flush(2_000));
+        assertEquals(50, Files.readAllLines(file).size());
+    }
+
+    @Test
+    void openFilesAreBoundedAndEvictedFilesKeepTheirLines() throws Exception {
+        writer = new UawDatasetWriter(filter, 2);
+        for (int round = 0; round < 3; round++) {
+            for (int f = 0; f < 5; f++) {
+                assertTrue(writer.append(dir.resolve("d" + f + ".jsonl").toFile(), "ds", "q" + round, "a", "m", 1, "s"));
+            }
+        }
+        assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(writer, "sinks")).size() <= 2);
+
+        writer.close();
+        for (int f = 0; f < 5; f++) {
+            assertEquals(3, Files.readAllLines(dir.resolve("d" + f + ".jsonl")).size(), "file d" + f);
+        }
+    }
+
+    @Test
+    void concurrentEvictionKeepsOneWriterPerFileAndFlushWaitsForDrainingSinks() throws Exception {
+        writer = new UawDatasetWriter(filter, 1);
+        int threads = 4;
+        int perThread = 300;
+        String big = "x".repeat(2_000); // long lines make interleaved writers visible as broken JSON
+        java.util.concurrent.ExecutorService pool = java.util.concurrent.Executors.newFixedThreadPool(threads);
+        java.util.concurrent.CountDownLatch start = new java.util.concurrent.CountDownLatch(1);
+        java.util.List<java.util.concurrent.Future<Integer>> done = new java.util.ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            done.add(pool.submit(() -> {
+                start.await();
+                int ok = 0;
+                for (int i = 0; i < perThread; i++) {
+                    Path f = dir.resolve("d" + ((id + i) % 3) + ".jsonl");
+                    if (writer.append(f.toFile(), "ds", "q" + id + "-" + i, big, "m", 1, "s")) ok++;
+                }
+                return ok;
+            }));
+        }
+        start.countDown();
+        int accepted = 0;
+        for (java.util.concurrent.Future<Integer> f : done) accepted += f.get(30, java.util.concurrent.TimeUnit.SECONDS);
+        pool.shutdown();
+
+        assertTrue(writer.flush(10_000));
+        com.fasterxml.jackson.databind.ObjectMapper om = new com.fasterxml.jackson.databind.ObjectMapper();
+        int lines = 0;
+        for (int f = 0; f < 3; f++) {
+            Path p = dir.resolve("d" + f + ".jsonl");
+            if (!Files.exists(p)) continue;
+            for (String line : Files.readAllLines(p)) {
+                assertEquals(big, om.readTree(line).get("answer").asText(), "corrupt line in d" + f);
+                lines++;
+            }
+        }
+        // Under this much eviction churn an append may report false; every accepted line must be on disk.
+        assertTrue(accepted > 0);
+        assertEquals(accepted, lines);
+    }
+}
@@ -0,0 +1,187 @@
+package com.example.lms.vector;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.filter.MetadataFilterBuilder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Local store: data survives a reopen, a torn tail is dropped without losing complete
+ * records, sid filters are honoured, a failed append or compaction changes nothing, skip-known
+ * checks key on fingerprint and writer, and the mirror stays within its row cap.
+ */
+class LocalAnnEmbeddingStoreTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void reopenReplaysUpsertsAndRemovals() throws Exception {
+        try (LocalAnnEmbeddingStore store = new LocalAnnEmbeddingStore(dir, true)) {
+            store.addAll(List.of("a", "b", "c"),
+                    List.of(emb(1, 0), emb(0, 1), emb(1, 1)),
+                    List.of(seg("A", "s1"), seg("B", "s1"), seg("C", "s2")));
+            store.addAll(List.of("a"), List.of(emb(-1, 0)), List.of(seg("A2", "s1")));
+            store.removeAll(List.of("b"));
+        }
+        try (LocalAnnEmbeddingStore store = new LocalAnnEmbeddingStore(dir, true)) {
+            assertEquals(2, store.size());
+            assertFalse(store.contains("b"));
+            assertTrue(store.isCurrent("a", TextSegment.from("A2"), "fp1"));
+            EmbeddingMatch<TextSegment> top = store.search(req(emb(-1, 0), null)).matches().get(0);
+            assertEquals("a", top.embeddingId());
+            assertEquals("s1", top.embedded().metadata().getString("sid"));
+            assertEquals(1.0, top.score(), 1e-6);
+        }
+    }
+
+    @Test
+    void tornTailIsTruncated() throws Exception {
+        try (LocalAnnEmbeddingStore store = new LocalAnnEmbeddingStore(dir, true)) {
+            store.addAll(List.of("a"), List.of(emb(1, 0)), List.of(seg("A", "s1")));
+        }
+        Path log = dir.resolve(LocalAnnEmbeddingStore.LOG_FILE);
+        long good = Files.size(log);
+        Files.write(log, new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (LocalAnnEmbeddingStore store = new LocalAnnEmbeddingStore(dir, true)) {
+            assertEquals(1, store.size());
+            assertEquals(good, Files.size(log));
+            store.addAll(List.of("b"), List.of(emb(0, 1)), List.of(seg("B", "s1")));
+        }
+        try (LocalAnnEmbeddingStore store = new LocalAnnEmbeddingStore(dir, true)) {
+            assertEquals(2, store.size());
+        }
+    }
+
+    @Test
+    void sidFilterIsPushedDown() throws Exception {
+        try (LocalAnnEmbeddingStore store = new LocalAnnEmbeddingStore(dir, false)) {
+            store.addAll(List.of("a", "b", "c"),
+                    List.of(emb(1, 0), emb(0.9f, 0.1f), emb(0, 1)),
+                    List.of(seg("A", "s1"), seg("B", "s2"), seg("C", "s2")));
+            var filter = MetadataFilterBuilder.metadataKey("sid").isEqualTo("s2");
+            List<EmbeddingMatch<TextSegment>> hits = store.search(req(emb(1, 0), filter)).matches();
+            assertEquals(List.of("b", "c"), hits.stream().map(EmbeddingMatch::embeddingId).toList());
+
+            store.removeAll(filter);
+            assertEquals(1, store.size());
+            assertTrue(store.search(req(emb(1, 0), filter)).matches().isEmpty());
+        }
+    }
+
+    @Test
+    void isCurrentRequiresSameFingerprintAndWriter() throws Exception {
+        try (LocalAnnEmbeddingStore store = new LocalAnnEmbeddingStore(dir, true)) {
+            store.addAll(List.of("a"), List.of(emb(1, 0)), List.of(seg("A", "s1")));
+            assertTrue(store.isCurrent("a", TextSegment.from("A"), "fp1"));
+            assertFalse(store.isCurrent("a", TextSegment.from("A"), "fp2"));
+            assertFalse(store.isCurrent("a", TextSegment.from("A"), null));
+
+            store.writerId("upstash");
+            assertFalse(store.isCurrent("a", TextSegment.from("A"), "fp1"), "row was stored for another writer");
+            store.addAll(List.of("a"), List.of(emb(1, 0)), List.of(seg("A", "s1")));
+            assertTrue(store.isCurrent("a", TextSegment.from("A"), "fp1"));
+        }
+        try (LocalAnnEmbeddingStore store = new LocalAnnEmbeddingStore(dir, true)) {
+            assertFalse(store.isCurrent("a", TextSegment.from("A"), "fp1"));
+            store.writerId("upstash");
+            assertTrue(store.isCurrent("a", TextSegment.from("A"), "fp1"), "writer survives replay");
+        }
+    }
+
+    @Test
+    void failedAppendLeavesRowsVisible() throws Exception {
+        try (LocalAnnEmbeddingStore store = new LocalAnnEmbeddingStore(dir, true)) {
+            store.addAll(List.of("a", "b"), List.of(emb(1, 0), emb(0, 1)), List.of(seg("A", "s1"), seg("B", "s1")));
+            ((java.nio.channels.FileChannel) ReflectionTestUtils.getField(store, "channel")).close();
+
+            assertThrows(java.io.UncheckedIOException.class, () -> store.removeAll(List.of("a")));
+            assertThrows(java.io.UncheckedIOException.class, () -> store.removeAll());
+            assertEquals(2, store.size());
+            assertTrue(store.contains("a"));
+        }
+        try (LocalAnnEmbeddingStore store = new LocalAnnEmbeddingStore(dir, true)) {
+            assertEquals(2, store.size());
+        }
+    }
+
+    @Test
+    void mirrorCapEvictsLeastRecentlyWrittenAndSurvivesReopen() throws Exception {
+        try (LocalAnnEmbeddingStore store = new LocalAnnEmbeddingStore(dir, true)) {
+            store.mirrorMaxRows(2);
+            store.addAll(List.of("a", "b"), List.of(emb(1, 0), emb(0, 1)), List.of(seg("A", "s1"), seg("B", "s1")));
+            store.addAll(List.of("c"), List.of(emb(1, 1)), List.of(seg("C", "s1")));
+            assertEquals(3, store.size(), "the local writer is never trimmed");
+
+            store.writerId("upstash");
+            store.addAll(List.of("a"), List.of(emb(1, 0)), List.of(seg("A", "s1"))); // a is now the newest
+            store.addAll(List.of("d"), List.of(emb(0, 1)), List.of(seg("D", "s1")));
+            assertEquals(2, store.size());
+            assertTrue(store.contains("a") && store.contains("d"));
+        }
+        try (LocalAnnEmbeddingStore store = new LocalAnnEmbeddingStore(dir, true)) {
+            assertEquals(2, store.size());
+            assertFalse(store.contains("b") || store.contains("c"));
+        }
+    }
+
+    @Test
+    void failedCompactionMoveKeepsStoreUsable() throws Exception {
+        java.util.concurrent.atomic.AtomicInteger moves = new java.util.concurrent.atomic.AtomicInteger();
+        try (LocalAnnEmbeddingStore store = new LocalAnnEmbeddingStore(dir, true) {
+            @Override
+            void moveIntoPlace(Path compacted) throws java.io.IOException {
+                moves.incrementAndGet();
+                throw new java.nio.file.AccessDeniedException(compacted.toString());
+            }
+        }) {
+            for (int i = 0; i < 1_100; i++) {
+                store.addAll(List.of("a"), List.of(emb(1, i)), List.of(seg("A" + i, "s1")));
+            }
+            store.addAll(List.of("b"), List.of(emb(0, 1)), List.of(seg("B", "s1")));
+            assertEquals(1, moves.get(), "compaction ran once and is not retried on every append");
+            assertEquals(2, store.size());
+            assertEquals("b", store.search(req(emb(0, 1), null)).matches().get(0).embeddingId());
+        }
+        try (LocalAnnEmbeddingStore store = new LocalAnnEmbeddingStore(dir, true)) {
+            assertEquals(2, store.size());
+            assertTrue(store.isCurrent("a", TextSegment.from("A1099"), "fp1"));
+        }
+    }
+
+    @Test
+    void searchResultsDoNotExposeStoredVectors() throws Exception {
+        try (LocalAnnEmbeddingStore store = new LocalAnnEmbeddingStore(dir, true)) {
+            store.addAll(List.of("a"), List.of(emb(1, 0)), List.of(seg("A", "s1")));
+            store.search(req(emb(1, 0), null)).matches().get(0).embedding().vector()[0] = -1f;
+
+            assertEquals(1.0, store.search(req(emb(1, 0), null)).matches().get(0).score(), 1e-6);
+        }
+    }
+
+    private static Embedding emb(float x, float y) {
+        return Embedding.from(new float[]{x, y});
+    }
+
+    private static TextSegment seg(String text, String sid) {
+        return TextSegment.from(text, Metadata.from(Map.of("sid", sid, EmbeddingFingerprint.META_EMB_FP, "fp1")));
+    }
+
+    private static EmbeddingSearchRequest req(Embedding q, dev.langchain4j.store.embedding.filter.Filter filter) {
+        return EmbeddingSearchRequest.builder().queryEmbedding(q).maxResults(5).minScore(0.0).filter(filter).build();
+    }
+}